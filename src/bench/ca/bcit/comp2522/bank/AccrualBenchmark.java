@@ -0,0 +1,290 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times AccrualEngine daily runs over ACCOUNTS accounts, on one thread and on every processor, and reports
+ * accounts accrued per second. Then checks resuming: a run on one bank is cancelled part way through, by a
+ * listener on an account in the middle, and run again, and its balances must match a twin bank accrued in
+ * a single run, with no account charged twice.
+ * Running a finished run again must change nothing. Last, a run journalled to a TransactionJournal is
+ * crashed part way through a chunk by a listener that throws, the bank is recovered from a BankSnapshot and
+ * the journal, and the run is resumed; no account in the unfinished chunk may be accrued twice.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccrualBenchmark
+{
+    private static final int    ACCOUNTS          = 1_000_000;
+    private static final int    FIRST_CLIENT_ID   = 1_000_000;
+    private static final int    FIRST_ACCOUNT     = 3_000_000;
+    private static final int    PIN               = 1234;
+    private static final int    CLOSED_EVERY      = 10;
+    private static final int    RATE_BASIS_POINTS = 250;
+    private static final long   DAILY_FEE_CENTS   = 0L;
+    private static final long   MONTHLY_FEE_CENTS = 95L;
+    private static final int    TIMED_DAYS        = 10;
+    private static final int    GROUP_COMMIT      = 4_096;
+    private static final long   SYNC_MILLIS       = 10L;
+    private static final long   QUIESCE_SECONDS   = 60L;
+    private static final double NANOS_PER_MILLI   = 1_000_000.0;
+    private static final Date   FIRST_RUN_DATE    = Date.of(2024, 1, 1);
+    private static final Date   MONTH_END         = Date.of(2024, 1, 31);
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     * @throws IOException          if a checkpoint, snapshot or journal cannot be written
+     * @throws InterruptedException if interrupted while waiting for a crashed run's tasks
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final Path checkpoint;
+
+        checkpoint = Files.createTempFile("accrual", ".checkpoint");
+        try
+        {
+            timeDailyRuns(checkpoint, new ForkJoinPool(1));
+            timeDailyRuns(checkpoint, ForkJoinPool.commonPool());
+            cancelAndResume(checkpoint);
+            crashAndRecover(checkpoint);
+        }
+        finally
+        {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    /**
+     * Runs TIMED_DAYS consecutive daily runs on a new bank and reports the throughput of each.
+     *
+     * @param checkpoint the checkpoint file
+     * @param pool       the pool to run on
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private static void timeDailyRuns(final Path checkpoint,
+                                      final ForkJoinPool pool) throws IOException
+    {
+        final Bank          bank;
+        final AccrualEngine engine;
+
+        bank   = buildBank();
+        engine = new AccrualEngine(AccrualEngine.Period.DAILY, RATE_BASIS_POINTS, DAILY_FEE_CENTS);
+        for(int day = 0; day < TIMED_DAYS; day++)
+        {
+            final AccrualEngine.Result result;
+
+            result = engine.run(bank, Date.ofEpochDay(FIRST_RUN_DATE.getEpochDay() + day), checkpoint, pool);
+            System.out.printf("daily run, %2d threads: %,d accounts in %.1f ms, %,.0f accounts/s, interest $%s%n",
+                              pool.getParallelism(),
+                              result.accrued(),
+                              result.elapsedNanos() / NANOS_PER_MILLI,
+                              result.getAccountsPerSecond(),
+                              Money.formatUsd(result.interestCents()));
+        }
+    }
+
+    /**
+     * Cancels a monthly run part way, resumes it, and checks it against an uninterrupted run on a twin bank.
+     *
+     * @param checkpoint the checkpoint file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private static void cancelAndResume(final Path checkpoint) throws IOException
+    {
+        final Bank                 whole;
+        final Bank                 resumed;
+        final AccrualEngine        engine;
+        final AccrualEngine.Result expected;
+        final AccrualEngine.Result first;
+        final AccrualEngine.Result second;
+        final AccrualEngine.Result again;
+        final BankAccount          trigger;
+        final AtomicBoolean        cancel;
+
+        whole    = buildBank();
+        resumed  = buildBank();
+        engine   = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, MONTHLY_FEE_CENTS);
+        expected = engine.run(whole, MONTH_END, checkpoint, ForkJoinPool.commonPool());
+        Files.delete(checkpoint);
+
+        cancel  = new AtomicBoolean();
+        trigger = resumed.getAllAccounts().get(ACCOUNTS / 2 + 1);
+        trigger.addListener(new BalanceListener()
+        {
+            @Override
+            public void balanceChanged(final BankAccount account,
+                                       final TransactionType type,
+                                       final long amountCents,
+                                       final long balanceCents)
+            {
+                cancel.set(true);
+            }
+        });
+        first  = engine.run(resumed, MONTH_END, checkpoint, ForkJoinPool.commonPool(), cancel);
+        second = engine.run(resumed, MONTH_END, checkpoint, ForkJoinPool.commonPool());
+        again  = engine.run(resumed, MONTH_END, checkpoint, ForkJoinPool.commonPool());
+
+        System.out.printf("cancelled run: %,d accounts, complete=%b; resumed run: %,d accounts, %,d skipped%n",
+                          first.accrued(),
+                          first.complete(),
+                          second.accrued(),
+                          second.skipped());
+
+        if(first.complete() || first.accrued() == 0 || second.skipped() == 0 || !second.complete() ||
+           first.accrued() + second.accrued() != expected.accrued() ||
+           first.interestCents() + second.interestCents() != expected.interestCents() ||
+           first.feeCents() + second.feeCents() != expected.feeCents() ||
+           resumed.getTotalBalanceCents() != whole.getTotalBalanceCents())
+        {
+            Benchmark.fail("Resumed run does not match the uninterrupted run");
+        }
+        if(again.accrued() != 0 || again.skipped() != ACCOUNTS)
+        {
+            Benchmark.fail("Running a finished run again accrued " + again.accrued() + " accounts");
+        }
+
+        System.out.printf("monthly run matches: %,d accounts, interest $%s, fees $%s; repeating it accrued none%n",
+                          expected.accrued(),
+                          Money.formatUsd(expected.interestCents()),
+                          Money.formatUsd(expected.feeCents()));
+    }
+
+    /**
+     * Journals a monthly run, crashes it part way through a chunk, recovers the bank from a snapshot taken
+     * before the run and the journal, resumes the run, and checks it against an uninterrupted twin bank.
+     * The tasks still running when the crash is thrown are left to finish, and may fail to mark their chunks
+     * done once the run has closed its checkpoint, leaving more accrued accounts in unfinished chunks.
+     *
+     * @param checkpoint the checkpoint file
+     * @throws IOException          if the snapshot or journal cannot be written
+     * @throws InterruptedException if interrupted while waiting for the crashed run's tasks
+     */
+    private static void crashAndRecover(final Path checkpoint) throws IOException, InterruptedException
+    {
+        final Bank                 whole;
+        final Bank                 crashed;
+        final Bank                 recovered;
+        final AccrualEngine        engine;
+        final AccrualEngine.Result expected;
+        final AccrualEngine.Result resumed;
+        final Path                 snapshot;
+        final Path                 journalFile;
+        final ForkJoinPool         pool;
+        final AtomicBoolean        thrown;
+        final long                 replayed;
+
+        Files.delete(checkpoint);
+        whole    = buildBank();
+        crashed  = buildBank();
+        engine   = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, MONTHLY_FEE_CENTS);
+        expected = engine.run(whole, MONTH_END, checkpoint, ForkJoinPool.commonPool());
+        Files.delete(checkpoint);
+
+        snapshot    = Files.createTempFile("accrual", ".snapshot");
+        journalFile = Files.createTempFile("accrual", ".journal");
+        pool        = new ForkJoinPool();
+        thrown      = new AtomicBoolean();
+        try
+        {
+            try(final TransactionJournal journal = new TransactionJournal(journalFile, GROUP_COMMIT, SYNC_MILLIS))
+            {
+                BankSnapshot.save(snapshot, crashed, journal.getLastSequence());
+                for(final BankAccount account : crashed.getAllAccounts())
+                {
+                    account.addListener(journal);
+                }
+                crashed.getAllAccounts().get(ACCOUNTS / 2 + AccrualEngine.CHUNK_SIZE / 2).addListener(new BalanceListener()
+                {
+                    @Override
+                    public void balanceChanged(final BankAccount account,
+                                               final TransactionType type,
+                                               final long amountCents,
+                                               final long balanceCents)
+                    {
+                        thrown.set(true);
+                        throw new IllegalStateException("Simulated crash");
+                    }
+                });
+
+                try
+                {
+                    engine.run(crashed, MONTH_END, checkpoint, pool);
+                    Benchmark.fail("Run did not crash");
+                }
+                catch(final IllegalStateException e)
+                {
+                    if(!thrown.get())
+                    {
+                        Benchmark.fail("Run failed: " + e);
+                    }
+                }
+                pool.shutdown();
+                if(!pool.awaitTermination(QUIESCE_SECONDS, TimeUnit.SECONDS))
+                {
+                    Benchmark.fail("Crashed run's tasks did not finish");
+                }
+            }
+
+            recovered = BankSnapshot.load(snapshot, true);
+            replayed  = TransactionJournal.replay(journalFile, recovered);
+            resumed   = engine.run(recovered, MONTH_END, checkpoint, ForkJoinPool.commonPool());
+        }
+        finally
+        {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(journalFile);
+        }
+
+        System.out.printf("crashed run recovered: %,d records replayed, resumed run: %,d accounts, %,d skipped%n",
+                          replayed,
+                          resumed.accrued(),
+                          resumed.skipped());
+
+        if(replayed == 0 || !resumed.complete() || resumed.skipped() == 0 ||
+           recovered.getTotalBalanceCents() != whole.getTotalBalanceCents())
+        {
+            Benchmark.fail("Recovered run does not match the uninterrupted run: " +
+                           recovered.getTotalBalanceCents() + " cents, expected " +
+                           whole.getTotalBalanceCents() + " after accruing " +
+                           expected.accrued() + " accounts");
+        }
+    }
+
+    /**
+     * Builds a bank with one account per client, where every CLOSED_EVERY-th account closed before the runs.
+     *
+     * @return the bank
+     */
+    private static Bank buildBank()
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(Name.of("Ada", "Lovelace"),
+                                    Date.of(1950 + i % 50, 1 + i % 12, 1 + i % 28),
+                                    null,
+                                    Date.of(2000 + i % 20, 1 + i % 12, 1 + i % 28),
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client,
+                                            PIN,
+                                            Integer.toString(FIRST_ACCOUNT + i),
+                                            i % CLOSED_EVERY == 0 ? Date.of(2020, 6, 1) : null,
+                                            100 + i % 10_000));
+        }
+
+        return bank;
+    }
+}
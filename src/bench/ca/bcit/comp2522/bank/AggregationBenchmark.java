@@ -0,0 +1,86 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures AccountStatistics.collect over ACCOUNTS accounts on one thread and on the common ForkJoinPool,
+ * and checks both give exactly the same totals.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AggregationBenchmark
+{
+    private static final int ACCOUNTS        = 1_000_000;
+    private static final int FIRST_CLIENT_ID = 1_000_000;
+    private static final int FIRST_ACCOUNT   = 3_000_000;
+    private static final int PIN             = 1234;
+    private static final int DEAD_EVERY      = 3;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final List<BankAccount> accounts;
+        final ForkJoinPool      single;
+        final ForkJoinPool      common;
+        final AccountStatistics sequential;
+        final AccountStatistics parallel;
+
+        accounts   = buildBank().getAllAccounts();
+        single     = new ForkJoinPool(1);
+        common     = ForkJoinPool.commonPool();
+        sequential = AccountStatistics.collect(accounts, single);
+        parallel   = AccountStatistics.collect(accounts, common);
+
+        if(sequential.getTotalCents() != parallel.getTotalCents() ||
+           sequential.getCountByAlive(true) != parallel.getCountByAlive(true))
+        {
+            Benchmark.fail("Parallel totals differ from sequential totals");
+        }
+        System.out.printf("total: %,d cents (%,d accounts, %,d of living clients)%n",
+                          parallel.getTotalCents(),
+                          parallel.getCount(),
+                          parallel.getCountByAlive(true));
+
+        System.out.println(Benchmark.measure("collect, 1 thread", i -> AccountStatistics.collect(accounts, single)));
+        System.out.println(Benchmark.measure("collect, common pool (" + common.getParallelism() + ")",
+                                             i -> AccountStatistics.collect(accounts, common)));
+
+        single.shutdown();
+    }
+
+    /**
+     * Builds a bank with one account per client, where every DEAD_EVERY-th client has died.
+     *
+     * @return the bank
+     */
+    private static Bank buildBank()
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(Name.of("Albert", "Einstein"),
+                                    Date.of(1900 + i % 50, 1 + i % 12, 1 + i % 28),
+                                    i % DEAD_EVERY == 0 ? Date.of(2020, 1 + i % 12, 1 + i % 28) : null,
+                                    Date.of(1950 + i % 70, 1 + i % 12, 1 + i % 28),
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client,
+                                            PIN,
+                                            Integer.toString(FIRST_ACCOUNT + i),
+                                            null,
+                                            1 + (i % 100_000) * 1.01));
+        }
+
+        return bank;
+    }
+}
@@ -0,0 +1,157 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Measures deposit/withdraw throughput on a single hot account under contention.
+ * Compares the atomic cents balance in BankAccount against the old unsynchronized double field
+ * and reports how many updates the old field loses.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BalanceContentionBenchmark
+{
+    private static final int    OPERATIONS_PER_THREAD = 2_000_000;
+    private static final int[]  THREAD_COUNTS         = {1, 2, 4, 8};
+    private static final double STARTING_BALANCE_USD  = 1_000_000;
+    private static final double DEPOSIT_USD           = 2;
+    private static final double WITHDRAW_USD          = 1;
+    private static final double NANOS_PER_SECOND      = 1_000_000_000.0;
+    private static final double OPS_PER_MEGA_OP       = 1_000_000.0;
+
+    /**
+     * The balance field as it was before BankAccount moved to atomic cents.
+     */
+    private static final class LegacyBalance
+    {
+        private double balanceUsd = STARTING_BALANCE_USD;
+
+        private void deposit(final double amountUsd)
+        {
+            balanceUsd += amountUsd;
+        }
+
+        private void withdraw(final double amountUsd)
+        {
+            if(balanceUsd >= amountUsd)
+            {
+                balanceUsd -= amountUsd;
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmark for every thread count.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the worker threads
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        for(final int threads : THREAD_COUNTS)
+        {
+            final LegacyBalance legacy;
+            final BankAccount   account;
+            final long          legacyNanos;
+            final long          atomicNanos;
+            final double        expectedUsd;
+
+            legacy  = new LegacyBalance();
+            account = newAccount();
+
+            legacyNanos = run(threads, () ->
+            {
+                legacy.deposit(DEPOSIT_USD);
+                legacy.withdraw(WITHDRAW_USD);
+            });
+            atomicNanos = run(threads, () ->
+            {
+                account.deposit(DEPOSIT_USD);
+                account.withdraw(WITHDRAW_USD);
+            });
+
+            expectedUsd = STARTING_BALANCE_USD + (double) threads * OPERATIONS_PER_THREAD * (DEPOSIT_USD - WITHDRAW_USD);
+
+            System.out.printf("threads=%d legacy: %.1f Mops/s (balance %.2f, expected %.2f)%n",
+                              threads,
+                              opsPerSecond(threads, legacyNanos),
+                              legacy.balanceUsd,
+                              expectedUsd);
+            System.out.printf("threads=%d atomic: %.1f Mops/s (balance %.2f, expected %.2f)%n",
+                              threads,
+                              opsPerSecond(threads, atomicNanos),
+                              account.getBalanceUsd(),
+                              expectedUsd);
+        }
+    }
+
+    /**
+     * Creates the shared account every thread works on.
+     *
+     * @return a new open BankAccount
+     */
+    private static BankAccount newAccount()
+    {
+        final BankClient client;
+
+        client = new BankClient(new Name("Ada", "Lovelace"),
+                                new Date(1815, 12, 10),
+                                null,
+                                new Date(1900, 1, 1),
+                                "100001");
+
+        return new BankAccount(client, 1234, "acc001", null, STARTING_BALANCE_USD);
+    }
+
+    /**
+     * Runs the operation OPERATIONS_PER_THREAD times on each of the given number of threads.
+     *
+     * @param threads   the number of threads to start
+     * @param operation the deposit/withdraw pair to run
+     * @return the elapsed wall-clock time in nanoseconds
+     * @throws InterruptedException if interrupted while joining
+     */
+    private static long run(final int threads,
+                            final Runnable operation) throws InterruptedException
+    {
+        final Thread[] workers;
+        final long     start;
+
+        workers = new Thread[threads];
+        for(int i = 0; i < threads; i++)
+        {
+            workers[i] = new Thread(() ->
+            {
+                for(int op = 0; op < OPERATIONS_PER_THREAD; op++)
+                {
+                    operation.run();
+                }
+            });
+        }
+
+        start = System.nanoTime();
+        for(final Thread worker : workers)
+        {
+            worker.start();
+        }
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Converts an elapsed time into millions of deposit/withdraw pairs per second.
+     *
+     * @param threads the number of threads that ran
+     * @param nanos   the elapsed time in nanoseconds
+     * @return millions of operations per second
+     */
+    private static double opsPerSecond(final int threads,
+                                       final long nanos)
+    {
+        return (double) threads * OPERATIONS_PER_THREAD / (nanos / NANOS_PER_SECOND) / OPS_PER_MEGA_OP;
+    }
+}
@@ -0,0 +1,247 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures deposit and withdraw throughput on THREADS threads, each using its own account, with no feed,
+ * with a BalanceFeed that nobody subscribes to, with SUBSCRIBERS subscribers that take everything, and with
+ * SUBSCRIBERS subscribers that take one batch at a time and sleep SLOW_NANOS per batch.
+ * The slow subscribers should not bring throughput down; they fall behind and have events dropped instead.
+ * After each run the feed is closed and every event is checked to have been either delivered or dropped.
+ * Events are counted inside the timed operation, the same way in every run, rather than by a second
+ * listener on the account, so the runs without subscribers measure only what the feed adds.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BalanceFeedBenchmark
+{
+    private static final int    THREADS         = 4;
+    private static final int    SUBSCRIBERS     = 4;
+    private static final int    CAPACITY        = 65_536;
+    private static final int    MAX_BATCH       = 1_024;
+    private static final long   SLOW_NANOS      = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long   UNBOUNDED       = Long.MAX_VALUE;
+    private static final long   ONE_BATCH       = 1L;
+    private static final long   DRAIN_SECONDS   = 60L;
+    private static final int    PIN             = 1234;
+    private static final double START_USD       = 1_000;
+    private static final double DEPOSIT_USD     = 2;
+    private static final double WITHDRAW_USD    = 2;
+    private static final int    FIRST_CLIENT_ID = 1_000_000;
+    private static final int    FIRST_ACCOUNT   = 3_000_000;
+    private static final int    DEPOSIT_EVENTS  = 1;
+    private static final int    BOTH_EVENTS     = 2;
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * A subscriber that counts the events it is handed, optionally taking one batch at a time slowly.
+     */
+    private static final class CountingSubscriber implements Flow.Subscriber<List<BalanceFeed.Event>>
+    {
+        private final boolean        slow;
+        private final LongAdder      delivered;
+        private final CountDownLatch done;
+
+        private Flow.Subscription subscription;
+
+        /**
+         * Constructs a CountingSubscriber.
+         *
+         * @param slow      whether to request one batch at a time and sleep SLOW_NANOS per batch
+         * @param delivered counts the events delivered
+         * @param done      counted down when the feed completes
+         */
+        private CountingSubscriber(final boolean slow,
+                                   final LongAdder delivered,
+                                   final CountDownLatch done)
+        {
+            this.slow      = slow;
+            this.delivered = delivered;
+            this.done      = done;
+        }
+
+        /**
+         * Requests everything, or the first batch if slow.
+         *
+         * @param subscription the subscription
+         */
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(slow ? ONE_BATCH : UNBOUNDED);
+        }
+
+        /**
+         * Counts the batch, and if slow, sleeps and then requests the next one.
+         *
+         * @param batch the events
+         */
+        @Override
+        public void onNext(final List<BalanceFeed.Event> batch)
+        {
+            delivered.add(batch.size());
+            if(slow)
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.sleep(SLOW_NANOS);
+                }
+                catch(final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                subscription.request(ONE_BATCH);
+            }
+        }
+
+        /**
+         * Reports the error and counts the subscriber as done.
+         *
+         * @param error the error
+         */
+        @Override
+        public void onError(final Throwable error)
+        {
+            error.printStackTrace();
+            done.countDown();
+        }
+
+        /**
+         * Counts the subscriber as done.
+         */
+        @Override
+        public void onComplete()
+        {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final ExecutorService executor;
+
+        executor = Executors.newCachedThreadPool();
+        try
+        {
+            run("deposit+withdraw, no feed", executor, false, 0, false);
+            run("deposit+withdraw, feed, no subscribers", executor, true, 0, false);
+            run("deposit+withdraw, " + SUBSCRIBERS + " fast subscribers", executor, true, SUBSCRIBERS, false);
+            run("deposit+withdraw, " + SUBSCRIBERS + " slow subscribers", executor, true, SUBSCRIBERS, true);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Measures one configuration, then closes the feed and checks no event went missing.
+     *
+     * @param name        the name to report the run under
+     * @param executor    runs the feed's deliveries
+     * @param attached    whether each account publishes to the feed
+     * @param subscribers how many subscribers to attach
+     * @param slow        whether the subscribers are slow
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void run(final String name,
+                            final ExecutorService executor,
+                            final boolean attached,
+                            final int subscribers,
+                            final boolean slow) throws InterruptedException
+    {
+        final BalanceFeed              feed;
+        final LongAdder                published;
+        final LongAdder                delivered;
+        final CountDownLatch           done;
+        final ThreadLocal<BankAccount> own;
+        final Benchmark.Result         result;
+
+        feed      = new BalanceFeed(executor, CAPACITY, MAX_BATCH);
+        published = new LongAdder();
+        delivered = new LongAdder();
+        done      = new CountDownLatch(subscribers);
+        own       = ThreadLocal.withInitial(() -> newAccount(attached ? feed : null));
+        for(int i = 0; i < subscribers; i++)
+        {
+            feed.subscribe(new CountingSubscriber(slow, delivered, done));
+        }
+
+        result = Benchmark.measure(name, THREADS, i ->
+        {
+            final BankAccount mine;
+
+            mine = own.get();
+            mine.deposit(DEPOSIT_USD);
+            published.add(mine.withdraw(WITHDRAW_USD) == WITHDRAW_USD ? BOTH_EVENTS : DEPOSIT_EVENTS);
+            return published;
+        });
+
+        feed.close();
+        if(!done.await(DRAIN_SECONDS, TimeUnit.SECONDS))
+        {
+            Benchmark.fail("Subscribers did not complete within " + DRAIN_SECONDS + " s");
+        }
+        if(delivered.sum() + feed.getDroppedCount() != published.sum() * subscribers)
+        {
+            Benchmark.fail("Published " + published.sum() + " events to each of " + subscribers +
+                           " subscribers but delivered " + delivered.sum() +
+                           " and dropped " + feed.getDroppedCount());
+        }
+
+        System.out.println(result);
+        if(subscribers > 0)
+        {
+            System.out.printf("    %,d events each, %.1f%% delivered, %,d dropped%n",
+                              published.sum(),
+                              100.0 * delivered.sum() / (published.sum() * subscribers),
+                              feed.getDroppedCount());
+        }
+    }
+
+    /**
+     * Creates an account for the current thread, publishing to the feed if there is one.
+     *
+     * @param feed the feed, or null for none
+     * @return the account
+     */
+    private static BankAccount newAccount(final BalanceFeed feed)
+    {
+        final int         id;
+        final BankAccount account;
+
+        id      = NEXT_ID.getAndIncrement();
+        account = new BankAccount(new BankClient(Name.of("Ada", "Lovelace"),
+                                                 Date.of(1815, 12, 10),
+                                                 null,
+                                                 Date.of(1900, 1, 1),
+                                                 Integer.toString(FIRST_CLIENT_ID + id)),
+                                  PIN,
+                                  Integer.toString(FIRST_ACCOUNT + id),
+                                  null,
+                                  START_USD);
+        if(feed != null)
+        {
+            account.addListener(feed);
+        }
+
+        return account;
+    }
+}
@@ -0,0 +1,234 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small benchmark harness used by the classes in src/bench.
+ * Runs an operation for a warmup period, then measures it for a fixed period and reports the time per
+ * operation and, for single-threaded runs, the bytes allocated per operation (the same figure a GC
+ * allocation profiler reports).
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+final class Benchmark
+{
+    static final int FAILED_STATUS = 1;
+
+    private static final long   WARMUP_NANOS     = 1_000_000_000L;
+    private static final long   MEASURE_NANOS    = 2_000_000_000L;
+    private static final int    BATCH            = 1_000;
+    private static final long   NO_ALLOCATION    = -1L;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final int    RESULT_SLOTS     = 1_024;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /*
+     * Each run stores its results in an array published here, so the JIT cannot discard
+     * the measured work or its allocations.
+     */
+    private static volatile Object[] lastResults;
+
+    /**
+     * An operation to measure. The argument counts up from zero so operations can vary their input;
+     * the result is consumed so the work is not optimized away.
+     */
+    @FunctionalInterface
+    interface Operation
+    {
+        /**
+         * Runs the operation once.
+         *
+         * @param iteration the iteration number
+         * @return any value computed by the operation
+         */
+        Object run(int iteration);
+    }
+
+    /**
+     * The measurements of one benchmark.
+     *
+     * @param name         the benchmark name
+     * @param threads      the number of threads that ran it
+     * @param nanosPerOp   the average wall-clock nanoseconds per operation per thread
+     * @param opsPerSecond the total operations per second across all threads
+     * @param bytesPerOp   the bytes allocated per operation, or -1 if not measured
+     */
+    record Result(String name,
+                  int threads,
+                  double nanosPerOp,
+                  double opsPerSecond,
+                  double bytesPerOp)
+    {
+        /**
+         * Formats the result as one line of a table.
+         *
+         * @return the formatted result
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%-40s %3d thr %10.1f ns/op %,14.0f ops/s %10s",
+                                 name,
+                                 threads,
+                                 nanosPerOp,
+                                 opsPerSecond,
+                                 bytesPerOp < 0 ? "-" : String.format("%.1f B/op", bytesPerOp));
+        }
+
+        /**
+         * Formats the result as a CSV line.
+         *
+         * @return the result as comma-separated values
+         */
+        String toCsv()
+        {
+            return String.format("%s,%d,%.2f,%.0f,%.2f", name, threads, nanosPerOp, opsPerSecond, bytesPerOp);
+        }
+    }
+
+    /**
+     * Not instantiable; all methods are static.
+     */
+    private Benchmark()
+    {
+    }
+
+    /**
+     * Reports a failed check and exits with FAILED_STATUS. Exiting, rather than throwing, stops a script
+     * that runs the benchmark even when executor threads would keep the JVM running after an exception.
+     *
+     * @param message what the check found
+     */
+    static void fail(final String message)
+    {
+        System.err.println("FAILED: " + message);
+        System.exit(FAILED_STATUS);
+    }
+
+    /**
+     * Measures an operation on the current thread, including its allocation rate.
+     *
+     * @param name      the benchmark name
+     * @param operation the operation to measure
+     * @return the measurements
+     */
+    static Result measure(final String name,
+                          final Operation operation)
+    {
+        final long startBytes;
+        final long ops;
+        final long start;
+        final long elapsed;
+        final long allocated;
+
+        runFor(operation, WARMUP_NANOS);
+
+        startBytes = THREADS.getCurrentThreadAllocatedBytes();
+        start      = System.nanoTime();
+        ops        = runFor(operation, MEASURE_NANOS);
+        elapsed    = System.nanoTime() - start;
+        allocated  = THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+
+        return new Result(name,
+                          1,
+                          (double) elapsed / ops,
+                          ops * NANOS_PER_SECOND / elapsed,
+                          startBytes == NO_ALLOCATION ? NO_ALLOCATION : (double) allocated / ops);
+    }
+
+    /**
+     * Measures an operation run on several threads at once.
+     *
+     * @param name      the benchmark name
+     * @param threads   the number of threads
+     * @param operation the operation to measure
+     * @return the measurements
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    static Result measure(final String name,
+                          final int threads,
+                          final Operation operation) throws InterruptedException
+    {
+        final Thread[]      workers;
+        final LongAdder     totalOps;
+        final LongAdder     totalNanos;
+        final CyclicBarrier startLine;
+
+        workers    = new Thread[threads];
+        totalOps   = new LongAdder();
+        totalNanos = new LongAdder();
+        startLine  = new CyclicBarrier(threads);
+
+        for(int i = 0; i < threads; i++)
+        {
+            workers[i] = new Thread(() ->
+            {
+                try
+                {
+                    final long start;
+
+                    runFor(operation, WARMUP_NANOS);
+                    startLine.await();
+                    start = System.nanoTime();
+                    totalOps.add(runFor(operation, MEASURE_NANOS));
+                    totalNanos.add(System.nanoTime() - start);
+                }
+                catch(final Exception e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        for(final Thread worker : workers)
+        {
+            worker.start();
+        }
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        return new Result(name,
+                          threads,
+                          (double) totalNanos.sum() / totalOps.sum(),
+                          totalOps.sum() * NANOS_PER_SECOND * threads / totalNanos.sum(),
+                          NO_ALLOCATION);
+    }
+
+    /**
+     * Runs the operation in batches until the given time has passed.
+     *
+     * @param operation the operation to run
+     * @param nanos     how long to run for
+     * @return how many times the operation ran
+     */
+    private static long runFor(final Operation operation,
+                               final long nanos)
+    {
+        final Object[] results;
+        final long     end;
+        long           ops;
+
+        results = new Object[RESULT_SLOTS];
+        end     = System.nanoTime() + nanos;
+        ops     = 0;
+        while(System.nanoTime() < end)
+        {
+            for(int i = 0; i < BATCH; i++)
+            {
+                results[i & (RESULT_SLOTS - 1)] = operation.run((int) ops + i);
+            }
+            ops += BATCH;
+        }
+        lastResults = results;
+
+        return ops;
+    }
+}
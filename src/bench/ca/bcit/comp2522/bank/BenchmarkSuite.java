@@ -0,0 +1,250 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the hot paths of Name, Date, BankClient and BankAccount: construction with validation,
+ * formatting, comparison, and single- and multi-threaded deposit/withdraw.
+ * <p>
+ * Usage: BenchmarkSuite [filter] [results.csv]. Only benchmarks whose name contains the filter run
+ * (use "" for all). If a CSV file is given, each result is appended to it with a timestamp so time per
+ * operation and bytes allocated per operation can be tracked from run to run.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BenchmarkSuite
+{
+    private static final int    THREADS          = 4;
+    private static final int    PIN              = 1234;
+    private static final double START_USD        = 1_000_000;
+    private static final double DEPOSIT_USD      = 2;
+    private static final double WITHDRAW_USD     = 1;
+    private static final int    DAYS_IN_RANGE    = 80_000;
+    private static final int    FILTER_ARG       = 0;
+    private static final int    CSV_ARG          = 1;
+    private static final String[] FIRST_NAMES    = {"albert", "NELSON", "Frida", "jackie"};
+    private static final String[] LAST_NAMES     = {"EINSTEIN", "mandela", "Kahlo", "chan"};
+
+    private static final Date        FIRST_DAY = new Date(1800, 1, 1);
+    private static final BankClient  LIVING    = newClient("100001", null);
+    private static final BankClient  DECEASED  = newClient("100002", new Date(2013, 12, 5));
+
+    /**
+     * Runs the suite.
+     *
+     * @param args an optional name filter and an optional CSV file to append results to
+     * @throws InterruptedException if interrupted during a multi-threaded benchmark
+     * @throws IOException          if the CSV file cannot be written
+     */
+    public static void main(final String[] args) throws InterruptedException, IOException
+    {
+        final String                 filter;
+        final List<Benchmark.Result> results;
+
+        filter  = args.length > FILTER_ARG ? args[FILTER_ARG] : "";
+        results = new ArrayList<>();
+
+        run(results, filter, "Name.new", i -> new Name(FIRST_NAMES[i & 3], LAST_NAMES[i & 3]));
+        run(results, filter, "Name.of", i -> Name.of(FIRST_NAMES[i & 3], LAST_NAMES[i & 3]));
+        run(results, filter, "Name.getFullName", i -> LIVING.getName().getFullName());
+        run(results, filter, "Name.getInitials", i -> LIVING.getName().getInitials());
+        run(results, filter, "Name.getReverseName", i -> LIVING.getName().getReverseName());
+
+        run(results, filter, "Date.new", i -> new Date(1800 + i % 225, 1 + i % 12, 1 + i % 28));
+        run(results, filter, "Date.of", i -> Date.of(1800 + i % 225, 1 + i % 12, 1 + i % 28));
+        run(results, filter, "Date.new (invalid, throws)", i ->
+        {
+            try
+            {
+                return new Date(2023, 2, 29);
+            }
+            catch(final IllegalArgumentException e)
+            {
+                return e;
+            }
+        });
+        run(results, filter, "Date.check (invalid)", i -> Date.check(2023, 2, 29 + (i & 1)));
+        run(results, filter, "Date.compareTo", i -> FIRST_DAY.plusDays(i % DAYS_IN_RANGE).compareTo(FIRST_DAY));
+        run(results, filter, "Date.getDayOfTheWeek", i -> LIVING.getSignupDate().getDayOfTheWeek());
+        run(results, filter, "Date.getYyyyMmDd", i -> LIVING.getSignupDate().getYyyyMmDd());
+
+        run(results, filter, "BankClient.new", i -> newClient("100003", null));
+        run(results, filter, "BankClient.getDetails", i -> DECEASED.getDetails());
+        run(results, filter, "BankAccount.new", i -> new BankAccount(LIVING, PIN, "acc001", null, START_USD));
+
+        final BankAccount   account;
+        final StringBuilder reused;
+
+        account = new BankAccount(DECEASED, PIN, "acc002", new Date(2010, 1, 1), START_USD);
+        reused  = new StringBuilder();
+
+        run(results, filter, "BankAccount.getDetails", i -> account.getDetails());
+        run(results, filter, "BankAccount.appendDetails (reused)", i ->
+        {
+            reused.setLength(0);
+            return account.appendDetails(reused);
+        });
+        run(results, filter, "BankAccount.deposit+withdraw", i ->
+        {
+            account.deposit(DEPOSIT_USD);
+            return account.withdraw(WITHDRAW_USD);
+        });
+        run(results, filter, "BankAccount.tryWithdraw (bad pin)", i -> account.tryWithdraw(WITHDRAW_USD, PIN + 1));
+
+        runWithMetrics(results, filter, "BankAccount.appendDetails (metrics)", i ->
+        {
+            reused.setLength(0);
+            return account.appendDetails(reused);
+        });
+        runWithMetrics(results, filter, "BankAccount.deposit+withdraw (metrics)", i ->
+        {
+            account.deposit(DEPOSIT_USD);
+            return account.withdraw(WITHDRAW_USD);
+        });
+        runWithMetrics(results, filter, "BankAccount.tryWithdraw (pin, metrics)", i ->
+            account.tryWithdraw(WITHDRAW_USD, PIN + 1));
+
+        if("BankAccount.deposit+withdraw contended".contains(filter))
+        {
+            final BankAccount shared;
+
+            shared = new BankAccount(LIVING, PIN, "acc003", null, START_USD);
+            record(results, Benchmark.measure("BankAccount.deposit+withdraw contended", THREADS, i ->
+            {
+                shared.deposit(DEPOSIT_USD);
+                return shared.withdraw(WITHDRAW_USD);
+            }));
+        }
+        if("BankAccount.deposit+withdraw per-thread".contains(filter))
+        {
+            final ThreadLocal<BankAccount> own;
+
+            own = ThreadLocal.withInitial(() -> new BankAccount(LIVING, PIN, "acc004", null, START_USD));
+            record(results, Benchmark.measure("BankAccount.deposit+withdraw per-thread", THREADS, i ->
+            {
+                final BankAccount mine;
+
+                mine = own.get();
+                mine.deposit(DEPOSIT_USD);
+                return mine.withdraw(WITHDRAW_USD);
+            }));
+        }
+
+        if(args.length > CSV_ARG)
+        {
+            appendCsv(Paths.get(args[CSV_ARG]), results);
+        }
+    }
+
+    /**
+     * Measures a single-threaded benchmark if its name matches the filter.
+     *
+     * @param results   the list to add the result to
+     * @param filter    the name filter
+     * @param name      the benchmark name
+     * @param operation the operation to measure
+     */
+    private static void run(final List<Benchmark.Result> results,
+                            final String filter,
+                            final String name,
+                            final Benchmark.Operation operation)
+    {
+        if(name.contains(filter))
+        {
+            record(results, Benchmark.measure(name, operation));
+        }
+    }
+
+    /**
+     * Measures a single-threaded benchmark with AccountMetrics enabled if its name matches the filter,
+     * so the cost of the metrics shows against the same benchmark run without them.
+     *
+     * @param results   the list to add the result to
+     * @param filter    the name filter
+     * @param name      the benchmark name
+     * @param operation the operation to measure
+     */
+    private static void runWithMetrics(final List<Benchmark.Result> results,
+                                       final String filter,
+                                       final String name,
+                                       final Benchmark.Operation operation)
+    {
+        AccountMetrics.setEnabled(true);
+        try
+        {
+            run(results, filter, name, operation);
+        }
+        finally
+        {
+            AccountMetrics.setEnabled(false);
+            AccountMetrics.reset();
+        }
+    }
+
+    /**
+     * Prints a result and keeps it for the CSV file.
+     *
+     * @param results the list to add the result to
+     * @param result  the result
+     */
+    private static void record(final List<Benchmark.Result> results,
+                               final Benchmark.Result result)
+    {
+        System.out.println(result);
+        results.add(result);
+    }
+
+    /**
+     * Appends the results to a CSV file, writing a header first if the file is new.
+     *
+     * @param file    the CSV file
+     * @param results the results to append
+     * @throws IOException if the file cannot be written
+     */
+    private static void appendCsv(final Path file,
+                                  final List<Benchmark.Result> results) throws IOException
+    {
+        final List<String> lines;
+        final String       timestamp;
+
+        lines     = new ArrayList<>();
+        timestamp = Instant.now().toString();
+
+        if(!Files.exists(file))
+        {
+            lines.add("timestamp,benchmark,threads,ns_per_op,ops_per_s,bytes_per_op");
+        }
+        for(final Benchmark.Result result : results)
+        {
+            lines.add(timestamp + "," + result.toCsv());
+        }
+
+        Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Creates a client for the benchmarks.
+     *
+     * @param clientID  the client ID
+     * @param deathDate the death date, or null if alive
+     * @return the client
+     */
+    private static BankClient newClient(final String clientID,
+                                        final Date deathDate)
+    {
+        return new BankClient(new Name("Albert", "Einstein"),
+                              new Date(1879, 3, 14),
+                              deathDate,
+                              new Date(1900, 1, 1),
+                              clientID);
+    }
+}
@@ -0,0 +1,113 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+
+/**
+ * Compares answering "total balance of accounts opened in the 1990s by living clients" by walking
+ * BankAccount, BankClient and Date objects with scanning a ColumnarAccountStore, on a bank of ACCOUNTS
+ * accounts. Checks that both give the same answer before timing them.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class ColumnarScanBenchmark
+{
+    private static final int      ACCOUNTS        = 1_000_000;
+    private static final int      FIRST_CLIENT_ID = 1_000_000;
+    private static final int      FIRST_ACCOUNT   = 3_000_000;
+    private static final int      PIN             = 1234;
+    private static final int      DEAD_EVERY      = 3;
+    private static final String[] FIRST_NAMES     = {"Albert", "Nelson", "Frida", "Jackie", "Ada", "Alan"};
+    private static final String[] LAST_NAMES      = {"Einstein", "Mandela", "Kahlo", "Chan", "Lovelace", "Turing"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final Bank                 bank;
+        final List<BankAccount>    walked;
+        final ColumnarAccountStore store;
+        final int                  fromDay;
+        final int                  toDay;
+        final long                 expected;
+
+        bank    = buildBank();
+        walked  = bank.getAllAccounts();
+        store   = new ColumnarAccountStore(bank);
+        fromDay = Date.of(1990, 1, 1).getEpochDay();
+        toDay   = Date.of(2000, 1, 1).getEpochDay();
+
+        expected = walk(walked, fromDay, toDay);
+        if(store.sumBalanceCentsOpened(fromDay, toDay, true) != expected)
+        {
+            Benchmark.fail("Columnar scan disagrees with the object walk");
+        }
+        System.out.printf("1990s living total: %,d cents over %,d accounts%n",
+                          expected,
+                          store.countOpened(fromDay, toDay, true));
+
+        System.out.println(Benchmark.measure("object graph walk", i -> walk(walked, fromDay, toDay)));
+        System.out.println(Benchmark.measure("columnar scan", i -> store.sumBalanceCentsOpened(fromDay, toDay, true)));
+
+        store.close();
+    }
+
+    /**
+     * Totals the balances of matching accounts by following each account's references.
+     *
+     * @param accounts the accounts to walk
+     * @param fromDay  the first opening epoch day to include
+     * @param toDay    the opening epoch day after the last one to include
+     * @return the total in cents
+     */
+    private static long walk(final List<BankAccount> accounts,
+                             final int fromDay,
+                             final int toDay)
+    {
+        long total;
+
+        total = 0;
+        for(final BankAccount account : accounts)
+        {
+            final int day;
+
+            day = account.getAccountOpened().getEpochDay();
+            if(day >= fromDay && day < toDay && account.getClient().isAlive())
+            {
+                total = Money.add(total, account.getBalanceCents());
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Builds a bank with one account per client, opened on the client's signup date,
+     * where every DEAD_EVERY-th client has died.
+     *
+     * @return the bank
+     */
+    private static Bank buildBank()
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(Name.of(FIRST_NAMES[i % FIRST_NAMES.length], LAST_NAMES[i % LAST_NAMES.length]),
+                                    Date.of(1900 + i % 50, 1 + i % 12, 1 + i % 28),
+                                    i % DEAD_EVERY == 0 ? Date.of(2020, 1 + i % 12, 1 + i % 28) : null,
+                                    Date.of(1950 + i % 70, 1 + i % 12, 1 + i % 28),
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client, PIN, Integer.toString(FIRST_ACCOUNT + i), null, 100 + i % 1000));
+        }
+
+        return bank;
+    }
+}
@@ -0,0 +1,120 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.function.IntFunction;
+
+/**
+ * Measures the heap held by CLIENTS clients, each with its own birth, death and signup dates,
+ * when every date is a new Date compared with when the dates come from Date.of.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class DateInternBenchmark
+{
+    private static final int    CLIENTS        = 3_000_000;
+    private static final int    FIRST_ID       = 1_000_000;
+    private static final int    GC_PASSES      = 3;
+    private static final double BYTES_PER_MB   = 1_048_576.0;
+    private static final Name   NAME           = new Name("Frida", "Kahlo");
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        report("new Date", i -> newClient(i, false));
+        report("Date.of", i -> newClient(i, true));
+    }
+
+    /**
+     * Builds the clients and prints the heap they retain and how long building them took.
+     *
+     * @param label   the label to print
+     * @param factory creates the i-th client
+     */
+    private static void report(final String label,
+                               final IntFunction<BankClient> factory)
+    {
+        final long         before;
+        final long         start;
+        final long         elapsed;
+        final long         after;
+        final BankClient[] clients;
+
+        before  = usedHeap();
+        start   = System.nanoTime();
+        clients = new BankClient[CLIENTS];
+        for(int i = 0; i < CLIENTS; i++)
+        {
+            clients[i] = factory.apply(i);
+        }
+        elapsed = System.nanoTime() - start;
+        after   = usedHeap();
+
+        System.out.printf("%-8s %8.1f MB retained for %,d clients (%.1f bytes/client), built in %d ms%n",
+                          label,
+                          (after - before) / BYTES_PER_MB,
+                          clients.length,
+                          (double) (after - before) / clients.length,
+                          elapsed / 1_000_000);
+    }
+
+    /**
+     * Creates the i-th client, with dates spread over the whole supported range.
+     *
+     * @param i        the client number
+     * @param interned whether to use Date.of instead of new Date
+     * @return the client
+     */
+    private static BankClient newClient(final int i,
+                                        final boolean interned)
+    {
+        final int birthYear;
+
+        birthYear = 1800 + i % 150;
+
+        return new BankClient(NAME,
+                              date(birthYear, 1 + i % 12, 1 + i % 28, interned),
+                              date(birthYear + 70, 1 + (i / 12) % 12, 1 + (i / 28) % 28, interned),
+                              date(birthYear + 20, 1 + (i / 7) % 12, 1 + (i / 3) % 28, interned),
+                              Integer.toString(FIRST_ID + i));
+    }
+
+    /**
+     * Creates or looks up a date.
+     *
+     * @param year     the year
+     * @param month    the month
+     * @param day      the day
+     * @param interned whether to use Date.of instead of new Date
+     * @return the date
+     */
+    private static Date date(final int year,
+                             final int month,
+                             final int day,
+                             final boolean interned)
+    {
+        return interned ? Date.of(year, month, day) : new Date(year, month, day);
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage.
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap()
+    {
+        final Runtime runtime;
+
+        runtime = Runtime.getRuntime();
+        for(int pass = 0; pass < GC_PASSES; pass++)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,182 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares finding the accounts opened between two dates by scanning every account with Date.compareTo
+ * against Bank.getAccountsOpenedBetween, which reads the opening date index, for ranges from a day to
+ * a decade, on a bank of ACCOUNTS accounts. Checks that both find the same accounts before timing them.
+ * Also times THREADS threads adding ACCOUNTS values to one DateIndex at once and checks none were lost.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class DateRangeBenchmark
+{
+    private static final int      ACCOUNTS        = 1_000_000;
+    private static final int      THREADS         = 4;
+    private static final int      FIRST_CLIENT_ID = 1_000_000;
+    private static final int      FIRST_ACCOUNT   = 3_000_000;
+    private static final int      PIN             = 1234;
+    private static final int      DEAD_EVERY      = 3;
+    private static final int      SPREAD_PRIME    = 7_919;
+    private static final double   NANOS_PER_MILLI = 1_000_000.0;
+    private static final Date[][] RANGES          = {{Date.of(1990, 6, 15), Date.of(1990, 6, 16)},
+                                                     {Date.of(1990, 6, 1), Date.of(1990, 7, 1)},
+                                                     {Date.of(1990, 1, 1), Date.of(1991, 1, 1)},
+                                                     {Date.of(1990, 1, 1), Date.of(2000, 1, 1)}};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the adding threads
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final Bank              bank;
+        final List<BankAccount> all;
+
+        bank = buildBank();
+        all  = bank.getAllAccounts();
+
+        for(final Date[] range : RANGES)
+        {
+            final Date from;
+            final Date to;
+            final int  found;
+
+            from  = range[0];
+            to    = range[1];
+            found = bank.getAccountsOpenedBetween(from, to).size();
+            if(found != scan(all, from, to).size())
+            {
+                Benchmark.fail("Index disagrees with the scan for " + from + " - " + to);
+            }
+
+            System.out.printf("%s to %s: %,d accounts%n", from.getYyyyMmDd(), to.getYyyyMmDd(), found);
+            System.out.println(Benchmark.measure("  full scan", i -> scan(all, from, to)));
+            System.out.println(Benchmark.measure("  date index", i -> bank.getAccountsOpenedBetween(from, to)));
+        }
+
+        concurrentAdd(all);
+        System.out.printf("deceased clients signed up after 2010-01-01: %,d%n",
+                          bank.getDeceasedClientsSignedUpAfter(Date.of(2010, 1, 1)).size());
+    }
+
+    /**
+     * Finds the accounts opened in a range by comparing every account's opening date.
+     *
+     * @param accounts the accounts
+     * @param from     the first opening date to include
+     * @param to       the opening date after the last one to include
+     * @return a new list of the accounts opened in the range
+     */
+    private static List<BankAccount> scan(final List<BankAccount> accounts,
+                                          final Date from,
+                                          final Date to)
+    {
+        final List<BankAccount> found;
+
+        found = new ArrayList<>();
+        for(final BankAccount account : accounts)
+        {
+            final Date opened;
+
+            opened = account.getAccountOpened();
+            if(opened.compareTo(from) >= 0 && opened.compareTo(to) < 0)
+            {
+                found.add(account);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Adds every account to a new DateIndex from THREADS threads at once, then checks the index holds them all.
+     *
+     * @param accounts the accounts to add
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void concurrentAdd(final List<BankAccount> accounts) throws InterruptedException
+    {
+        final DateIndex<BankAccount> index;
+        final Thread[]               workers;
+        final AtomicInteger          counted;
+        final long                   start;
+        final long                   elapsed;
+
+        index   = new DateIndex<>();
+        workers = new Thread[THREADS];
+        counted = new AtomicInteger();
+        for(int t = 0; t < THREADS; t++)
+        {
+            final int first;
+
+            first      = t;
+            workers[t] = new Thread(() ->
+            {
+                for(int i = first; i < accounts.size(); i += THREADS)
+                {
+                    index.add(accounts.get(i).getAccountOpened(), accounts.get(i));
+                }
+            });
+        }
+
+        start = System.nanoTime();
+        for(final Thread worker : workers)
+        {
+            worker.start();
+        }
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+        elapsed = System.nanoTime() - start;
+
+        index.forEachBetween(Integer.MIN_VALUE, Integer.MAX_VALUE, account -> counted.incrementAndGet());
+        if(counted.get() != accounts.size())
+        {
+            Benchmark.fail("Concurrent adds lost " + (accounts.size() - counted.get()) + " values");
+        }
+
+        System.out.printf("%d threads added %,d accounts to a DateIndex in %.1f ms, none lost%n",
+                          THREADS,
+                          accounts.size(),
+                          elapsed / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Builds a bank with one account per client, opened on the client's signup date,
+     * where every DEAD_EVERY-th client has died. Signup dates are spread over every day from 1950 to 2019.
+     *
+     * @return the bank
+     */
+    private static Bank buildBank()
+    {
+        final Bank bank;
+        final int  firstDay;
+        final int  days;
+
+        bank     = new Bank();
+        firstDay = Date.of(1950, 1, 1).getEpochDay();
+        days     = Date.of(2020, 1, 1).getEpochDay() - firstDay;
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(Name.of("Ada", "Lovelace"),
+                                    Date.of(1900 + i % 50, 1 + i % 12, 1 + i % 28),
+                                    i % DEAD_EVERY == 0 ? Date.of(2020, 1 + i % 12, 1 + i % 28) : null,
+                                    Date.ofEpochDay(firstDay + (int) ((long) i * SPREAD_PRIME % days)),
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client, PIN, Integer.toString(FIRST_ACCOUNT + i), null, 100 + i % 1000));
+        }
+
+        return bank;
+    }
+}
@@ -0,0 +1,148 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how fast FeedIngestor loads a client feed and an account feed of RECORDS lines each,
+ * where about one line in BAD_EVERY is invalid, and checks that exactly those lines were rejected.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class FeedIngestBenchmark
+{
+    private static final int      RECORDS          = 1_000_000;
+    private static final int      FIRST_CLIENT_ID  = 1_000_000;
+    private static final int      FIRST_ACCOUNT    = 3_000_000;
+    private static final int      BAD_EVERY        = 1_000;
+    private static final int      QUEUE_BATCHES    = 16;
+    private static final double   NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final String[] FIRST_NAMES      = {"Albert", "Nelson", "Frida", "Jackie", "Ada", "Alan"};
+    private static final String[] LAST_NAMES       = {"Einstein", "Mandela", "Kahlo", "Chan", "Lovelace", "Turing"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optionally, the number of worker threads (defaults to the number of processors)
+     * @throws IOException          if a feed file cannot be written or read
+     * @throws InterruptedException if interrupted while loading
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final int                 workers;
+        final Path                clientFeed;
+        final Path                accountFeed;
+        final AtomicLong          rejectedRows;
+        final Bank                bank;
+        final FeedIngestor        ingestor;
+        final FeedIngestor.Result clients;
+        final FeedIngestor.Result accounts;
+        long                      start;
+
+        workers      = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        clientFeed   = Files.createTempFile("clients", ".csv");
+        accountFeed  = Files.createTempFile("accounts", ".csv");
+        rejectedRows = new AtomicLong();
+        bank         = new Bank();
+        ingestor     = new FeedIngestor(bank, workers, QUEUE_BATCHES, row ->
+        {
+            if(rejectedRows.getAndIncrement() == 0)
+            {
+                System.out.println("first rejected row: " + row);
+            }
+        });
+
+        writeFeeds(clientFeed, accountFeed);
+
+        start   = System.nanoTime();
+        clients = ingestor.load(clientFeed, FeedIngestor.Kind.CLIENTS);
+        report("clients", clients, start);
+
+        start    = System.nanoTime();
+        accounts = ingestor.load(accountFeed, FeedIngestor.Kind.ACCOUNTS);
+        report("accounts", accounts, start);
+
+        if(clients.rejected() != RECORDS / BAD_EVERY ||
+           accounts.rejected() != RECORDS / BAD_EVERY * 2 ||
+           rejectedRows.get() != clients.rejected() + accounts.rejected())
+        {
+            Benchmark.fail("Unexpected number of rejected rows");
+        }
+
+        Files.delete(clientFeed);
+        Files.delete(accountFeed);
+    }
+
+    /**
+     * Writes the two feeds. Every BAD_EVERY-th client has a death date before its birth date, so it and its
+     * account are rejected, and the account after each of those has a balance with too many decimal places.
+     *
+     * @param clientFeed  the client feed file
+     * @param accountFeed the account feed file
+     * @throws IOException if a file cannot be written
+     */
+    private static void writeFeeds(final Path clientFeed,
+                                   final Path accountFeed) throws IOException
+    {
+        try(final BufferedWriter clients = Files.newBufferedWriter(clientFeed, StandardCharsets.UTF_8);
+            final BufferedWriter accounts = Files.newBufferedWriter(accountFeed, StandardCharsets.UTF_8))
+        {
+            clients.write("# clientID,firstName,lastName,birthDate,deathDate,signupDate\n");
+            accounts.write("# accountNumber,clientID,pin,openedDate,closedDate,balanceUsd\n");
+            for(int i = 0; i < RECORDS; i++)
+            {
+                final boolean bad;
+                final boolean badBalance;
+                final String  signup;
+
+                bad        = i % BAD_EVERY == 0;
+                badBalance = i % BAD_EVERY == 1;
+                signup     = String.format("%04d-%02d-%02d", 1950 + i % 70, 1 + i % 12, 1 + i % 28);
+
+                clients.write(String.format("%d,%s,%s,%04d-%02d-%02d,%s,%s%n",
+                                            FIRST_CLIENT_ID + i,
+                                            FIRST_NAMES[i % FIRST_NAMES.length],
+                                            LAST_NAMES[i % LAST_NAMES.length],
+                                            1900 + i % 50,
+                                            1 + i % 12,
+                                            1 + i % 28,
+                                            bad ? "1850-01-01" : "",
+                                            signup));
+                accounts.write(String.format("%d,%d,%04d,%s,,%s%n",
+                                             FIRST_ACCOUNT + i,
+                                             FIRST_CLIENT_ID + i,
+                                             i % 10_000,
+                                             signup,
+                                             badBalance ? "12.345" : (100 + i % 1000) + "." + (i % 100)));
+            }
+        }
+    }
+
+    /**
+     * Prints how long a load took and how many lines per second it handled.
+     *
+     * @param feed   the name of the feed
+     * @param result the outcome of the load
+     * @param start  the System.nanoTime the load started at
+     */
+    private static void report(final String feed,
+                               final FeedIngestor.Result result,
+                               final long start)
+    {
+        final double seconds;
+
+        seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.out.printf("%-8s %,9d loaded %,6d rejected %6.2f s %,12.0f lines/s%n",
+                          feed,
+                          result.loaded(),
+                          result.rejected(),
+                          seconds,
+                          (result.loaded() + result.rejected()) / seconds);
+    }
+}
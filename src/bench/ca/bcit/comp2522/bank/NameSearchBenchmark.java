@@ -0,0 +1,234 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares finding clients by the start of a name, and by a misspelled name, with a NameIndex against
+ * scanning every client, over CLIENTS clients whose names are made of random syllables so most are distinct.
+ * Both return the first LIMIT clients in the same order (by matching name, or closest first), so the scan
+ * has to look at every client. Checks that the index finds everything the scan finds before timing them.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class NameSearchBenchmark
+{
+    private static final int      CLIENTS         = 2_000_000;
+    private static final int      FIRST_CLIENT_ID = 1_000_000;
+    private static final int      LIMIT           = 10;
+    private static final int      MAX_DISTANCE    = 2;
+    private static final int      UNLIMITED       = Integer.MAX_VALUE;
+    private static final long     SEED            = 42L;
+    private static final int      FIRST_SYLLABLES = 2;
+    private static final int      LAST_SYLLABLES  = 3;
+    private static final int      SCAN_REPEATS    = 5;
+    private static final double   NANOS_PER_MILLI = 1_000_000.0;
+    private static final String[] SYLLABLES       = {"ka", "hlo", "man", "de", "la", "ein", "stein", "fri", "da",
+                                                     "chan", "lo", "ve", "tur", "ing", "ber", "nel", "son", "ja",
+                                                     "ck", "ie", "al", "an", "mo", "ha", "sa", "ry", "chu", "ge",
+                                                     "or", "ri"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final List<BankClient> clients;
+        final NameIndex        index;
+        final long             start;
+
+        clients = buildClients();
+        index   = new NameIndex();
+
+        start = System.nanoTime();
+        for(final BankClient client : clients)
+        {
+            index.add(client);
+        }
+        System.out.printf("indexed %,d clients in %,.0f ms%n", clients.size(), (System.nanoTime() - start) / NANOS_PER_MILLI);
+
+        if(index.findByPrefix("kahlo", UNLIMITED).size() != scanPrefix(clients, "kahlo", UNLIMITED).size() ||
+           index.findBySimilarName("kalho", MAX_DISTANCE, UNLIMITED).size() !=
+           scanSimilar(clients, "kalho", MAX_DISTANCE, UNLIMITED).size())
+        {
+            Benchmark.fail("Index disagrees with the scan");
+        }
+        System.out.printf("prefix kahlo: %,d clients, within %d of kalho: %,d clients%n",
+                          index.findByPrefix("kahlo", UNLIMITED).size(),
+                          MAX_DISTANCE,
+                          index.findBySimilarName("kalho", MAX_DISTANCE, UNLIMITED).size());
+
+        timeScan("prefix scan", () -> scanPrefix(clients, "kahlo", LIMIT));
+        System.out.println(Benchmark.measure("prefix index", i -> index.findByPrefix("kahlo", LIMIT)));
+        timeScan("fuzzy scan", () -> scanSimilar(clients, "kalho", MAX_DISTANCE, LIMIT));
+        System.out.println(Benchmark.measure("fuzzy index", i -> index.findBySimilarName("kalho", MAX_DISTANCE, LIMIT)));
+    }
+
+    /**
+     * Times a scan SCAN_REPEATS times and prints the average. Scans take far too long for Benchmark.measure,
+     * which runs operations in batches of a thousand.
+     *
+     * @param name the name to print
+     * @param scan the scan
+     */
+    private static void timeScan(final String name,
+                                 final Supplier<List<BankClient>> scan)
+    {
+        final long start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < SCAN_REPEATS; i++)
+        {
+            scan.get();
+        }
+        System.out.printf("%-40s %,.1f ms/op%n", name, (System.nanoTime() - start) / NANOS_PER_MILLI / SCAN_REPEATS);
+    }
+
+    /**
+     * A client found by a scan, with the key to order the results by.
+     *
+     * @param key    the matching name, or the edit distance
+     * @param client the client
+     * @param <K>    the type of the key
+     */
+    private record Hit<K extends Comparable<K>>(K key,
+                                                BankClient client)
+    {
+    }
+
+    /**
+     * Finds clients whose first or last name starts with a prefix by checking every client,
+     * ordered by the matching name.
+     *
+     * @param clients the clients
+     * @param prefix  the lowercase prefix
+     * @param limit   the most clients to return
+     * @return the clients found
+     */
+    private static List<BankClient> scanPrefix(final List<BankClient> clients,
+                                               final String prefix,
+                                               final int limit)
+    {
+        final List<Hit<String>> hits;
+
+        hits = new ArrayList<>();
+        for(final BankClient client : clients)
+        {
+            final String first;
+            final String last;
+
+            first = client.getName().getFirst().toLowerCase(Locale.ROOT);
+            last  = client.getName().getLast().toLowerCase(Locale.ROOT);
+            if(first.startsWith(prefix) || last.startsWith(prefix))
+            {
+                hits.add(new Hit<>(first.startsWith(prefix) ? first : last, client));
+            }
+        }
+
+        return top(hits, limit);
+    }
+
+    /**
+     * Finds clients whose first or last name is within some edit distance of a name by checking every client,
+     * closest first.
+     *
+     * @param clients     the clients
+     * @param name        the lowercase name
+     * @param maxDistance the largest edit distance to accept
+     * @param limit       the most clients to return
+     * @return the clients found
+     */
+    private static List<BankClient> scanSimilar(final List<BankClient> clients,
+                                                final String name,
+                                                final int maxDistance,
+                                                final int limit)
+    {
+        final List<Hit<Integer>> hits;
+
+        hits = new ArrayList<>();
+        for(final BankClient client : clients)
+        {
+            final int distance;
+
+            distance = Math.min(BkTree.distance(client.getName().getFirst().toLowerCase(Locale.ROOT), name),
+                                BkTree.distance(client.getName().getLast().toLowerCase(Locale.ROOT), name));
+            if(distance <= maxDistance)
+            {
+                hits.add(new Hit<>(distance, client));
+            }
+        }
+
+        return top(hits, limit);
+    }
+
+    /**
+     * Returns the clients of the hits with the lowest keys.
+     *
+     * @param hits  the hits
+     * @param limit the most clients to return
+     * @param <K>   the type of the keys
+     * @return the clients
+     */
+    private static <K extends Comparable<K>> List<BankClient> top(final List<Hit<K>> hits,
+                                                                  final int limit)
+    {
+        return hits.stream()
+                   .sorted(Comparator.comparing(Hit::key))
+                   .limit(limit)
+                   .map(Hit::client)
+                   .toList();
+    }
+
+    /**
+     * Builds clients with first names of two random syllables and last names of three.
+     *
+     * @return the clients
+     */
+    private static List<BankClient> buildClients()
+    {
+        final List<BankClient> clients;
+        final Random           random;
+
+        clients = new ArrayList<>(CLIENTS);
+        random  = new Random(SEED);
+        for(int i = 0; i < CLIENTS; i++)
+        {
+            clients.add(new BankClient(Name.of(syllables(random, FIRST_SYLLABLES), syllables(random, LAST_SYLLABLES)),
+                                       Date.of(1900, 1, 1),
+                                       null,
+                                       Date.of(1950, 1, 1),
+                                       Integer.toString(FIRST_CLIENT_ID + i)));
+        }
+
+        return clients;
+    }
+
+    /**
+     * Joins random syllables into a name.
+     *
+     * @param random the random number generator
+     * @param count  how many syllables
+     * @return the name
+     */
+    private static String syllables(final Random random,
+                                    final int count)
+    {
+        final StringBuilder name;
+
+        name = new StringBuilder();
+        for(int i = 0; i < count; i++)
+        {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+
+        return name.toString();
+    }
+}
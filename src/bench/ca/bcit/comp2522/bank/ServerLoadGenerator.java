@@ -0,0 +1,278 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a BankServer on the loopback address with many concurrent connections, each a closed loop that
+ * sends one request, waits for the reply and sends the next. Requests are mostly balance checks with
+ * some deposits, withdrawals and details, spread over ACCOUNTS accounts.
+ * Reports requests per second and the 50th, 99th and 99.9th percentile round-trip latencies,
+ * leaving out the first WARM_UP_SECONDS while the JIT settles.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class ServerLoadGenerator
+{
+    private static final int    DEFAULT_CONNECTIONS = 1_000;
+    private static final int    DEFAULT_SECONDS     = 10;
+    private static final int    WARM_UP_SECONDS     = 2;
+    private static final int    ACCOUNTS            = 10_000;
+    private static final int    FIRST_CLIENT_ID     = 1_000_000;
+    private static final int    FIRST_ACCOUNT       = 3_000_000;
+    private static final int    PIN_MODULUS         = 10_000;
+    private static final double STARTING_USD        = 1_000;
+    private static final int    PERCENT             = 100;
+    private static final int    BALANCE_PERCENT     = 70;
+    private static final int    DEPOSIT_PERCENT     = 15;
+    private static final int    WITHDRAW_PERCENT    = 10;
+    private static final int    INITIAL_SAMPLES     = 4_096;
+    private static final double P50                 = 0.50;
+    private static final double P99                 = 0.99;
+    private static final double P999                = 0.999;
+    private static final double NANOS_PER_SECOND    = 1_000_000_000.0;
+    private static final double NANOS_PER_MICRO     = 1_000.0;
+    private static final String OK_REPLY            = BankServer.OK + " ";
+    private static final String INSUFFICIENT_REPLY  = BankServer.ERR + " " + WithdrawalStatus.INSUFFICIENT_FUNDS;
+
+    /**
+     * The latencies one connection recorded after the warm-up, and how many replies were unexpected.
+     *
+     * @param latencies  the round-trip times in nanoseconds; only the first count are used
+     * @param count      how many latencies were recorded
+     * @param unexpected how many replies were neither OK nor a refused withdrawal
+     */
+    private record Samples(long[] latencies,
+                           int count,
+                           int unexpected)
+    {
+    }
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args optionally, the number of connections and then the number of seconds to run for
+     * @throws Exception if the server cannot be started or a connection fails
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final int                   connections;
+        final int                   seconds;
+        final Bank                  bank;
+        final long                  warmUpEnd;
+        final long                  end;
+        final List<Future<Samples>> results;
+        final LongAdder             acceptFailures;
+        final long[]                merged;
+        int                         total;
+        int                         unexpected;
+
+        connections    = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        seconds        = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        bank           = newBank();
+        results        = new ArrayList<>(connections);
+        acceptFailures = new LongAdder();
+
+        try(final BankServer server = new BankServer(bank, 0, e -> acceptFailures.increment());
+            final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            server.start();
+
+            warmUpEnd = System.nanoTime() + (long) (WARM_UP_SECONDS * NANOS_PER_SECOND);
+            end       = warmUpEnd + (long) (seconds * NANOS_PER_SECOND);
+            for(int i = 0; i < connections; i++)
+            {
+                results.add(clients.submit(() -> drive(server.getPort(), warmUpEnd, end)));
+            }
+
+            total      = 0;
+            unexpected = 0;
+            for(final Future<Samples> result : results)
+            {
+                total      += result.get().count();
+                unexpected += result.get().unexpected();
+            }
+
+            merged = new long[total];
+            total  = 0;
+            for(final Future<Samples> result : results)
+            {
+                System.arraycopy(result.get().latencies(), 0, merged, total, result.get().count());
+                total += result.get().count();
+            }
+        }
+
+        Arrays.sort(merged);
+        System.out.printf("connections=%,d %,.0f requests/s p50=%.1f us p99=%.1f us p999=%.1f us max=%.1f us%n",
+                          connections,
+                          merged.length / (double) seconds,
+                          percentile(merged, P50),
+                          percentile(merged, P99),
+                          percentile(merged, P999),
+                          merged.length == 0 ? 0 : merged[merged.length - 1] / NANOS_PER_MICRO);
+
+        if(unexpected != 0 || acceptFailures.sum() != 0)
+        {
+            Benchmark.fail(unexpected + " unexpected replies, " + acceptFailures.sum() +
+                           " failed accepts");
+        }
+    }
+
+    /**
+     * Sends requests over one connection until the end time, recording the round trips after the warm-up.
+     *
+     * @param port      the server's port
+     * @param warmUpEnd the System.nanoTime to start recording at
+     * @param end       the System.nanoTime to stop at
+     * @return what this connection recorded
+     * @throws IOException if the connection fails
+     */
+    private static Samples drive(final int port,
+                                 final long warmUpEnd,
+                                 final long end) throws IOException
+    {
+        try(final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                               StandardCharsets.US_ASCII)))
+        {
+            final OutputStream      out;
+            final ThreadLocalRandom random;
+            long[]                  latencies;
+            int                     count;
+            int                     unexpected;
+            long                    now;
+
+            socket.setTcpNoDelay(true);
+            out        = socket.getOutputStream();
+            random     = ThreadLocalRandom.current();
+            latencies  = new long[INITIAL_SAMPLES];
+            count      = 0;
+            unexpected = 0;
+            now        = System.nanoTime();
+            while(now < end)
+            {
+                final byte[] request;
+                final String reply;
+                final long   sent;
+
+                request = nextRequest(random).getBytes(StandardCharsets.US_ASCII);
+                sent    = now;
+                out.write(request);
+                out.flush();
+                reply = in.readLine();
+                now   = System.nanoTime();
+
+                if(reply == null)
+                {
+                    throw new IOException("Server closed the connection");
+                }
+                if(!reply.startsWith(OK_REPLY) && !reply.equals(INSUFFICIENT_REPLY))
+                {
+                    unexpected++;
+                }
+                if(sent >= warmUpEnd)
+                {
+                    if(count == latencies.length)
+                    {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = now - sent;
+                }
+            }
+
+            return new Samples(latencies, count, unexpected);
+        }
+    }
+
+    /**
+     * Picks the next request from the mix, for a random account.
+     *
+     * @param random the random number generator
+     * @return the request line, including its line end
+     */
+    private static String nextRequest(final ThreadLocalRandom random)
+    {
+        final int account;
+        final int roll;
+
+        account = random.nextInt(ACCOUNTS);
+        roll    = random.nextInt(PERCENT);
+        if(roll < BALANCE_PERCENT)
+        {
+            return "BALANCE " + (FIRST_ACCOUNT + account) + "\n";
+        }
+        if(roll < BALANCE_PERCENT + DEPOSIT_PERCENT)
+        {
+            return "DEPOSIT " + (FIRST_ACCOUNT + account) + " 12.34\n";
+        }
+        if(roll < BALANCE_PERCENT + DEPOSIT_PERCENT + WITHDRAW_PERCENT)
+        {
+            return "WITHDRAW " + (FIRST_ACCOUNT + account) + " 10 " + account % PIN_MODULUS + "\n";
+        }
+
+        return "DETAILS " + (FIRST_ACCOUNT + account) + "\n";
+    }
+
+    /**
+     * Creates a bank of ACCOUNTS accounts, each with its own client.
+     *
+     * @return the bank
+     */
+    private static Bank newBank()
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(new Name("Ada", "Lovelace"),
+                                    new Date(1815, 12, 10),
+                                    null,
+                                    new Date(1900, 1, 1),
+                                    String.valueOf(FIRST_CLIENT_ID + i));
+            bank.addClient(client);
+            bank.addAccount(new BankAccount(client,
+                                            i % PIN_MODULUS,
+                                            String.valueOf(FIRST_ACCOUNT + i),
+                                            null,
+                                            STARTING_USD));
+        }
+
+        return bank;
+    }
+
+    /**
+     * Returns a percentile of sorted latencies in microseconds.
+     *
+     * @param sorted   the latencies in nanoseconds, in ascending order
+     * @param fraction the percentile as a fraction, such as 0.99
+     * @return the latency at that percentile in microseconds, or 0 if there are none
+     */
+    private static double percentile(final long[] sorted,
+                                     final double fraction)
+    {
+        if(sorted.length == 0)
+        {
+            return 0;
+        }
+
+        return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * fraction))] / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,107 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures how fast a bank of CLIENTS clients (one account each) is saved to and loaded from a
+ * BankSnapshot, with and without re-validation, compared with building it through the constructors.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class SnapshotBenchmark
+{
+    private static final int      CLIENTS          = 1_000_000;
+    private static final int      FIRST_CLIENT_ID  = 1_000_000;
+    private static final int      FIRST_ACCOUNT    = 3_000_000;
+    private static final int      PIN              = 1234;
+    private static final int      ROUNDS           = 3;
+    private static final long     NO_JOURNAL       = 0L;
+    private static final double   NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final String[] FIRST_NAMES      = {"Albert", "Nelson", "Frida", "Jackie", "Ada", "Alan"};
+    private static final String[] LAST_NAMES       = {"Einstein", "Mandela", "Kahlo", "Chan", "Lovelace", "Turing"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args unused
+     * @throws IOException if the snapshot file cannot be written or read
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final Path file;
+        long       start;
+        final Bank bank;
+
+        file  = Files.createTempFile("bank", ".snapshot");
+
+        start = System.nanoTime();
+        bank  = buildBank();
+        report("construct", start);
+
+        start = System.nanoTime();
+        BankSnapshot.save(file, bank, NO_JOURNAL);
+        report("save", start);
+        System.out.printf("snapshot size: %.1f MB%n", Files.size(file) / 1_048_576.0);
+
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            System.gc();
+            start = System.nanoTime();
+            BankSnapshot.load(file, false);
+            report("load (validated)", start);
+
+            System.gc();
+            start = System.nanoTime();
+            BankSnapshot.load(file, true);
+            report("load (trusted)", start);
+        }
+
+        Files.delete(file);
+    }
+
+    /**
+     * Builds the bank through the validating constructors.
+     *
+     * @return the bank
+     */
+    private static Bank buildBank()
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < CLIENTS; i++)
+        {
+            final BankClient client;
+            final Date       signup;
+
+            signup = new Date(1950 + i % 70, 1 + i % 12, 1 + i % 28);
+            client = new BankClient(new Name(FIRST_NAMES[i % FIRST_NAMES.length], LAST_NAMES[i % LAST_NAMES.length]),
+                                    new Date(1900 + i % 50, 1 + i % 12, 1 + i % 28),
+                                    null,
+                                    signup,
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client, PIN, Integer.toString(FIRST_ACCOUNT + i), null, 100 + i % 1000));
+        }
+
+        return bank;
+    }
+
+    /**
+     * Prints how long a step took and how many clients per second it handled.
+     *
+     * @param step  the name of the step
+     * @param start the System.nanoTime the step started at
+     */
+    private static void report(final String step,
+                               final long start)
+    {
+        final double seconds;
+
+        seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.out.printf("%-17s %6.2f s  %,12.0f clients/s%n", step, seconds, CLIENTS / seconds);
+    }
+}
@@ -0,0 +1,195 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs random transfers between ACCOUNTS accounts on many threads while an auditor thread keeps summing
+ * every balance, and checks that the total never changes: money is only ever moved, never lost or made.
+ * Reports transfers per second when every thread picks any two accounts, and when each thread keeps to
+ * its own slice of the accounts so no two threads ever want the same pair.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class TransferStressBenchmark
+{
+    private static final int    ACCOUNTS             = 4_096;
+    private static final int    TRANSFERS_PER_THREAD = 1_000_000;
+    private static final int    FIRST_CLIENT_ID      = 1_000_000;
+    private static final int    FIRST_ACCOUNT        = 3_000_000;
+    private static final int    PIN_MODULUS          = 10_000;
+    private static final double STARTING_USD         = 100;
+    private static final int    MAX_TRANSFER_CENTS   = 5_000;
+    private static final double NANOS_PER_SECOND     = 1_000_000_000.0;
+    private static final double OPS_PER_MEGA_OP      = 1_000_000.0;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optionally, the number of threads (defaults to twice the number of processors)
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final int threads;
+
+        threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+
+        run("random pairs", threads, false);
+        run("disjoint pairs", threads, true);
+    }
+
+    /**
+     * Runs one round of transfers on a new bank and checks the total balance throughout.
+     *
+     * @param name     the name to report the round under
+     * @param threads  the number of transferring threads
+     * @param disjoint whether each thread keeps to its own slice of the accounts
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void run(final String name,
+                            final int threads,
+                            final boolean disjoint) throws InterruptedException
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+        final long          expected;
+        final AtomicBoolean running;
+        final AtomicLong    audits;
+        final AtomicLong    moved;
+        final Thread        auditor;
+        final Thread[]      workers;
+        final long          start;
+        final long          elapsed;
+
+        bank     = new Bank();
+        accounts = newAccounts(bank);
+        expected = bank.getTotalBalanceCents();
+        running  = new AtomicBoolean(true);
+        audits   = new AtomicLong();
+        moved    = new AtomicLong();
+
+        auditor = new Thread(() ->
+        {
+            while(running.get())
+            {
+                final long total;
+
+                total = bank.getTotalBalanceCents();
+                if(total != expected)
+                {
+                    Benchmark.fail("Audit saw " + total + " cents, expected " + expected);
+                }
+                audits.incrementAndGet();
+            }
+        });
+
+        workers = new Thread[threads];
+        for(int t = 0; t < threads; t++)
+        {
+            final int first;
+            final int count;
+
+            first = disjoint ? t * (ACCOUNTS / threads) : 0;
+            count = disjoint ? ACCOUNTS / threads : ACCOUNTS;
+
+            workers[t] = new Thread(() -> moved.addAndGet(transfer(bank, accounts, first, count)));
+        }
+
+        start = System.nanoTime();
+        auditor.start();
+        for(final Thread worker : workers)
+        {
+            worker.start();
+        }
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+        elapsed = System.nanoTime() - start;
+        running.set(false);
+        auditor.join();
+
+        if(bank.getTotalBalanceCents() != expected)
+        {
+            Benchmark.fail("Money was not conserved");
+        }
+
+        System.out.printf("%-14s threads=%d %.2f M transfers/s (%,d moved, %,d audits, total conserved)%n",
+                          name,
+                          threads,
+                          (double) threads * TRANSFERS_PER_THREAD / (elapsed / NANOS_PER_SECOND) / OPS_PER_MEGA_OP,
+                          moved.get(),
+                          audits.get());
+    }
+
+    /**
+     * Makes TRANSFERS_PER_THREAD transfers between random pairs of accounts in a slice.
+     *
+     * @param bank     the bank
+     * @param accounts the accounts
+     * @param first    the index of the first account in the slice
+     * @param count    the number of accounts in the slice
+     * @return how many of the transfers went through
+     */
+    private static long transfer(final Bank bank,
+                                 final BankAccount[] accounts,
+                                 final int first,
+                                 final int count)
+    {
+        final ThreadLocalRandom random;
+        long                    moved;
+
+        random = ThreadLocalRandom.current();
+        moved  = 0;
+        for(int i = 0; i < TRANSFERS_PER_THREAD; i++)
+        {
+            final BankAccount from;
+            final BankAccount to;
+
+            from = accounts[first + random.nextInt(count)];
+            to   = accounts[first + random.nextInt(count)];
+            if(from != to &&
+               bank.transferCents(from, to, 1 + random.nextInt(MAX_TRANSFER_CENTS), from.getPin()) == TransferStatus.OK)
+            {
+                moved++;
+            }
+        }
+
+        return moved;
+    }
+
+    /**
+     * Adds ACCOUNTS accounts to a bank, each with its own client.
+     *
+     * @param bank the bank to add them to
+     * @return the accounts, in the order added
+     */
+    private static BankAccount[] newAccounts(final Bank bank)
+    {
+        final BankAccount[] accounts;
+
+        accounts = new BankAccount[ACCOUNTS];
+        for(int i = 0; i < ACCOUNTS; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(new Name("Ada", "Lovelace"),
+                                    new Date(1815, 12, 10),
+                                    null,
+                                    new Date(1900, 1, 1),
+                                    String.valueOf(FIRST_CLIENT_ID + i));
+            accounts[i] = new BankAccount(client,
+                                          i % PIN_MODULUS,
+                                          String.valueOf(FIRST_ACCOUNT + i),
+                                          null,
+                                          STARTING_USD);
+            bank.addAccount(accounts[i]);
+        }
+
+        return accounts;
+    }
+}
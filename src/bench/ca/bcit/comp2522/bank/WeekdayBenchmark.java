@@ -0,0 +1,166 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+import java.time.Year;
+
+/**
+ * Checks Date.getWeekday against java.time for every supported date, then compares the speed of
+ * the epoch-day lookup against the seven-step algorithm Date used to run on every call.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class WeekdayBenchmark
+{
+    private static final int    FIRST_YEAR       = 1800;
+    private static final int    LAST_YEAR        = 2024;
+    private static final int    ROUNDS           = 50;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final int    CENTURY          = 100;
+    private static final int    TWELVE           = 12;
+    private static final int    FOUR             = 4;
+    private static final int    DAYS_PER_WEEK    = 7;
+    private static final String MONTH_CODES      = "144025036146";
+    private static final int    LEAP_YEAR_OFFSET = 6;
+    private static final int    OFFSET_1800S     = 2;
+    private static final int    OFFSET_1900S     = 0;
+    private static final int    OFFSET_2000S     = 6;
+    private static final int    YEAR_1800        = 1800;
+    private static final int    YEAR_1900        = 1900;
+
+    private static final String[] LEGACY_NAMES = {"saturday", "sunday", "monday", "tuesday",
+                                                  "wednesday", "thursday", "friday"};
+
+    /**
+     * Runs the correctness check and the timing comparison.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final Date[] dates;
+        int          legacyMismatches;
+        long         sink;
+        long         start;
+        long         legacyNanos;
+        long         lookupNanos;
+
+        dates            = allDates();
+        legacyMismatches = 0;
+        for(final Date date : dates)
+        {
+            final LocalDate expected;
+
+            expected = LocalDate.of(date.getYear(), date.getMonth(), date.getDay());
+            if(date.getWeekday().ordinal() != expected.getDayOfWeek().getValue() % DAYS_PER_WEEK)
+            {
+                Benchmark.fail("Wrong weekday for " + expected);
+            }
+            if(!legacyDayOfTheWeek(date).equals(date.getDayOfTheWeek()))
+            {
+                legacyMismatches++;
+            }
+        }
+        System.out.printf("%d dates match java.time; the old algorithm disagreed on %d of them%n",
+                          dates.length,
+                          legacyMismatches);
+
+        sink  = 0;
+        start = System.nanoTime();
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            for(final Date date : dates)
+            {
+                sink += legacyDayOfTheWeek(date).length();
+            }
+        }
+        legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            for(final Date date : dates)
+            {
+                sink += date.getDayOfTheWeek().length();
+            }
+        }
+        lookupNanos = System.nanoTime() - start;
+
+        System.out.printf("old algorithm: %.1f ns/op%n", (double) legacyNanos / ((long) ROUNDS * dates.length));
+        System.out.printf("epoch lookup:  %.1f ns/op%n", (double) lookupNanos / ((long) ROUNDS * dates.length));
+        System.out.printf("(sink %d, %.2f s total)%n", sink, (legacyNanos + lookupNanos) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Builds every Date between FIRST_YEAR and LAST_YEAR.
+     *
+     * @return the dates in order
+     */
+    private static Date[] allDates()
+    {
+        final Date first;
+        final Date last;
+        final Date[] dates;
+
+        first = new Date(FIRST_YEAR, 1, 1);
+        last  = new Date(LAST_YEAR, 12, 31);
+        dates = new Date[first.daysBetween(last) + 1];
+
+        for(int i = 0; i < dates.length; i++)
+        {
+            dates[i] = first.plusDays(i);
+        }
+
+        return dates;
+    }
+
+    /**
+     * The seven-step weekday algorithm Date.getDayOfTheWeek used before the epoch-day lookup,
+     * kept here unchanged for comparison.
+     *
+     * @param date the date to find the weekday of
+     * @return the lowercase weekday name
+     */
+    private static String legacyDayOfTheWeek(final Date date)
+    {
+        final int yearOfCentury;
+        final int leapOffset;
+        final int centuryOffset;
+        final int initial;
+        final int twelves;
+        final int remainder;
+        final int fours;
+        final int total;
+
+        yearOfCentury = date.getYear() % CENTURY;
+        leapOffset    = isLeapYear(date.getYear()) && date.getMonth() <= 2 ? LEAP_YEAR_OFFSET : 0;
+        centuryOffset = switch(date.getYear() - yearOfCentury)
+        {
+            case YEAR_1800 -> OFFSET_1800S;
+            case YEAR_1900 -> OFFSET_1900S;
+            default -> OFFSET_2000S;
+        };
+
+        initial   = yearOfCentury + centuryOffset + leapOffset;
+        twelves   = initial / TWELVE;
+        remainder = initial - twelves * TWELVE;
+        fours     = remainder / FOUR;
+        total     = date.getDay() + twelves + remainder + fours +
+                    Character.getNumericValue(MONTH_CODES.charAt(date.getMonth() - 1));
+
+        return LEGACY_NAMES[total % DAYS_PER_WEEK];
+    }
+
+    /**
+     * Checks if the given year is a leap year.
+     *
+     * @param year the year to check
+     * @return if the year is a leap year
+     */
+    private static boolean isLeapYear(final int year)
+    {
+        return Year.isLeap(year);
+    }
+}
@@ -0,0 +1,385 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times the account operations of every BankAccount, by operation and outcome.
+ * Off by default; while off, each operation pays for one read of a volatile flag.
+ * <p>
+ * While on, only about one operation in SAMPLE_EVERY is picked, at random, to be counted and timed; the rest
+ * pay for one random number and nothing else. Counting every operation, even in a LongAdder, cost more than
+ * half as much again as a deposit itself, and timing needs two reads of System.nanoTime, which cost about as
+ * much. Each picked operation adds SAMPLE_EVERY to the LongAdder for its operation and outcome, so the counts
+ * are estimates: over n operations they are within a few times SAMPLE_EVERY * sqrt(n / SAMPLE_EVERY) of n,
+ * and always a multiple of SAMPLE_EVERY. Outcomes that happen only a handful of times may not show at all.
+ * <p>
+ * Read the metrics with snapshot, or over JMX after calling registerMBean.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+final class AccountMetrics
+{
+    /**
+     * The operations that are counted and timed.
+     */
+    enum Operation
+    {
+        DEPOSIT,
+        WITHDRAW,
+        DETAILS
+    }
+
+    static final long   NOT_TIMED   = Long.MIN_VALUE;
+    static final String OBJECT_NAME = "ca.bcit.comp2522.bank:type=AccountMetrics";
+    static final double P50         = 0.50;
+    static final double P99         = 0.99;
+    static final double P999        = 0.999;
+
+    static final int SAMPLE_EVERY = 64;
+
+    private static final int SAMPLE_MASK = SAMPLE_EVERY - 1;
+    private static final int OUTCOMES    = WithdrawalStatus.values().length;
+    private static final int SLOTS       = Operation.values().length * OUTCOMES;
+
+    private static final LongAdder[]        COUNTS    = new LongAdder[SLOTS];
+    private static final LatencyHistogram[] LATENCIES = new LatencyHistogram[SLOTS];
+
+    private static volatile boolean enabled;
+
+    static
+    {
+        for(int i = 0; i < SLOTS; i++)
+        {
+            COUNTS[i]    = new LongAdder();
+            LATENCIES[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Not instantiable; all methods are static.
+     */
+    private AccountMetrics()
+    {
+    }
+
+    /**
+     * Returns whether operations are being counted and timed.
+     *
+     * @return true if they are
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops counting and timing operations.
+     *
+     * @param on whether to count and time them
+     */
+    static void setEnabled(final boolean on)
+    {
+        enabled = on;
+    }
+
+    /**
+     * Called at the start of an operation; decides whether to count and time it.
+     *
+     * @return the System.nanoTime the operation started at, or NOT_TIMED if it is not being counted or timed
+     */
+    static long start()
+    {
+        if(!isPicked())
+        {
+            return NOT_TIMED;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Called at the end of an operation; if start picked it, counts it for SAMPLE_EVERY operations and records
+     * how long it took.
+     *
+     * @param operation the operation
+     * @param outcome   how it ended
+     * @param started   what start returned
+     */
+    static void record(final Operation operation,
+                       final WithdrawalStatus outcome,
+                       final long started)
+    {
+        if(started == NOT_TIMED)
+        {
+            return;
+        }
+
+        final int slot;
+
+        slot = slotOf(operation, outcome);
+        COUNTS[slot].add(SAMPLE_EVERY);
+        LATENCIES[slot].record(System.nanoTime() - started);
+    }
+
+    /**
+     * Counts an operation that is not timed, such as one item of a batch, with the same odds as start
+     * picks an operation.
+     *
+     * @param operation the operation
+     * @param outcome   how it ended
+     */
+    static void count(final Operation operation,
+                      final WithdrawalStatus outcome)
+    {
+        if(isPicked())
+        {
+            COUNTS[slotOf(operation, outcome)].add(SAMPLE_EVERY);
+        }
+    }
+
+    /**
+     * Forgets every count and latency recorded so far.
+     */
+    static void reset()
+    {
+        for(int i = 0; i < SLOTS; i++)
+        {
+            COUNTS[i].reset();
+            LATENCIES[i].reset();
+        }
+    }
+
+    /**
+     * Takes a copy of the metrics recorded so far. Operations finishing while this runs may or may not be in it.
+     *
+     * @return the copy
+     */
+    static Snapshot snapshot()
+    {
+        final long[]   counts;
+        final long[][] latencies;
+
+        counts    = new long[SLOTS];
+        latencies = new long[SLOTS][];
+        for(int i = 0; i < SLOTS; i++)
+        {
+            counts[i]    = COUNTS[i].sum();
+            latencies[i] = LATENCIES[i].snapshot();
+        }
+
+        return new Snapshot(counts, latencies);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under OBJECT_NAME.
+     *
+     * @throws JMException if they cannot be registered, for example because they already are
+     */
+    static void registerMBean() throws JMException
+    {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Decides whether to count and time an operation: never while metrics are off, otherwise about one time
+     * in SAMPLE_EVERY, at random.
+     *
+     * @return true if the operation is picked
+     */
+    private static boolean isPicked()
+    {
+        return enabled && (ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) == 0;
+    }
+
+    /**
+     * Returns where the metrics for an operation and outcome are kept.
+     *
+     * @param operation the operation
+     * @param outcome   the outcome
+     * @return the slot
+     */
+    private static int slotOf(final Operation operation,
+                              final WithdrawalStatus outcome)
+    {
+        return operation.ordinal() * OUTCOMES + outcome.ordinal();
+    }
+
+    /**
+     * A copy of the metrics at one moment.
+     */
+    static final class Snapshot
+    {
+        private final long[]   counts;
+        private final long[][] latencies;
+
+        /**
+         * Constructs a Snapshot.
+         *
+         * @param counts    the count for each slot
+         * @param latencies the latency histogram bucket counts for each slot
+         */
+        private Snapshot(final long[] counts,
+                         final long[][] latencies)
+        {
+            this.counts    = counts;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Returns about how many times an operation finished with an outcome, estimated from the sample.
+         *
+         * @param operation the operation
+         * @param outcome   the outcome
+         * @return the estimated count, a multiple of SAMPLE_EVERY
+         */
+        long getCount(final Operation operation,
+                      final WithdrawalStatus outcome)
+        {
+            return counts[slotOf(operation, outcome)];
+        }
+
+        /**
+         * Returns a percentile of the sampled latencies of an operation that finished with an outcome.
+         *
+         * @param operation the operation
+         * @param outcome   the outcome
+         * @param fraction  the percentile as a fraction, such as P99
+         * @return the latency in nanoseconds, or 0 if none were timed
+         */
+        long getLatencyNanos(final Operation operation,
+                             final WithdrawalStatus outcome,
+                             final double fraction)
+        {
+            return LatencyHistogram.percentile(latencies[slotOf(operation, outcome)], fraction);
+        }
+
+        /**
+         * Returns the estimated counts keyed OPERATION.OUTCOME, leaving out pairs that were never sampled.
+         *
+         * @return the counts, sorted by key
+         */
+        Map<String, Long> getCounts()
+        {
+            final Map<String, Long> byKey;
+
+            byKey = new TreeMap<>();
+            for(final Operation operation : Operation.values())
+            {
+                for(final WithdrawalStatus outcome : WithdrawalStatus.values())
+                {
+                    if(getCount(operation, outcome) != 0)
+                    {
+                        byKey.put(operation + "." + outcome, getCount(operation, outcome));
+                    }
+                }
+            }
+
+            return byKey;
+        }
+
+        /**
+         * Returns the 50th, 99th and 99.9th percentile latencies keyed OPERATION.OUTCOME.p50, .p99 and .p999,
+         * leaving out pairs that were never timed.
+         *
+         * @return the latencies in nanoseconds, sorted by key
+         */
+        Map<String, Long> getLatencyNanos()
+        {
+            final Map<String, Long> byKey;
+
+            byKey = new TreeMap<>();
+            for(final Operation operation : Operation.values())
+            {
+                for(final WithdrawalStatus outcome : WithdrawalStatus.values())
+                {
+                    final String key;
+
+                    key = operation + "." + outcome;
+                    if(getLatencyNanos(operation, outcome, P50) != 0)
+                    {
+                        byKey.put(key + ".p50", getLatencyNanos(operation, outcome, P50));
+                        byKey.put(key + ".p99", getLatencyNanos(operation, outcome, P99));
+                        byKey.put(key + ".p999", getLatencyNanos(operation, outcome, P999));
+                    }
+                }
+            }
+
+            return byKey;
+        }
+
+        /**
+         * Returns one line per operation and outcome that was sampled, with its estimated count and sampled latencies.
+         *
+         * @return the metrics as text
+         */
+        @Override
+        public String toString()
+        {
+            final StringBuilder builder;
+
+            builder = new StringBuilder();
+            for(final Operation operation : Operation.values())
+            {
+                for(final WithdrawalStatus outcome : WithdrawalStatus.values())
+                {
+                    if(getCount(operation, outcome) != 0)
+                    {
+                        builder.append(String.format("%-8s %-18s count=%,d p50=%,dns p99=%,dns p999=%,dns%n",
+                                                     operation,
+                                                     outcome,
+                                                     getCount(operation, outcome),
+                                                     getLatencyNanos(operation, outcome, P50),
+                                                     getLatencyNanos(operation, outcome, P99),
+                                                     getLatencyNanos(operation, outcome, P999)));
+                    }
+                }
+            }
+
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Exposes the metrics over JMX.
+     */
+    private static final class Bean implements AccountMetricsMXBean
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return AccountMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean on)
+        {
+            AccountMetrics.setEnabled(on);
+        }
+
+        @Override
+        public Map<String, Long> getCounts()
+        {
+            return snapshot().getCounts();
+        }
+
+        @Override
+        public Map<String, Long> getLatencyNanos()
+        {
+            return snapshot().getLatencyNanos();
+        }
+
+        @Override
+        public void reset()
+        {
+            AccountMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Map;
+
+/**
+ * The management interface AccountMetrics registers over JMX, so jconsole or any JMX client can switch
+ * metrics on and off and read the counts and latencies of account operations.
+ * JMX only accepts public management interfaces, so unlike the rest of the package this one is public.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+public interface AccountMetricsMXBean
+{
+    /**
+     * Returns whether operations are being counted and timed.
+     *
+     * @return true if they are
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops counting and timing operations.
+     *
+     * @param enabled whether to count and time them
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns about how many times each operation finished with each outcome, estimated from the sampled
+     * operations and keyed OPERATION.OUTCOME, leaving out pairs that were never sampled.
+     *
+     * @return the estimated counts
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Returns the 50th, 99th and 99.9th percentile latencies in nanoseconds of each operation and outcome,
+     * keyed OPERATION.OUTCOME.p50, .p99 and .p999, leaving out pairs that were never timed.
+     *
+     * @return the latencies
+     */
+    Map<String, Long> getLatencyNanos();
+
+    /**
+     * Forgets every count and latency recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,401 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Month-end totals over a set of accounts: the number of accounts, their total balance, and a histogram of
+ * balances, grouped by the year each account was opened and by whether its client is alive.
+ * <p>
+ * collect splits the accounts across a ForkJoinPool. Each task fills its own AccountStatistics with plain
+ * long arrays, and the results are merged pairwise on the way back up, so no counter is shared between
+ * threads. Balances are summed as whole cents, so the totals are exact and identical however the work is split;
+ * a total that would not fit in a long fails with ArithmeticException instead of wrapping.
+ * <p>
+ * Balance histogram buckets are by order of magnitude in dollars: bucket 0 holds balances under $1, bucket k
+ * holds balances of at least 10^(k-1) and under 10^k dollars, and the last bucket holds everything larger.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccountStatistics
+{
+    static final int HISTOGRAM_BUCKETS = 10;
+
+    private static final int  YEARS            = Date.MAX_YEAR - Date.MIN_YEAR + 1;
+    private static final int  GROUPS_PER_YEAR  = 2;
+    private static final int  GROUPS           = YEARS * GROUPS_PER_YEAR;
+    private static final int  ALIVE_GROUP      = 1;
+    private static final int  DEAD_GROUP       = 0;
+    private static final int  LEAF_SIZE        = 8_192;
+    private static final long FIRST_BUCKET_TOP = 100L;
+    private static final int  DECIMAL_BASE     = 10;
+
+    private final long[] count;
+    private final long[] totalCents;
+    private final long[] histogram;
+
+    /**
+     * Aggregates part of an account array, splitting it in half until it is at most LEAF_SIZE accounts.
+     * The accounts are transient: a task is never serialized, and BankAccount is not Serializable.
+     */
+    private static final class AggregateTask extends RecursiveTask<AccountStatistics>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BankAccount[] accounts;
+        private final int                     from;
+        private final int                     to;
+
+        /**
+         * Constructs an AggregateTask.
+         *
+         * @param accounts the accounts
+         * @param from     the first index to aggregate
+         * @param to       the index after the last one to aggregate
+         */
+        private AggregateTask(final BankAccount[] accounts,
+                              final int from,
+                              final int to)
+        {
+            this.accounts = accounts;
+            this.from     = from;
+            this.to       = to;
+        }
+
+        /**
+         * Aggregates the range directly, or splits it and merges the halves.
+         *
+         * @return the statistics for the range
+         */
+        @Override
+        protected AccountStatistics compute()
+        {
+            if(to - from <= LEAF_SIZE)
+            {
+                final AccountStatistics statistics;
+
+                statistics = new AccountStatistics();
+                for(int i = from; i < to; i++)
+                {
+                    statistics.add(accounts[i]);
+                }
+
+                return statistics;
+            }
+
+            final int           middle;
+            final AggregateTask left;
+            final AggregateTask right;
+
+            middle = (from + to) >>> 1;
+            left   = new AggregateTask(accounts, from, middle);
+            right  = new AggregateTask(accounts, middle, to);
+
+            left.fork();
+
+            return right.compute().merge(left.join());
+        }
+    }
+
+    /**
+     * Constructs empty statistics.
+     */
+    private AccountStatistics()
+    {
+        this.count      = new long[GROUPS];
+        this.totalCents = new long[GROUPS];
+        this.histogram  = new long[GROUPS * HISTOGRAM_BUCKETS];
+    }
+
+    /**
+     * Aggregates every account in the bank on the common ForkJoinPool.
+     *
+     * @param bank the bank
+     * @return the statistics
+     */
+    static AccountStatistics collect(final Bank bank)
+    {
+        if(bank == null)
+        {
+            throw new IllegalArgumentException("Bank is null");
+        }
+
+        return collect(bank.getAllAccounts(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates the given accounts on the given pool.
+     *
+     * @param accounts the accounts to aggregate
+     * @param pool     the pool to run on
+     * @return the statistics
+     */
+    static AccountStatistics collect(final List<BankAccount> accounts,
+                                     final ForkJoinPool pool)
+    {
+        if(accounts == null || pool == null)
+        {
+            throw new IllegalArgumentException("Accounts or pool is null");
+        }
+
+        final BankAccount[] snapshot;
+
+        snapshot = accounts.toArray(new BankAccount[0]);
+
+        return pool.invoke(new AggregateTask(snapshot, 0, snapshot.length));
+    }
+
+    /**
+     * Returns the number of accounts.
+     *
+     * @return the number of accounts
+     */
+    public long getCount()
+    {
+        return sum(count);
+    }
+
+    /**
+     * Returns the total balance of every account in cents.
+     *
+     * @return the total in cents
+     */
+    public long getTotalCents()
+    {
+        return sum(totalCents);
+    }
+
+    /**
+     * Returns the total balance of every account in USD.
+     *
+     * @return the total in USD
+     */
+    public double getTotalUsd()
+    {
+        return Money.toUsd(getTotalCents());
+    }
+
+    /**
+     * Returns the number of accounts opened in the given year.
+     *
+     * @param year the year opened
+     * @return the number of accounts
+     */
+    public long getCount(final int year)
+    {
+        return getCount(year, true) + getCount(year, false);
+    }
+
+    /**
+     * Returns the number of accounts opened in the given year whose client is or is not alive.
+     *
+     * @param year  the year opened
+     * @param alive whether to count accounts of living or of dead clients
+     * @return the number of accounts
+     */
+    public long getCount(final int year,
+                         final boolean alive)
+    {
+        return count[group(year, alive)];
+    }
+
+    /**
+     * Returns the total balance in cents of the accounts opened in the given year.
+     *
+     * @param year the year opened
+     * @return the total in cents
+     */
+    public long getTotalCents(final int year)
+    {
+        return Money.add(getTotalCents(year, true), getTotalCents(year, false));
+    }
+
+    /**
+     * Returns the total balance in cents of the accounts opened in the given year whose client is or is not alive.
+     *
+     * @param year  the year opened
+     * @param alive whether to total accounts of living or of dead clients
+     * @return the total in cents
+     */
+    public long getTotalCents(final int year,
+                              final boolean alive)
+    {
+        return totalCents[group(year, alive)];
+    }
+
+    /**
+     * Returns the number of accounts whose client is or is not alive.
+     *
+     * @param alive whether to count accounts of living or of dead clients
+     * @return the number of accounts
+     */
+    public long getCountByAlive(final boolean alive)
+    {
+        long total;
+
+        total = 0;
+        for(int group = alive ? ALIVE_GROUP : DEAD_GROUP; group < GROUPS; group += GROUPS_PER_YEAR)
+        {
+            total += count[group];
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the total balance in cents of the accounts whose client is or is not alive.
+     *
+     * @param alive whether to total accounts of living or of dead clients
+     * @return the total in cents
+     */
+    public long getTotalCentsByAlive(final boolean alive)
+    {
+        long total;
+
+        total = 0;
+        for(int group = alive ? ALIVE_GROUP : DEAD_GROUP; group < GROUPS; group += GROUPS_PER_YEAR)
+        {
+            total = Money.add(total, totalCents[group]);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the balance histogram of the accounts opened in the given year whose client is or is not alive.
+     *
+     * @param year  the year opened
+     * @param alive whether to count accounts of living or of dead clients
+     * @return a new array of HISTOGRAM_BUCKETS counts
+     */
+    public long[] getHistogram(final int year,
+                               final boolean alive)
+    {
+        final int start;
+
+        start = group(year, alive) * HISTOGRAM_BUCKETS;
+
+        return Arrays.copyOfRange(histogram, start, start + HISTOGRAM_BUCKETS);
+    }
+
+    /**
+     * Returns the balance histogram of every account.
+     *
+     * @return a new array of HISTOGRAM_BUCKETS counts
+     */
+    public long[] getHistogram()
+    {
+        final long[] total;
+
+        total = new long[HISTOGRAM_BUCKETS];
+        for(int i = 0; i < histogram.length; i++)
+        {
+            total[i % HISTOGRAM_BUCKETS] += histogram[i];
+        }
+
+        return total;
+    }
+
+    /**
+     * Counts one account.
+     *
+     * @param account the account
+     */
+    private void add(final BankAccount account)
+    {
+        final long cents;
+        final int  group;
+
+        cents = account.getBalanceCents();
+        group = group(account.getAccountOpened().getYear(), account.getClient().isAlive());
+
+        count[group]++;
+        totalCents[group] = Money.add(totalCents[group], cents);
+        histogram[group * HISTOGRAM_BUCKETS + bucket(cents)]++;
+    }
+
+    /**
+     * Adds another set of statistics into this one.
+     *
+     * @param other the statistics to add
+     * @return this
+     */
+    private AccountStatistics merge(final AccountStatistics other)
+    {
+        for(int i = 0; i < GROUPS; i++)
+        {
+            count[i]      += other.count[i];
+            totalCents[i]  = Money.add(totalCents[i], other.totalCents[i]);
+        }
+        for(int i = 0; i < histogram.length; i++)
+        {
+            histogram[i] += other.histogram[i];
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the group index for a year opened and whether the client is alive.
+     *
+     * @param year  the year opened
+     * @param alive whether the client is alive
+     * @return the group index
+     */
+    private static int group(final int year,
+                             final boolean alive)
+    {
+        if(year < Date.MIN_YEAR || year > Date.MAX_YEAR)
+        {
+            throw new IllegalArgumentException("Year must be between " + Date.MIN_YEAR + " and " + Date.MAX_YEAR + ": " + year);
+        }
+
+        return (year - Date.MIN_YEAR) * GROUPS_PER_YEAR + (alive ? ALIVE_GROUP : DEAD_GROUP);
+    }
+
+    /**
+     * Returns the histogram bucket for a balance.
+     *
+     * @param cents the balance in cents
+     * @return the bucket index
+     */
+    private static int bucket(final long cents)
+    {
+        long top;
+        int  bucket;
+
+        top    = FIRST_BUCKET_TOP;
+        bucket = 0;
+        while(cents >= top && bucket < HISTOGRAM_BUCKETS - 1)
+        {
+            top *= DECIMAL_BASE;
+            bucket++;
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Adds up an array.
+     *
+     * @param values the values
+     * @return their sum
+     * @throws ArithmeticException if the sum does not fit in a long
+     */
+    private static long sum(final long[] values)
+    {
+        long total;
+
+        total = 0;
+        for(final long value : values)
+        {
+            total = Math.addExact(total, value);
+        }
+
+        return total;
+    }
+}
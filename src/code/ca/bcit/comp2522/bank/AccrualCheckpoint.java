@@ -0,0 +1,278 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records which chunks of an AccrualEngine run are finished, so a run that was stopped part way through
+ * can be resumed without charging any account twice.
+ * <p>
+ * The file holds the run it belongs to (MAGIC, VERSION, run date as an epoch day, period, annual rate in
+ * basis points, fee in cents and chunk size), then the number of accounts the run covers, then one byte per
+ * chunk that is DONE once every account in the chunk has been accrued. The account count is the one the first
+ * attempt saw, so accounts added before a resume are left for the next run. A chunk is marked with a single
+ * positional write after its accounts are updated, so workers mark chunks concurrently without locking.
+ * Marks reach the disk when the checkpoint is closed; until then they survive the process being stopped
+ * but not the machine.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccrualCheckpoint implements Closeable
+{
+    private static final int  MAGIC         = 0x41434352;
+    private static final int  VERSION       = 1;
+    private static final int  RUN_SIZE      = Integer.BYTES * 6 + Long.BYTES;
+    private static final int  ACCOUNTS_SIZE = Integer.BYTES;
+    private static final int  HEADER_SIZE   = RUN_SIZE + ACCOUNTS_SIZE;
+    private static final int  NOT_STORED    = -1;
+    private static final byte DONE          = 1;
+    private static final byte NOT_DONE      = 0;
+
+    private final FileChannel channel;
+    private final int         accounts;
+    private final int         chunks;
+    private final boolean[]   done;
+
+    /**
+     * Opens the checkpoint for a run, creating it if needed.
+     * An existing checkpoint for the same run is resumed. One for a different run is started over,
+     * but only if that run finished; an unfinished different run is refused so it can be completed first.
+     *
+     * @param path                  the checkpoint file
+     * @param runDate               the date the run accrues for
+     * @param period                how often the run accrues
+     * @param annualRateBasisPoints the annual interest rate in basis points
+     * @param feeCents              the fee per account in cents
+     * @param accounts              how many accounts a new run covers
+     * @param chunkSize             how many accounts are in each chunk
+     * @throws IOException if the file cannot be read or written
+     * @throws IllegalStateException if the file holds a different run that did not finish
+     */
+    AccrualCheckpoint(final Path path,
+                      final Date runDate,
+                      final AccrualEngine.Period period,
+                      final int annualRateBasisPoints,
+                      final long feeCents,
+                      final int accounts,
+                      final int chunkSize) throws IOException
+    {
+        final ByteBuffer run;
+        final int        stored;
+
+        run = ByteBuffer.allocate(RUN_SIZE);
+        run.putInt(MAGIC);
+        run.putInt(VERSION);
+        run.putInt(runDate.getEpochDay());
+        run.putInt(period.ordinal());
+        run.putInt(annualRateBasisPoints);
+        run.putLong(feeCents);
+        run.putInt(chunkSize);
+        run.flip();
+
+        this.channel = FileChannel.open(path,
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        try
+        {
+            stored        = storedAccounts(run);
+            this.accounts = stored == NOT_STORED ? accounts : stored;
+            this.chunks   = (int) (((long) this.accounts + chunkSize - 1) / chunkSize);
+            this.done     = new boolean[chunks];
+
+            if(stored == NOT_STORED)
+            {
+                start(run);
+            }
+            else
+            {
+                loadMarks();
+            }
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the account count if the file holds the same run.
+     *
+     * @param run the run header of this run
+     * @return the account count of the stored run, or NOT_STORED if the file is empty or held a finished run
+     * @throws IOException if the file cannot be read
+     * @throws IllegalStateException if the file holds a different run that did not finish
+     */
+    private int storedAccounts(final ByteBuffer run) throws IOException
+    {
+        final ByteBuffer header;
+        final ByteBuffer marks;
+
+        if(channel.size() < HEADER_SIZE)
+        {
+            return NOT_STORED;
+        }
+
+        header = readFully(0, HEADER_SIZE);
+        if(header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION)
+        {
+            throw new IllegalStateException("Not an accrual checkpoint of version " + VERSION);
+        }
+        if(header.slice(0, RUN_SIZE).equals(run))
+        {
+            return header.getInt(RUN_SIZE);
+        }
+
+        marks = readFully(HEADER_SIZE, (int) Math.min(Integer.MAX_VALUE, channel.size() - HEADER_SIZE));
+        while(marks.hasRemaining())
+        {
+            if(marks.get() != DONE)
+            {
+                throw new IllegalStateException("Checkpoint holds an unfinished run for a different date or terms");
+            }
+        }
+
+        return NOT_STORED;
+    }
+
+    /**
+     * Reads which chunks an earlier attempt at this run finished.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void loadMarks() throws IOException
+    {
+        final ByteBuffer marks;
+
+        marks = readFully(HEADER_SIZE, chunks);
+        for(int i = 0; i < chunks; i++)
+        {
+            done[i] = marks.get(i) == DONE;
+        }
+    }
+
+    /**
+     * Replaces the file's contents with this run's header and every chunk marked not done.
+     *
+     * @param run the run header of this run
+     * @throws IOException if the file cannot be written
+     */
+    private void start(final ByteBuffer run) throws IOException
+    {
+        final ByteBuffer contents;
+
+        contents = ByteBuffer.allocate(HEADER_SIZE + chunks);
+        contents.put(run.duplicate());
+        contents.putInt(accounts);
+        while(contents.hasRemaining())
+        {
+            contents.put(NOT_DONE);
+        }
+        contents.flip();
+
+        channel.truncate(0);
+        while(contents.hasRemaining())
+        {
+            channel.write(contents, contents.position());
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Reads part of the file.
+     *
+     * @param position the file position to read from
+     * @param length   how many bytes to read
+     * @return a buffer holding the bytes, ready to read
+     * @throws IOException if the file cannot be read or ends first
+     */
+    private ByteBuffer readFully(final long position,
+                                 final int length) throws IOException
+    {
+        final ByteBuffer buffer;
+
+        buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Accrual checkpoint is truncated");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * Returns how many accounts the run covers, counted in the bank's order from the first account added.
+     *
+     * @return the number of accounts
+     */
+    int getAccounts()
+    {
+        return accounts;
+    }
+
+    /**
+     * Returns how many chunks the run has.
+     *
+     * @return the number of chunks
+     */
+    int getChunks()
+    {
+        return chunks;
+    }
+
+    /**
+     * Returns whether a chunk was finished when the checkpoint was opened.
+     *
+     * @param chunk the chunk index
+     * @return true if it was finished by an earlier attempt at this run
+     */
+    boolean isDone(final int chunk)
+    {
+        return done[chunk];
+    }
+
+    /**
+     * Marks a chunk finished. Safe to call from several threads at once for different chunks.
+     *
+     * @param chunk the chunk index
+     * @throws IOException if the mark cannot be written
+     */
+    void markDone(final int chunk) throws IOException
+    {
+        final ByteBuffer mark;
+
+        mark = ByteBuffer.wrap(new byte[]{DONE});
+        while(mark.hasRemaining())
+        {
+            channel.write(mark, HEADER_SIZE + chunk);
+        }
+    }
+
+    /**
+     * Forces the marks to disk and closes the file.
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            channel.force(false);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies a period's interest and fee to every account that is open on a run date.
+ * <p>
+ * The bank's accounts are taken in the order they were added and split into CHUNK_SIZE chunks of
+ * neighbouring accounts, which are shared out across a ForkJoinPool the way AccountStatistics shares out
+ * its work. Each chunk credits interest on, then charges the fee to, each open account in turn, then marks
+ * itself done in an AccrualCheckpoint. Totals are kept per task and merged on the way back up, so no counter
+ * is shared between threads.
+ * <p>
+ * A run stopped through its cancel flag, or by the process stopping, is resumed by running again for the same
+ * date and terms with the same checkpoint: chunks that finished are skipped. Within a chunk, each account
+ * records the run date it last had interest credited and a fee charged for, claiming it before the change,
+ * so an account is never accrued twice for one date, even by a resumed run or by two runs at once. If the
+ * process stopped, the balances must first be restored, for example by loading a BankSnapshot and replaying
+ * the TransactionJournal the accounts were writing to. The journal records each credit and fee with its run
+ * date, so replaying it restores the run dates as well. Running again after a run finished does nothing.
+ * <p>
+ * Interest for one period is the balance times the annual rate divided by the number of periods in a year,
+ * rounded down to the cent, so daily accrual on a small balance can round to nothing. It is worked out
+ * inside the account's compare-and-set, so deposits and withdrawals made during a run are never lost.
+ * A fee larger than the balance empties the account instead of overdrawing it.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccrualEngine
+{
+    static final int CHUNK_SIZE            = 4_096;
+    static final int MAX_RATE_BASIS_POINTS = 100_000;
+
+    private static final long   BASIS_POINTS     = 10_000L;
+    private static final long   NOTHING          = 0L;
+    private static final int    SAME_DATE        = 0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final Period period;
+    private final int    annualRateBasisPoints;
+    private final long   feeCents;
+    private final long   interestDivisor;
+
+    /**
+     * How often interest and the fee are applied.
+     */
+    enum Period
+    {
+        DAILY(365),
+        MONTHLY(12);
+
+        private final int perYear;
+
+        /**
+         * Constructs a Period.
+         *
+         * @param perYear how many periods there are in a year
+         */
+        Period(final int perYear)
+        {
+            this.perYear = perYear;
+        }
+
+        /**
+         * Returns how many periods there are in a year.
+         *
+         * @return the number of periods
+         */
+        int getPerYear()
+        {
+            return perYear;
+        }
+    }
+
+    /**
+     * What one call to run did.
+     *
+     * @param accrued       how many open accounts this call accrued
+     * @param skipped       how many accounts this call skipped because an earlier attempt already accrued them
+     * @param interestCents the total interest credited in cents
+     * @param feeCents      the total fees charged in cents
+     * @param complete      whether every chunk of the run is now done
+     * @param elapsedNanos  how long this call took in nanoseconds
+     */
+    record Result(long accrued,
+                  long skipped,
+                  long interestCents,
+                  long feeCents,
+                  boolean complete,
+                  long elapsedNanos)
+    {
+        /**
+         * Returns how many accounts this call accrued per second.
+         *
+         * @return the throughput in accounts per second
+         */
+        double getAccountsPerSecond()
+        {
+            return elapsedNanos == NOTHING ? 0 : accrued * NANOS_PER_SECOND / elapsedNanos;
+        }
+    }
+
+    /**
+     * Totals for part of a run, merged pairwise as tasks finish.
+     */
+    private static final class Totals
+    {
+        private long    accrued;
+        private long    skipped;
+        private long    interestCents;
+        private long    feeCents;
+        private boolean complete;
+
+        /**
+         * Constructs empty totals for a part of the run that has not been stopped.
+         */
+        private Totals()
+        {
+            this.complete = true;
+        }
+
+        /**
+         * Adds another part's totals to these.
+         *
+         * @param other the other part's totals
+         * @return these totals
+         */
+        private Totals merge(final Totals other)
+        {
+            accrued       += other.accrued;
+            skipped       += other.skipped;
+            interestCents += other.interestCents;
+            feeCents      += other.feeCents;
+            complete      &= other.complete;
+
+            return this;
+        }
+    }
+
+    /**
+     * What every task of one run shares.
+     *
+     * @param engine     the engine making the run
+     * @param accounts   the accounts in the run
+     * @param checkpoint the checkpoint to skip and mark chunks in
+     * @param runDate    the date the run accrues for
+     * @param cancel     set to stop the run after the chunks in progress
+     */
+    private record Run(AccrualEngine engine,
+                       BankAccount[] accounts,
+                       AccrualCheckpoint checkpoint,
+                       Date runDate,
+                       AtomicBoolean cancel)
+    {
+    }
+
+    /**
+     * Accrues a range of chunks, splitting it in half until it is a single chunk.
+     * The run is transient: a task is never serialized, and nothing in a run is Serializable.
+     */
+    private static final class AccrueTask extends RecursiveTask<Totals>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Run run;
+        private final int           fromChunk;
+        private final int           toChunk;
+
+        /**
+         * Constructs an AccrueTask.
+         *
+         * @param run       the run
+         * @param fromChunk the first chunk to accrue
+         * @param toChunk   the chunk after the last one to accrue
+         */
+        private AccrueTask(final Run run,
+                           final int fromChunk,
+                           final int toChunk)
+        {
+            this.run       = run;
+            this.fromChunk = fromChunk;
+            this.toChunk   = toChunk;
+        }
+
+        /**
+         * Accrues the chunk directly, or splits the range and merges the halves.
+         *
+         * @return the totals for the range
+         */
+        @Override
+        protected Totals compute()
+        {
+            if(toChunk - fromChunk == 1)
+            {
+                return run.engine().accrueChunk(run, fromChunk);
+            }
+
+            final int        middle;
+            final AccrueTask left;
+            final AccrueTask right;
+
+            middle = (fromChunk + toChunk) >>> 1;
+            left   = new AccrueTask(run, fromChunk, middle);
+            right  = new AccrueTask(run, middle, toChunk);
+
+            left.fork();
+
+            return right.compute().merge(left.join());
+        }
+    }
+
+    /**
+     * Constructs an AccrualEngine.
+     *
+     * @param period                how often the run is made
+     * @param annualRateBasisPoints the annual interest rate in basis points, from 0 to MAX_RATE_BASIS_POINTS
+     * @param feeCents              the fee charged to each open account per period in cents (at least zero)
+     */
+    AccrualEngine(final Period period,
+                  final int annualRateBasisPoints,
+                  final long feeCents)
+    {
+        if(period == null)
+        {
+            throw new IllegalArgumentException("Period is null");
+        }
+        if(annualRateBasisPoints < NOTHING || annualRateBasisPoints > MAX_RATE_BASIS_POINTS)
+        {
+            throw new IllegalArgumentException("Annual rate out of range: " + annualRateBasisPoints + " basis points");
+        }
+        if(feeCents < NOTHING)
+        {
+            throw new IllegalArgumentException("Fee cannot be negative: " + feeCents + " cents");
+        }
+
+        this.period                = period;
+        this.annualRateBasisPoints = annualRateBasisPoints;
+        this.feeCents              = feeCents;
+        this.interestDivisor       = BASIS_POINTS * period.getPerYear();
+    }
+
+    /**
+     * Accrues every account in the bank that is open on the run date, resuming from the checkpoint
+     * if an earlier attempt at the same run was stopped. The run cannot be cancelled.
+     *
+     * @param bank       the bank
+     * @param runDate    the date the run accrues for
+     * @param checkpoint the checkpoint file for this run
+     * @param pool       the pool to run on
+     * @return what this call did
+     * @throws IOException if the checkpoint cannot be read or written
+     * @throws IllegalStateException if the checkpoint holds an unfinished run for a different date or terms
+     */
+    Result run(final Bank bank,
+               final Date runDate,
+               final Path checkpoint,
+               final ForkJoinPool pool) throws IOException
+    {
+        return run(bank, runDate, checkpoint, pool, new AtomicBoolean());
+    }
+
+    /**
+     * Accrues every account in the bank that is open on the run date, resuming from the checkpoint
+     * if an earlier attempt at the same run was stopped. Setting cancel, from any thread and even before
+     * the run starts, stops the run after the chunks it is working on; chunks not yet started are left not
+     * done, for a later run to resume. Each run should be given its own flag.
+     *
+     * @param bank       the bank
+     * @param runDate    the date the run accrues for
+     * @param checkpoint the checkpoint file for this run
+     * @param pool       the pool to run on
+     * @param cancel     set to stop the run
+     * @return what this call did
+     * @throws IOException if the checkpoint cannot be read or written
+     * @throws IllegalStateException if the checkpoint holds an unfinished run for a different date or terms
+     */
+    Result run(final Bank bank,
+               final Date runDate,
+               final Path checkpoint,
+               final ForkJoinPool pool,
+               final AtomicBoolean cancel) throws IOException
+    {
+        if(bank == null || runDate == null || checkpoint == null || pool == null || cancel == null)
+        {
+            throw new IllegalArgumentException("Bank, run date, checkpoint, pool or cancel flag is null");
+        }
+
+        final long              start;
+        final List<BankAccount> all;
+        final Totals            totals;
+
+        start = System.nanoTime();
+        all   = bank.getAllAccounts();
+        try(final AccrualCheckpoint chunks = new AccrualCheckpoint(checkpoint,
+                                                                   runDate,
+                                                                   period,
+                                                                   annualRateBasisPoints,
+                                                                   feeCents,
+                                                                   all.size(),
+                                                                   CHUNK_SIZE))
+        {
+            final Run run;
+
+            if(chunks.getAccounts() > all.size())
+            {
+                throw new IllegalStateException("Checkpoint covers " + chunks.getAccounts() +
+                                                " accounts but the bank has " + all.size());
+            }
+
+            run    = new Run(this,
+                             all.subList(0, chunks.getAccounts()).toArray(new BankAccount[0]),
+                             chunks,
+                             runDate,
+                             cancel);
+            totals = chunks.getChunks() == 0 ? new Totals() :
+                     pool.invoke(new AccrueTask(run, 0, chunks.getChunks()));
+        }
+        catch(final UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+
+        return new Result(totals.accrued,
+                          totals.skipped,
+                          totals.interestCents,
+                          totals.feeCents,
+                          totals.complete,
+                          System.nanoTime() - start);
+    }
+
+    /**
+     * Accrues one chunk and marks it done, unless it was done already or the run was cancelled.
+     * An account whose interest and fee were both already accrued for the run date is skipped.
+     *
+     * @param run   the run
+     * @param chunk the chunk index
+     * @return the totals for the chunk
+     */
+    private Totals accrueChunk(final Run run,
+                               final int chunk)
+    {
+        final BankAccount[] accounts;
+        final int           runDay;
+        final Totals        totals;
+        final int           from;
+        final int           to;
+
+        accounts = run.accounts();
+        runDay   = run.runDate().getEpochDay();
+        totals   = new Totals();
+        from     = chunk * CHUNK_SIZE;
+        to       = Math.min(from + CHUNK_SIZE, accounts.length);
+
+        if(run.checkpoint().isDone(chunk))
+        {
+            totals.skipped = to - from;
+            return totals;
+        }
+        if(run.cancel().get())
+        {
+            totals.complete = false;
+            return totals;
+        }
+
+        for(int i = from; i < to; i++)
+        {
+            final BankAccount account;
+
+            account = accounts[i];
+            if(!isOpenOn(account, run.runDate()))
+            {
+                continue;
+            }
+            if(account.getInterestDay() >= runDay && (feeCents == NOTHING || account.getFeeDay() >= runDay))
+            {
+                totals.skipped++;
+                continue;
+            }
+
+            totals.interestCents += account.creditInterest(runDay, this::interestOn);
+            if(feeCents > NOTHING)
+            {
+                totals.feeCents += account.chargeFee(runDay, feeCents);
+            }
+            totals.accrued++;
+        }
+
+        try
+        {
+            run.checkpoint().markDone(chunk);
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return totals;
+    }
+
+    /**
+     * Works out one period's interest on a balance, rounded down to the cent.
+     * The balance is split by the divisor first so the multiplication cannot overflow for any balance.
+     *
+     * @param balanceCents the balance in cents
+     * @return the interest in cents, or NOTHING for a balance that is not positive
+     */
+    long interestOn(final long balanceCents)
+    {
+        if(balanceCents <= NOTHING)
+        {
+            return NOTHING;
+        }
+
+        return balanceCents / interestDivisor * annualRateBasisPoints +
+               balanceCents % interestDivisor * annualRateBasisPoints / interestDivisor;
+    }
+
+    /**
+     * Checks whether an account is open on a date: opened on or before it and not closed on or before it.
+     *
+     * @param account the account
+     * @param date    the date
+     * @return true if the account is open
+     */
+    static boolean isOpenOn(final BankAccount account,
+                            final Date date)
+    {
+        final Date closed;
+
+        closed = account.getAccountClosed();
+
+        return account.getAccountOpened().compareTo(date) <= SAME_DATE &&
+               (closed == null || closed.compareTo(date) > SAME_DATE);
+    }
+}
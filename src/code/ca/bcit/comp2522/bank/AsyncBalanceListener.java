@@ -0,0 +1,195 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A BalanceListener that hands events to another listener on a background thread.
+ * The account's thread only adds the event to a lock-free queue, so a slow listener (such as one that
+ * prints to the console) never holds up deposits and withdrawals. At most capacity events wait in the
+ * queue; events arriving when it is full are dropped and counted. An exception thrown by the listener is
+ * counted as a failed event and delivery carries on with the next one. The thread parks while the queue is
+ * empty and the next event wakes it.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AsyncBalanceListener implements BalanceListener
+{
+    private static final int MIN_CAPACITY = 1;
+
+    private final BalanceListener delegate;
+    private final int             capacity;
+    private final Queue<Runnable> events;
+    private final AtomicInteger   queued;
+    private final LongAdder       dropped;
+    private final LongAdder       failed;
+    private final Thread          worker;
+
+    private volatile boolean running;
+    private volatile boolean idle;
+
+    /**
+     * Constructs an AsyncBalanceListener and starts its daemon delivery thread.
+     *
+     * @param delegate the listener to deliver events to
+     * @param capacity the most events that may wait for delivery (at least MIN_CAPACITY)
+     */
+    AsyncBalanceListener(final BalanceListener delegate,
+                         final int capacity)
+    {
+        if(delegate == null)
+        {
+            throw new NullPointerException("Delegate listener is null");
+        }
+        if(capacity < MIN_CAPACITY)
+        {
+            throw new IllegalArgumentException("Capacity must be at least " + MIN_CAPACITY + ", got: " + capacity);
+        }
+
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.events   = new ConcurrentLinkedQueue<>();
+        this.queued   = new AtomicInteger();
+        this.dropped  = new LongAdder();
+        this.failed   = new LongAdder();
+        this.running  = true;
+        this.worker   = new Thread(this::deliver, "balance-listener");
+
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues the balance change for the delegate.
+     *
+     * @param account      the account whose balance changed
+     * @param type         the kind of change
+     * @param amountCents  the amount moved in cents
+     * @param balanceCents the balance in cents after the change
+     */
+    @Override
+    public void balanceChanged(final BankAccount account,
+                               final TransactionType type,
+                               final long amountCents,
+                               final long balanceCents)
+    {
+        enqueue(() -> delegate.balanceChanged(account,
+                                              type,
+                                              amountCents,
+                                              balanceCents));
+    }
+
+    /**
+     * Queues the failed withdrawal for the delegate.
+     *
+     * @param account     the account the withdrawal was made on
+     * @param status      why the withdrawal was refused
+     * @param amountCents the amount asked for in cents
+     */
+    @Override
+    public void withdrawalFailed(final BankAccount account,
+                                 final WithdrawalStatus status,
+                                 final long amountCents)
+    {
+        enqueue(() -> delegate.withdrawalFailed(account,
+                                                status,
+                                                amountCents));
+    }
+
+    /**
+     * Returns how many events were dropped because the queue was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns how many events the delegate threw an exception for.
+     *
+     * @return the number of failed events
+     */
+    public long getFailedCount()
+    {
+        return failed.sum();
+    }
+
+    /**
+     * Delivers whatever is still queued and stops the delivery thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread to finish
+     */
+    public void shutdown() throws InterruptedException
+    {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join();
+    }
+
+    /**
+     * Adds an event to the queue, or drops it if the queue is full, and wakes the worker if it is parked.
+     *
+     * @param event the delivery to run on the worker thread
+     */
+    private void enqueue(final Runnable event)
+    {
+        if(queued.incrementAndGet() > capacity)
+        {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        events.offer(event);
+        if(idle)
+        {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Runs on the worker thread, delivering queued events until shut down and the queue is empty.
+     * The worker marks itself idle before checking the queue one last time and parking, and enqueue checks
+     * the mark after adding its event, so an event added while the worker goes idle always wakes it.
+     */
+    private void deliver()
+    {
+        while(true)
+        {
+            final Runnable event;
+
+            event = events.poll();
+            if(event != null)
+            {
+                queued.decrementAndGet();
+                try
+                {
+                    event.run();
+                }
+                catch(final RuntimeException e)
+                {
+                    failed.increment();
+                }
+            }
+            else if(running)
+            {
+                idle = true;
+                if(running && events.isEmpty())
+                {
+                    LockSupport.park(this);
+                }
+                idle = false;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes BankAccount balance changes as a java.util.concurrent.Flow of event batches, so services that
+ * watch balances are pushed every change instead of polling getBalanceUsd and missing the ones in between.
+ * Register the feed as a BalanceListener on each account to watch.
+ * <p>
+ * Each subscriber has its own queue of at most capacity events. The account's thread only adds the event
+ * to each queue, without locking or waiting, so a slow subscriber never holds up deposits and withdrawals;
+ * events arriving when a subscriber's queue is full are dropped for that subscriber and counted.
+ * The account's thread never touches the executor: when an event lands for a subscriber that has demand but
+ * no delivery running, it wakes the feed's own dispatcher thread, with one compare-and-set, and the
+ * dispatcher starts the delivery. A delivery keeps going while events keep arriving, so a busy feed rarely
+ * wakes the dispatcher at all, and a bounded executor that blocks, rejects or runs tasks on the caller only
+ * ever does so on the dispatcher. A subscriber whose delivery the executor rejects is sent onError.
+ * Every onNext hands over the events queued so far, up to maxBatch of them, as one unmodifiable list, and
+ * counts as one item against the subscriber's demand. A subscriber that stops requesting simply fills its
+ * own queue.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BalanceFeed implements BalanceListener, Flow.Publisher<List<BalanceFeed.Event>>, AutoCloseable
+{
+    private static final int                MIN_CAPACITY     = 1;
+    private static final int                MIN_BATCH        = 1;
+    private static final FeedSubscription[] NO_SUBSCRIPTIONS = {};
+
+    private final Executor      executor;
+    private final int           capacity;
+    private final int           maxBatch;
+    private final LongAdder     dropped;
+    private final AtomicBoolean idle;
+    private final Thread        dispatcher;
+
+    /*
+     * Copied on every change so the account's thread reads it without locking, like BankAccount's listeners.
+     */
+    private volatile FeedSubscription[] subscriptions;
+    private volatile boolean            closed;
+
+    /**
+     * One balance change.
+     *
+     * @param accountNumber the account whose balance changed
+     * @param type          the kind of change
+     * @param amountCents   the amount moved in cents (always positive)
+     * @param balanceCents  the balance in cents right after the change
+     */
+    record Event(String accountNumber,
+                 TransactionType type,
+                 long amountCents,
+                 long balanceCents)
+    {
+    }
+
+    /**
+     * One subscriber's queue, demand and delivery. At most one delivery task runs at a time, so the
+     * subscriber's methods are never called concurrently. Only the dispatcher starts a delivery.
+     */
+    private final class FeedSubscription implements Flow.Subscription
+    {
+        private final Flow.Subscriber<? super List<Event>> subscriber;
+        private final Queue<Event>                         events;
+        private final AtomicInteger                        queued;
+        private final AtomicLong                           demand;
+        private final AtomicBoolean                        scheduled;
+
+        private volatile boolean   ready;
+        private volatile boolean   cancelled;
+        private volatile boolean   completing;
+        private volatile Throwable error;
+
+        /**
+         * Constructs a FeedSubscription.
+         *
+         * @param subscriber the subscriber to deliver to
+         */
+        private FeedSubscription(final Flow.Subscriber<? super List<Event>> subscriber)
+        {
+            this.subscriber = subscriber;
+            this.events     = new ConcurrentLinkedQueue<>();
+            this.queued     = new AtomicInteger();
+            this.demand     = new AtomicLong();
+            this.scheduled  = new AtomicBoolean();
+        }
+
+        /**
+         * Adds more demand, in batches, and wakes the dispatcher if no delivery is running.
+         * A request that is not positive cancels the subscription and is reported to onError.
+         *
+         * @param n how many more batches the subscriber will take
+         */
+        @Override
+        public void request(final long n)
+        {
+            if(n <= 0)
+            {
+                error = new IllegalArgumentException("Request must be positive, got: " + n);
+                wake();
+                return;
+            }
+
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            if(!scheduled.get())
+            {
+                wake();
+            }
+        }
+
+        /**
+         * Stops delivery and unsubscribes. Events still queued are discarded.
+         */
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            remove(this);
+        }
+
+        /**
+         * Checks with a plain read whether this subscriber's queue is full, so a subscriber that has fallen
+         * behind costs the account's thread no atomic writes and no event.
+         *
+         * @return true if the next event would be dropped
+         */
+        private boolean isFull()
+        {
+            return queued.get() >= capacity;
+        }
+
+        /**
+         * Queues an event, or drops it if the queue filled up since isFull was checked. Never blocks.
+         *
+         * @param event the event
+         * @return true if the event was queued, false if it was dropped
+         */
+        private boolean offer(final Event event)
+        {
+            if(queued.incrementAndGet() > capacity)
+            {
+                queued.decrementAndGet();
+                return false;
+            }
+
+            events.offer(event);
+
+            return true;
+        }
+
+        /**
+         * Checks whether the dispatcher should start a delivery for the event just queued: the subscriber
+         * wants more and no delivery is running to pick the event up.
+         *
+         * @return true if the dispatcher should be woken
+         */
+        private boolean needsKick()
+        {
+            return !scheduled.get() && demand.get() > 0;
+        }
+
+        /**
+         * Asks for onComplete once the events already queued are delivered.
+         */
+        private void complete()
+        {
+            completing = true;
+            wake();
+        }
+
+        /**
+         * Checks whether the dispatcher has a delivery to start for this subscriber.
+         *
+         * @return true if onSubscribe has returned, no delivery is running, and there is work for one
+         */
+        private boolean needsDelivery()
+        {
+            return ready && !cancelled && !scheduled.get() && hasWork();
+        }
+
+        /**
+         * Runs on the dispatcher, starting a delivery task if one is needed and none is running.
+         * If the executor refuses the task, the subscription is cancelled and the subscriber sent onError.
+         */
+        private void schedule()
+        {
+            if(needsDelivery() && scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this::deliver);
+                }
+                catch(final RejectedExecutionException e)
+                {
+                    scheduled.set(false);
+                    cancel();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Runs on the executor, handing out batches while there is demand, then finishing or going idle.
+         * The flag is rechecked after going idle so an event or request that raced with it is not stranded.
+         */
+        private void deliver()
+        {
+            do
+            {
+                try
+                {
+                    drain();
+                }
+                catch(final RuntimeException e)
+                {
+                    cancel();
+                    subscriber.onError(e);
+                }
+                scheduled.set(false);
+            }
+            while(!cancelled && hasWork() && scheduled.compareAndSet(false, true));
+        }
+
+        /**
+         * Delivers batches while there is demand and ends the subscription if asked to.
+         */
+        private void drain()
+        {
+            while(!cancelled)
+            {
+                if(error != null)
+                {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                if(queued.get() == 0)
+                {
+                    if(completing)
+                    {
+                        cancel();
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                if(demand.get() == 0)
+                {
+                    return;
+                }
+
+                final List<Event> batch;
+                Event             event;
+
+                batch = new ArrayList<>(Math.min(maxBatch, queued.get()));
+                event = events.poll();
+                while(event != null)
+                {
+                    batch.add(event);
+                    event = batch.size() < maxBatch ? events.poll() : null;
+                }
+                if(batch.isEmpty())
+                {
+                    // Counted but not yet in the queue; the recheck in deliver comes back for it.
+                    return;
+                }
+                queued.addAndGet(-batch.size());
+                if(demand.get() != Long.MAX_VALUE)
+                {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(Collections.unmodifiableList(batch));
+            }
+        }
+
+        /**
+         * Checks whether a delivery task would have anything to do.
+         *
+         * @return true if there is an error to report, an end to signal with nothing left queued, or events
+         *         and demand for them
+         */
+        private boolean hasWork()
+        {
+            return error != null || (completing && queued.get() == 0) || (queued.get() > 0 && demand.get() > 0);
+        }
+    }
+
+    /**
+     * Constructs a BalanceFeed and starts its daemon dispatcher thread.
+     *
+     * @param executor runs delivery to subscribers, one task per subscriber at a time
+     * @param capacity the most events that may wait for each subscriber (at least MIN_CAPACITY)
+     * @param maxBatch the most events handed to one onNext (at least MIN_BATCH)
+     */
+    BalanceFeed(final Executor executor,
+                final int capacity,
+                final int maxBatch)
+    {
+        if(executor == null)
+        {
+            throw new IllegalArgumentException("Executor is null");
+        }
+        if(capacity < MIN_CAPACITY || maxBatch < MIN_BATCH)
+        {
+            throw new IllegalArgumentException("Capacity and batch size must be at least 1, got: " +
+                                               capacity + " and " + maxBatch);
+        }
+
+        this.executor      = executor;
+        this.capacity      = capacity;
+        this.maxBatch      = maxBatch;
+        this.dropped       = new LongAdder();
+        this.idle          = new AtomicBoolean();
+        this.subscriptions = NO_SUBSCRIPTIONS;
+        this.dispatcher    = new Thread(this::dispatch, "balance-feed");
+
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Adds a subscriber. It gets every change published after onSubscribe returns, as far as its demand
+     * and queue allow. Subscribing to a closed feed completes at once.
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super List<Event>> subscriber)
+    {
+        if(subscriber == null)
+        {
+            throw new NullPointerException("Subscriber is null");
+        }
+
+        final FeedSubscription subscription;
+        final boolean          added;
+
+        subscription = new FeedSubscription(subscriber);
+        synchronized(this)
+        {
+            added = !closed;
+            if(added)
+            {
+                final FeedSubscription[] updated;
+
+                updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+                updated[updated.length - 1] = subscription;
+
+                subscriptions = updated;
+            }
+        }
+
+        subscriber.onSubscribe(subscription);
+        if(!added)
+        {
+            subscription.cancelled = true;
+            subscriber.onComplete();
+            return;
+        }
+        subscription.ready = true;
+        wake();
+    }
+
+    /**
+     * Publishes a balance change to every subscriber.
+     *
+     * @param account      the account whose balance changed
+     * @param type         the kind of change
+     * @param amountCents  the amount moved in cents
+     * @param balanceCents the balance in cents after the change
+     */
+    @Override
+    public void balanceChanged(final BankAccount account,
+                               final TransactionType type,
+                               final long amountCents,
+                               final long balanceCents)
+    {
+        final FeedSubscription[] current;
+        Event                    event;
+        int                      drops;
+        boolean                  kick;
+
+        current = subscriptions;
+        if(current.length == 0 || closed)
+        {
+            return;
+        }
+
+        event = null;
+        drops = 0;
+        kick  = false;
+        for(final FeedSubscription subscription : current)
+        {
+            if(subscription.isFull())
+            {
+                drops++;
+                continue;
+            }
+            if(event == null)
+            {
+                event = new Event(account.getAccountNumber(),
+                                  type,
+                                  amountCents,
+                                  balanceCents);
+            }
+            if(!subscription.offer(event))
+            {
+                drops++;
+            }
+            else if(!kick)
+            {
+                kick = subscription.needsKick();
+            }
+        }
+        if(drops > 0)
+        {
+            dropped.add(drops);
+        }
+        if(kick)
+        {
+            wake();
+        }
+    }
+
+    /**
+     * Returns how many subscribers are attached.
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscriberCount()
+    {
+        return subscriptions.length;
+    }
+
+    /**
+     * Returns how many events were dropped because a subscriber's queue was full, counting each subscriber
+     * an event was dropped for.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops publishing. Each subscriber is sent onComplete after the events already queued for it,
+     * as its demand allows.
+     */
+    @Override
+    public void close()
+    {
+        synchronized(this)
+        {
+            closed = true;
+        }
+        for(final FeedSubscription subscription : subscriptions)
+        {
+            subscription.complete();
+        }
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Removes a subscription so it is sent no more events, and lets the dispatcher finish once a closed
+     * feed has none left.
+     *
+     * @param subscription the subscription to remove
+     */
+    private synchronized void remove(final FeedSubscription subscription)
+    {
+        subscriptions = Arrays.stream(subscriptions)
+                              .filter(registered -> registered != subscription)
+                              .toArray(FeedSubscription[]::new);
+        if(closed && subscriptions.length == 0)
+        {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * Wakes the dispatcher if it is parked. Only the first caller after it parks pays for the unpark.
+     */
+    private void wake()
+    {
+        if(idle.get() && idle.compareAndSet(true, false))
+        {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * Runs on the dispatcher thread, starting deliveries for subscribers that need one, until the feed is
+     * closed and every subscriber has completed. It marks itself idle before checking one last time and
+     * parking, and wake checks the mark after queuing its work, so work queued as it goes idle always wakes it.
+     */
+    private void dispatch()
+    {
+        while(true)
+        {
+            for(final FeedSubscription subscription : subscriptions)
+            {
+                subscription.schedule();
+            }
+            if(isFinished())
+            {
+                return;
+            }
+
+            idle.set(true);
+            if(!isFinished() && !needsDispatch())
+            {
+                LockSupport.park(this);
+            }
+            idle.set(false);
+        }
+    }
+
+    /**
+     * Checks whether any subscriber needs a delivery started.
+     *
+     * @return true if the dispatcher has work
+     */
+    private boolean needsDispatch()
+    {
+        for(final FeedSubscription subscription : subscriptions)
+        {
+            if(subscription.needsDelivery())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the feed is closed and every subscriber has gone.
+     *
+     * @return true if the dispatcher can stop
+     */
+    private boolean isFinished()
+    {
+        return closed && subscriptions.length == 0;
+    }
+}
@@ -0,0 +1,40 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Receives every successful change to a BankAccount balance, and every withdrawal that failed.
+ * Listeners run on the thread that changed the balance, so they should return quickly. A RuntimeException
+ * thrown by a listener is counted by BankAccount.getListenerFailureCount and does not stop the change, the
+ * other listeners, or AccountMetrics.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+interface BalanceListener
+{
+    /**
+     * Called after a balance change has been applied.
+     *
+     * @param account      the account whose balance changed
+     * @param type         the kind of change
+     * @param amountCents  the amount moved in cents (always positive)
+     * @param balanceCents the balance in cents right after the change
+     */
+    void balanceChanged(BankAccount account,
+                        TransactionType type,
+                        long amountCents,
+                        long balanceCents);
+
+    /**
+     * Called after a withdrawal was refused. Does nothing unless overridden.
+     *
+     * @param account     the account the withdrawal was made on
+     * @param status      why the withdrawal was refused
+     * @param amountCents the amount asked for in cents
+     */
+    default void withdrawalFailed(final BankAccount account,
+                                  final WithdrawalStatus status,
+                                  final long amountCents)
+    {
+    }
+}
@@ -0,0 +1,686 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Represents a bank holding every BankClient and BankAccount.
+ * Indexes accounts by account number, clients by client ID, and accounts by their client,
+ * so each lookup is a single hash probe on a packed primitive key.
+ * Accounts are also indexed by opening date and clients by signup date, for date range queries,
+ * and clients by name, for prefix and misspelled name searches.
+ * Lookups may run concurrently; adding clients or accounts takes an exclusive lock.
+ * Transfers lock the two accounts they touch through a set of striped locks, so transfers between
+ * disjoint pairs of accounts run in parallel.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class Bank
+{
+    private static final int TRANSFER_STRIPES = 256;
+
+    private final PackedIdMap<BankClient>        clients;
+    private final PackedIdMap<BankAccount>       accounts;
+    private final PackedIdMap<List<BankAccount>> accountsByClient;
+    private final DateIndex<BankAccount>         accountsByOpened;
+    private final DateIndex<BankClient>          clientsBySignup;
+    private final NameIndex                      clientsByName;
+    private final ReadWriteLock                  lock;
+    private final StripedLocks                   transferLocks;
+
+    private volatile long journalSequence;
+
+    /**
+     * Constructs an empty Bank.
+     */
+    Bank()
+    {
+        this.clients          = new PackedIdMap<>();
+        this.accounts         = new PackedIdMap<>();
+        this.accountsByClient = new PackedIdMap<>();
+        this.accountsByOpened = new DateIndex<>();
+        this.clientsBySignup  = new DateIndex<>();
+        this.clientsByName    = new NameIndex();
+        this.lock             = new ReentrantReadWriteLock();
+        this.transferLocks    = new StripedLocks(TRANSFER_STRIPES);
+    }
+
+    /**
+     * Adds a client to the bank.
+     * Errors if the client is null or another client already has the same client ID.
+     *
+     * @param client the client to add
+     */
+    public void addClient(final BankClient client)
+    {
+        validateNotNull(client, "Bank client is null");
+
+        tryAddClient(client).throwIfError();
+    }
+
+    /**
+     * Adds a client to the bank, as addClient does, but reports a problem instead of throwing.
+     *
+     * @param client the client to add (not null)
+     * @return OK if the client was added, otherwise why it was not
+     */
+    ValidationError tryAddClient(final BankClient client)
+    {
+        final long clientKey;
+
+        clientKey = PackedIdMap.tryPack(client.getClientID());
+        if(clientKey == PackedIdMap.NO_KEY)
+        {
+            return ValidationError.ID_NOT_PACKABLE;
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            return registerClient(clientKey, client);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an account to the bank, adding its client as well if the client is not in the bank yet.
+     * Errors if the account is null, another account already has the same account number,
+     * or a different client already has the account's client ID.
+     *
+     * @param account the account to add
+     */
+    public void addAccount(final BankAccount account)
+    {
+        validateNotNull(account, "Bank account is null");
+
+        tryAddAccount(account).throwIfError();
+    }
+
+    /**
+     * Adds an account to the bank, as addAccount does, but reports a problem instead of throwing.
+     *
+     * @param account the account to add (not null)
+     * @return OK if the account was added, otherwise why it was not
+     */
+    ValidationError tryAddAccount(final BankAccount account)
+    {
+        final long accountKey;
+        final long clientKey;
+
+        accountKey = PackedIdMap.tryPack(account.getAccountNumber());
+        clientKey  = PackedIdMap.tryPack(account.getClient().getClientID());
+        if(accountKey == PackedIdMap.NO_KEY || clientKey == PackedIdMap.NO_KEY)
+        {
+            return ValidationError.ID_NOT_PACKABLE;
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            final BankClient existing;
+
+            if(accounts.get(accountKey) != null)
+            {
+                return ValidationError.DUPLICATE_ACCOUNT_NUMBER;
+            }
+
+            existing = clients.get(clientKey);
+            if(existing == null)
+            {
+                registerClient(clientKey, account.getClient());
+            }
+            else if(existing != account.getClient())
+            {
+                return ValidationError.CLIENT_ID_TAKEN;
+            }
+
+            accounts.putIfAbsent(accountKey, account);
+            accountsByClient.get(clientKey).add(account);
+            accountsByOpened.add(account.getAccountOpened(), account);
+
+            return ValidationError.OK;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the account with the given account number.
+     *
+     * @param accountNumber the account number to look up
+     * @return the account, or null if the bank has none with that number, including when the number is
+     *         null or could never be an account number
+     */
+    public BankAccount getAccount(final String accountNumber)
+    {
+        final long accountKey;
+
+        accountKey = PackedIdMap.tryPack(accountNumber);
+
+        return accountKey == PackedIdMap.NO_KEY ? null : getAccount(accountKey);
+    }
+
+    /**
+     * Returns the account with the given packed account number.
+     *
+     * @param accountKey the account number packed by PackedIdMap.pack
+     * @return the account, or null if the bank has none with that number
+     */
+    BankAccount getAccount(final long accountKey)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return accounts.get(accountKey);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the client with the given client ID.
+     *
+     * @param clientID the client ID to look up
+     * @return the client, or null if the bank has none with that ID, including when the ID is null or
+     *         could never be a client ID
+     */
+    public BankClient getClient(final String clientID)
+    {
+        final long clientKey;
+
+        clientKey = PackedIdMap.tryPack(clientID);
+
+        return clientKey == PackedIdMap.NO_KEY ? null : getClient(clientKey);
+    }
+
+    /**
+     * Returns the client with the given packed client ID.
+     *
+     * @param clientKey the client ID packed by PackedIdMap.pack
+     * @return the client, or null if the bank has none with that ID
+     */
+    BankClient getClient(final long clientKey)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return clients.get(clientKey);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the accounts belonging to the client with the given client ID.
+     *
+     * @param clientID the client ID to look up
+     * @return an unmodifiable list of the client's accounts, empty if there are none
+     */
+    public List<BankAccount> getAccountsOf(final String clientID)
+    {
+        final long clientKey;
+
+        clientKey = PackedIdMap.tryPack(clientID);
+        if(clientKey == PackedIdMap.NO_KEY)
+        {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            final List<BankAccount> owned;
+
+            owned = accountsByClient.get(clientKey);
+
+            return owned == null ? List.of() : List.copyOf(owned);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every account in the bank, in the order they were added.
+     *
+     * @return a new list of all accounts
+     */
+    public List<BankAccount> getAllAccounts()
+    {
+        lock.readLock().lock();
+        try
+        {
+            final List<BankAccount> all;
+
+            all = new ArrayList<>(accounts.size());
+            accounts.forEach(all::add);
+
+            return all;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every client in the bank, in the order they were added.
+     *
+     * @return a new list of all clients
+     */
+    public List<BankClient> getAllClients()
+    {
+        lock.readLock().lock();
+        try
+        {
+            final List<BankClient> all;
+
+            all = new ArrayList<>(clients.size());
+            clients.forEach(all::add);
+
+            return all;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies every client and every account into the given lists, each in the order they were added.
+     * Both are read under one read lock, so every account's client is among the clients copied even while
+     * other threads add clients and accounts.
+     *
+     * @param allClients  the list to add every client to
+     * @param allAccounts the list to add every account to
+     */
+    void copyAll(final List<BankClient> allClients,
+                 final List<BankAccount> allAccounts)
+    {
+        lock.readLock().lock();
+        try
+        {
+            clients.forEach(allClients::add);
+            accounts.forEach(allAccounts::add);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last TransactionJournal record already included in the balances,
+     * as set when the bank is loaded from a BankSnapshot or a journal is replayed into it.
+     *
+     * @return the last journal sequence included, or 0 if none
+     */
+    long getJournalSequence()
+    {
+        return journalSequence;
+    }
+
+    /**
+     * Records the sequence number of the last TransactionJournal record included in the balances.
+     *
+     * @param journalSequence the last journal sequence included
+     */
+    void setJournalSequence(final long journalSequence)
+    {
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Returns the number of accounts in the bank.
+     *
+     * @return the number of accounts
+     */
+    public int getAccountCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return accounts.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of clients in the bank.
+     *
+     * @return the number of clients
+     */
+    public int getClientCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return clients.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the accounts opened on or after one date and before another, in order of opening date.
+     * Reads the opening date index rather than every account, so it costs time in proportion to
+     * the accounts found, not the accounts in the bank.
+     *
+     * @param from the first opening date to include
+     * @param to   the opening date after the last one to include
+     * @return a new list of the accounts
+     */
+    public List<BankAccount> getAccountsOpenedBetween(final Date from,
+                                                      final Date to)
+    {
+        validateNotNull(from, "Date cannot be null");
+        validateNotNull(to, "Date cannot be null");
+
+        return accountsByOpened.findBetween(from, to);
+    }
+
+    /**
+     * Returns the clients who signed up on or after one date and before another, in order of signup date.
+     *
+     * @param from the first signup date to include
+     * @param to   the signup date after the last one to include
+     * @return a new list of the clients
+     */
+    public List<BankClient> getClientsSignedUpBetween(final Date from,
+                                                      final Date to)
+    {
+        validateNotNull(from, "Date cannot be null");
+        validateNotNull(to, "Date cannot be null");
+
+        return clientsBySignup.findBetween(from, to);
+    }
+
+    /**
+     * Returns the clients who signed up after the given date and have since died, in order of signup date.
+     *
+     * @param date the date to look after
+     * @return a new list of the clients
+     */
+    public List<BankClient> getDeceasedClientsSignedUpAfter(final Date date)
+    {
+        validateNotNull(date, "Date cannot be null");
+
+        final List<BankClient> found;
+
+        found = new ArrayList<>();
+        clientsBySignup.forEachBetween(date.getEpochDay() + 1, Integer.MAX_VALUE, client ->
+        {
+            if(!client.isAlive())
+            {
+                found.add(client);
+            }
+        });
+
+        return found;
+    }
+
+    /**
+     * Returns the clients whose first name, last name or full name starts with the given prefix, ignoring case,
+     * in order of the matching name.
+     *
+     * @param prefix the start of the name
+     * @param limit  the most clients to return
+     * @return a new list of at most limit clients
+     */
+    public List<BankClient> findClientsByNamePrefix(final String prefix,
+                                                    final int limit)
+    {
+        validateNotNull(prefix, "Name cannot be null");
+
+        return clientsByName.findByPrefix(prefix, limit);
+    }
+
+    /**
+     * Returns the clients whose first or last name is within maxDistance edits of the given name, ignoring case,
+     * closest first; for example "Kalho" finds Kahlo with a maxDistance of 2.
+     *
+     * @param name        the name, possibly misspelled
+     * @param maxDistance the most single-character insertions, deletions and substitutions to allow
+     * @param limit       the most clients to return
+     * @return a new list of at most limit clients
+     */
+    public List<BankClient> findClientsBySimilarName(final String name,
+                                                     final int maxDistance,
+                                                     final int limit)
+    {
+        validateNotNull(name, "Name cannot be null");
+
+        return clientsByName.findBySimilarName(name, maxDistance, limit);
+    }
+
+    /**
+     * Moves money between two accounts in the bank, as transferCents does.
+     *
+     * @param fromAccount the account number to take the money from
+     * @param toAccount   the account number to put the money in
+     * @param amountUsd   the amount in USD (greater than 0)
+     * @param pinToMatch  the pin of the account the money comes from
+     * @return OK if the money was moved, otherwise the reason it was not
+     */
+    public TransferStatus transfer(final String fromAccount,
+                                   final String toAccount,
+                                   final double amountUsd,
+                                   final int pinToMatch)
+    {
+        final long        fromKey;
+        final long        toKey;
+        final BankAccount from;
+        final BankAccount to;
+
+        fromKey = PackedIdMap.tryPack(fromAccount);
+        toKey   = PackedIdMap.tryPack(toAccount);
+        from    = fromKey == PackedIdMap.NO_KEY ? null : getAccount(fromKey);
+        to      = toKey == PackedIdMap.NO_KEY ? null : getAccount(toKey);
+        if(from == null || to == null)
+        {
+            return TransferStatus.NO_SUCH_ACCOUNT;
+        }
+
+        return transferCents(from, to, Money.ofUsd(amountUsd), pinToMatch);
+    }
+
+    /**
+     * Moves money from one open account to another if the pin matches the account the money comes from.
+     * The stripes of both accounts are held for the whole transfer, so no other transfer, and no
+     * getTotalBalanceCents, can see the money gone from one account and not yet in the other.
+     * Deposits and withdrawals made straight on an account stay lock-free and can land in between,
+     * but the money moved is never lost or made twice. A listener that throws cannot fail the transfer
+     * halfway, since BankAccount skips it after the change is made; only an overflow, which is refused
+     * before anything changes, stops the credit, and then the money is put back.
+     *
+     * @param from        the account to take the money from
+     * @param to          the account to put the money in
+     * @param amountCents the amount in cents (greater than 0)
+     * @param pinToMatch  the pin of the account the money comes from
+     * @return OK if the money was moved, otherwise the reason it was not
+     */
+    TransferStatus transferCents(final BankAccount from,
+                                 final BankAccount to,
+                                 final long amountCents,
+                                 final int pinToMatch)
+    {
+        validateNotNull(from, "Bank account is null");
+        validateNotNull(to, "Bank account is null");
+        if(amountCents <= 0)
+        {
+            throw new IllegalArgumentException("Transfer amount must be positive, got: " + amountCents);
+        }
+        if(from == to)
+        {
+            return TransferStatus.SAME_ACCOUNT;
+        }
+        if(to.getAccountClosed() != null)
+        {
+            return TransferStatus.CLOSED;
+        }
+
+        final int fromStripe;
+        final int toStripe;
+
+        fromStripe = transferLocks.stripeOf(from.getAccountNumber());
+        toStripe   = transferLocks.stripeOf(to.getAccountNumber());
+
+        transferLocks.lockPair(fromStripe, toStripe);
+        try
+        {
+            switch(from.tryWithdrawCents(amountCents, pinToMatch))
+            {
+                case BAD_PIN ->
+                {
+                    return TransferStatus.BAD_PIN;
+                }
+                case CLOSED ->
+                {
+                    return TransferStatus.CLOSED;
+                }
+                case INSUFFICIENT_FUNDS ->
+                {
+                    return TransferStatus.INSUFFICIENT_FUNDS;
+                }
+                default ->
+                {
+                }
+            }
+
+            try
+            {
+                to.depositCents(amountCents);
+            }
+            catch(final ArithmeticException e)
+            {
+                return returnCents(from, to, amountCents) ? TransferStatus.OK : TransferStatus.BALANCE_TOO_LARGE;
+            }
+
+            return TransferStatus.OK;
+        }
+        finally
+        {
+            transferLocks.unlockPair(fromStripe, toStripe);
+        }
+    }
+
+    /**
+     * Puts back the money taken from an account for a transfer whose credit would have overflowed. from can
+     * only be too full to take it back if deposits, which hold no transfer stripe, filled it meanwhile; each
+     * time it is, the credit to to is tried again instead, until one of them has room. Either way the money
+     * ends up in exactly one of the two accounts.
+     *
+     * @param from        the account the money was taken from
+     * @param to          the account the money was meant for
+     * @param amountCents the amount in cents
+     * @return true if the money reached to after all, false if it went back to from
+     */
+    private static boolean returnCents(final BankAccount from,
+                                       final BankAccount to,
+                                       final long amountCents)
+    {
+        while(true)
+        {
+            try
+            {
+                from.depositCents(amountCents);
+                return false;
+            }
+            catch(final ArithmeticException fromFull)
+            {
+                try
+                {
+                    to.depositCents(amountCents);
+                    return true;
+                }
+                catch(final ArithmeticException toFull)
+                {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of every account's balance, taken while no transfer is in progress, so money on its
+     * way between two accounts is always counted exactly once.
+     *
+     * @return the total balance in cents
+     */
+    public long getTotalBalanceCents()
+    {
+        transferLocks.lockAll();
+        try
+        {
+            long total;
+
+            total = 0;
+            for(final BankAccount account : getAllAccounts())
+            {
+                total = Money.add(total, account.getBalanceCents());
+            }
+
+            return total;
+        }
+        finally
+        {
+            transferLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Stores a client and an empty account list for it, unless another client already has the same client ID.
+     * Must be called while holding the write lock.
+     *
+     * @param clientKey the client ID packed by PackedIdMap.pack
+     * @param client    the client to store
+     * @return OK if the client was stored, DUPLICATE_CLIENT_ID if not
+     */
+    private ValidationError registerClient(final long clientKey,
+                                           final BankClient client)
+    {
+        if(clients.putIfAbsent(clientKey, client) != null)
+        {
+            return ValidationError.DUPLICATE_CLIENT_ID;
+        }
+        accountsByClient.putIfAbsent(clientKey, new ArrayList<>());
+        clientsBySignup.add(client.getSignupDate(), client);
+        clientsByName.add(client);
+
+        return ValidationError.OK;
+    }
+
+    /**
+     * Validates the given object is not null.
+     *
+     * @param object  the object to check
+     * @param message the message to error with
+     */
+    private static void validateNotNull(final Object object,
+                                        final String message)
+    {
+        if(object == null)
+        {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package ca.bcit.comp2522.bank;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Represents a bank account.
  * Keeps track of the owner, their pin, the account number, and the date opened/closed.
  * Has the functionality to deposit or withdraw (w or w/o pin verification) money in usd.
+ * The balance is held in whole cents; the USD methods convert through Money and the cents methods
+ * are exact, and every change is checked for overflow.
+ * Deposits, withdrawals and details are counted and timed by AccountMetrics while it is enabled.
+ * A listener that throws is counted and skipped, so it never undoes or hides a change that was made.
  *
  * @author Mohammad Sadeghi
  * @author Ryan Chu
@@ -12,11 +22,38 @@ package ca.bcit.comp2522.bank;
  */
 class BankAccount
 {
+    static final int NEVER_ACCRUED = Integer.MIN_VALUE;
+
     private static final int NOTHING                   = 0;
     private static final int ACCOUNT_NUMBER_MIN_LENGTH = 6;
     private static final int ACCOUNT_NUMBER_MAX_LENGTH = 7;
     private static final int SAME_DATE                 = 0;
 
+    private static final long               NOT_DEBITED   = -1L;
+    private static final long               FIRST_REFUSAL = -1L;
+    private static final BalanceListener[]  NO_LISTENERS  = {};
+    private static final WithdrawalStatus[] STATUSES      = WithdrawalStatus.values();
+
+    /*
+     * Counts RuntimeExceptions thrown by listeners of any account. Shared rather than kept per account
+     * because failures are rare and a counter in every account would cost memory on every one.
+     */
+    private static final LongAdder LISTENER_FAILURES = new LongAdder();
+    private static final VarHandle         INTEREST_DAY;
+    private static final VarHandle         FEE_DAY;
+
+    static
+    {
+        try
+        {
+            INTEREST_DAY = MethodHandles.lookup().findVarHandle(BankAccount.class, "interestDay", int.class);
+            FEE_DAY      = MethodHandles.lookup().findVarHandle(BankAccount.class, "feeDay", int.class);
+        }
+        catch(final ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     private final BankClient client;
     private final int        pin;
@@ -24,7 +61,32 @@ class BankAccount
     private final Date       accountOpened;
     private final Date       accountClosed;
 
-    private double balanceUsd;
+    /*
+     * The balance is held as fixed-point cents in an atomic cell so concurrent deposits and
+     * withdrawals never lose updates and a withdrawal can never overdraw the account.
+     */
+    private final AtomicLong balanceCents;
+
+    /*
+     * Everything in the account details except the balance never changes, so the text before and
+     * after the balance is built once on first use. Threads that race to build either part
+     * produce equal Strings and any of them may be kept.
+     */
+    private String detailsPrefix;
+    private String detailsSuffix;
+
+    /*
+     * Copied on every change so the deposit/withdraw path reads it without locking.
+     */
+    private volatile BalanceListener[] listeners;
+
+    /*
+     * The epoch day of the last AccrualEngine run that credited interest to, and charged a fee to, this
+     * account, or NEVER_ACCRUED. Each is claimed with a compare-and-set before the change is made, so an
+     * account is accrued at most once per run date however many runs try.
+     */
+    private volatile int interestDay;
+    private volatile int feeDay;
 
     /**
      * Constructs a BankAccount.
@@ -43,15 +105,45 @@ class BankAccount
                        final Date accountClosed,
                        final double balanceUsd)
     {
+        this(client,
+             pin,
+             accountNumber,
+             accountOpened,
+             accountClosed,
+             Money.ofUsd(balanceUsd),
+             true);
+    }
 
-        validateClient(client);
-        validatePin(pin);
-        validateAccountNumber(accountNumber);
-        validateDate(accountOpened);
-        validateClientDateConsistency(client,
-                                      accountOpened,
-                                      accountClosed);
-        validateBalanceUsd(balanceUsd);
+    /**
+     * Constructs a BankAccount with a balance in cents, validating it only if asked to.
+     *
+     * @param client        the bank accounts owner
+     * @param pin           the PIN of the account
+     * @param accountNumber the unique account number
+     * @param accountOpened when the account was opened
+     * @param accountClosed when the account was closed
+     * @param balanceCents  the current balance of the account in cents
+     * @param validate      whether to validate the arguments
+     */
+    private BankAccount(final BankClient client,
+                        final int pin,
+                        final String accountNumber,
+                        final Date accountOpened,
+                        final Date accountClosed,
+                        final long balanceCents,
+                        final boolean validate)
+    {
+        if(validate)
+        {
+            validateClient(client);
+            validatePin(pin);
+            validateAccountNumber(accountNumber);
+            validateDate(accountOpened);
+            validateClientDateConsistency(client,
+                                          accountOpened,
+                                          accountClosed);
+            validateBalanceCents(balanceCents);
+        }
 
         this.client = client;
         this.pin    = pin;
@@ -59,7 +151,10 @@ class BankAccount
         this.accountNumber = accountNumber;
         this.accountOpened = accountOpened;
         this.accountClosed = accountClosed;
-        this.balanceUsd    = balanceUsd;
+        this.balanceCents  = new AtomicLong(balanceCents);
+        this.listeners     = NO_LISTENERS;
+        this.interestDay   = NEVER_ACCRUED;
+        this.feeDay        = NEVER_ACCRUED;
     }
 
     /**
@@ -80,6 +175,107 @@ class BankAccount
         this(client, pin, accountNumber, client.getSignupDate(), accountClosed, balanceUsd);
     }
 
+    /**
+     * Creates a BankAccount with a balance in cents, validating it like the public constructor.
+     *
+     * @param client        the bank accounts owner
+     * @param pin           the PIN of the account
+     * @param accountNumber the unique account number
+     * @param accountOpened when the account was opened
+     * @param accountClosed when the account was closed
+     * @param balanceCents  the current balance of the account in cents
+     * @return the BankAccount
+     */
+    static BankAccount ofCents(final BankClient client,
+                               final int pin,
+                               final String accountNumber,
+                               final Date accountOpened,
+                               final Date accountClosed,
+                               final long balanceCents)
+    {
+        return new BankAccount(client,
+                               pin,
+                               accountNumber,
+                               accountOpened,
+                               accountClosed,
+                               balanceCents,
+                               true);
+    }
+
+    /**
+     * Creates a BankAccount without validating it, for accounts read back from a trusted BankSnapshot.
+     *
+     * @param client        the bank accounts owner
+     * @param pin           the PIN of the account
+     * @param accountNumber the unique account number
+     * @param accountOpened when the account was opened
+     * @param accountClosed when the account was closed
+     * @param balanceCents  the current balance of the account in cents
+     * @return the BankAccount
+     */
+    static BankAccount ofTrusted(final BankClient client,
+                                 final int pin,
+                                 final String accountNumber,
+                                 final Date accountOpened,
+                                 final Date accountClosed,
+                                 final long balanceCents)
+    {
+        return new BankAccount(client,
+                               pin,
+                               accountNumber,
+                               accountOpened,
+                               accountClosed,
+                               balanceCents,
+                               false);
+    }
+
+    /**
+     * Checks whether the given values make a valid BankAccount, without throwing.
+     * Uses the same rules, in the same order, as the constructor.
+     *
+     * @param client        the bank accounts owner
+     * @param pin           the PIN of the account
+     * @param accountNumber the unique account number
+     * @param accountOpened when the account was opened
+     * @param accountClosed when the account was closed (null if open)
+     * @param balanceCents  the current balance of the account in cents
+     * @return OK if the constructor would accept them, otherwise the first problem found
+     */
+    static ValidationError check(final BankClient client,
+                                 final int pin,
+                                 final String accountNumber,
+                                 final Date accountOpened,
+                                 final Date accountClosed,
+                                 final long balanceCents)
+    {
+        if(client == null)
+        {
+            return ValidationError.CLIENT_NULL;
+        }
+        if(!isValidPin(pin))
+        {
+            return ValidationError.PIN_OUT_OF_RANGE;
+        }
+        if(!isValidAccountNumber(accountNumber))
+        {
+            return ValidationError.ACCOUNT_NUMBER_INVALID;
+        }
+        if(accountOpened == null)
+        {
+            return ValidationError.DATE_NULL;
+        }
+        if(!areDatesConsistent(client, accountOpened, accountClosed))
+        {
+            return ValidationError.ACCOUNT_DATES_INCONSISTENT;
+        }
+        if(!isPositive(balanceCents))
+        {
+            return ValidationError.BALANCE_NOT_POSITIVE;
+        }
+
+        return ValidationError.OK;
+    }
+
     /**
      * Validates the given Client is not null.
      *
@@ -99,12 +295,23 @@ class BankAccount
      */
     private void validatePin(final int pin)
     {
-        if(pin < NOTHING)
+        if(!isValidPin(pin))
         {
             throw new IllegalArgumentException("Pin number out of range");
         }
     }
 
+    /**
+     * Checks the pin is not below NOTHING.
+     *
+     * @param pin the pin to check
+     * @return true if the pin is valid
+     */
+    private static boolean isValidPin(final int pin)
+    {
+        return pin >= NOTHING;
+    }
+
     /**
      * Validates the account number is between ACCOUNT_NUMBER_MAX_LENGTH and ACCOUNT_NUMBER_MIN_LENGTH and not null.
      *
@@ -112,8 +319,7 @@ class BankAccount
      */
     private void validateAccountNumber(final String accountNumber)
     {
-        if(accountNumber == null || accountNumber.length() < ACCOUNT_NUMBER_MIN_LENGTH ||
-           accountNumber.length() > ACCOUNT_NUMBER_MAX_LENGTH)
+        if(!isValidAccountNumber(accountNumber))
         {
             throw new IllegalArgumentException(
                     "Invalid account number length, must be between " + ACCOUNT_NUMBER_MIN_LENGTH + " and " +
@@ -121,6 +327,19 @@ class BankAccount
         }
     }
 
+    /**
+     * Checks the account number is not null and between ACCOUNT_NUMBER_MIN_LENGTH and ACCOUNT_NUMBER_MAX_LENGTH long.
+     *
+     * @param accountNumber the account number to check
+     * @return true if the account number is valid
+     */
+    private static boolean isValidAccountNumber(final String accountNumber)
+    {
+        return accountNumber != null &&
+               accountNumber.length() >= ACCOUNT_NUMBER_MIN_LENGTH &&
+               accountNumber.length() <= ACCOUNT_NUMBER_MAX_LENGTH;
+    }
+
     /**
      * Checks if the given Date is null.
      *
@@ -135,16 +354,61 @@ class BankAccount
     }
 
     /**
-     * Validates the given balance in USD is over $0.
+     * Validates the given amount in USD is at least one cent once rounded to the nearest cent, and converts it.
+     * A positive amount under half a cent rounds to nothing, so it is refused like any other amount that is
+     * not positive rather than reaching the cents methods as zero.
      *
-     * @param number the balance in USD to check
+     * @param number the amount in USD to check
+     * @return the amount in cents
      */
-    private void validateBalanceUsd(final double number)
+    private static long validateAmountUsd(final double number)
     {
-        if(number <= NOTHING)
+        final long cents;
+
+        cents = number > NOTHING ? Money.ofUsd(number) : NOTHING;
+        if(!isPositive(cents))
         {
             throw new IllegalArgumentException("Balance given must be positive, got: " + number);
         }
+
+        return cents;
+    }
+
+    /**
+     * Validates the given balance in cents is over $0.
+     *
+     * @param cents the balance in cents to check
+     */
+    private void validateBalanceCents(final long cents)
+    {
+        if(!isPositive(cents))
+        {
+            throw new IllegalArgumentException("Balance given must be positive, got: " + cents + " cents");
+        }
+    }
+
+    /**
+     * Validates the given amount in cents is over $0.
+     *
+     * @param cents the amount in cents to check
+     */
+    private void validateAmountCents(final long cents)
+    {
+        if(!isPositive(cents))
+        {
+            throw new IllegalArgumentException("Amount must be at least one cent, got: " + cents + " cents");
+        }
+    }
+
+    /**
+     * Checks an amount in cents is over $0.
+     *
+     * @param cents the amount in cents to check
+     * @return true if the amount is at least one cent
+     */
+    private static boolean isPositive(final long cents)
+    {
+        return cents > NOTHING;
     }
 
     /**
@@ -161,14 +425,29 @@ class BankAccount
                                                final Date accountOpened,
                                                final Date accountClosed)
     {
-        if((accountNumber != null && accountOpened.compareTo(accountClosed) > SAME_DATE) ||
-           accountOpened.compareTo(client.getSignupDate()) < SAME_DATE ||
-           (!client.isAlive() && accountOpened.compareTo(client.getDeathDate()) > SAME_DATE))
+        if(!areDatesConsistent(client, accountOpened, accountClosed))
         {
             throw new IllegalArgumentException();
         }
     }
 
+    /**
+     * Checks the dates against the rules listed on validateClientDateConsistency.
+     *
+     * @param client        the client to check
+     * @param accountOpened the Date the account opened
+     * @param accountClosed the Date the account closed (can be null)
+     * @return true if the dates are consistent
+     */
+    private static boolean areDatesConsistent(final BankClient client,
+                                              final Date accountOpened,
+                                              final Date accountClosed)
+    {
+        return !((accountClosed != null && accountOpened.compareTo(accountClosed) > SAME_DATE) ||
+                 accountOpened.compareTo(client.getSignupDate()) < SAME_DATE ||
+                 (!client.isAlive() && accountOpened.compareTo(client.getDeathDate()) > SAME_DATE));
+    }
+
     /**
      * Retrieves the client associated with the bank account.
      *
@@ -227,66 +506,694 @@ class BankAccount
      */
     public double getBalanceUsd()
     {
-        return balanceUsd;
+        return Money.toUsd(balanceCents.get());
+    }
+
+    /**
+     * Retrieves the balance of the account in cents.
+     *
+     * @return the current balance in cents.
+     */
+    public long getBalanceCents()
+    {
+        return balanceCents.get();
     }
 
 
     /**
      * Adds the specified value to this.balanceUSD.
      *
-     * @param amountUsd the value to add (greater than NOTHING)
+     * @param amountUsd the value to add (at least one cent once rounded to the nearest cent)
      */
     public void deposit(final double amountUsd)
     {
-        validateBalanceUsd(amountUsd);
-        this.balanceUsd += amountUsd;
+        depositCents(validateAmountUsd(amountUsd));
+    }
+
+    /**
+     * Adds the specified number of cents to the balance.
+     * Errors with ArithmeticException, leaving the balance unchanged, if the new balance would not fit in a long.
+     *
+     * @param amountCents the amount in cents to add (greater than NOTHING)
+     * @return the balance in cents right after this deposit, which getBalanceCents may no longer return
+     *         once other threads have changed it
+     */
+    public long depositCents(final long amountCents)
+    {
+        validateAmountCents(amountCents);
+
+        final long started;
+        long       current;
+        long       updated;
+
+        started = AccountMetrics.start();
+        do
+        {
+            current = balanceCents.get();
+            updated = Money.add(current, amountCents);
+        }
+        while(!balanceCents.compareAndSet(current, updated));
+
+        notifyListeners(TransactionType.DEPOSIT,
+                        amountCents,
+                        updated);
+        AccountMetrics.record(AccountMetrics.Operation.DEPOSIT,
+                              WithdrawalStatus.OK,
+                              started);
+
+        return updated;
     }
 
     /**
      * Removes the specified value to this.balanceUSD.
-     * Fails if value would put this.balanceUSD negative.
+     * Fails if value would put this.balanceUSD negative, in which case the failure is reported to the listeners.
      *
-     * @param amountUsd the value to remove (greater than NOTHING)
+     * @param amountUsd the value to remove (at least one cent once rounded to the nearest cent)
      * @return the value subtracted (if successful)
      */
     public double withdraw(final double amountUsd)
     {
-        validateBalanceUsd(amountUsd);
-        if (this.balanceUsd >= amountUsd) {
-            this.balanceUsd -= amountUsd;
-            return amountUsd;
-        }
-        else
-        {
-            System.out.println("transaction failed");
-            return NOTHING;
-        }
+        return withdrawCents(validateAmountUsd(amountUsd)) == NOTHING ? NOTHING : amountUsd;
+    }
+
+    /**
+     * Removes the specified number of cents from the balance.
+     * Fails if the balance does not cover it, in which case the failure is reported to the listeners.
+     *
+     * @param amountCents the amount in cents to remove (greater than NOTHING)
+     * @return the amount in cents removed, or NOTHING if it was not
+     */
+    public long withdrawCents(final long amountCents)
+    {
+        validateAmountCents(amountCents);
+
+        final long             started;
+        final WithdrawalStatus status;
+
+        started = AccountMetrics.start();
+        status  = debit(amountCents) != NOT_DEBITED ? WithdrawalStatus.OK : WithdrawalStatus.INSUFFICIENT_FUNDS;
+
+        return finishWithdrawal(status, amountCents, started) == WithdrawalStatus.OK ? amountCents : NOTHING;
     }
 
     /**
      * Removes the specified value to this.balanceUSD if the given pin matches the pin of the account.
-     * Fails if value would put this.balanceUSD negative or the pin is inaccurate.
+     * Fails if value would put this.balanceUSD negative or the pin is inaccurate,
+     * in which case the failure is reported to the listeners.
      *
-     * @param amountUsd the value to remove (greater than NOTHING)
+     * @param amountUsd the value to remove (at least one cent once rounded to the nearest cent)
      * @param pinToMatch the pin to match
      * @return the value subtracted (if successful)
      */
     public double withdraw(final double amountUsd,
                            final int pinToMatch)
     {
-        validateBalanceUsd(amountUsd);
+        return withdrawCents(validateAmountUsd(amountUsd), pinToMatch) == NOTHING ? NOTHING : amountUsd;
+    }
 
-        if(pinToMatch == this.pin && this.balanceUsd >= amountUsd)
+    /**
+     * Removes the specified number of cents from the balance if the given pin matches the pin of the account.
+     * Fails if the balance does not cover it or the pin is inaccurate,
+     * in which case the failure is reported to the listeners.
+     *
+     * @param amountCents the amount in cents to remove (greater than NOTHING)
+     * @param pinToMatch  the pin to match
+     * @return the amount in cents removed, or NOTHING if it was not
+     */
+    public long withdrawCents(final long amountCents,
+                              final int pinToMatch)
+    {
+        validateAmountCents(amountCents);
+
+        final long             started;
+        final WithdrawalStatus status;
+
+        started = AccountMetrics.start();
+        if(pinToMatch != this.pin)
+        {
+            status = WithdrawalStatus.BAD_PIN;
+        }
+        else if(debit(amountCents) == NOT_DEBITED)
         {
-            this.balanceUsd -= amountUsd;
-            return amountUsd;
+            status = WithdrawalStatus.INSUFFICIENT_FUNDS;
         }
         else
         {
-            System.out.println("Invalid pin");
+            status = WithdrawalStatus.OK;
+        }
+
+        return finishWithdrawal(status, amountCents, started) == WithdrawalStatus.OK ? amountCents : NOTHING;
+    }
+
+    /**
+     * Removes the specified value from the balance of an open account if the given pin matches,
+     * and says why if it could not. Unlike withdraw, this refuses accounts that have a closing date.
+     * Failures are also reported to the listeners.
+     *
+     * @param amountUsd  the value to remove (at least one cent once rounded to the nearest cent)
+     * @param pinToMatch the pin to match
+     * @return OK if the value was removed, otherwise the reason it was not
+     */
+    public WithdrawalStatus tryWithdraw(final double amountUsd,
+                                        final int pinToMatch)
+    {
+        return tryWithdrawCents(validateAmountUsd(amountUsd), pinToMatch);
+    }
+
+    /**
+     * Removes the specified number of cents from the balance of an open account if the given pin matches,
+     * and says why if it could not, as tryWithdraw does.
+     *
+     * @param amountCents the amount in cents to remove (greater than NOTHING)
+     * @param pinToMatch  the pin to match
+     * @return OK if the amount was removed, otherwise the reason it was not
+     */
+    public WithdrawalStatus tryWithdrawCents(final long amountCents,
+                                             final int pinToMatch)
+    {
+        final long result;
+
+        result = tryWithdrawCentsForBalance(amountCents, pinToMatch);
+
+        return result >= NOTHING ? WithdrawalStatus.OK : refusalOf(result);
+    }
+
+    /**
+     * Withdraws as tryWithdrawCents does, but hands back the balance the withdrawal left rather than
+     * OK, for callers that report it; reading getBalanceCents afterwards could see another thread's change.
+     *
+     * @param amountCents the amount in cents to remove (greater than NOTHING)
+     * @param pinToMatch  the pin to match
+     * @return the balance in cents right after the withdrawal, or, if it was refused, a negative number
+     *         that refusalOf turns into the reason
+     */
+    long tryWithdrawCentsForBalance(final long amountCents,
+                                    final int pinToMatch)
+    {
+        validateAmountCents(amountCents);
+
+        final long             started;
+        final WithdrawalStatus status;
+        long                   balance;
+
+        started = AccountMetrics.start();
+        balance = NOT_DEBITED;
+        if(pinToMatch != this.pin)
+        {
+            status = WithdrawalStatus.BAD_PIN;
+        }
+        else if(this.accountClosed != null)
+        {
+            status = WithdrawalStatus.CLOSED;
+        }
+        else
+        {
+            balance = debit(amountCents);
+            status  = balance == NOT_DEBITED ? WithdrawalStatus.INSUFFICIENT_FUNDS : WithdrawalStatus.OK;
+        }
+        finishWithdrawal(status, amountCents, started);
+
+        return status == WithdrawalStatus.OK ? balance : FIRST_REFUSAL - status.ordinal();
+    }
+
+    /**
+     * Returns why a withdrawal was refused, from what tryWithdrawCentsForBalance returned.
+     *
+     * @param result a negative result of tryWithdrawCentsForBalance
+     * @return the reason the withdrawal was refused
+     */
+    static WithdrawalStatus refusalOf(final long result)
+    {
+        return STATUSES[(int) (FIRST_REFUSAL - result)];
+    }
+
+    /**
+     * Reports a failed withdrawal to the listeners and counts the withdrawal in AccountMetrics.
+     *
+     * @param status      how the withdrawal ended
+     * @param amountCents the amount asked for in cents
+     * @param started     what AccountMetrics.start returned when the withdrawal began
+     * @return status
+     */
+    private WithdrawalStatus finishWithdrawal(final WithdrawalStatus status,
+                                              final long amountCents,
+                                              final long started)
+    {
+        if(status != WithdrawalStatus.OK)
+        {
+            notifyFailure(status,
+                          amountCents);
+        }
+        AccountMetrics.record(AccountMetrics.Operation.WITHDRAW,
+                              status,
+                              started);
+
+        return status;
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals in one step, checking the pin and the amounts once.
+     * Positive amounts are deposits and negative amounts are withdrawals.
+     * <p>
+     * If allOrNothing is true, either every item is applied or, if any withdrawal would put the balance
+     * negative at its point in the batch, none are. Otherwise each withdrawal the balance cannot cover is
+     * skipped and the rest are applied. Either way the whole batch lands in a single compare-and-set,
+     * so no other deposit or withdrawal can interleave with it. Listeners and AccountMetrics see each item
+     * as its own deposit or withdrawal, including each withdrawal that was not applied (BAD_PIN if the pin
+     * does not match, otherwise INSUFFICIENT_FUNDS).
+     *
+     * @param amountsUsd   the amounts in USD, in the order to apply them (none may be zero)
+     * @param pinToMatch   the pin to match
+     * @param allOrNothing whether a single failing withdrawal fails the whole batch
+     * @return for each amount, true if it was applied; all false if the pin does not match
+     */
+    public boolean[] applyBatch(final double[] amountsUsd,
+                                final int pinToMatch,
+                                final boolean allOrNothing)
+    {
+        if(amountsUsd == null)
+        {
+            throw new NullPointerException("Batch amounts are null");
+        }
+
+        final long[] amountsCents;
+
+        amountsCents = new long[amountsUsd.length];
+        for(int i = 0; i < amountsUsd.length; i++)
+        {
+            amountsCents[i] = Money.ofUsd(amountsUsd[i]);
+            if(amountsCents[i] == NOTHING)
+            {
+                throw new IllegalArgumentException("Batch amount must not be zero, got: " + amountsUsd[i]);
+            }
+        }
+
+        return applyBatchCents(amountsCents,
+                               pinToMatch,
+                               allOrNothing);
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals in cents in one step, as applyBatch does.
+     * Errors with ArithmeticException, applying nothing, if the balance would overflow at any point in the batch.
+     *
+     * @param amountsCents the amounts in cents, in the order to apply them (none may be zero)
+     * @param pinToMatch   the pin to match
+     * @param allOrNothing whether a single failing withdrawal fails the whole batch
+     * @return for each amount, true if it was applied; all false if the pin does not match
+     */
+    public boolean[] applyBatchCents(final long[] amountsCents,
+                                     final int pinToMatch,
+                                     final boolean allOrNothing)
+    {
+        if(amountsCents == null)
+        {
+            throw new NullPointerException("Batch amounts are null");
+        }
+
+        final boolean[] applied;
+        long            current;
+        long            updated;
+
+        applied = new boolean[amountsCents.length];
+
+        for(final long amountCents : amountsCents)
+        {
+            if(amountCents == NOTHING)
+            {
+                throw new IllegalArgumentException("Batch amount must not be zero");
+            }
+            if(amountCents == Long.MIN_VALUE)
+            {
+                throw new IllegalArgumentException("Batch withdrawal is too large: " + amountCents + " cents");
+            }
+        }
+
+        if(pinToMatch != this.pin)
+        {
+            notifyBatch(amountsCents,
+                        applied,
+                        NOTHING,
+                        WithdrawalStatus.BAD_PIN);
+            return applied;
+        }
+
+        do
+        {
+            current = balanceCents.get();
+            updated = current;
+
+            for(int i = 0; i < amountsCents.length; i++)
+            {
+                applied[i] = amountsCents[i] > NOTHING || updated + amountsCents[i] >= NOTHING;
+                if(applied[i])
+                {
+                    updated = Money.add(updated, amountsCents[i]);
+                }
+                else if(allOrNothing)
+                {
+                    Arrays.fill(applied, false);
+                    notifyBatch(amountsCents,
+                                applied,
+                                current,
+                                WithdrawalStatus.INSUFFICIENT_FUNDS);
+                    return applied;
+                }
+            }
+        }
+        while(!balanceCents.compareAndSet(current, updated));
+
+        notifyBatch(amountsCents,
+                    applied,
+                    current,
+                    WithdrawalStatus.INSUFFICIENT_FUNDS);
+
+        return applied;
+    }
+
+    /**
+     * Tells the listeners about every item of a batch and counts each one in AccountMetrics, as if it had
+     * been its own deposit or withdrawal. Applied items are reported with the balance after each one;
+     * withdrawals that were not applied are reported to withdrawalFailed with the given reason.
+     * Batch items are counted but not timed, since they do not each take a deposit's or withdrawal's time.
+     *
+     * @param amountsCents  the batch amounts in cents
+     * @param applied       which amounts were applied
+     * @param startingCents the balance in cents before the batch
+     * @param skipped       why the withdrawals that were not applied failed
+     */
+    private void notifyBatch(final long[] amountsCents,
+                             final boolean[] applied,
+                             final long startingCents,
+                             final WithdrawalStatus skipped)
+    {
+        long running;
+
+        running = startingCents;
+        for(int i = 0; i < amountsCents.length; i++)
+        {
+            if(applied[i])
+            {
+                running += amountsCents[i];
+                notifyListeners(amountsCents[i] > NOTHING ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL,
+                                Math.abs(amountsCents[i]),
+                                running);
+                AccountMetrics.count(amountsCents[i] > NOTHING ? AccountMetrics.Operation.DEPOSIT :
+                                     AccountMetrics.Operation.WITHDRAW,
+                                     WithdrawalStatus.OK);
+            }
+            else if(amountsCents[i] < NOTHING)
+            {
+                notifyFailure(skipped,
+                              -amountsCents[i]);
+                AccountMetrics.count(AccountMetrics.Operation.WITHDRAW,
+                                     skipped);
+            }
+        }
+    }
+
+    /**
+     * Atomically removes the given amount of cents from the balance if the balance covers it.
+     * The check and the subtraction happen in a single compare-and-set, so concurrent withdrawals
+     * can never take the balance below zero.
+     *
+     * @param amountCents the amount in cents to remove
+     * @return the balance in cents left by removing the amount, or NOT_DEBITED if the balance was too low
+     */
+    private long debit(final long amountCents)
+    {
+        long current;
+
+        do
+        {
+            current = balanceCents.get();
+            if(current < amountCents)
+            {
+                return NOT_DEBITED;
+            }
+        }
+        while(!balanceCents.compareAndSet(current, current - amountCents));
+
+        notifyListeners(TransactionType.WITHDRAWAL,
+                        amountCents,
+                        current - amountCents);
+
+        return current - amountCents;
+    }
+
+    /**
+     * Atomically credits interest worked out from the current balance, for AccrualEngine, unless interest
+     * was already credited for this run date or a later one.
+     * The interest is computed inside the compare-and-set, so it is always on the balance it is added to.
+     * Nothing is credited if the interest is not positive or would take the balance past Long.MAX_VALUE.
+     *
+     * @param runDay     the epoch day of the run
+     * @param interestOn gives the interest in cents on a balance in cents
+     * @return the interest credited in cents, or NOTHING
+     */
+    long creditInterest(final int runDay,
+                        final LongUnaryOperator interestOn)
+    {
+        long current;
+        long interestCents;
+
+        if(!claimDay(INTEREST_DAY, runDay))
+        {
             return NOTHING;
         }
 
+        do
+        {
+            current       = balanceCents.get();
+            interestCents = interestOn.applyAsLong(current);
+            if(interestCents <= NOTHING || current > Long.MAX_VALUE - interestCents)
+            {
+                return NOTHING;
+            }
+        }
+        while(!balanceCents.compareAndSet(current, current + interestCents));
+
+        notifyListeners(TransactionType.INTEREST,
+                        interestCents,
+                        current + interestCents);
+
+        return interestCents;
+    }
+
+    /**
+     * Atomically charges a fee, for AccrualEngine, unless a fee was already charged for this run date or a
+     * later one. A fee larger than the balance takes the balance to zero instead of below it, so a fee never
+     * overdraws an account.
+     *
+     * @param runDay   the epoch day of the run
+     * @param feeCents the fee in cents
+     * @return the fee charged in cents, which is less than feeCents if the balance did not cover it
+     */
+    long chargeFee(final int runDay,
+                   final long feeCents)
+    {
+        long current;
+        long chargedCents;
+
+        if(!claimDay(FEE_DAY, runDay))
+        {
+            return NOTHING;
+        }
+
+        do
+        {
+            current      = balanceCents.get();
+            chargedCents = Math.min(feeCents, current);
+            if(chargedCents <= NOTHING)
+            {
+                return NOTHING;
+            }
+        }
+        while(!balanceCents.compareAndSet(current, current - chargedCents));
+
+        notifyListeners(TransactionType.FEE,
+                        chargedCents,
+                        current - chargedCents);
+
+        return chargedCents;
+    }
+
+    /**
+     * Returns the epoch day of the last accrual run that credited interest to this account.
+     *
+     * @return the run's epoch day, or NEVER_ACCRUED
+     */
+    int getInterestDay()
+    {
+        return interestDay;
+    }
+
+    /**
+     * Returns the epoch day of the last accrual run that charged a fee to this account.
+     *
+     * @return the run's epoch day, or NEVER_ACCRUED
+     */
+    int getFeeDay()
+    {
+        return feeDay;
+    }
+
+    /**
+     * Restores the accrual run days read back from a BankSnapshot, keeping any later ones already set.
+     *
+     * @param interestRunDay the epoch day of the last run that credited interest, or NEVER_ACCRUED
+     * @param feeRunDay      the epoch day of the last run that charged a fee, or NEVER_ACCRUED
+     */
+    void restoreAccrualDays(final int interestRunDay,
+                            final int feeRunDay)
+    {
+        claimDay(INTEREST_DAY, interestRunDay);
+        claimDay(FEE_DAY, feeRunDay);
+    }
+
+    /**
+     * Moves an accrual run day forward to the given day, unless it is already there or later.
+     *
+     * @param day    the run day field to move
+     * @param runDay the epoch day of the run
+     * @return true if this call moved it, false if a run on that day or later was already recorded
+     */
+    private boolean claimDay(final VarHandle day,
+                             final int runDay)
+    {
+        int current;
+
+        do
+        {
+            current = (int) day.getVolatile(this);
+            if(current >= runDay)
+            {
+                return false;
+            }
+        }
+        while(!day.compareAndSet(this, current, runDay));
+
+        return true;
+    }
+
+    /**
+     * Registers a listener to be told about every later balance change on this account.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(final BalanceListener listener)
+    {
+        if(listener == null)
+        {
+            throw new NullPointerException("Balance listener is null");
+        }
+
+        final BalanceListener[] updated;
+
+        updated = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        updated[updated.length - 1] = listener;
+
+        this.listeners = updated;
+    }
+
+    /**
+     * Stops telling the given listener about balance changes on this account.
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeListener(final BalanceListener listener)
+    {
+        this.listeners = Arrays.stream(this.listeners)
+                               .filter(registered -> registered != listener)
+                               .toArray(BalanceListener[]::new);
+    }
+
+    /**
+     * Returns how many times a listener of any account threw a RuntimeException, which was then skipped.
+     *
+     * @return the number of listener failures
+     */
+    static long getListenerFailureCount()
+    {
+        return LISTENER_FAILURES.sum();
+    }
+
+    /**
+     * Tells every registered listener about a balance change. A listener that throws is counted and the
+     * rest are still told.
+     *
+     * @param type            the kind of change
+     * @param amountCents     the amount moved in cents
+     * @param newBalanceCents the balance in cents after the change
+     */
+    private void notifyListeners(final TransactionType type,
+                                 final long amountCents,
+                                 final long newBalanceCents)
+    {
+        for(final BalanceListener listener : this.listeners)
+        {
+            try
+            {
+                listener.balanceChanged(this,
+                                        type,
+                                        amountCents,
+                                        newBalanceCents);
+            }
+            catch(final RuntimeException e)
+            {
+                LISTENER_FAILURES.increment();
+            }
+        }
+    }
+
+    /**
+     * Tells every registered listener about a withdrawal that failed. A listener that throws is counted and
+     * the rest are still told.
+     *
+     * @param status      why the withdrawal failed
+     * @param amountCents the amount asked for in cents
+     */
+    private void notifyFailure(final WithdrawalStatus status,
+                               final long amountCents)
+    {
+        for(final BalanceListener listener : this.listeners)
+        {
+            try
+            {
+                listener.withdrawalFailed(this,
+                                          status,
+                                          amountCents);
+            }
+            catch(final RuntimeException e)
+            {
+                LISTENER_FAILURES.increment();
+            }
+        }
+    }
+
+    /**
+     * Re-applies a balance change read back from a TransactionJournal.
+     * Listeners are not told, so replaying does not write the change to the journal again.
+     * Interest and fees also restore the run day they were accrued for, so a resumed AccrualEngine run
+     * does not accrue them again.
+     *
+     * @param type        the kind of change
+     * @param amountCents the amount moved in cents
+     * @param day         the epoch day stored with the change; the run day for INTEREST and FEE
+     */
+    void applyReplayed(final TransactionType type,
+                       final long amountCents,
+                       final int day)
+    {
+        balanceCents.addAndGet(type.signedCents(amountCents));
+        if(type == TransactionType.INTEREST)
+        {
+            claimDay(INTEREST_DAY, day);
+        }
+        else if(type == TransactionType.FEE)
+        {
+            claimDay(FEE_DAY, day);
+        }
     }
 
     /**
@@ -299,27 +1206,81 @@ class BankAccount
      */
     public String getDetails()
     {
-        final StringBuilder details;
+        return appendDetails(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the account details, as returned by getDetails, to the given builder.
+     * Only the balance is formatted on each call; the rest of the text is built once and reused,
+     * so a caller that reuses its builder renders statements without rebuilding names or dates.
+     *
+     * @param out the builder to append to
+     * @return the given builder
+     */
+    public StringBuilder appendDetails(final StringBuilder out)
+    {
+        final long started;
+
+        started = AccountMetrics.start();
+        out.append(getDetailsPrefix());
+        Money.appendUsd(out, getBalanceCents());
+        out.append(getDetailsSuffix());
+        AccountMetrics.record(AccountMetrics.Operation.DETAILS,
+                              WithdrawalStatus.OK,
+                              started);
+
+        return out;
+    }
+
+    /**
+     * Returns the part of the account details before the balance, building it on first use.
+     *
+     * @return the details text before the balance
+     */
+    private String getDetailsPrefix()
+    {
+        String prefix;
+
+        prefix = this.detailsPrefix;
+        if(prefix == null)
+        {
+            prefix             = this.client.getName().getFullName() + " had $";
+            this.detailsPrefix = prefix;
+        }
+
+        return prefix;
+    }
+
+    /**
+     * Returns the part of the account details after the balance, building it on first use.
+     *
+     * @return the details text after the balance
+     */
+    private String getDetailsSuffix()
+    {
+        String suffix;
+
+        suffix = this.detailsSuffix;
+        if(suffix == null)
+        {
+            final StringBuilder builder;
+
+            builder = new StringBuilder();
 
-        details = new StringBuilder();
+            builder.append(" USD in account #");
+            builder.append(this.accountNumber);
+            builder.append(" which he opened on ");
+            builder.append(this.accountOpened.getFormattedDate());
+            if (this.accountClosed != null) {
+                builder.append(" and closed ");
+                builder.append(this.accountClosed.getFormattedDate());
+            }
+            builder.append(".");
 
-        details.append(this.client.getName().getFullName());
-        details.append(" had $");
-        details.append(this.balanceUsd);
-        details.append(" USD in account #");
-        details.append(this.accountNumber);
-        details.append(" which he opened on ");
-        details.append(this.accountOpened.getDayOfTheWeek());
-        details.append(", ");
-        details.append(this.accountOpened.getYyyyMmDd());
-        if (this.accountClosed != null) {
-            details.append(" and closed ");
-            details.append(this.accountClosed.getDayOfTheWeek());
-            details.append(", ");
-            details.append(this.accountClosed.getYyyyMmDd());
+            suffix             = builder.toString();
+            this.detailsSuffix = suffix;
         }
-        details.append(".");
 
-        return details.toString();
+        return suffix;
     }
 }
@@ -21,6 +21,11 @@ class BankClient
     private final Date   signupDate;
     private final String clientID;
 
+    /*
+     * A BankClient never changes, so its details are built once on first use.
+     * Threads that race to build them produce equal Strings and any of them may be kept.
+     */
+    private String details;
 
     /**
      * Constructs a BankClient object
@@ -37,13 +42,41 @@ class BankClient
                final Date signupDate,
                final String clientID)
     {
-        validateName(name);
-        validateDate(birthDate);
-        validateDate(signupDate);
-        validateAccountDateConsistancy(signupDate,
-                                       birthDate,
-                                       deathDate);
-        validateClientId(clientID);
+        this(name,
+             birthDate,
+             deathDate,
+             signupDate,
+             clientID,
+             true);
+    }
+
+    /**
+     * Constructs a BankClient object, validating it only if asked to.
+     *
+     * @param name       Name of the bank client.
+     * @param birthDate  birthDate of the bank client.
+     * @param deathDate  deathDate of the bank client (null if alive).
+     * @param signupDate signupDate of the bank client.
+     * @param clientID   unique client ID of the bank client.
+     * @param validate   whether to validate the arguments.
+     */
+    private BankClient(final Name name,
+                       final Date birthDate,
+                       final Date deathDate,
+                       final Date signupDate,
+                       final String clientID,
+                       final boolean validate)
+    {
+        if(validate)
+        {
+            validateName(name);
+            validateDate(birthDate);
+            validateDate(signupDate);
+            validateAccountDateConsistancy(signupDate,
+                                           birthDate,
+                                           deathDate);
+            validateClientId(clientID);
+        }
 
         this.name       = name;
         this.birthDate  = birthDate;
@@ -52,6 +85,67 @@ class BankClient
         this.clientID   = clientID;
     }
 
+    /**
+     * Creates a BankClient without validating it, for clients read back from a trusted BankSnapshot.
+     *
+     * @param name       Name of the bank client.
+     * @param birthDate  birthDate of the bank client.
+     * @param deathDate  deathDate of the bank client (null if alive).
+     * @param signupDate signupDate of the bank client.
+     * @param clientID   unique client ID of the bank client.
+     * @return the BankClient
+     */
+    static BankClient ofTrusted(final Name name,
+                                final Date birthDate,
+                                final Date deathDate,
+                                final Date signupDate,
+                                final String clientID)
+    {
+        return new BankClient(name,
+                              birthDate,
+                              deathDate,
+                              signupDate,
+                              clientID,
+                              false);
+    }
+
+    /**
+     * Checks whether the given values make a valid BankClient, without throwing.
+     * Uses the same rules, in the same order, as the constructor.
+     *
+     * @param name       Name of the bank client.
+     * @param birthDate  birthDate of the bank client.
+     * @param deathDate  deathDate of the bank client (null if alive).
+     * @param signupDate signupDate of the bank client.
+     * @param clientID   unique client ID of the bank client.
+     * @return OK if the constructor would accept them, otherwise the first problem found
+     */
+    static ValidationError check(final Name name,
+                                 final Date birthDate,
+                                 final Date deathDate,
+                                 final Date signupDate,
+                                 final String clientID)
+    {
+        if(name == null)
+        {
+            return ValidationError.NAME_NULL;
+        }
+        if(birthDate == null || signupDate == null)
+        {
+            return ValidationError.DATE_NULL;
+        }
+        if(!areDatesConsistent(signupDate, birthDate, deathDate))
+        {
+            return ValidationError.CLIENT_DATES_INCONSISTENT;
+        }
+        if(!isValidClientId(clientID))
+        {
+            return ValidationError.CLIENT_ID_INVALID;
+        }
+
+        return ValidationError.OK;
+    }
+
     /**
      * validates the given Name isn't null.
      *
@@ -90,27 +184,53 @@ class BankClient
                                                 final Date birthDate,
                                                 final Date deathDate)
     {
-        if((deathDate != null && birthDate.compareTo(deathDate) > SAME_DATE) ||
-           birthDate.compareTo(signupDate) > SAME_DATE ||
-           (deathDate != null && signupDate.compareTo(deathDate) > SAME_DATE))
+        if(!areDatesConsistent(signupDate, birthDate, deathDate))
         {
             throw new IllegalArgumentException("Date inconsistency for bank client");
         }
     }
 
+    /**
+     * Checks the dates against the rules listed on validateAccountDateConsistancy.
+     *
+     * @param signupDate the date the client signed up
+     * @param birthDate  the date the client was born
+     * @param deathDate  the date the client died (null if alive)
+     * @return true if the dates are consistent
+     */
+    private static boolean areDatesConsistent(final Date signupDate,
+                                              final Date birthDate,
+                                              final Date deathDate)
+    {
+        return !((deathDate != null && birthDate.compareTo(deathDate) > SAME_DATE) ||
+                 birthDate.compareTo(signupDate) > SAME_DATE ||
+                 (deathDate != null && signupDate.compareTo(deathDate) > SAME_DATE));
+    }
+
     /**
      * Validates the clientID is between CLIENT_ID_MAX_CHARS and CLIENT_ID_MIN_CHARS and is not null.
      * @param clientID the ID to check
      */
     private void validateClientId(final String clientID)
     {
-        if(clientID == null || clientID.length() > CLIENT_ID_MAX_CHARS || clientID.length() < CLIENT_ID_MIN_CHARS)
+        if(!isValidClientId(clientID))
         {
             throw new IllegalArgumentException(
                     "Client ID must be between " + CLIENT_ID_MIN_CHARS + " and " + CLIENT_ID_MAX_CHARS);
         }
     }
 
+    /**
+     * Checks the clientID is not null and between CLIENT_ID_MIN_CHARS and CLIENT_ID_MAX_CHARS long.
+     *
+     * @param clientID the ID to check
+     * @return true if the ID is valid
+     */
+    private static boolean isValidClientId(final String clientID)
+    {
+        return clientID != null && clientID.length() <= CLIENT_ID_MAX_CHARS && clientID.length() >= CLIENT_ID_MIN_CHARS;
+    }
+
     /**
      * Returns the name of the client.
      *
@@ -176,36 +296,53 @@ class BankClient
      * “Full_Name Client_Id (alive/dead + death date) Full_Join_Date”
      * such as
      * “Tiger Woods client #12345 (alive) joined the bank on Thursday, September 3, 2020”
+     * The string is built on the first call and reused afterwards.
      *
      * @return A string included the details of the client.
      */
     public String getDetails()
     {
-        final StringBuilder details;
+        String cached;
 
-        details = new StringBuilder();
+        cached = this.details;
+        if(cached == null)
+        {
+            final StringBuilder builder;
 
-        details.append(name.getFullName());
-        details.append(" client #");
-        details.append(clientID);
+            builder = new StringBuilder();
 
-        if(this.isAlive())
-        {
-            details.append(" (alive)");
-        }
-        else
-        {
-            details.append(" (died ");
-            details.append(deathDate.getDayOfTheWeek());
-            details.append(", ");
-            details.append(deathDate.getYyyyMmDd());
-            details.append(")");
+            builder.append(name.getFullName());
+            builder.append(" client #");
+            builder.append(clientID);
+
+            if(this.isAlive())
+            {
+                builder.append(" (alive)");
+            }
+            else
+            {
+                builder.append(" (died ");
+                builder.append(deathDate.getFormattedDate());
+                builder.append(")");
+            }
+            builder.append(" joined the bank on ");
+            builder.append(signupDate.getFormattedDate());
+
+            cached       = builder.toString();
+            this.details = cached;
         }
-        details.append(" joined the bank on ");
-        details.append(signupDate.getDayOfTheWeek());
-        details.append(", ");
-        details.append(signupDate.getYyyyMmDd());
 
-        return details.toString();
+        return cached;
+    }
+
+    /**
+     * Appends the client's details, as returned by getDetails, to the given builder.
+     *
+     * @param out the builder to append to
+     * @return the given builder
+     */
+    public StringBuilder appendDetails(final StringBuilder out)
+    {
+        return out.append(getDetails());
     }
-}
\ No newline at end of file
+}
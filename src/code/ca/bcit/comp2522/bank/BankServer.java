@@ -0,0 +1,405 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A small TCP front end for the accounts in a Bank, listening on the loopback address only.
+ * Every connection is served on its own virtual thread, so thousands of mostly idle connections
+ * cost little more than their sockets and a blocked read never ties up a platform thread.
+ * <p>
+ * The protocol is one request per line and one reply per line, in US-ASCII:
+ * <ul>
+ * <li>BALANCE account - replies OK balance</li>
+ * <li>DEPOSIT account amount - replies OK new-balance</li>
+ * <li>WITHDRAW account amount pin - replies OK new-balance, or ERR and the WithdrawalStatus</li>
+ * <li>DETAILS account - replies OK and the account details</li>
+ * <li>QUIT - closes the connection</li>
+ * </ul>
+ * Amounts are dollars with up to two decimal places and balances are written as Money.appendUsd writes them.
+ * The balance in a DEPOSIT or WITHDRAW reply is the one the request itself left, even if other requests
+ * have changed it since. Any other problem replies ERR and one of the codes below; a request that fails
+ * unexpectedly replies ERR INTERNAL_ERROR and the connection carries on with the next request.
+ * <p>
+ * A failed accept, such as running out of file descriptors, is passed to the acceptFailed consumer and the
+ * acceptor waits before trying again, doubling the wait from MIN_BACKOFF_MILLIS up to MAX_BACKOFF_MILLIS
+ * while accepts keep failing, so a lasting error does not spin a core.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BankServer implements Closeable
+{
+    static final String OK                = "OK";
+    static final String ERR               = "ERR";
+    static final String NO_SUCH_ACCOUNT   = "NO_SUCH_ACCOUNT";
+    static final String BAD_AMOUNT        = "BAD_AMOUNT";
+    static final String MALFORMED         = "MALFORMED";
+    static final String UNKNOWN_COMMAND   = "UNKNOWN_COMMAND";
+    static final String BALANCE_TOO_LARGE = "BALANCE_TOO_LARGE";
+    static final String INTERNAL_ERROR    = "INTERNAL_ERROR";
+
+    private static final String BALANCE    = "BALANCE";
+    private static final String DEPOSIT    = "DEPOSIT";
+    private static final String WITHDRAW   = "WITHDRAW";
+    private static final String DETAILS    = "DETAILS";
+    private static final String QUIT       = "QUIT";
+    private static final String SEPARATOR  = " ";
+    private static final char   LINE_END   = '\n';
+    private static final int    BACKLOG    = 1_024;
+    private static final int    COMMAND    = 0;
+    private static final int    ACCOUNT    = 1;
+    private static final int    AMOUNT     = 2;
+    private static final int    PIN        = 3;
+    private static final int    ONE_ARG    = 2;
+    private static final int    TWO_ARGS   = 3;
+    private static final int    THREE_ARGS = 4;
+    private static final int    MAX_PIN    = 9;
+
+    private static final long MIN_BACKOFF_MILLIS = 1L;
+    private static final long MAX_BACKOFF_MILLIS = 1_000L;
+    private static final long BACKOFF_FACTOR     = 2L;
+
+    private final Bank                  bank;
+    private final Consumer<IOException> acceptFailed;
+    private final ServerSocket          serverSocket;
+    private final ExecutorService       connections;
+    private final Thread                acceptor;
+
+    /**
+     * Binds a BankServer to the loopback address. Call start to begin accepting connections.
+     *
+     * @param bank         the bank whose accounts to serve
+     * @param port         the port to listen on, or 0 for any free port
+     * @param acceptFailed receives every error from accepting a connection while the server is open;
+     *                     called from the acceptor thread
+     * @throws IOException if the port cannot be bound
+     */
+    BankServer(final Bank bank,
+               final int port,
+               final Consumer<IOException> acceptFailed) throws IOException
+    {
+        if(bank == null || acceptFailed == null)
+        {
+            throw new IllegalArgumentException("Bank or accept-failure consumer is null");
+        }
+
+        this.bank         = bank;
+        this.acceptFailed = acceptFailed;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.connections  = Executors.newVirtualThreadPerTaskExecutor();
+        this.acceptor     = Thread.ofVirtual().name("bank-server-accept").unstarted(this::accept);
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start()
+    {
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and interrupts the threads serving open ones, which closes their sockets.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * Runs on the acceptor thread, handing each new connection to its own virtual thread until closed.
+     * After a failed accept it reports the error and backs off before trying again.
+     */
+    private void accept()
+    {
+        long backoffMillis;
+
+        backoffMillis = MIN_BACKOFF_MILLIS;
+        while(!serverSocket.isClosed())
+        {
+            try
+            {
+                final Socket socket;
+
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> serve(socket));
+                backoffMillis = MIN_BACKOFF_MILLIS;
+            }
+            catch(final IOException e)
+            {
+                if(serverSocket.isClosed())
+                {
+                    return;
+                }
+
+                acceptFailed.accept(e);
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(backoffMillis);
+                }
+                catch(final InterruptedException interrupted)
+                {
+                    return;
+                }
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * BACKOFF_FACTOR);
+            }
+        }
+    }
+
+    /**
+     * Serves one connection until the client quits or disconnects. A request that throws a RuntimeException
+     * is answered with INTERNAL_ERROR rather than ending the connection.
+     *
+     * @param socket the connection
+     */
+    private void serve(final Socket socket)
+    {
+        try(socket;
+            final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                               StandardCharsets.US_ASCII)))
+        {
+            final OutputStream  out;
+            final StringBuilder reply;
+            String              line;
+
+            out   = socket.getOutputStream();
+            reply = new StringBuilder();
+            line  = in.readLine();
+            while(line != null && !line.equals(QUIT))
+            {
+                reply.setLength(0);
+                try
+                {
+                    handle(line, reply);
+                }
+                catch(final RuntimeException e)
+                {
+                    reply.setLength(0);
+                    error(reply, INTERNAL_ERROR);
+                }
+                reply.append(LINE_END);
+                out.write(reply.toString().getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                line = in.readLine();
+            }
+        }
+        catch(final IOException e)
+        {
+            // The client went away or the server is closing; either way this connection is done.
+        }
+    }
+
+    /**
+     * Carries out one request and writes the reply, without the line end.
+     *
+     * @param request the request line
+     * @param reply   the builder to write the reply to
+     * @return reply
+     */
+    StringBuilder handle(final String request,
+                         final StringBuilder reply)
+    {
+        final String[]    parts;
+        final BankAccount account;
+
+        parts = request.split(SEPARATOR);
+        if(parts.length < ONE_ARG)
+        {
+            return error(reply, MALFORMED);
+        }
+
+        account = lookUp(parts[ACCOUNT]);
+        if(account == null)
+        {
+            return error(reply, NO_SUCH_ACCOUNT);
+        }
+
+        switch(parts[COMMAND])
+        {
+            case BALANCE ->
+            {
+                return parts.length == ONE_ARG ? balance(reply, account.getBalanceCents()) : error(reply, MALFORMED);
+            }
+            case DEPOSIT ->
+            {
+                return parts.length == TWO_ARGS ? deposit(reply, account, parts[AMOUNT]) : error(reply, MALFORMED);
+            }
+            case WITHDRAW ->
+            {
+                return parts.length == THREE_ARGS ? withdraw(reply, account, parts[AMOUNT], parts[PIN]) :
+                       error(reply, MALFORMED);
+            }
+            case DETAILS ->
+            {
+                return parts.length == ONE_ARG ? account.appendDetails(reply.append(OK).append(SEPARATOR)) :
+                       error(reply, MALFORMED);
+            }
+            default ->
+            {
+                return error(reply, UNKNOWN_COMMAND);
+            }
+        }
+    }
+
+    /**
+     * Deposits into an account and replies with the balance the deposit left.
+     *
+     * @param reply   the builder to write the reply to
+     * @param account the account
+     * @param amount  the amount text
+     * @return reply
+     */
+    private static StringBuilder deposit(final StringBuilder reply,
+                                         final BankAccount account,
+                                         final String amount)
+    {
+        final long cents;
+        final long balance;
+
+        cents = Money.parseCents(amount);
+        if(cents <= 0)
+        {
+            return error(reply, BAD_AMOUNT);
+        }
+
+        try
+        {
+            balance = account.depositCents(cents);
+        }
+        catch(final ArithmeticException e)
+        {
+            return error(reply, BALANCE_TOO_LARGE);
+        }
+
+        return balance(reply, balance);
+    }
+
+    /**
+     * Withdraws from an account if the pin matches and replies with the balance the withdrawal left,
+     * or why it failed.
+     *
+     * @param reply   the builder to write the reply to
+     * @param account the account
+     * @param amount  the amount text
+     * @param pin     the pin text
+     * @return reply
+     */
+    private static StringBuilder withdraw(final StringBuilder reply,
+                                          final BankAccount account,
+                                          final String amount,
+                                          final String pin)
+    {
+        final long cents;
+        final long result;
+
+        cents = Money.parseCents(amount);
+        if(cents <= 0)
+        {
+            return error(reply, BAD_AMOUNT);
+        }
+        if(!isPin(pin))
+        {
+            return error(reply, MALFORMED);
+        }
+
+        result = account.tryWithdrawCentsForBalance(cents, Integer.parseInt(pin));
+        if(result < 0)
+        {
+            return error(reply, BankAccount.refusalOf(result).name());
+        }
+
+        return balance(reply, result);
+    }
+
+    /**
+     * Finds an account by number without throwing for numbers no account could have.
+     *
+     * @param accountNumber the account number
+     * @return the account, or null if there is none
+     */
+    private BankAccount lookUp(final String accountNumber)
+    {
+        final long key;
+
+        key = PackedIdMap.tryPack(accountNumber);
+
+        return key == PackedIdMap.NO_KEY ? null : bank.getAccount(key);
+    }
+
+    /**
+     * Checks that a pin is one to nine digits, so it parses as a non-negative int.
+     *
+     * @param pin the pin text
+     * @return true if it is
+     */
+    private static boolean isPin(final String pin)
+    {
+        if(pin.isEmpty() || pin.length() > MAX_PIN)
+        {
+            return false;
+        }
+        for(int i = 0; i < pin.length(); i++)
+        {
+            if(pin.charAt(i) < '0' || pin.charAt(i) > '9')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a reply carrying a balance.
+     *
+     * @param reply the builder to write to
+     * @param cents the balance in cents
+     * @return reply
+     */
+    private static StringBuilder balance(final StringBuilder reply,
+                                         final long cents)
+    {
+        return Money.appendUsd(reply.append(OK).append(SEPARATOR), cents);
+    }
+
+    /**
+     * Writes an error reply.
+     *
+     * @param reply the builder to write to
+     * @param code  the error code
+     * @return reply
+     */
+    private static StringBuilder error(final StringBuilder reply,
+                                       final String code)
+    {
+        return reply.append(ERR).append(SEPARATOR).append(code);
+    }
+}
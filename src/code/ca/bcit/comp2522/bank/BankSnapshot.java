@@ -0,0 +1,355 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and loads every client and account of a Bank as one versioned binary file.
+ * <p>
+ * The file holds a header (MAGIC, VERSION, journal sequence, string count, client count, account count),
+ * then a string table of every distinct name, client ID and account number (a short byte length followed
+ * by UTF-8), then fixed-width client records, then fixed-width account records. Dates are stored as epoch days and
+ * strings as indexes into the string table, so equal names are stored once.
+ * <p>
+ * A client record is CLIENT_RECORD_SIZE bytes: first name, last name and client ID string indexes, then
+ * birth, death (NO_DATE if alive) and signup epoch days. An account record is ACCOUNT_RECORD_SIZE bytes:
+ * client record index, account number string index, PIN, opened and closed (NO_DATE if open) epoch days,
+ * then the balance in cents, then the days of the last AccrualEngine runs that credited interest and charged
+ * a fee (BankAccount.NEVER_ACCRUED if none).
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BankSnapshot
+{
+    private static final int MAGIC                = 0x42414E4B;
+    private static final int VERSION              = 3;
+    private static final int HEADER_SIZE          = 28;
+    private static final int CLIENT_RECORD_SIZE   = 24;
+    private static final int ACCOUNT_RECORD_SIZE  = 36;
+    private static final int NO_DATE              = Integer.MIN_VALUE;
+    private static final int WRITE_BUFFER_SIZE    = 1 << 20;
+    private static final int MAX_STRING_BYTES     = Short.MAX_VALUE;
+    private static final int INITIAL_STRING_BYTES = 64;
+
+    /**
+     * Not instantiable; all methods are static.
+     */
+    private BankSnapshot()
+    {
+    }
+
+    /**
+     * Writes every client and account in the bank to the given file, replacing it if it exists, recording
+     * that the balances include every TransactionJournal record up to journalSequence. Loading the snapshot
+     * and then calling TransactionJournal.replay applies only the records after it. Take the sequence from
+     * TransactionJournal.getLastSequence while no balances change, or the snapshot may count a change
+     * twice or not at all. Clients and accounts are listed under one Bank lock, so one added while saving is
+     * either saved with its client or left out.
+     *
+     * @param path            the file to write
+     * @param bank            the bank to save
+     * @param journalSequence the last journal record the balances include
+     * @throws IOException if the file cannot be written
+     */
+    static void save(final Path path,
+                     final Bank bank,
+                     final long journalSequence) throws IOException
+    {
+        final List<BankClient>         clients;
+        final List<BankAccount>        accounts;
+        final Map<BankClient, Integer> clientIndexes;
+        final Map<String, Integer>     stringIndexes;
+        final List<String>             strings;
+
+        clients       = new ArrayList<>();
+        accounts      = new ArrayList<>();
+        bank.copyAll(clients, accounts);
+        clientIndexes = new IdentityHashMap<>(clients.size());
+        stringIndexes = new HashMap<>();
+        strings       = new ArrayList<>();
+
+        for(final BankClient client : clients)
+        {
+            clientIndexes.put(client, clientIndexes.size());
+            intern(client.getName().getFirst(), stringIndexes, strings);
+            intern(client.getName().getLast(), stringIndexes, strings);
+            intern(client.getClientID(), stringIndexes, strings);
+        }
+        for(final BankAccount account : accounts)
+        {
+            intern(account.getAccountNumber(), stringIndexes, strings);
+        }
+
+        try(final FileChannel out = FileChannel.open(path,
+                                                     StandardOpenOption.CREATE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING,
+                                                     StandardOpenOption.WRITE))
+        {
+            final ByteBuffer buffer;
+
+            buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(journalSequence);
+            buffer.putInt(strings.size());
+            buffer.putInt(clients.size());
+            buffer.putInt(accounts.size());
+
+            for(final String string : strings)
+            {
+                final byte[] bytes;
+
+                bytes = string.getBytes(StandardCharsets.UTF_8);
+                if(bytes.length > MAX_STRING_BYTES)
+                {
+                    throw new IllegalArgumentException("String too long for snapshot: " + string);
+                }
+                ensureRoom(out, buffer, Short.BYTES + bytes.length);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+
+            for(final BankClient client : clients)
+            {
+                ensureRoom(out, buffer, CLIENT_RECORD_SIZE);
+                buffer.putInt(stringIndexes.get(client.getName().getFirst()));
+                buffer.putInt(stringIndexes.get(client.getName().getLast()));
+                buffer.putInt(stringIndexes.get(client.getClientID()));
+                buffer.putInt(client.getBirthDate().getEpochDay());
+                buffer.putInt(epochDayOrNone(client.getDeathDate()));
+                buffer.putInt(client.getSignupDate().getEpochDay());
+            }
+
+            for(final BankAccount account : accounts)
+            {
+                ensureRoom(out, buffer, ACCOUNT_RECORD_SIZE);
+                buffer.putInt(clientIndexes.get(account.getClient()));
+                buffer.putInt(stringIndexes.get(account.getAccountNumber()));
+                buffer.putInt(account.getPin());
+                buffer.putInt(account.getAccountOpened().getEpochDay());
+                buffer.putInt(epochDayOrNone(account.getAccountClosed()));
+                buffer.putLong(account.getBalanceCents());
+                buffer.putInt(account.getInterestDay());
+                buffer.putInt(account.getFeeDay());
+            }
+
+            drain(out, buffer);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by save into a new Bank.
+     * A trusted snapshot skips re-validating names, dates, clients and accounts,
+     * which should only be used for files this program wrote itself.
+     *
+     * @param path    the file to read
+     * @param trusted whether to skip validation of the loaded objects
+     * @return a new Bank holding every client and account in the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot of this version
+     */
+    static Bank load(final Path path,
+                     final boolean trusted) throws IOException
+    {
+        try(final FileChannel in = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final MappedByteBuffer buffer;
+            final String[]         strings;
+            final BankClient[]     clients;
+            final int              accountCount;
+            final long             journalSequence;
+            final Bank             bank;
+            byte[]                 bytes;
+
+            if(in.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Snapshot larger than " + Integer.MAX_VALUE + " bytes: " + path);
+            }
+
+            buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if(buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                throw new IOException("Not a version " + VERSION + " bank snapshot: " + path);
+            }
+
+            journalSequence = buffer.getLong();
+            strings         = new String[buffer.getInt()];
+            clients         = new BankClient[buffer.getInt()];
+            accountCount    = buffer.getInt();
+            bank            = new Bank();
+            bytes           = new byte[INITIAL_STRING_BYTES];
+
+            for(int i = 0; i < strings.length; i++)
+            {
+                final int length;
+
+                length = buffer.getShort();
+                if(bytes.length < length)
+                {
+                    bytes = new byte[length];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            for(int i = 0; i < clients.length; i++)
+            {
+                final String first;
+                final String last;
+                final String clientID;
+                final int    birthDay;
+                final int    deathDay;
+                final int    signupDay;
+
+                first     = strings[buffer.getInt()];
+                last      = strings[buffer.getInt()];
+                clientID  = strings[buffer.getInt()];
+                birthDay  = buffer.getInt();
+                deathDay  = buffer.getInt();
+                signupDay = buffer.getInt();
+
+                if(trusted)
+                {
+                    clients[i] = BankClient.ofTrusted(Name.ofTrusted(first, last),
+                                                      Date.ofTrustedEpochDay(birthDay),
+                                                      deathDay == NO_DATE ? null : Date.ofTrustedEpochDay(deathDay),
+                                                      Date.ofTrustedEpochDay(signupDay),
+                                                      clientID);
+                }
+                else
+                {
+                    clients[i] = new BankClient(new Name(first, last),
+                                                Date.ofEpochDay(birthDay),
+                                                deathDay == NO_DATE ? null : Date.ofEpochDay(deathDay),
+                                                Date.ofEpochDay(signupDay),
+                                                clientID);
+                }
+                bank.addClient(clients[i]);
+            }
+
+            for(int i = 0; i < accountCount; i++)
+            {
+                final BankClient  client;
+                final String      accountNumber;
+                final int         pin;
+                final int         openedDay;
+                final int         closedDay;
+                final long        balanceCents;
+                final int         interestDay;
+                final int         feeDay;
+                final BankAccount account;
+
+                client        = clients[buffer.getInt()];
+                accountNumber = strings[buffer.getInt()];
+                pin           = buffer.getInt();
+                openedDay     = buffer.getInt();
+                closedDay     = buffer.getInt();
+                balanceCents  = buffer.getLong();
+                interestDay   = buffer.getInt();
+                feeDay        = buffer.getInt();
+
+                if(trusted)
+                {
+                    account = BankAccount.ofTrusted(client,
+                                                    pin,
+                                                    accountNumber,
+                                                    Date.ofTrustedEpochDay(openedDay),
+                                                    closedDay == NO_DATE ? null : Date.ofTrustedEpochDay(closedDay),
+                                                    balanceCents);
+                }
+                else
+                {
+                    account = BankAccount.ofCents(client,
+                                                  pin,
+                                                  accountNumber,
+                                                  Date.ofEpochDay(openedDay),
+                                                  closedDay == NO_DATE ? null : Date.ofEpochDay(closedDay),
+                                                  balanceCents);
+                }
+                account.restoreAccrualDays(interestDay, feeDay);
+                bank.addAccount(account);
+            }
+
+            bank.setJournalSequence(journalSequence);
+
+            return bank;
+        }
+    }
+
+    /**
+     * Adds a string to the string table if it is not there yet.
+     *
+     * @param string  the string to add
+     * @param indexes the index of each string already in the table
+     * @param strings the string table in order
+     */
+    private static void intern(final String string,
+                               final Map<String, Integer> indexes,
+                               final List<String> strings)
+    {
+        if(!indexes.containsKey(string))
+        {
+            indexes.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    /**
+     * Returns the epoch day of the date, or NO_DATE if the date is null.
+     *
+     * @param date the date (may be null)
+     * @return the epoch day or NO_DATE
+     */
+    private static int epochDayOrNone(final Date date)
+    {
+        return date == null ? NO_DATE : date.getEpochDay();
+    }
+
+    /**
+     * Writes the buffer out first if it does not have room for the given number of bytes.
+     *
+     * @param out    the channel to write to
+     * @param buffer the buffer being filled
+     * @param bytes  the number of bytes about to be put
+     * @throws IOException if the channel cannot be written
+     */
+    private static void ensureRoom(final FileChannel out,
+                                   final ByteBuffer buffer,
+                                   final int bytes) throws IOException
+    {
+        if(buffer.remaining() < bytes)
+        {
+            drain(out, buffer);
+        }
+    }
+
+    /**
+     * Writes everything put into the buffer to the channel and clears it.
+     *
+     * @param out    the channel to write to
+     * @param buffer the buffer to drain
+     * @throws IOException if the channel cannot be written
+     */
+    private static void drain(final FileChannel out,
+                              final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
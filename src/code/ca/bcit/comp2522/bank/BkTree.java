@@ -0,0 +1,199 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A BK-tree of strings, for finding every string within some edit distance of a query without comparing the
+ * query against all of them. Each child of a node sits at a known Levenshtein distance from it, and by the
+ * triangle inequality a search only needs to follow children whose distance is within maxDistance of the
+ * query's own distance from the node.
+ * <p>
+ * Not thread-safe; callers that share one must guard it.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BkTree
+{
+    private static final int INITIAL_CHILDREN = 4;
+
+    private Node root;
+    private int  size;
+
+    /**
+     * A string found by search, with its distance from the query.
+     *
+     * @param term     the string
+     * @param distance its edit distance from the query
+     */
+    record Match(String term,
+                 int distance)
+    {
+    }
+
+    /**
+     * One string in the tree, with its children indexed by their distance from it.
+     */
+    private static final class Node
+    {
+        private final String term;
+        private Node[]       children;
+
+        /**
+         * Constructs a Node with no children.
+         *
+         * @param term the string
+         */
+        private Node(final String term)
+        {
+            this.term     = term;
+            this.children = new Node[INITIAL_CHILDREN];
+        }
+    }
+
+    /**
+     * Adds a string to the tree unless it is already there.
+     *
+     * @param term the string (not null)
+     * @return true if it was added
+     */
+    boolean add(final String term)
+    {
+        Node node;
+
+        if(root == null)
+        {
+            root = new Node(term);
+            size++;
+            return true;
+        }
+
+        node = root;
+        while(true)
+        {
+            final int distance;
+
+            distance = distance(term, node.term);
+            if(distance == 0)
+            {
+                return false;
+            }
+            if(distance >= node.children.length)
+            {
+                node.children = Arrays.copyOf(node.children, Math.max(distance + 1, node.children.length * 2));
+            }
+            if(node.children[distance] == null)
+            {
+                node.children[distance] = new Node(term);
+                size++;
+                return true;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    /**
+     * Returns every string in the tree within maxDistance edits of the query, in no particular order.
+     *
+     * @param query       the string to look for
+     * @param maxDistance the largest edit distance to accept
+     * @return a new list of the matches
+     */
+    List<Match> search(final String query,
+                       final int maxDistance)
+    {
+        final List<Match> matches;
+        final Deque<Node> pending;
+
+        matches = new ArrayList<>();
+        pending = new ArrayDeque<>();
+        if(root != null)
+        {
+            pending.push(root);
+        }
+
+        while(!pending.isEmpty())
+        {
+            final Node node;
+            final int  distance;
+            final int  lowest;
+            final int  highest;
+
+            node     = pending.pop();
+            distance = distance(query, node.term);
+            if(distance <= maxDistance)
+            {
+                matches.add(new Match(node.term, distance));
+            }
+
+            lowest  = Math.max(1, distance - maxDistance);
+            highest = Math.min(node.children.length - 1, distance + maxDistance);
+            for(int i = lowest; i <= highest; i++)
+            {
+                if(node.children[i] != null)
+                {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Returns the number of strings in the tree.
+     *
+     * @return the number of strings
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the Levenshtein distance between two strings: the fewest single-character insertions,
+     * deletions and substitutions that turn one into the other.
+     *
+     * @param first  one string
+     * @param second the other string
+     * @return the distance
+     */
+    static int distance(final String first,
+                        final String second)
+    {
+        int[] previous;
+        int[] current;
+
+        previous = new int[second.length() + 1];
+        current  = new int[second.length() + 1];
+        for(int j = 0; j <= second.length(); j++)
+        {
+            previous[j] = j;
+        }
+
+        for(int i = 1; i <= first.length(); i++)
+        {
+            final int[] swap;
+
+            current[0] = i;
+            for(int j = 1; j <= second.length(); j++)
+            {
+                final int substitution;
+
+                substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j]   = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            swap     = previous;
+            previous = current;
+            current  = swap;
+        }
+
+        return previous[second.length()];
+    }
+}
@@ -0,0 +1,356 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
+/**
+ * A column-per-field copy of the accounts in a Bank, for scans over many accounts at once.
+ * Row i of every column describes the same account: its balance in cents, the epoch days it was opened
+ * and closed (NO_DAY if still open), the index of its client in getClient, and whether that client is alive.
+ * A scan reads a few primitive arrays front to back instead of following BankAccount, BankClient and Date
+ * references for every account, so it stays in the CPU cache and the JIT can unroll and vectorize the loop.
+ * <p>
+ * The accounts, dates and clients are copied once when the store is built. Balances are kept up to date:
+ * every account tells the store about each deposit and withdrawal until close is called, and the store then
+ * copies the account's current balance rather than applying the change, so no change is ever counted twice.
+ * While balances are changing, a scan sees each balance as of some recent moment rather than all of them as
+ * of one instant. Sums are checked for overflow like every other total of cents.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class ColumnarAccountStore implements AutoCloseable
+{
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final VarHandle BALANCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final BankAccount[] accounts;
+    private final BankClient[]  clients;
+    private final long[]        balanceCents;
+    private final int[]         openedDay;
+    private final int[]         closedDay;
+    private final int[]         clientIndex;
+    private final boolean[]     clientAlive;
+    private final RowListener[] rowListeners;
+
+    /**
+     * Keeps one row's balance column in step with its account.
+     */
+    private final class RowListener implements BalanceListener
+    {
+        private final int row;
+
+        /**
+         * Constructs a RowListener.
+         *
+         * @param row the row to update
+         */
+        private RowListener(final int row)
+        {
+            this.row = row;
+        }
+
+        /**
+         * Copies the account's balance into the row.
+         *
+         * @param account      the account whose balance changed
+         * @param type         the kind of change
+         * @param amountCents  the amount moved in cents
+         * @param balanceCents the balance in cents after the change
+         */
+        @Override
+        public void balanceChanged(final BankAccount account,
+                                   final TransactionType type,
+                                   final long amountCents,
+                                   final long balanceCents)
+        {
+            copyBalance(row);
+        }
+    }
+
+    /**
+     * Builds a store holding every account in the bank, in the order they were added.
+     *
+     * @param bank the bank to copy
+     */
+    ColumnarAccountStore(final Bank bank)
+    {
+        if(bank == null)
+        {
+            throw new IllegalArgumentException("Bank is null");
+        }
+
+        final List<BankClient>   allClients;
+        final List<BankAccount>  allAccounts;
+        final PackedIdMap<int[]> indexOfClient;
+        final int                rows;
+
+        allClients    = bank.getAllClients();
+        indexOfClient = new PackedIdMap<>();
+        this.clients  = allClients.toArray(new BankClient[0]);
+        for(int i = 0; i < clients.length; i++)
+        {
+            indexOfClient.putIfAbsent(PackedIdMap.pack(clients[i].getClientID()), new int[]{i});
+        }
+
+        allAccounts       = bank.getAllAccounts();
+        rows              = allAccounts.size();
+        this.accounts     = allAccounts.toArray(new BankAccount[0]);
+        this.balanceCents = new long[rows];
+        this.openedDay    = new int[rows];
+        this.closedDay    = new int[rows];
+        this.clientIndex  = new int[rows];
+        this.clientAlive  = new boolean[rows];
+        this.rowListeners = new RowListener[rows];
+
+        for(int row = 0; row < rows; row++)
+        {
+            final BankAccount account;
+            final BankClient  client;
+
+            account = accounts[row];
+            client  = account.getClient();
+
+            openedDay[row]   = account.getAccountOpened().getEpochDay();
+            closedDay[row]   = account.getAccountClosed() == null ? NO_DAY : account.getAccountClosed().getEpochDay();
+            clientIndex[row] = indexOfClient.get(PackedIdMap.pack(client.getClientID()))[0];
+            clientAlive[row] = client.isAlive();
+
+            /*
+             * Listen before copying the balance so no later change is missed.
+             */
+            rowListeners[row] = new RowListener(row);
+            account.addListener(rowListeners[row]);
+            copyBalance(row);
+        }
+    }
+
+    /**
+     * Returns the number of accounts in the store.
+     *
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return accounts.length;
+    }
+
+    /**
+     * Returns the account in the given row.
+     *
+     * @param row the row
+     * @return the account
+     */
+    public BankAccount getAccount(final int row)
+    {
+        return accounts[row];
+    }
+
+    /**
+     * Returns the client with the given index, as stored in the client index column.
+     *
+     * @param index the client index
+     * @return the client
+     */
+    public BankClient getClient(final int index)
+    {
+        return clients[index];
+    }
+
+    /**
+     * Returns the client index of the account in the given row.
+     *
+     * @param row the row
+     * @return the index to pass to getClient
+     */
+    public int getClientIndex(final int row)
+    {
+        return clientIndex[row];
+    }
+
+    /**
+     * Returns the balance in cents of the account in the given row.
+     *
+     * @param row the row
+     * @return the balance in cents
+     */
+    public long getBalanceCents(final int row)
+    {
+        return (long) BALANCE.getOpaque(balanceCents, row);
+    }
+
+    /**
+     * Returns the total balance in cents of every account.
+     * Errors with ArithmeticException if the total would not fit in a long.
+     *
+     * @return the total in cents
+     */
+    public long sumBalanceCents()
+    {
+        long total;
+
+        total = 0;
+        for(int row = 0; row < balanceCents.length; row++)
+        {
+            total = Money.add(total, balanceCents[row]);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the total balance in cents of the accounts opened on or after fromDay and before toDay,
+     * optionally counting only accounts whose client is alive.
+     * For example, accounts opened in the 1990s by living clients are
+     * sumBalanceCentsOpened(Date.of(1990, 1, 1).getEpochDay(), Date.of(2000, 1, 1).getEpochDay(), true).
+     * Errors with ArithmeticException if the total would not fit in a long.
+     *
+     * @param fromDay    the first epoch day to include
+     * @param toDay      the epoch day after the last one to include
+     * @param livingOnly whether to count only accounts of living clients
+     * @return the total in cents
+     */
+    public long sumBalanceCentsOpened(final int fromDay,
+                                      final int toDay,
+                                      final boolean livingOnly)
+    {
+        long total;
+
+        total = 0;
+        for(int row = 0; row < balanceCents.length; row++)
+        {
+            final int     day;
+            final boolean match;
+
+            day   = openedDay[row];
+            match = (day >= fromDay) & (day < toDay) & (clientAlive[row] | !livingOnly);
+            total = Money.add(total, match ? balanceCents[row] : 0L);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns how many accounts were opened on or after fromDay and before toDay,
+     * optionally counting only accounts whose client is alive.
+     *
+     * @param fromDay    the first epoch day to include
+     * @param toDay      the epoch day after the last one to include
+     * @param livingOnly whether to count only accounts of living clients
+     * @return the number of matching accounts
+     */
+    public int countOpened(final int fromDay,
+                           final int toDay,
+                           final boolean livingOnly)
+    {
+        int count;
+
+        count = 0;
+        for(int row = 0; row < openedDay.length; row++)
+        {
+            final int     day;
+            final boolean match;
+
+            day   = openedDay[row];
+            match = (day >= fromDay) & (day < toDay) & (clientAlive[row] | !livingOnly);
+            count += match ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns how many accounts were open on the given epoch day: opened on or before it and not closed
+     * on or before it.
+     *
+     * @param day the epoch day
+     * @return the number of accounts open that day
+     */
+    public int countOpenOn(final int day)
+    {
+        int count;
+
+        count = 0;
+        for(int row = 0; row < openedDay.length; row++)
+        {
+            final int     closed;
+            final boolean match;
+
+            closed = closedDay[row];
+            match  = (openedDay[row] <= day) & (closed == NO_DAY | closed > day);
+            count += match ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the rows of the accounts opened on or after fromDay and before toDay,
+     * optionally only those whose client is alive, in row order.
+     *
+     * @param fromDay    the first epoch day to include
+     * @param toDay      the epoch day after the last one to include
+     * @param livingOnly whether to select only accounts of living clients
+     * @return the matching rows
+     */
+    public int[] selectOpened(final int fromDay,
+                              final int toDay,
+                              final boolean livingOnly)
+    {
+        final int[] selected;
+        int         found;
+
+        selected = new int[countOpened(fromDay, toDay, livingOnly)];
+        found    = 0;
+        for(int row = 0; row < openedDay.length && found < selected.length; row++)
+        {
+            final int day;
+
+            day = openedDay[row];
+            if(day >= fromDay && day < toDay && (clientAlive[row] || !livingOnly))
+            {
+                selected[found] = row;
+                found++;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Copies an account's balance into its row, reading the account again after each copy and copying once
+     * more if it changed meanwhile. Threads copying the same row at once can store their reads in any order,
+     * but whichever stores last then finds the balance it stored still current, so the row always ends up
+     * with the account's latest balance.
+     *
+     * @param row the row to update
+     */
+    private void copyBalance(final int row)
+    {
+        final BankAccount account;
+        long              seen;
+
+        account = accounts[row];
+        do
+        {
+            seen = account.getBalanceCents();
+            BALANCE.setVolatile(balanceCents, row, seen);
+        }
+        while(seen != account.getBalanceCents());
+    }
+
+    /**
+     * Stops keeping balances up to date. Scans still work afterwards but see the balances as of this call.
+     */
+    @Override
+    public void close()
+    {
+        for(int row = 0; row < accounts.length; row++)
+        {
+            accounts[row].removeListener(rowListeners[row]);
+        }
+    }
+}
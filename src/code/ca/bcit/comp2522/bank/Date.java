@@ -1,8 +1,16 @@
 package ca.bcit.comp2522.bank;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * Represents a Date made of a year, month, and day.
- * Has functionality to find the weekday and compare dates.
+ * Has functionality to find the weekday, compare dates and do day arithmetic.
+ * <p>
+ * Each Date also carries its epoch day (days since January 1, 1970), computed once at construction,
+ * so comparisons and day differences are plain integer operations.
+ * <p>
+ * Date.of returns one shared instance per distinct day, so the many clients and accounts that hold
+ * the same day share a single object and the day is validated only the first time it is asked for.
  *
  * @author Mohammad Sadeghi
  * @author Ryan Chu
@@ -10,8 +18,9 @@ package ca.bcit.comp2522.bank;
  */
 class Date
 {
-    private final static int MIN_YEAR  = 1800;
-    private final static int MAX_YEAR  = 2024;
+    final static int MIN_YEAR  = 1800;
+    final static int MAX_YEAR  = 2024;
+
     private final static int MIN_MONTH = 1;
     private final static int MAX_MONTH = 12;
     private final static int MIN_DAY   = 1;
@@ -38,35 +47,61 @@ class Date
     private final static int CENTURY_INTERVAL      = 100;
     private final static int LEAP_CENTURY_INTERVAL = 400;
     private final static int NO_REMAINDER          = 0;
+    private final static int NOTHING               = 0;
+
+    private final static int DAYS_PER_WEEK = 7;
 
-    private final static int    NINETEENTH_CENTURY_START    = 1800;
-    private final static int    TWENTIETH_CENTURY_START     = 1900;
-    private final static int    TWENTY_FIRST_CENTURY_START  = 2000;
-    private final static int    NINETEENTH_CENTURY_OFFSET   = 2;
-    private final static int    TWENTIETH_CENTURY_OFFSET    = 0;
-    private final static int    TWENTY_FIRST_CENTURY_OFFSET = 6;
-    private final static int    LEAP_YEAR_OFFSET            = 6;
-    private final static int    NOTHING                     = 0;
-    private final static int    STEP_1_CONSTANT             = 12;
-    private final static int    STEP_3_CONSTANT             = 4;
-    private final static String STEP_5_CONSTANT             = "144025036146";
-    private final static int    STEP_5_CONSTANT_OFFSET      = 1;
-    private final static int    STEP_6_CONSTANT             = 7;
-
-    private final static int SATURDAY  = 0;
-    private final static int SUNDAY    = 1;
-    private final static int MONDAY    = 2;
-    private final static int TUESDAY   = 3;
-    private final static int WEDNESDAY = 4;
-    private final static int THURSDAY  = 5;
-    private final static int FRIDAY    = 6;
-
-    private final static int NO_DIFFERENCE = 0;
+    /*
+     * The weekday of each epoch day modulo DAYS_PER_WEEK; January 1, 1970 was a Thursday.
+     */
+    private final static Weekday[] WEEKDAYS_FROM_EPOCH = {Weekday.THURSDAY,
+                                                          Weekday.FRIDAY,
+                                                          Weekday.SATURDAY,
+                                                          Weekday.SUNDAY,
+                                                          Weekday.MONDAY,
+                                                          Weekday.TUESDAY,
+                                                          Weekday.WEDNESDAY};
+
+    /*
+     * Constants for converting between year/month/day and epoch days. The conversion treats March
+     * as the first month of the year so the leap day falls at the end, and works in 400-year eras.
+     */
+    private final static int DAYS_PER_YEAR            = 365;
+    private final static int DAYS_PER_ERA             = 146097;
+    private final static int YEARS_PER_ERA            = 400;
+    private final static int MONTHS_PER_YEAR          = 12;
+    private final static int MARCH_BASED_MONTH_SHIFT  = 9;
+    private final static int MARCH_BASED_MONTH_OFFSET = 3;
+    private final static int MARCH_BASED_LAST_MONTH   = 10;
+    private final static int MONTH_DAYS_MULTIPLIER    = 153;
+    private final static int MONTH_DAYS_ROUNDING      = 2;
+    private final static int MONTH_DAYS_DIVISOR       = 5;
+    private final static int DAYS_PER_4_YEARS_MINUS_1 = 1460;
+    private final static int DAYS_PER_CENTURY_MINUS_1 = 36524;
+    private final static int DAYS_PER_ERA_MINUS_1     = 146096;
+    private final static int EPOCH_DAY_SHIFT          = 719468;
+
+    /*
+     * One slot for every year/month/day combination in range, including impossible days such as
+     * February 31 whose slots simply stay empty. Slots are filled on first use with compare-and-set,
+     * so lookups never lock.
+     */
+    private final static int SLOTS_PER_MONTH = LONG_MONTH_MAX_DAY;
+    private final static int SLOTS_PER_YEAR  = SLOTS_PER_MONTH * MAX_MONTH;
+    private final static int CANONICAL_SLOTS = SLOTS_PER_YEAR * (MAX_YEAR - MIN_YEAR + 1);
 
+    private final static AtomicReferenceArray<Date> CANONICAL = new AtomicReferenceArray<>(CANONICAL_SLOTS);
 
     private final int year;
     private final int month;
     private final int day;
+    private final int epochDay;
+
+    /*
+     * Lazily built "weekday, Month day, year" text. A Date never changes, so threads that race to
+     * build it produce equal Strings and any of them may be kept.
+     */
+    private String formattedDate;
 
     /**
      * Constructs a Date object
@@ -79,19 +114,231 @@ class Date
                 final int month,
                 final int day)
     {
-        validateInt(year,
-                    MIN_YEAR,
-                    MAX_YEAR);
-        validateInt(month,
-                    MIN_MONTH,
-                    MAX_MONTH);
-        validateDay(day,
-                    month,
-                    year);
+        this(year,
+             month,
+             day,
+             true);
+    }
+
+    /**
+     * Constructs a Date object, validating it only if asked to.
+     *
+     * @param year     the year to set
+     * @param month    the month to set
+     * @param day      the day to set
+     * @param validate whether to validate the year, month and day
+     */
+    private Date(final int year,
+                 final int month,
+                 final int day,
+                 final boolean validate)
+    {
+        if(validate)
+        {
+            validateInt(year,
+                        MIN_YEAR,
+                        MAX_YEAR);
+            validateInt(month,
+                        MIN_MONTH,
+                        MAX_MONTH);
+            validateDay(day,
+                        month,
+                        year);
+        }
 
         this.year  = year;
         this.month = month;
         this.day   = day;
+
+        this.epochDay = toEpochDay(year,
+                                   month,
+                                   day);
+    }
+
+    /**
+     * Returns the shared Date for the given year, month and day, creating it the first time that day
+     * is asked for. Errors the same way the constructor does for invalid dates.
+     *
+     * @param year  the year (MIN_YEAR - MAX_YEAR)
+     * @param month the month (MIN_MONTH - MAX-MONTH)
+     * @param day   the day (MIN_DAY - _MAX_DAY dependent on month)
+     * @return the shared Date for that day
+     */
+    public static Date of(final int year,
+                          final int month,
+                          final int day)
+    {
+        if(check(year, month, day) != ValidationError.OK)
+        {
+            return new Date(year,
+                            month,
+                            day);
+        }
+
+        return intern(year,
+                      month,
+                      day);
+    }
+
+    /**
+     * Checks whether the given year, month and day make a valid Date, without throwing.
+     * Uses the same rules as the constructor.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day
+     * @return OK if Date.of would accept them, otherwise the first problem found
+     */
+    static ValidationError check(final int year,
+                                 final int month,
+                                 final int day)
+    {
+        if(!isInRange(year, MIN_YEAR, MAX_YEAR))
+        {
+            return ValidationError.YEAR_OUT_OF_RANGE;
+        }
+        if(!isInRange(month, MIN_MONTH, MAX_MONTH))
+        {
+            return ValidationError.MONTH_OUT_OF_RANGE;
+        }
+        if(!isInRange(day, MIN_DAY, maxDayOf(month, year)))
+        {
+            return ValidationError.DAY_OUT_OF_RANGE;
+        }
+
+        return ValidationError.OK;
+    }
+
+    /**
+     * Returns the shared Date for a year, month and day already known to be valid,
+     * creating it if this is the first request for that day.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day
+     * @return the shared Date for that day
+     */
+    private static Date intern(final int year,
+                               final int month,
+                               final int day)
+    {
+        final int slot;
+        final Date existing;
+        final Date created;
+
+        slot     = (year - MIN_YEAR) * SLOTS_PER_YEAR + (month - MIN_MONTH) * SLOTS_PER_MONTH + (day - MIN_DAY);
+        existing = CANONICAL.get(slot);
+        if(existing != null)
+        {
+            return existing;
+        }
+
+        created = new Date(year,
+                           month,
+                           day,
+                           false);
+
+        return CANONICAL.compareAndSet(slot, null, created) ? created : CANONICAL.get(slot);
+    }
+
+    /**
+     * Returns the shared Date for the given epoch day.
+     * Errors if the day is outside MIN_YEAR - MAX_YEAR.
+     *
+     * @param epochDay the number of days since January 1, 1970
+     * @return the Date for that day
+     */
+    static Date ofEpochDay(final int epochDay)
+    {
+        return fromEpochDay(epochDay,
+                            true);
+    }
+
+    /**
+     * Returns the shared Date for the given epoch day without validating it,
+     * for dates read back from a trusted BankSnapshot.
+     *
+     * @param epochDay the number of days since January 1, 1970, already known to be in range
+     * @return the Date for that day
+     */
+    static Date ofTrustedEpochDay(final int epochDay)
+    {
+        return fromEpochDay(epochDay,
+                            false);
+    }
+
+    /**
+     * Converts an epoch day back into a year, month and day and returns the shared Date for it.
+     *
+     * @param epochDay the number of days since January 1, 1970
+     * @param validate whether to validate the resulting date
+     * @return the Date for that day
+     */
+    private static Date fromEpochDay(final int epochDay,
+                                     final boolean validate)
+    {
+        final int shifted;
+        final int era;
+        final int dayOfEra;
+        final int yearOfEra;
+        final int dayOfYear;
+        final int marchBasedMonth;
+        final int day;
+        final int month;
+        final int year;
+
+        shifted   = epochDay + EPOCH_DAY_SHIFT;
+        era       = Math.floorDiv(shifted, DAYS_PER_ERA);
+        dayOfEra  = shifted - era * DAYS_PER_ERA;
+        yearOfEra = (dayOfEra - dayOfEra / DAYS_PER_4_YEARS_MINUS_1 + dayOfEra / DAYS_PER_CENTURY_MINUS_1 -
+                     dayOfEra / DAYS_PER_ERA_MINUS_1) / DAYS_PER_YEAR;
+        dayOfYear = dayOfEra - (DAYS_PER_YEAR * yearOfEra + yearOfEra / LEAP_YEAR_CYCLE - yearOfEra / CENTURY_INTERVAL);
+
+        marchBasedMonth = (MONTH_DAYS_DIVISOR * dayOfYear + MONTH_DAYS_ROUNDING) / MONTH_DAYS_MULTIPLIER;
+
+        day   = dayOfYear - (MONTH_DAYS_MULTIPLIER * marchBasedMonth + MONTH_DAYS_ROUNDING) / MONTH_DAYS_DIVISOR + MIN_DAY;
+        month = marchBasedMonth < MARCH_BASED_LAST_MONTH ? marchBasedMonth + MARCH_BASED_MONTH_OFFSET :
+                marchBasedMonth - MARCH_BASED_MONTH_SHIFT;
+        year  = yearOfEra + era * YEARS_PER_ERA + (month <= FEBRUARY ? 1 : NOTHING);
+
+        if(validate)
+        {
+            return of(year,
+                      month,
+                      day);
+        }
+
+        return intern(year,
+                      month,
+                      day);
+    }
+
+    /**
+     * Converts a year, month and day into the number of days since January 1, 1970.
+     *
+     * @param year  the year
+     * @param month the month
+     * @param day   the day of the month
+     * @return the epoch day
+     */
+    private static int toEpochDay(final int year,
+                                  final int month,
+                                  final int day)
+    {
+        final int marchBasedYear;
+        final int era;
+        final int yearOfEra;
+        final int dayOfYear;
+        final int dayOfEra;
+
+        marchBasedYear = month <= FEBRUARY ? year - 1 : year;
+        era            = Math.floorDiv(marchBasedYear, YEARS_PER_ERA);
+        yearOfEra      = marchBasedYear - era * YEARS_PER_ERA;
+        dayOfYear      = (MONTH_DAYS_MULTIPLIER * ((month + MARCH_BASED_MONTH_SHIFT) % MONTHS_PER_YEAR) + MONTH_DAYS_ROUNDING) /
+                         MONTH_DAYS_DIVISOR + day - MIN_DAY;
+        dayOfEra       = yearOfEra * DAYS_PER_YEAR + yearOfEra / LEAP_YEAR_CYCLE - yearOfEra / CENTURY_INTERVAL + dayOfYear;
+
+        return era * DAYS_PER_ERA + dayOfEra - EPOCH_DAY_SHIFT;
     }
 
     /**
@@ -105,7 +352,7 @@ class Date
                                     final int min,
                                     final int max)
     {
-        if(number < min || number > max)
+        if(!isInRange(number, min, max))
         {
             throw new IllegalArgumentException("Out of range: " + min + " - " + max + " got: " + number);
         }
@@ -122,36 +369,43 @@ class Date
                                     final int month,
                                     final int year)
     {
+        validateInt(day,
+                    MIN_DAY,
+                    maxDayOf(month, year));
+    }
 
-        switch(month)
-        {
-            case JANUARY, MARCH, MAY, JULY, AUGUST, OCTOBER, DECEMBER -> validateInt(day,
-                                                                                     MIN_DAY,
-                                                                                     LONG_MONTH_MAX_DAY);
-
-            case APRIL, JUNE, SEPTEMBER, NOVEMBER -> validateInt(day,
-                                                                 MIN_DAY,
-                                                                 SHORT_MONTH_MAX_DAY);
-            case FEBRUARY ->
-            {
-                if(isLeapYear(year))
-                {
-                    validateInt(day,
-                                MIN_DAY,
-                                LEAP_FEB_MAX_DAY);
-                }
-                else
-                {
-                    validateInt(day,
-                                MIN_DAY,
-                                NO_LEAP_FEB_MAX_DAY);
-                }
-            }
+    /**
+     * Checks whether a number is within a range.
+     *
+     * @param number the number to check
+     * @param min    the lower bound
+     * @param max    the upper bound
+     * @return true if min <= number <= max
+     */
+    private static boolean isInRange(final int number,
+                                     final int min,
+                                     final int max)
+    {
+        return number >= min && number <= max;
+    }
 
+    /**
+     * Returns the last day of a month.
+     *
+     * @param month the month (MIN_MONTH - MAX_MONTH)
+     * @param year  the year, for February in leap years
+     * @return the number of days in the month
+     */
+    private static int maxDayOf(final int month,
+                                final int year)
+    {
+        return switch(month)
+        {
+            case JANUARY, MARCH, MAY, JULY, AUGUST, OCTOBER, DECEMBER -> LONG_MONTH_MAX_DAY;
+            case APRIL, JUNE, SEPTEMBER, NOVEMBER -> SHORT_MONTH_MAX_DAY;
+            case FEBRUARY -> isLeapYear(year) ? LEAP_FEB_MAX_DAY : NO_LEAP_FEB_MAX_DAY;
             default -> throw new IllegalStateException("Invalid month: " + month);
-        }
-
-
+        };
     }
 
     /**
@@ -197,6 +451,65 @@ class Date
         return this.year;
     }
 
+    /**
+     * Returns the number of days since January 1, 1970 for this date.
+     *
+     * @return the epoch day of the date
+     */
+    public int getEpochDay()
+    {
+        return this.epochDay;
+    }
+
+    /**
+     * Returns the number of days from this date to the given date.
+     * Errors if the given date is null
+     *
+     * @param other the Date to measure to
+     * @return the number of days, negative if the given date is earlier than this date
+     */
+    public int daysBetween(final Date other)
+    {
+        if(other == null)
+        {
+            throw new IllegalArgumentException("other is null");
+        }
+
+        return other.epochDay - this.epochDay;
+    }
+
+    /**
+     * Returns the date the given number of days after this date.
+     * Errors if the resulting date is outside MIN_YEAR - MAX_YEAR.
+     *
+     * @param days the number of days to add (negative to go back)
+     * @return the resulting Date
+     */
+    public Date plusDays(final int days)
+    {
+        return ofEpochDay(this.epochDay + days);
+    }
+
+    /**
+     * Returns the date in "weekday, Month name day, year" format such as "saturday, May 2, 2020".
+     * The text is built once and reused on later calls.
+     *
+     * @return the weekday and date as a String
+     */
+    public String getFormattedDate()
+    {
+        String formatted;
+
+        formatted = this.formattedDate;
+        if(formatted == null)
+        {
+            formatted          = getDayOfTheWeek() + ", " + getYyyyMmDd();
+            this.formattedDate = formatted;
+        }
+
+        return formatted;
+    }
+
     /**
      * Returns the date in "Month name day, year" format such as "May 2, 2020".
      *
@@ -226,86 +539,24 @@ class Date
     }
 
     /**
-     * Returns the day of the week as a String
-     * <p>
-     * To get the day of the week, does the following seven steps for dates in the 1900s:
-     * e.g. October 31, 1977:
-     * step 1: calculate the number of twelves in 77: 6
-     * step 2: calculate the remainder from step 1: 77 - 12*6 = 77 - 72 = 5
-     * step 3: calculate the number of fours in step 2: 5/4 = 1.25, so 1
-     * step 4: add the day of the month to each step above: 31 + 6 + 5 + 1 = 43
-     * step 5: add the month code (for jfmamjjasond: 144025036146): for october it is 1: 43 + 1 = 44
-     * step 6: add the previous five numbers: (44) and mod by 7: 44%7 = 2 (44/7 = 6 remainder 2)
-     * step 7: sat sun mon tue wed thu fri is 0 1 2 3 4 5 6; our 2 means Oct 31 1977 was monday
-     * <p>
-     * Extra notes:
-     * a) for January/February dates in leap years, add 6 at the start
-     * b) for all dates in the 2000s, add 6 at the start
-     * c) for all dates in the 1800s, add 2 at the start
+     * Returns the day of the week of this date.
+     * Found by looking up the epoch day modulo DAYS_PER_WEEK, so it never allocates.
      *
-     * @return String of the day of the week
+     * @return the Weekday of this date
      */
-    public String getDayOfTheWeek()
+    public Weekday getWeekday()
     {
-        final int initialFormulaValue;
-
-        final int step1result;
-        final int step2result;
-        final int step3result;
-        final int step4result;
-        final int step5result;
-        final int step6result;
-
-        initialFormulaValue = determineInitialValue();
-
-        step1result = initialFormulaValue / STEP_1_CONSTANT;
-
-        step2result = initialFormulaValue - step1result * STEP_1_CONSTANT;
-
-        step3result = step2result / STEP_3_CONSTANT;
-
-        step4result = this.day + step1result + step2result + step3result;
-
-        step5result =
-                step4result + Character.getNumericValue(STEP_5_CONSTANT.charAt(this.month - STEP_5_CONSTANT_OFFSET));
-
-        step6result = step5result % STEP_6_CONSTANT;
-
-        return switch(step6result)
-        {
-            case SATURDAY -> "saturday";
-            case SUNDAY -> "sunday";
-            case MONDAY -> "monday";
-            case TUESDAY -> "tuesday";
-            case WEDNESDAY -> "wednesday";
-            case THURSDAY -> "thursday";
-            case FRIDAY -> "friday";
-            default -> throw new IllegalStateException("Unexpected when finding weekday: " + step6result);
-        };
+        return WEEKDAYS_FROM_EPOCH[Math.floorMod(this.epochDay, DAYS_PER_WEEK)];
     }
 
     /**
-     * Used to find the initial value at the start of the weekday finding formula
-     * @return the initial value of the formula
+     * Returns the day of the week as a lowercase String such as "monday".
+     *
+     * @return String of the day of the week
      */
-    private int determineInitialValue()
+    public String getDayOfTheWeek()
     {
-        final int currentYear;
-        final int leapOffset;
-        final int offset;
-
-        currentYear = this.year % CENTURY_INTERVAL;
-        leapOffset  = (isLeapYear(this.year)) && (this.month == JANUARY || this.month == FEBRUARY) ? LEAP_YEAR_OFFSET : NOTHING;
-
-        offset = switch(this.year - currentYear)
-        {
-            case NINETEENTH_CENTURY_START -> NINETEENTH_CENTURY_OFFSET;
-            case TWENTIETH_CENTURY_START -> TWENTIETH_CENTURY_OFFSET;
-            case TWENTY_FIRST_CENTURY_START -> TWENTY_FIRST_CENTURY_OFFSET;
-            default -> throw new IllegalStateException("Unsupported century: " + (this.year - currentYear));
-        };
-
-        return currentYear + offset + leapOffset;
+        return getWeekday().getName();
     }
 
     /**
@@ -313,9 +564,8 @@ class Date
      * Errors if the given date is null
      *
      * <p>
-     * returns the difference between the calling date's year and the given date's year
-     * or the difference in months if they are the same year
-     * or the difference in days if they are the same month
+     * returns the difference in days between the calling date and the given date,
+     * which is a single subtraction of the precomputed epoch days
      * </p>
      *
      * @param dateToCompare the Date object to compare this date against
@@ -327,20 +577,7 @@ class Date
             throw new IllegalArgumentException("dateToCompare is null");
         }
 
-        int comparison;
-
-        comparison = this.year - dateToCompare.getYear();
-
-        if(comparison == NO_DIFFERENCE)
-        {
-            comparison = this.month - dateToCompare.getMonth();
-            if(comparison == NO_DIFFERENCE)
-            {
-                comparison = this.day - dateToCompare.getDay();
-            }
-        }
-
-        return comparison;
+        return this.epochDay - dateToCompare.epochDay;
     }
 }
 
@@ -0,0 +1,255 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A sorted index from dates to values, with one bucket for every day Date can represent
+ * (about 82,000 of them), so adding a value and finding a day's bucket are both a single array access.
+ * <p>
+ * Each bucket is a lock-free list of array chunks, newest first. A value is added by claiming the next free
+ * slot of the newest chunk with an atomic increment, or, when that chunk is full, by pushing a new chunk twice
+ * its size (up to MAX_CHUNK) with compare-and-set. Reading a day's values walks a few arrays rather than one
+ * object per value. A bitmap with one bit per day records which buckets have anything in them. A range query reads
+ * the bitmap a 64-day word at a time and only visits the days whose bit is set, so it costs one word
+ * per 64 days in the range plus one step per value found, however many values the index holds.
+ * Adds and queries may run on any number of threads at once without locking; a query running alongside
+ * an add may or may not see the value being added. Values cannot be removed.
+ *
+ * @param <T> the type of the values
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class DateIndex<T>
+{
+    private static final int FIRST_DAY  = Date.of(Date.MIN_YEAR, 1, 1).getEpochDay();
+    private static final int LAST_DAY   = Date.of(Date.MAX_YEAR, 12, 31).getEpochDay();
+    private static final int DAYS       = LAST_DAY - FIRST_DAY + 1;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK  = Long.SIZE - 1;
+    private static final int MIN_CHUNK  = 4;
+    private static final int MAX_CHUNK  = 64;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final AtomicReferenceArray<Chunk> buckets;
+    private final AtomicLongArray             occupied;
+
+    /**
+     * Some of the values added to one day, linked to the chunk that filled up before it.
+     * Slots are claimed in order by incrementing claimed, which may run past the end once the chunk is full;
+     * a claimed slot may still read null for a moment until the value is written into it.
+     */
+    private static final class Chunk
+    {
+        private static final VarHandle CLAIMED;
+
+        static
+        {
+            try
+            {
+                CLAIMED = MethodHandles.lookup().findVarHandle(Chunk.class, "claimed", int.class);
+            }
+            catch(final ReflectiveOperationException e)
+            {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Object[] values;
+        private final Chunk    next;
+        private volatile int   claimed;
+
+        /**
+         * Constructs a Chunk holding one value.
+         *
+         * @param capacity the number of slots
+         * @param first    the value for the first slot
+         * @param next     the chunk that filled up before this one, or null
+         */
+        private Chunk(final int capacity,
+                      final Object first,
+                      final Chunk next)
+        {
+            this.values    = new Object[capacity];
+            this.values[0] = first;
+            this.next      = next;
+            this.claimed   = 1;
+        }
+
+        /**
+         * Claims the next free slot and writes a value into it.
+         *
+         * @param value the value
+         * @return true if there was a free slot, false if the chunk is full
+         */
+        private boolean tryAdd(final Object value)
+        {
+            final int slot;
+
+            if(claimed >= values.length)
+            {
+                return false;
+            }
+
+            slot = (int) CLAIMED.getAndAdd(this, 1);
+            if(slot >= values.length)
+            {
+                return false;
+            }
+            SLOTS.setRelease(values, slot, value);
+
+            return true;
+        }
+    }
+
+    /**
+     * Constructs an empty DateIndex.
+     */
+    DateIndex()
+    {
+        this.buckets  = new AtomicReferenceArray<>(DAYS);
+        this.occupied = new AtomicLongArray((DAYS + WORD_MASK) >>> WORD_SHIFT);
+    }
+
+    /**
+     * Adds a value under a date.
+     *
+     * @param date  the date (not null)
+     * @param value the value (not null)
+     */
+    void add(final Date date,
+             final T value)
+    {
+        final int  slot;
+        final int  word;
+        final long bit;
+        Chunk      head;
+
+        slot = date.getEpochDay() - FIRST_DAY;
+        word = slot >>> WORD_SHIFT;
+        bit  = 1L << (slot & WORD_MASK);
+
+        do
+        {
+            head = buckets.get(slot);
+        }
+        while((head == null || !head.tryAdd(value)) &&
+              !buckets.compareAndSet(slot, head, new Chunk(nextCapacity(head), value, head)));
+
+        if((occupied.get(word) & bit) == 0)
+        {
+            occupied.accumulateAndGet(word, bit, (bits, set) -> bits | set);
+        }
+    }
+
+    /**
+     * Passes every value dated on or after one epoch day and before another to an action, in ascending date order.
+     * Values on the same day come in no particular order. Days outside the range of Date are simply empty.
+     *
+     * @param fromDay the first epoch day to include
+     * @param toDay   the epoch day after the last one to include
+     * @param action  the action to pass each value to
+     */
+    void forEachBetween(final int fromDay,
+                        final int toDay,
+                        final Consumer<? super T> action)
+    {
+        final int from;
+        final int to;
+
+        from = Math.max(fromDay, FIRST_DAY) - FIRST_DAY;
+        to   = Math.min(toDay, LAST_DAY + 1) - FIRST_DAY;
+        if(from >= to)
+        {
+            return;
+        }
+
+        for(int word = from >>> WORD_SHIFT; word <= (to - 1) >>> WORD_SHIFT; word++)
+        {
+            long bits;
+
+            bits = occupied.get(word);
+            while(bits != 0)
+            {
+                final int slot;
+
+                slot = (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if(slot < from)
+                {
+                    continue;
+                }
+                if(slot >= to)
+                {
+                    return;
+                }
+                for(Chunk chunk = buckets.get(slot); chunk != null; chunk = chunk.next)
+                {
+                    accept(chunk, action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns every value dated on or after one date and before another, in ascending date order.
+     *
+     * @param from the first date to include
+     * @param to   the date after the last one to include
+     * @return a new list of the values
+     */
+    List<T> findBetween(final Date from,
+                        final Date to)
+    {
+        final List<T> found;
+
+        found = new ArrayList<>();
+        forEachBetween(from.getEpochDay(), to.getEpochDay(), found::add);
+
+        return found;
+    }
+
+    /**
+     * Passes the values written into a chunk so far to an action.
+     *
+     * @param chunk  the chunk
+     * @param action the action to pass each value to
+     * @param <T>    the type of the values
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void accept(final Chunk chunk,
+                                   final Consumer<? super T> action)
+    {
+        final int filled;
+
+        filled = Math.min(chunk.claimed, chunk.values.length);
+        for(int i = 0; i < filled; i++)
+        {
+            final Object value;
+
+            value = SLOTS.getAcquire(chunk.values, i);
+            if(value != null)
+            {
+                action.accept((T) value);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the chunk to push in front of a full one.
+     *
+     * @param full the full chunk, or null if the day has none yet
+     * @return the number of slots for the new chunk
+     */
+    private static int nextCapacity(final Chunk full)
+    {
+        return full == null ? MIN_CHUNK : Math.min(full.values.length * 2, MAX_CHUNK);
+    }
+}
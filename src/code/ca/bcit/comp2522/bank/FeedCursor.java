@@ -0,0 +1,492 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the comma-separated fields of one line of a feed straight out of a ByteBuffer.
+ * Numbers, amounts and dates are parsed from the bytes without making a String, and IDs are packed
+ * into PackedIdMap keys the same way. Strings are only made for fields that are kept, and names,
+ * which repeat a lot, are looked up in a small cache of recent names first so a repeated name
+ * reuses the String made the first time.
+ * <p>
+ * Only reads the buffer with absolute gets, so several cursors can share one buffer. Each cursor
+ * must be used by one thread at a time.
+ * <p>
+ * Nothing here throws on bad input. The first malformed field of a line is recorded as a ValidationError,
+ * returned by getError; after that the remaining reads of the line return 0, null or NO_KEY.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class FeedCursor
+{
+    private static final byte SEPARATOR         = ',';
+    private static final byte DATE_SEPARATOR    = '-';
+    private static final byte DECIMAL_POINT     = '.';
+    private static final byte ZERO              = '0';
+    private static final int  DECIMAL_BASE      = 10;
+    private static final int  CENTS_DIGITS      = 2;
+    private static final int  YEAR_DIGITS       = 4;
+    private static final int  MONTH_DAY_DIGITS  = 2;
+    private static final int  DATE_LENGTH       = YEAR_DIGITS + 1 + MONTH_DAY_DIGITS + 1 + MONTH_DAY_DIGITS;
+    private static final int  MAX_INT_DIGITS    = 9;
+    private static final int  MAX_AMOUNT_DIGITS = 16;
+    private static final int  NAME_CACHE_SIZE   = 1_024;
+    private static final int  HASH_MULTIPLIER   = 31;
+    private static final int  NO_FIELD          = -1;
+
+    private final ByteBuffer buffer;
+    private final byte[][]   cachedNameBytes;
+    private final String[]   cachedNames;
+
+    private int             position;
+    private int             lineEnd;
+    private ValidationError error;
+
+    /**
+     * Constructs a FeedCursor over the given buffer.
+     *
+     * @param buffer the buffer holding the feed
+     */
+    FeedCursor(final ByteBuffer buffer)
+    {
+        this.buffer          = buffer;
+        this.cachedNameBytes = new byte[NAME_CACHE_SIZE][];
+        this.cachedNames     = new String[NAME_CACHE_SIZE];
+    }
+
+    /**
+     * Moves the cursor to the start of a line.
+     *
+     * @param lineStart the index of the first byte of the line
+     * @param lineEnd   the index after the last byte of the line, not counting the line break
+     */
+    void startLine(final int lineStart,
+                   final int lineEnd)
+    {
+        this.position = lineStart;
+        this.lineEnd  = lineEnd;
+        this.error    = ValidationError.OK;
+    }
+
+    /**
+     * Records TOO_MANY_FIELDS if the line has fields left after the ones read.
+     */
+    void endLine()
+    {
+        if(error == ValidationError.OK && position <= lineEnd)
+        {
+            error = ValidationError.TOO_MANY_FIELDS;
+        }
+    }
+
+    /**
+     * Returns the first problem found on the current line.
+     *
+     * @return OK if every field read so far was well formed, otherwise the first problem
+     */
+    ValidationError getError()
+    {
+        return error;
+    }
+
+    /**
+     * Reads a non-negative whole number field.
+     *
+     * @return the number
+     */
+    int nextInt()
+    {
+        final int end;
+        int       value;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return 0;
+        }
+        if(end == position || end - position > MAX_INT_DIGITS || !allDigits(position, end))
+        {
+            return fail(ValidationError.MALFORMED_NUMBER);
+        }
+
+        value = 0;
+        for(int i = position; i < end; i++)
+        {
+            value = value * DECIMAL_BASE + digit(i);
+        }
+        position = end + 1;
+
+        return value;
+    }
+
+    /**
+     * Reads a non-negative amount of dollars with up to two decimal places, such as 12, 12.5 or 12.50,
+     * as a number of cents, without going through a double.
+     *
+     * @return the amount in cents
+     */
+    long nextCents()
+    {
+        final int end;
+        long      cents;
+        int       decimals;
+        boolean   afterPoint;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return 0;
+        }
+        if(end == position || end - position > MAX_AMOUNT_DIGITS)
+        {
+            return fail(ValidationError.MALFORMED_AMOUNT);
+        }
+
+        cents      = 0;
+        decimals   = 0;
+        afterPoint = false;
+        for(int i = position; i < end; i++)
+        {
+            if(buffer.get(i) == DECIMAL_POINT && !afterPoint)
+            {
+                afterPoint = true;
+            }
+            else if((afterPoint && decimals == CENTS_DIGITS) || !isDigit(i))
+            {
+                return fail(ValidationError.MALFORMED_AMOUNT);
+            }
+            else
+            {
+                cents = cents * DECIMAL_BASE + digit(i);
+                if(afterPoint)
+                {
+                    decimals++;
+                }
+            }
+        }
+        for(; decimals < CENTS_DIGITS; decimals++)
+        {
+            cents *= DECIMAL_BASE;
+        }
+        position = end + 1;
+
+        return cents;
+    }
+
+    /**
+     * Reads a date field written as yyyy-mm-dd.
+     *
+     * @return the date
+     */
+    Date nextDate()
+    {
+        final Date date;
+
+        date = nextOptionalDate();
+        if(date == null && error == ValidationError.OK)
+        {
+            error = ValidationError.DATE_NULL;
+        }
+
+        return date;
+    }
+
+    /**
+     * Reads a date field written as yyyy-mm-dd, or an empty field.
+     *
+     * @return the date, or null if the field is empty
+     */
+    Date nextOptionalDate()
+    {
+        final int             end;
+        final int             year;
+        final int             month;
+        final int             day;
+        final ValidationError problem;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return null;
+        }
+        if(end == position)
+        {
+            position = end + 1;
+            return null;
+        }
+        if(end - position != DATE_LENGTH ||
+           buffer.get(position + YEAR_DIGITS) != DATE_SEPARATOR ||
+           buffer.get(position + YEAR_DIGITS + 1 + MONTH_DAY_DIGITS) != DATE_SEPARATOR ||
+           !allDigits(position, position + YEAR_DIGITS) ||
+           !allDigits(position + YEAR_DIGITS + 1, position + YEAR_DIGITS + 1 + MONTH_DAY_DIGITS) ||
+           !allDigits(position + YEAR_DIGITS + 1 + MONTH_DAY_DIGITS + 1, end))
+        {
+            fail(ValidationError.MALFORMED_DATE);
+            return null;
+        }
+
+        year     = digits(position, YEAR_DIGITS);
+        month    = digits(position + YEAR_DIGITS + 1, MONTH_DAY_DIGITS);
+        day      = digits(position + YEAR_DIGITS + 1 + MONTH_DAY_DIGITS + 1, MONTH_DAY_DIGITS);
+        problem  = Date.check(year, month, day);
+        if(problem != ValidationError.OK)
+        {
+            fail(problem);
+            return null;
+        }
+        position = end + 1;
+
+        return Date.of(year, month, day);
+    }
+
+    /**
+     * Reads an ID field packed as PackedIdMap.pack would pack it, without making a String.
+     *
+     * @return the packed ID
+     */
+    long nextPackedId()
+    {
+        final int  end;
+        final long key;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return PackedIdMap.NO_KEY;
+        }
+
+        key = PackedIdMap.tryPack(buffer, position, end);
+        if(key == PackedIdMap.NO_KEY)
+        {
+            return fail(ValidationError.ID_NOT_PACKABLE);
+        }
+        position = end + 1;
+
+        return key;
+    }
+
+    /**
+     * Reads a text field as a new String.
+     *
+     * @return the text
+     */
+    String nextString()
+    {
+        final int    end;
+        final byte[] bytes;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return null;
+        }
+
+        bytes = new byte[end - position];
+        buffer.get(position, bytes);
+        position = end + 1;
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a name field, reusing the String made for the same name earlier if it is still in the cache.
+     *
+     * @return the name
+     */
+    String nextName()
+    {
+        final int    end;
+        final int    slot;
+        final byte[] cached;
+        final byte[] bytes;
+        final String name;
+
+        end = fieldEnd();
+        if(end == NO_FIELD)
+        {
+            return null;
+        }
+
+        slot   = hash(position, end) & (NAME_CACHE_SIZE - 1);
+        cached = cachedNameBytes[slot];
+        if(cached != null && matches(cached, position, end))
+        {
+            position = end + 1;
+            return cachedNames[slot];
+        }
+
+        bytes = new byte[end - position];
+        buffer.get(position, bytes);
+        name     = new String(bytes, StandardCharsets.UTF_8);
+        position = end + 1;
+
+        cachedNameBytes[slot] = bytes;
+        cachedNames[slot]     = name;
+
+        return name;
+    }
+
+    /**
+     * Finds the end of the current field.
+     *
+     * @return the index of the separator after the field, or the end of the line,
+     *         or NO_FIELD if the line has no fields left or already has an error
+     */
+    private int fieldEnd()
+    {
+        if(error != ValidationError.OK)
+        {
+            return NO_FIELD;
+        }
+        if(position > lineEnd)
+        {
+            fail(ValidationError.TOO_FEW_FIELDS);
+            return NO_FIELD;
+        }
+
+        int end;
+
+        end = position;
+        while(end < lineEnd && buffer.get(end) != SEPARATOR)
+        {
+            end++;
+        }
+
+        return end;
+    }
+
+    /**
+     * Parses a fixed number of digits.
+     *
+     * @param from  the index of the first digit
+     * @param count how many digits to parse
+     * @return the number
+     */
+    private int digits(final int from,
+                       final int count)
+    {
+        int value;
+
+        value = 0;
+        for(int i = from; i < from + count; i++)
+        {
+            value = value * DECIMAL_BASE + digit(i);
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the value of the digit at the given index, which must be a digit.
+     *
+     * @param index the index of the byte
+     * @return the digit's value
+     */
+    private int digit(final int index)
+    {
+        return buffer.get(index) - ZERO;
+    }
+
+    /**
+     * Checks whether the byte at the given index is a digit.
+     *
+     * @param index the index of the byte
+     * @return true if it is 0 - 9
+     */
+    private boolean isDigit(final int index)
+    {
+        final int value;
+
+        value = buffer.get(index) - ZERO;
+
+        return value >= 0 && value < DECIMAL_BASE;
+    }
+
+    /**
+     * Checks whether every byte in a range is a digit.
+     *
+     * @param from the index of the first byte
+     * @param to   the index after the last byte
+     * @return true if they are all digits
+     */
+    private boolean allDigits(final int from,
+                              final int to)
+    {
+        for(int i = from; i < to; i++)
+        {
+            if(!isDigit(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Records a problem with the current line unless one was already found.
+     *
+     * @param problem the problem
+     * @return 0, for reads to return
+     */
+    private int fail(final ValidationError problem)
+    {
+        if(error == ValidationError.OK)
+        {
+            error = problem;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Hashes the bytes of a field.
+     *
+     * @param from the index of the first byte
+     * @param to   the index after the last byte
+     * @return the hash
+     */
+    private int hash(final int from,
+                     final int to)
+    {
+        int hash;
+
+        hash = 0;
+        for(int i = from; i < to; i++)
+        {
+            hash = hash * HASH_MULTIPLIER + buffer.get(i);
+        }
+
+        return hash ^ (hash >>> (Integer.SIZE / 2));
+    }
+
+    /**
+     * Checks whether the bytes of a field equal the given bytes.
+     *
+     * @param bytes the bytes to compare with
+     * @param from  the index of the first byte of the field
+     * @param to    the index after the last byte of the field
+     * @return true if they are equal
+     */
+    private boolean matches(final byte[] bytes,
+                            final int from,
+                            final int to)
+    {
+        if(bytes.length != to - from)
+        {
+            return false;
+        }
+        for(int i = 0; i < bytes.length; i++)
+        {
+            if(bytes[i] != buffer.get(from + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,546 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Loads daily feeds of new clients and accounts into a Bank.
+ * <p>
+ * A feed is a UTF-8 text file with one record per line and comma-separated fields. Blank lines and
+ * lines starting with # are skipped. Dates are yyyy-mm-dd and an empty date means none.
+ * <ul>
+ * <li>Client feed: clientID,firstName,lastName,birthDate,deathDate,signupDate</li>
+ * <li>Account feed: accountNumber,clientID,pin,openedDate,closedDate,balanceUsd</li>
+ * </ul>
+ * The accounts in an account feed must belong to clients already in the bank, so load the client feed first.
+ * <p>
+ * The file is memory-mapped and the calling thread only finds where lines start and end, handing them
+ * out in batches of BATCH_LINES through a queue that holds at most queueCapacity batches. Worker threads
+ * parse each line with a FeedCursor, check it with the check methods of Name, BankClient and BankAccount,
+ * and add it to the bank with Bank.tryAddClient or tryAddAccount. If the workers fall behind, the queue
+ * fills and the calling thread waits, so memory use stays bounded however large the feed is.
+ * A line that cannot be parsed or fails validation is passed to the rejected-row consumer and the load
+ * carries on. None of this throws for a bad line, so a feed with many bad lines loads as fast as a clean one.
+ * If loading a line or the rejected-row consumer throws a RuntimeException anyway, the line is counted as
+ * rejected and the worker carries on, so a worker never dies and leaves the calling thread waiting on a full
+ * queue.
+ * <p>
+ * If the calling thread is interrupted, the workers are interrupted too and stop at their next batch, and
+ * load throws InterruptedException once they have all stopped, so no worker is ever left waiting.
+ * A feed file is mapped whole and lines are found by int offsets, so it must be under 2 GB
+ * (Integer.MAX_VALUE bytes); split larger feeds into several files.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class FeedIngestor
+{
+    static final int BATCH_LINES = 1_024;
+
+    private static final byte LINE_FEED       = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte COMMENT         = '#';
+    private static final int  MIN_WORKERS     = 1;
+    private static final int  MIN_QUEUE       = 1;
+    private static final int  FIRST_LINE      = 1;
+
+    private static final Batch END_OF_FEED = new Batch(new int[0], new int[0], 0, 0);
+
+    private final Bank                  bank;
+    private final int                   workers;
+    private final int                   queueCapacity;
+    private final Consumer<RejectedRow> rejected;
+
+    /**
+     * The kinds of feed.
+     */
+    enum Kind
+    {
+        CLIENTS,
+        ACCOUNTS
+    }
+
+    /**
+     * A line of a feed that was not loaded.
+     *
+     * @param lineNumber the line number in the feed, counting from 1
+     * @param line       the text of the line
+     * @param error      why it was rejected
+     */
+    record RejectedRow(long lineNumber,
+                       String line,
+                       ValidationError error)
+    {
+    }
+
+    /**
+     * The outcome of loading one feed.
+     *
+     * @param loaded   the number of records added to the bank
+     * @param rejected the number of lines rejected
+     */
+    record Result(long loaded,
+                  long rejected)
+    {
+    }
+
+    /**
+     * A run of consecutive lines of a feed.
+     *
+     * @param starts          the index of the first byte of each line
+     * @param ends            the index after the last byte of each line, not counting the line break
+     * @param count           how many lines are in the batch
+     * @param firstLineNumber the line number of the first line
+     */
+    private record Batch(int[] starts,
+                         int[] ends,
+                         int count,
+                         long firstLineNumber)
+    {
+    }
+
+    /**
+     * Constructs a FeedIngestor.
+     *
+     * @param bank          the bank to load into
+     * @param workers       how many worker threads parse and add records (at least MIN_WORKERS)
+     * @param queueCapacity how many batches may wait for a worker (at least MIN_QUEUE)
+     * @param rejected      receives every rejected line; called from the worker threads, so it must be thread-safe
+     */
+    FeedIngestor(final Bank bank,
+                 final int workers,
+                 final int queueCapacity,
+                 final Consumer<RejectedRow> rejected)
+    {
+        if(bank == null || rejected == null)
+        {
+            throw new IllegalArgumentException("Bank or rejected-row consumer is null");
+        }
+        if(workers < MIN_WORKERS || queueCapacity < MIN_QUEUE)
+        {
+            throw new IllegalArgumentException("Need at least " + MIN_WORKERS + " worker and a queue of at least " +
+                                               MIN_QUEUE + ", got: " + workers + " and " + queueCapacity);
+        }
+
+        this.bank          = bank;
+        this.workers       = workers;
+        this.queueCapacity = queueCapacity;
+        this.rejected      = rejected;
+    }
+
+    /**
+     * Loads a feed file into the bank, returning once every line has been loaded or rejected.
+     *
+     * @param file the feed file, under 2 GB
+     * @param kind what the feed holds
+     * @return how many records were loaded and rejected
+     * @throws IOException          if the file cannot be read, or is 2 GB or larger
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    Result load(final Path file,
+                final Kind kind) throws IOException, InterruptedException
+    {
+        if(file == null || kind == null)
+        {
+            throw new IllegalArgumentException("File or kind is null");
+        }
+
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Feed larger than " + Integer.MAX_VALUE + " bytes: " + file);
+            }
+
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), kind);
+        }
+    }
+
+    /**
+     * Loads a feed held in a buffer into the bank, returning once every line has been loaded or rejected.
+     * Reads the buffer with absolute gets only, so its position and limit are left alone.
+     *
+     * @param feed the feed, from index 0 to its limit
+     * @param kind what the feed holds
+     * @return how many records were loaded and rejected
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    Result load(final ByteBuffer feed,
+                final Kind kind) throws InterruptedException
+    {
+        final BlockingQueue<Batch> queue;
+        final LongAdder            loaded;
+        final LongAdder            failed;
+        final Thread[]             threads;
+
+        queue   = new ArrayBlockingQueue<>(queueCapacity);
+        loaded  = new LongAdder();
+        failed  = new LongAdder();
+        threads = new Thread[workers];
+
+        for(int i = 0; i < workers; i++)
+        {
+            threads[i] = new Thread(() -> work(feed, kind, queue, loaded, failed), "feed-worker-" + i);
+            threads[i].start();
+        }
+
+        try
+        {
+            split(feed, queue);
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            stop(queue, threads);
+        }
+        if(Thread.interrupted())
+        {
+            throw new InterruptedException("Interrupted while loading a feed");
+        }
+
+        return new Result(loaded.sum(), failed.sum());
+    }
+
+    /**
+     * Finds the lines of the feed and queues them in batches, waiting whenever the queue is full.
+     *
+     * @param feed  the feed
+     * @param queue the queue to put batches on
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    private static void split(final ByteBuffer feed,
+                              final BlockingQueue<Batch> queue) throws InterruptedException
+    {
+        final int limit;
+        int[]     starts;
+        int[]     ends;
+        int       count;
+        long      lineNumber;
+        int       lineStart;
+
+        limit      = feed.limit();
+        starts     = new int[BATCH_LINES];
+        ends       = new int[BATCH_LINES];
+        count      = 0;
+        lineNumber = FIRST_LINE;
+        lineStart  = 0;
+
+        while(lineStart < limit)
+        {
+            int lineEnd;
+            int next;
+
+            lineEnd = lineStart;
+            while(lineEnd < limit && feed.get(lineEnd) != LINE_FEED)
+            {
+                lineEnd++;
+            }
+            next = lineEnd + 1;
+            if(lineEnd > lineStart && feed.get(lineEnd - 1) == CARRIAGE_RETURN)
+            {
+                lineEnd--;
+            }
+
+            starts[count] = lineStart;
+            ends[count]   = lineEnd;
+            count++;
+            if(count == BATCH_LINES)
+            {
+                queue.put(new Batch(starts, ends, count, lineNumber));
+                lineNumber += count;
+                starts      = new int[BATCH_LINES];
+                ends        = new int[BATCH_LINES];
+                count       = 0;
+            }
+            lineStart = next;
+        }
+
+        if(count > 0)
+        {
+            queue.put(new Batch(starts, ends, count, lineNumber));
+        }
+    }
+
+    /**
+     * Ends the workers and waits for them. Unless the calling thread was interrupted, each is sent
+     * END_OF_FEED after the batches already queued. If it was, its interrupt flag is cleared first, so the
+     * waits here are not cut short, and the workers are interrupted instead; the flag is set again before
+     * returning.
+     *
+     * @param queue   the queue the workers take batches from
+     * @param threads the workers
+     */
+    private static void stop(final BlockingQueue<Batch> queue,
+                             final Thread[] threads)
+    {
+        boolean interrupted;
+
+        interrupted = Thread.interrupted();
+        for(int i = 0; i < threads.length && !interrupted; i++)
+        {
+            try
+            {
+                queue.put(END_OF_FEED);
+            }
+            catch(final InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+        {
+            for(final Thread thread : threads)
+            {
+                thread.interrupt();
+            }
+        }
+        for(final Thread thread : threads)
+        {
+            while(thread.isAlive())
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch(final InterruptedException e)
+                {
+                    interrupted = true;
+                    thread.interrupt();
+                }
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs on a worker thread, loading the lines of each batch until the end of the feed.
+     *
+     * @param feed   the feed
+     * @param kind   what the feed holds
+     * @param queue  the queue to take batches from
+     * @param loaded counts the records loaded
+     * @param failed counts the lines rejected
+     */
+    private void work(final ByteBuffer feed,
+                      final Kind kind,
+                      final BlockingQueue<Batch> queue,
+                      final LongAdder loaded,
+                      final LongAdder failed)
+    {
+        final FeedCursor cursor;
+
+        cursor = new FeedCursor(feed);
+        try
+        {
+            Batch batch;
+
+            batch = queue.take();
+            while(batch != END_OF_FEED)
+            {
+                for(int i = 0; i < batch.count(); i++)
+                {
+                    final int start;
+                    final int end;
+
+                    start = batch.starts()[i];
+                    end   = batch.ends()[i];
+                    if(start == end || feed.get(start) == COMMENT)
+                    {
+                        continue;
+                    }
+
+                    if(loadLine(feed, kind, cursor, batch.firstLineNumber() + i, start, end))
+                    {
+                        loaded.increment();
+                    }
+                    else
+                    {
+                        failed.increment();
+                    }
+                }
+                batch = queue.take();
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads one line, passing it to the rejected-row consumer if it is not loaded. A RuntimeException from
+     * loading it or from the consumer rejects the line rather than ending the worker.
+     *
+     * @param feed       the feed
+     * @param kind       what the feed holds
+     * @param cursor     the worker's cursor
+     * @param lineNumber the line number, counting from 1
+     * @param start      the index of the first byte of the line
+     * @param end        the index after the last byte of the line
+     * @return true if the record was added to the bank
+     */
+    private boolean loadLine(final ByteBuffer feed,
+                             final Kind kind,
+                             final FeedCursor cursor,
+                             final long lineNumber,
+                             final int start,
+                             final int end)
+    {
+        try
+        {
+            final ValidationError error;
+
+            cursor.startLine(start, end);
+            error = kind == Kind.CLIENTS ? loadClient(cursor) : loadAccount(cursor);
+            if(error == ValidationError.OK)
+            {
+                return true;
+            }
+
+            rejected.accept(new RejectedRow(lineNumber,
+                                            text(feed, start, end),
+                                            error));
+        }
+        catch(final RuntimeException e)
+        {
+            return false;
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses a client feed line and adds the client to the bank.
+     *
+     * @param cursor the cursor at the start of the line
+     * @return OK if the client was added, otherwise why it was not
+     */
+    private ValidationError loadClient(final FeedCursor cursor)
+    {
+        final String    clientID;
+        final String    firstName;
+        final String    lastName;
+        final Date      birthDate;
+        final Date      deathDate;
+        final Date      signupDate;
+        final Name      name;
+        ValidationError error;
+
+        clientID   = cursor.nextString();
+        firstName  = cursor.nextName();
+        lastName   = cursor.nextName();
+        birthDate  = cursor.nextDate();
+        deathDate  = cursor.nextOptionalDate();
+        signupDate = cursor.nextDate();
+        cursor.endLine();
+
+        error = cursor.getError();
+        if(error == ValidationError.OK)
+        {
+            error = Name.check(firstName, lastName);
+        }
+        if(error != ValidationError.OK)
+        {
+            return error;
+        }
+
+        name  = Name.of(firstName, lastName);
+        error = BankClient.check(name, birthDate, deathDate, signupDate, clientID);
+        if(error != ValidationError.OK)
+        {
+            return error;
+        }
+
+        return bank.tryAddClient(BankClient.ofTrusted(name,
+                                                      birthDate,
+                                                      deathDate,
+                                                      signupDate,
+                                                      clientID));
+    }
+
+    /**
+     * Parses an account feed line and adds the account to the bank.
+     *
+     * @param cursor the cursor at the start of the line
+     * @return OK if the account was added, otherwise why it was not
+     */
+    private ValidationError loadAccount(final FeedCursor cursor)
+    {
+        final String     accountNumber;
+        final long       clientKey;
+        final int        pin;
+        final Date       opened;
+        final Date       closed;
+        final long       balanceCents;
+        final BankClient client;
+        ValidationError  error;
+
+        accountNumber = cursor.nextString();
+        clientKey     = cursor.nextPackedId();
+        pin           = cursor.nextInt();
+        opened        = cursor.nextDate();
+        closed        = cursor.nextOptionalDate();
+        balanceCents  = cursor.nextCents();
+        cursor.endLine();
+
+        error = cursor.getError();
+        if(error != ValidationError.OK)
+        {
+            return error;
+        }
+
+        client = bank.getClient(clientKey);
+        if(client == null)
+        {
+            return ValidationError.UNKNOWN_CLIENT;
+        }
+
+        error = BankAccount.check(client, pin, accountNumber, opened, closed, balanceCents);
+        if(error != ValidationError.OK)
+        {
+            return error;
+        }
+
+        return bank.tryAddAccount(BankAccount.ofTrusted(client,
+                                                        pin,
+                                                        accountNumber,
+                                                        opened,
+                                                        closed,
+                                                        balanceCents));
+    }
+
+    /**
+     * Decodes a line of the feed, for reporting a rejected line.
+     *
+     * @param feed  the feed
+     * @param start the index of the first byte of the line
+     * @param end   the index after the last byte of the line
+     * @return the line
+     */
+    private static String text(final ByteBuffer feed,
+                               final int start,
+                               final int end)
+    {
+        final byte[] bytes;
+
+        bytes = new byte[end - start];
+        feed.get(start, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
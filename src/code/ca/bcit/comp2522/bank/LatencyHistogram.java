@@ -0,0 +1,162 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets, in the style of HdrHistogram:
+ * every power of two is split into SUB_BUCKETS equal buckets, so any recorded value is known to within
+ * about 6% at every scale from a few nanoseconds to MAX_EXPONENT powers of two (about 18 minutes),
+ * in a fixed BUCKETS buckets. Larger values land in the last bucket.
+ * <p>
+ * Each bucket is a LongAdder so threads recording at once do not fight over one counter.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT    = 40;
+    private static final int LAST_BIT        = Long.SIZE - 1;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets;
+
+    /**
+     * Constructs an empty LatencyHistogram.
+     */
+    LatencyHistogram()
+    {
+        this.buckets = new LongAdder[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(final long nanos)
+    {
+        buckets[bucketOf(nanos)].increment();
+    }
+
+    /**
+     * Returns how many latencies are in each bucket. Latencies recorded while this runs may or may not be counted.
+     *
+     * @return the count for each bucket, BUCKETS long
+     */
+    long[] snapshot()
+    {
+        final long[] counts;
+
+        counts = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            counts[i] = buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Forgets every latency recorded so far.
+     */
+    void reset()
+    {
+        for(final LongAdder bucket : buckets)
+        {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * Returns the latency at or below which the given fraction of the counted latencies fall,
+     * rounded up to the highest value of its bucket.
+     *
+     * @param counts   the bucket counts, as returned by snapshot
+     * @param fraction the fraction, such as 0.99 for the 99th percentile
+     * @return the latency in nanoseconds, or 0 if nothing was counted
+     */
+    static long percentile(final long[] counts,
+                           final double fraction)
+    {
+        final long target;
+        long       total;
+        long       seen;
+
+        total = 0;
+        for(final long count : counts)
+        {
+            total += count;
+        }
+        if(total == 0)
+        {
+            return 0;
+        }
+
+        target = Math.max(1, (long) Math.ceil(total * fraction));
+        seen   = 0;
+        for(int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if(seen >= target)
+            {
+                return highestValueIn(i);
+            }
+        }
+
+        return highestValueIn(counts.length - 1);
+    }
+
+    /**
+     * Returns the bucket a value falls in.
+     *
+     * @param value the value
+     * @return the index of its bucket
+     */
+    static int bucketOf(final long value)
+    {
+        final int exponent;
+
+        if(value < SUB_BUCKETS)
+        {
+            return (int) Math.max(0, value);
+        }
+
+        exponent = LAST_BIT - Long.numberOfLeadingZeros(value);
+        if(exponent > MAX_EXPONENT)
+        {
+            return BUCKETS - 1;
+        }
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS +
+               (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the highest value in it
+     */
+    static long highestValueIn(final int bucket)
+    {
+        final int shift;
+
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        shift = bucket / SUB_BUCKETS - 1;
+
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
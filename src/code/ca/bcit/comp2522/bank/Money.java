@@ -0,0 +1,177 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Arithmetic and formatting for amounts of money held as a long number of cents.
+ * Cents are exact where a double number of dollars is not (0.1 + 0.2 is not 0.3), adding them never rounds,
+ * and every operation here throws ArithmeticException instead of silently wrapping around on overflow.
+ * The USD methods convert to and from the double API that BankAccount offered before it kept cents.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+final class Money
+{
+    static final long CENTS_PER_DOLLAR = 100L;
+    static final long NOT_AN_AMOUNT    = -1L;
+
+    private static final int    CENTS_PER_DIME = 10;
+    private static final double MAX_USD        = Long.MAX_VALUE / (double) CENTS_PER_DOLLAR;
+    private static final char   DECIMAL_POINT  = '.';
+    private static final char   MINUS_SIGN     = '-';
+    private static final char   ZERO_DIGIT     = '0';
+    private static final int    DECIMAL_BASE   = 10;
+    private static final int    CENTS_DIGITS   = 2;
+    private static final int    MAX_DIGITS     = 16;
+
+    /**
+     * Not instantiable; all methods are static.
+     */
+    private Money()
+    {
+    }
+
+    /**
+     * Converts an amount in USD to whole cents, rounding to the nearest cent.
+     *
+     * @param amountUsd the amount in USD (finite, and small enough to fit in a long number of cents)
+     * @return the amount in cents
+     */
+    static long ofUsd(final double amountUsd)
+    {
+        if(!(Math.abs(amountUsd) < MAX_USD))
+        {
+            throw new IllegalArgumentException("Amount cannot be held in cents: " + amountUsd);
+        }
+
+        return Math.round(amountUsd * CENTS_PER_DOLLAR);
+    }
+
+    /**
+     * Parses a non-negative amount of dollars with up to two decimal places, such as 12, 12.5 or 12.50,
+     * straight to cents without going through a double, and without throwing.
+     *
+     * @param text the amount
+     * @return the amount in cents, or NOT_AN_AMOUNT if the text is not such an amount
+     */
+    static long parseCents(final CharSequence text)
+    {
+        if(text == null || text.length() == 0 || text.length() > MAX_DIGITS)
+        {
+            return NOT_AN_AMOUNT;
+        }
+
+        long    cents;
+        int     decimals;
+        boolean afterPoint;
+
+        cents      = 0;
+        decimals   = 0;
+        afterPoint = false;
+        for(int i = 0; i < text.length(); i++)
+        {
+            final char c;
+
+            c = text.charAt(i);
+            if(c == DECIMAL_POINT && !afterPoint)
+            {
+                afterPoint = true;
+            }
+            else if(c < ZERO_DIGIT || c >= ZERO_DIGIT + DECIMAL_BASE || (afterPoint && decimals == CENTS_DIGITS))
+            {
+                return NOT_AN_AMOUNT;
+            }
+            else
+            {
+                cents = cents * DECIMAL_BASE + (c - ZERO_DIGIT);
+                if(afterPoint)
+                {
+                    decimals++;
+                }
+            }
+        }
+        for(; decimals < CENTS_DIGITS; decimals++)
+        {
+            cents *= DECIMAL_BASE;
+        }
+
+        return cents;
+    }
+
+    /**
+     * Converts an amount in cents to USD.
+     *
+     * @param cents the amount in cents
+     * @return the nearest double amount in USD
+     */
+    static double toUsd(final long cents)
+    {
+        return (double) cents / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Adds two amounts.
+     *
+     * @param cents      the first amount in cents
+     * @param otherCents the second amount in cents
+     * @return the sum in cents
+     * @throws ArithmeticException if the sum does not fit in a long
+     */
+    static long add(final long cents,
+                    final long otherCents)
+    {
+        return Math.addExact(cents, otherCents);
+    }
+
+    /**
+     * Appends an amount as dollars and cents without creating any objects, for example 1000.0, 12.5 or 0.07.
+     * Trailing zero cents are dropped but at least one digit follows the decimal point, which is how
+     * StringBuilder.append(double) writes the same amount in dollars up to ten million dollars;
+     * larger amounts are still written in full rather than in E notation.
+     *
+     * @param out   the builder to append to
+     * @param cents the amount in cents
+     * @return out
+     */
+    static StringBuilder appendUsd(final StringBuilder out,
+                                   final long cents)
+    {
+        final long dollars;
+        final int  remainder;
+
+        if(cents < 0)
+        {
+            out.append(MINUS_SIGN);
+        }
+
+        dollars   = Math.abs(cents / CENTS_PER_DOLLAR);
+        remainder = (int) Math.abs(cents % CENTS_PER_DOLLAR);
+
+        out.append(dollars).append(DECIMAL_POINT);
+        if(remainder % CENTS_PER_DIME == 0)
+        {
+            out.append(remainder / CENTS_PER_DIME);
+        }
+        else
+        {
+            if(remainder < CENTS_PER_DIME)
+            {
+                out.append(ZERO_DIGIT);
+            }
+            out.append(remainder);
+        }
+
+        return out;
+    }
+
+    /**
+     * Formats an amount as dollars and cents the same way appendUsd does.
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    static String formatUsd(final long cents)
+    {
+        return appendUsd(new StringBuilder(), cents).toString();
+    }
+}
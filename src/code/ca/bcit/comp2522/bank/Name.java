@@ -3,6 +3,8 @@ package ca.bcit.comp2522.bank;
 /**
  * Represents a person's full name with first and last names.
  * Includes methods to retrieve full name, initials and reversed name.
+ * The full name, initials and reversed name are built on first use and reused afterwards.
+ * Name.of also shares equal first and last name Strings between Names through a fixed-size pool.
  *
  * @author Mohammad Sadeghi
  * @author Ryan Chu
@@ -13,10 +15,29 @@ class Name
     private static final int MAX_FIRST_LAST_NAME_LEN = 44;
     private static final int FIRST_CHAR_OF_NAME  = 0;
     private static final int SECOND_CHAR_OF_NAME = 1;
+    private static final int POOL_SLOTS          = 4096;
+    private static final int POOL_MASK           = POOL_SLOTS - 1;
+    private static final int HALF_INT_BITS       = Integer.SIZE / 2;
+
+    /*
+     * Recent first and last names passed to Name.of, one per slot chosen by hash, so common names are held
+     * in memory once while the pool never holds more than POOL_SLOTS Strings. A name whose slot holds a
+     * different one replaces it. Slots are read and written without locking: a String is immutable and
+     * safely published, so a race only costs a missed share.
+     */
+    private static final String[] POOL = new String[POOL_SLOTS];
 
     private final String firstName;
     private final String lastName;
 
+    /*
+     * Built on first use. A Name never changes and String is immutable, so threads that race to
+     * build one of these produce equal Strings and any of them may be kept.
+     */
+    private String fullName;
+    private String initials;
+    private String reverseName;
+
     /**
      * Constructs a Name object with provided first and last name.
      * Validates the first name and the last name to make sure they meet the requirements.
@@ -27,13 +48,115 @@ class Name
     public Name(final String firstName,
                 final String lastName)
     {
-        validateName(firstName);
-        validateName(lastName);
+        this(firstName,
+             lastName,
+             true);
+    }
+
+    /**
+     * Constructs a Name object, validating it only if asked to.
+     *
+     * @param firstName the first name to be set
+     * @param lastName  the last name to be set
+     * @param validate  whether to validate the names
+     */
+    private Name(final String firstName,
+                 final String lastName,
+                 final boolean validate)
+    {
+        if(validate)
+        {
+            validateName(firstName);
+            validateName(lastName);
+        }
 
         this.firstName = firstName;
         this.lastName  = lastName;
     }
 
+    /**
+     * Creates a validated Name whose first and last name Strings come from a shared pool,
+     * so Names with the same common first or last name usually hold the same String.
+     *
+     * @param firstName the first name to be set
+     * @param lastName  the last name to be set
+     * @return the Name
+     */
+    public static Name of(final String firstName,
+                          final String lastName)
+    {
+        validateName(firstName);
+        validateName(lastName);
+
+        return new Name(pooled(firstName),
+                        pooled(lastName),
+                        false);
+    }
+
+    /**
+     * Checks whether the given first and last names make a valid Name, without throwing.
+     * Uses the same rules as the constructor.
+     *
+     * @param firstName the first name
+     * @param lastName  the last name
+     * @return OK if the constructor would accept them, otherwise the first problem found
+     */
+    static ValidationError check(final String firstName,
+                                 final String lastName)
+    {
+        if(!isValidName(firstName))
+        {
+            return ValidationError.FIRST_NAME_INVALID;
+        }
+        if(!isValidName(lastName))
+        {
+            return ValidationError.LAST_NAME_INVALID;
+        }
+
+        return ValidationError.OK;
+    }
+
+    /**
+     * Returns the pooled String equal to the given one, or puts the given one in its slot if the slot
+     * holds a different name. The hash is spread the way StripedLocks does.
+     *
+     * @param name the name to look up
+     * @return the pooled String, or name itself
+     */
+    private static String pooled(final String name)
+    {
+        final int    hash;
+        final int    slot;
+        final String existing;
+
+        hash     = name.hashCode();
+        slot     = (hash ^ (hash >>> HALF_INT_BITS)) & POOL_MASK;
+        existing = POOL[slot];
+        if(name.equals(existing))
+        {
+            return existing;
+        }
+
+        POOL[slot] = name;
+
+        return name;
+    }
+
+    /**
+     * Creates a Name without validating it, for names read back from a trusted BankSnapshot.
+     *
+     * @param firstName the first name, already known to be valid
+     * @param lastName  the last name, already known to be valid
+     * @return the Name
+     */
+    static Name ofTrusted(final String firstName,
+                          final String lastName)
+    {
+        return new Name(firstName,
+                        lastName,
+                        false);
+    }
+
     /**
      * Accessor method for first name.
      *
@@ -65,17 +188,26 @@ class Name
      */
     private static void validateName(final String name)
     {
-
-        if(name == null ||
-           name.isBlank() ||
-           name.contains("admin") ||
-           name.length() > MAX_FIRST_LAST_NAME_LEN)
-
+        if(!isValidName(name))
         {
             throw new IllegalArgumentException("Bad name: " + name);
         }
     }
 
+    /**
+     * Checks the given name against the rules listed on validateName.
+     *
+     * @param name the name to check
+     * @return true if the name is valid
+     */
+    private static boolean isValidName(final String name)
+    {
+        return name != null &&
+               !name.isBlank() &&
+               !name.contains("admin") &&
+               name.length() <= MAX_FIRST_LAST_NAME_LEN;
+    }
+
     /**
      * Gets the initials of the full name in the form of "F.L.".
      *
@@ -83,11 +215,17 @@ class Name
      */
     public String getInitials()
     {
-        final String initials;
+        String cached;
 
-        initials = Character.toUpperCase(firstName.charAt(FIRST_CHAR_OF_NAME)) + "." +
-                   Character.toUpperCase(lastName.charAt(FIRST_CHAR_OF_NAME)) + ".";
-        return initials;
+        cached = this.initials;
+        if(cached == null)
+        {
+            cached = Character.toUpperCase(firstName.charAt(FIRST_CHAR_OF_NAME)) + "." +
+                     Character.toUpperCase(lastName.charAt(FIRST_CHAR_OF_NAME)) + ".";
+            this.initials = cached;
+        }
+
+        return cached;
     }
 
     /**
@@ -98,15 +236,20 @@ class Name
      */
     public String getFullName()
     {
-        final String fullName;
+        String cached;
 
-        fullName =
-                Character.toUpperCase(firstName.charAt(FIRST_CHAR_OF_NAME)) +
-                firstName.substring(SECOND_CHAR_OF_NAME).toLowerCase() + " " +
-                Character.toUpperCase(lastName.charAt(FIRST_CHAR_OF_NAME)) +
-                lastName.substring(SECOND_CHAR_OF_NAME).toLowerCase();
+        cached = this.fullName;
+        if(cached == null)
+        {
+            cached =
+                    Character.toUpperCase(firstName.charAt(FIRST_CHAR_OF_NAME)) +
+                    firstName.substring(SECOND_CHAR_OF_NAME).toLowerCase() + " " +
+                    Character.toUpperCase(lastName.charAt(FIRST_CHAR_OF_NAME)) +
+                    lastName.substring(SECOND_CHAR_OF_NAME).toLowerCase();
+            this.fullName = cached;
+        }
 
-        return fullName;
+        return cached;
     }
 
     /**
@@ -117,18 +260,24 @@ class Name
      */
     public String getReverseName()
     {
-        final StringBuilder reversedName;
-        final String        str;
+        String cached;
+
+        cached = this.reverseName;
+        if(cached == null)
+        {
+            final StringBuilder reversedName;
 
-        reversedName = new StringBuilder();
+            reversedName = new StringBuilder();
 
-        reversedName.append(firstName);
-        reversedName.append(" ");
-        reversedName.append(lastName);
-        reversedName.reverse();
+            reversedName.append(firstName);
+            reversedName.append(" ");
+            reversedName.append(lastName);
+            reversedName.reverse();
 
-        str = reversedName.toString();
+            cached           = reversedName.toString();
+            this.reverseName = cached;
+        }
 
-        return str;
+        return cached;
     }
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds clients by the start of a name, or by a name that may be misspelled, without looking at every client.
+ * Each client is indexed under three lowercase terms: the first name, the last name, and both together
+ * separated by a space, so "kah", "frida" and "frida k" all find Frida Kahlo.
+ * <p>
+ * Terms are kept in a sorted concurrent map, so a prefix lookup is a seek to the prefix and a walk forward
+ * over the terms that start with it. Every distinct first and last name is also kept once in a BkTree for
+ * misspelled names, so it grows with the number of different names rather than the number of clients.
+ * Full names are left out of the BkTree: nearly every client has a different one, and a misspelled name is
+ * almost always typed as just the first or the last name.
+ * The map needs no locking; the BkTree is guarded by a read-write lock, and is only written the first time
+ * a term is seen.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class NameIndex
+{
+    private static final String TERM_SEPARATOR = " ";
+
+    private static final Comparator<BkTree.Match> CLOSEST_FIRST =
+            Comparator.comparingInt(BkTree.Match::distance).thenComparing(BkTree.Match::term);
+
+    private final ConcurrentNavigableMap<String, Queue<BankClient>> clientsByTerm;
+    private final BkTree                                            terms;
+    private final ReadWriteLock                                     termsLock;
+
+    /**
+     * Constructs an empty NameIndex.
+     */
+    NameIndex()
+    {
+        this.clientsByTerm = new ConcurrentSkipListMap<>();
+        this.terms         = new BkTree();
+        this.termsLock     = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Indexes a client under its name.
+     *
+     * @param client the client (not null)
+     */
+    void add(final BankClient client)
+    {
+        final String first;
+        final String last;
+
+        first = normalize(client.getName().getFirst());
+        last  = normalize(client.getName().getLast());
+
+        addTerm(first, client, true);
+        if(!last.equals(first))
+        {
+            addTerm(last, client, true);
+        }
+        addTerm(first + TERM_SEPARATOR + last, client, false);
+    }
+
+    /**
+     * Returns the clients with a first name, last name or full name starting with the given prefix,
+     * ignoring case, in order of the matching name.
+     *
+     * @param prefix the start of the name
+     * @param limit  the most clients to return
+     * @return a new list of at most limit clients
+     */
+    List<BankClient> findByPrefix(final String prefix,
+                                  final int limit)
+    {
+        final String          normalized;
+        final Set<BankClient> found;
+
+        normalized = normalize(prefix);
+        found      = new LinkedHashSet<>();
+
+        for(final Map.Entry<String, Queue<BankClient>> entry : clientsByTerm.tailMap(normalized).entrySet())
+        {
+            if(found.size() >= limit || !entry.getKey().startsWith(normalized))
+            {
+                break;
+            }
+            addUpTo(found, entry.getValue(), limit);
+        }
+
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Returns the clients whose first or last name is within maxDistance edits of the given name,
+     * ignoring case, closest first.
+     *
+     * @param name        the name, possibly misspelled
+     * @param maxDistance the most single-character insertions, deletions and substitutions to allow
+     * @param limit       the most clients to return
+     * @return a new list of at most limit clients
+     */
+    List<BankClient> findBySimilarName(final String name,
+                                       final int maxDistance,
+                                       final int limit)
+    {
+        final List<BkTree.Match> matches;
+        final Set<BankClient>    found;
+
+        termsLock.readLock().lock();
+        try
+        {
+            matches = terms.search(normalize(name), maxDistance);
+        }
+        finally
+        {
+            termsLock.readLock().unlock();
+        }
+
+        matches.sort(CLOSEST_FIRST);
+        found = new LinkedHashSet<>();
+        for(final BkTree.Match match : matches)
+        {
+            if(found.size() >= limit)
+            {
+                break;
+            }
+            addUpTo(found, clientsByTerm.get(match.term()), limit);
+        }
+
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Indexes a client under one term, adding the term to the BkTree if it is new and asked for.
+     *
+     * @param term   the term
+     * @param client the client
+     * @param fuzzy  whether the term can be found by findBySimilarName
+     */
+    private void addTerm(final String term,
+                         final BankClient client,
+                         final boolean fuzzy)
+    {
+        Queue<BankClient> clients;
+
+        clients = clientsByTerm.get(term);
+        if(clients == null)
+        {
+            final Queue<BankClient> created;
+
+            created = new ConcurrentLinkedQueue<>();
+            clients = clientsByTerm.putIfAbsent(term, created);
+            if(clients == null)
+            {
+                clients = created;
+                if(fuzzy)
+                {
+                    addFuzzyTerm(term);
+                }
+            }
+        }
+
+        clients.add(client);
+    }
+
+    /**
+     * Adds a term to the BkTree.
+     *
+     * @param term the term
+     */
+    private void addFuzzyTerm(final String term)
+    {
+        termsLock.writeLock().lock();
+        try
+        {
+            terms.add(term);
+        }
+        finally
+        {
+            termsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds clients to a set until it holds limit of them.
+     *
+     * @param found   the set to add to
+     * @param clients the clients to add
+     * @param limit   the most clients the set may hold
+     */
+    private static void addUpTo(final Set<BankClient> found,
+                                final Collection<BankClient> clients,
+                                final int limit)
+    {
+        for(final BankClient client : clients)
+        {
+            if(found.size() >= limit)
+            {
+                return;
+            }
+            found.add(client);
+        }
+    }
+
+    /**
+     * Puts a name or query in the form terms are kept in.
+     *
+     * @param name the name
+     * @return the name trimmed and in lowercase
+     */
+    private static String normalize(final String name)
+    {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
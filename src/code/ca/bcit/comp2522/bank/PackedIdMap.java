@@ -0,0 +1,277 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A hash map keyed by account numbers and client IDs packed into longs.
+ * IDs are at most seven Latin-1 characters, so each fits in one long with its length in the top byte,
+ * and the map stores keys in a primitive array with open addressing instead of boxing or hashing Strings.
+ * Values are also kept in insertion order, so iteration is in the order entries were added
+ * rather than in hash order.
+ * <p>
+ * Not thread-safe on its own; callers guard it with their own lock.
+ *
+ * @param <V> the type of the values stored
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class PackedIdMap<V>
+{
+    static final long NO_KEY = 0L;
+
+    private static final int  MAX_ID_LENGTH     = 7;
+    private static final int  BITS_PER_CHAR     = 8;
+    private static final int  MAX_PACKED_CHAR   = 0xFF;
+    private static final int  MAX_ASCII_BYTE    = 0x7F;
+    private static final int  LENGTH_SHIFT      = 56;
+    private static final long EMPTY_KEY         = NO_KEY;
+    private static final int  INITIAL_CAPACITY  = 16;
+    private static final int  MAX_LOAD_DIVISOR  = 2;
+    private static final int  GROWTH_FACTOR     = 2;
+    private static final long HASH_MULTIPLIER   = 0x9E3779B97F4A7C15L;
+    private static final int  BITS_PER_LONG     = 64;
+
+    private long[]   keys;
+    private Object[] values;
+    private Object[] inserted;
+    private int      size;
+    private int      shift;
+
+    /**
+     * Constructs an empty PackedIdMap.
+     */
+    PackedIdMap()
+    {
+        this.keys     = new long[INITIAL_CAPACITY];
+        this.values   = new Object[INITIAL_CAPACITY];
+        this.inserted = new Object[INITIAL_CAPACITY];
+        this.size     = 0;
+        this.shift    = BITS_PER_LONG - Integer.numberOfTrailingZeros(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Packs an account number or client ID into a long.
+     * The length goes in the top byte so the result is never EMPTY_KEY.
+     *
+     * @param id the ID to pack (1 - MAX_ID_LENGTH Latin-1 characters)
+     * @return the packed key
+     */
+    static long pack(final String id)
+    {
+        final long key;
+
+        key = tryPack(id);
+        if(key == NO_KEY)
+        {
+            throw new IllegalArgumentException("ID must be between 1 and " + MAX_ID_LENGTH + " Latin-1 characters: " + id);
+        }
+
+        return key;
+    }
+
+    /**
+     * Packs an account number or client ID into a long as pack does, without throwing.
+     *
+     * @param id the ID to pack
+     * @return the packed key, or NO_KEY if the ID is null, empty, too long or not Latin-1
+     */
+    static long tryPack(final String id)
+    {
+        if(id == null || id.isEmpty() || id.length() > MAX_ID_LENGTH)
+        {
+            return NO_KEY;
+        }
+
+        long key;
+
+        key = (long) id.length() << LENGTH_SHIFT;
+        for(int i = 0; i < id.length(); i++)
+        {
+            final char c;
+
+            c = id.charAt(i);
+            if(c > MAX_PACKED_CHAR)
+            {
+                return NO_KEY;
+            }
+            key |= (long) c << (i * BITS_PER_CHAR);
+        }
+
+        return key;
+    }
+
+    /**
+     * Packs an ID read straight from bytes, such as a field of a feed file, without making a String.
+     * Gives the same key as pack does for the same ID. Only ASCII bytes are accepted, since any other
+     * byte may be part of a multi-byte character.
+     *
+     * @param bytes the buffer holding the ID
+     * @param from  the index of the first byte of the ID
+     * @param to    the index after the last byte of the ID
+     * @return the packed key, or NO_KEY if the ID is empty, too long or not ASCII
+     */
+    static long tryPack(final ByteBuffer bytes,
+                        final int from,
+                        final int to)
+    {
+        final int length;
+
+        length = to - from;
+        if(length < 1 || length > MAX_ID_LENGTH)
+        {
+            return NO_KEY;
+        }
+
+        long key;
+
+        key = (long) length << LENGTH_SHIFT;
+        for(int i = 0; i < length; i++)
+        {
+            final int b;
+
+            b = bytes.get(from + i);
+            if(b < 0 || b > MAX_ASCII_BYTE)
+            {
+                return NO_KEY;
+            }
+            key |= (long) b << (i * BITS_PER_CHAR);
+        }
+
+        return key;
+    }
+
+    /**
+     * Returns the value stored for the given key.
+     *
+     * @param key the packed key to look up
+     * @return the value, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(final long key)
+    {
+        int slot;
+
+        slot = slotFor(key);
+        while(keys[slot] != EMPTY_KEY)
+        {
+            if(keys[slot] == key)
+            {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Stores the value for the given key unless the key is already present.
+     *
+     * @param key   the packed key
+     * @param value the value to store (not null)
+     * @return the value already stored for the key, or null if the given value was stored
+     */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(final long key,
+                  final V value)
+    {
+        int slot;
+
+        slot = slotFor(key);
+        while(keys[slot] != EMPTY_KEY)
+        {
+            if(keys[slot] == key)
+            {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        if(size == inserted.length)
+        {
+            inserted = Arrays.copyOf(inserted, inserted.length * GROWTH_FACTOR);
+        }
+
+        keys[slot]     = key;
+        values[slot]   = value;
+        inserted[size] = value;
+        size++;
+
+        if(size > keys.length / MAX_LOAD_DIVISOR)
+        {
+            grow();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return the number of entries
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Passes every stored value to the given action, in the order they were added.
+     *
+     * @param action the action to run on each value
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(final Consumer<? super V> action)
+    {
+        for(int i = 0; i < size; i++)
+        {
+            action.accept((V) inserted[i]);
+        }
+    }
+
+    /**
+     * Finds the home slot of a key with Fibonacci hashing.
+     *
+     * @param key the packed key
+     * @return the slot index
+     */
+    private int slotFor(final long key)
+    {
+        return (int) ((key * HASH_MULTIPLIER) >>> shift);
+    }
+
+    /**
+     * Doubles the table and re-inserts every entry.
+     */
+    private void grow()
+    {
+        final long[]   oldKeys;
+        final Object[] oldValues;
+
+        oldKeys   = keys;
+        oldValues = values;
+
+        keys   = new long[oldKeys.length * GROWTH_FACTOR];
+        values = new Object[oldValues.length * GROWTH_FACTOR];
+        shift--;
+
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] != EMPTY_KEY)
+            {
+                int slot;
+
+                slot = slotFor(oldKeys[i]);
+                while(keys[slot] != EMPTY_KEY)
+                {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot]   = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
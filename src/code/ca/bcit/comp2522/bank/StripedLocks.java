@@ -0,0 +1,111 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out among accounts by account number, so an operation touching several accounts
+ * can hold all of them without a lock per account. Two accounts that share a stripe simply share its lock.
+ * <p>
+ * Locks are always taken in ascending stripe order and released in the reverse order, so two threads that
+ * each lock a pair of accounts can never wait on each other in a cycle, whichever way round they name them.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class StripedLocks
+{
+    private static final int HALF_INT_BITS = Integer.SIZE / 2;
+
+    private final ReentrantLock[] stripes;
+    private final int             mask;
+
+    /**
+     * Constructs a StripedLocks.
+     *
+     * @param stripes the number of locks (a power of two)
+     */
+    StripedLocks(final int stripes)
+    {
+        if(stripes <= 0 || Integer.bitCount(stripes) != 1)
+        {
+            throw new IllegalArgumentException("Stripe count must be a positive power of two, got: " + stripes);
+        }
+
+        this.stripes = new ReentrantLock[stripes];
+        this.mask    = stripes - 1;
+        for(int i = 0; i < stripes; i++)
+        {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the stripe guarding an account.
+     *
+     * @param accountNumber the account number
+     * @return the index of the stripe
+     */
+    int stripeOf(final String accountNumber)
+    {
+        final int hash;
+
+        hash = accountNumber.hashCode();
+
+        return (hash ^ (hash >>> HALF_INT_BITS)) & mask;
+    }
+
+    /**
+     * Locks the stripes of two accounts, lower stripe first. Locks only one if they share it.
+     *
+     * @param first  the stripe of one account
+     * @param second the stripe of the other account
+     */
+    void lockPair(final int first,
+                  final int second)
+    {
+        stripes[Math.min(first, second)].lock();
+        if(first != second)
+        {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    /**
+     * Unlocks the stripes locked by lockPair, higher stripe first.
+     *
+     * @param first  the stripe of one account
+     * @param second the stripe of the other account
+     */
+    void unlockPair(final int first,
+                    final int second)
+    {
+        if(first != second)
+        {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    /**
+     * Locks every stripe, in ascending order.
+     */
+    void lockAll()
+    {
+        for(final ReentrantLock stripe : stripes)
+        {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Unlocks every stripe, in descending order.
+     */
+    void unlockAll()
+    {
+        for(int i = stripes.length - 1; i >= 0; i--)
+        {
+            stripes[i].unlock();
+        }
+    }
+}
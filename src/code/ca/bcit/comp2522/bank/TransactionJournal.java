@@ -0,0 +1,548 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An append-only, memory-mapped journal of BankAccount balance changes.
+ * Register it as a BalanceListener on each account and every deposit, withdrawal, interest credit and fee
+ * is written as a fixed-width binary record right after the account's balance changes. It is a redo log,
+ * not a write-ahead log: a crash can lose changes made since the last flush, and replaying the journal
+ * restores every change that reached the disk.
+ * <p>
+ * An append takes its slot by incrementing the sequence number, without locking, then writes the record
+ * into the mapped file, so deposits and withdrawals on different accounts never wait for each other.
+ * A daemon thread flushes to disk every syncIntervalMillis, and straight away once groupCommitSize records
+ * are waiting, and maps the next region of the file before the appends reach it, so no append makes a
+ * system call. Regions are mapped under their own lock, never the one held while flushing, so an append that
+ * does outrun the flush thread maps its region itself without waiting for a flush to finish. An append never throws: if the file cannot grow, the
+ * journal stops, counts every change from then on as lost, and reports the error from sync and close.
+ * <p>
+ * Each RECORD_SIZE byte record holds, in order: the sequence number (long, starting at 1),
+ * the packed account number (long), the amount in cents (long), the UTC epoch day of the change (int),
+ * or for INTEREST and FEE the epoch day of the AccrualEngine run they were accrued for,
+ * the TransactionType ordinal (byte) and padding. The sequence number is written last, so a record whose
+ * sequence is still 0 was never finished. The file is mapped in REGION_SIZE pieces and the unused tail is
+ * zero, so the first record with sequence 0 marks the end of the journal; opening the journal zeroes any
+ * records after that end, so they cannot be mistaken for new ones later.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class TransactionJournal implements BalanceListener, Closeable
+{
+    static final int RECORD_SIZE = 32;
+
+    private static final int  REGION_SIZE     = RECORD_SIZE * 131_072;
+    private static final long EMPTY_SEQUENCE  = 0L;
+    private static final long MILLIS_PER_DAY  = 86_400_000L;
+    private static final int  MIN_GROUP_SIZE  = 1;
+    private static final long MIN_SYNC_MILLIS = 1L;
+    private static final int  NO_PENDING      = 0;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int ACCOUNT_OFFSET  = 8;
+    private static final int AMOUNT_OFFSET   = 16;
+    private static final int DAY_OFFSET      = 24;
+    private static final int TYPE_OFFSET     = 28;
+
+    private static final TransactionType[]  TYPES           = TransactionType.values();
+    private static final MappedByteBuffer[] NO_REGIONS      = {};
+    private static final VarHandle          SEQUENCE_HANDLE = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                                    ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel                  channel;
+    private final int                          groupCommitSize;
+    private final long                         syncIntervalNanos;
+    private final AtomicLong                   lastSequence;
+    private final AtomicInteger                pending;
+    private final AtomicReference<IOException> failure;
+    private final LongAdder                    lost;
+    private final Object                       mapLock;
+    private final Thread                       flusher;
+
+    /*
+     * Every region mapped so far, by index. Grown under mapLock and copied on every change,
+     * so appends read it without locking.
+     */
+    private volatile MappedByteBuffer[] regions;
+    private volatile boolean            closed;
+    private int                         unforcedRegion;
+
+    /**
+     * Opens the journal at the given path, creating it if needed and continuing after its last record,
+     * and starts its daemon flush thread.
+     *
+     * @param path               the journal file
+     * @param groupCommitSize    how many waiting records make the flush thread flush at once
+     *                           (at least MIN_GROUP_SIZE)
+     * @param syncIntervalMillis the longest a record waits before it is flushed to disk
+     *                           (at least MIN_SYNC_MILLIS)
+     * @throws IOException if the file cannot be opened or mapped, or holds a corrupt record
+     */
+    TransactionJournal(final Path path,
+                       final int groupCommitSize,
+                       final long syncIntervalMillis) throws IOException
+    {
+        if(groupCommitSize < MIN_GROUP_SIZE)
+        {
+            throw new IllegalArgumentException("Group commit size must be at least " + MIN_GROUP_SIZE);
+        }
+        if(syncIntervalMillis < MIN_SYNC_MILLIS)
+        {
+            throw new IllegalArgumentException("Sync interval must be at least " + MIN_SYNC_MILLIS + " ms");
+        }
+
+        this.channel           = FileChannel.open(path,
+                                                  StandardOpenOption.CREATE,
+                                                  StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE);
+        this.groupCommitSize   = groupCommitSize;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.lastSequence      = new AtomicLong();
+        this.pending           = new AtomicInteger();
+        this.failure           = new AtomicReference<>();
+        this.lost              = new LongAdder();
+        this.mapLock           = new Object();
+        this.regions           = NO_REGIONS;
+
+        try
+        {
+            findEnd();
+        }
+        catch(final IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+
+        this.flusher = new Thread(this::flush, "transaction-journal");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Rebuilds balances by re-applying the records in the journal at the given path to the matching
+     * accounts in the bank. Records up to the bank's journal sequence are already in its balances, such as
+     * those a BankSnapshot was saved with, and are skipped, so replaying the same journal twice applies
+     * each record once. Afterwards the bank's journal sequence is the last record in the journal.
+     * Records for accounts the bank does not have are skipped.
+     *
+     * @param path the journal file to read
+     * @param bank the bank whose accounts are updated
+     * @return the number of records applied
+     * @throws IOException if the file cannot be read, holds a corrupt record, or ends before the bank's
+     *                     journal sequence
+     */
+    static long replay(final Path path,
+                       final Bank bank) throws IOException
+    {
+        final long after;
+        long       applied;
+        long       expected;
+
+        after    = bank.getJournalSequence();
+        applied  = 0;
+        try(final FileChannel in = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final long size;
+            long       start;
+
+            size     = in.size();
+            start    = Math.max(EMPTY_SEQUENCE, after - 1) * RECORD_SIZE / REGION_SIZE * REGION_SIZE;
+            expected = start / RECORD_SIZE + 1;
+
+            scan:
+            for(; start < size; start += REGION_SIZE)
+            {
+                final MappedByteBuffer records;
+
+                records = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+                for(int offset = 0; offset + RECORD_SIZE <= records.limit(); offset += RECORD_SIZE)
+                {
+                    final long        sequence;
+                    final BankAccount account;
+
+                    sequence = records.getLong(offset + SEQUENCE_OFFSET);
+                    if(sequence == EMPTY_SEQUENCE)
+                    {
+                        break scan;
+                    }
+                    checkRecord(records, offset, sequence, expected);
+                    expected++;
+                    if(sequence <= after)
+                    {
+                        continue;
+                    }
+
+                    account = bank.getAccount(records.getLong(offset + ACCOUNT_OFFSET));
+                    if(account != null)
+                    {
+                        account.applyReplayed(TYPES[records.get(offset + TYPE_OFFSET)],
+                                              records.getLong(offset + AMOUNT_OFFSET),
+                                              records.getInt(offset + DAY_OFFSET));
+                        applied++;
+                    }
+                }
+            }
+        }
+
+        if(expected - 1 < after)
+        {
+            throw new IOException("Journal ends at sequence " + (expected - 1) + " but the bank already includes " +
+                                  after + ": " + path);
+        }
+        bank.setJournalSequence(expected - 1);
+
+        return applied;
+    }
+
+    /**
+     * Appends a record for the balance change. Never blocks or throws; if the journal has stopped,
+     * the change is counted as lost instead.
+     *
+     * @param account      the account whose balance changed
+     * @param type         the kind of change
+     * @param amountCents  the amount moved in cents
+     * @param balanceCents the balance in cents after the change (not stored)
+     */
+    @Override
+    public void balanceChanged(final BankAccount account,
+                               final TransactionType type,
+                               final long amountCents,
+                               final long balanceCents)
+    {
+        final int day;
+
+        day = switch(type)
+        {
+            case INTEREST -> account.getInterestDay();
+            case FEE -> account.getFeeDay();
+            default -> (int) (System.currentTimeMillis() / MILLIS_PER_DAY);
+        };
+
+        append(PackedIdMap.pack(account.getAccountNumber()),
+               type,
+               amountCents,
+               day);
+    }
+
+    /**
+     * Returns the sequence number of the last record slot taken. A record still being written by another
+     * thread is counted.
+     *
+     * @return the last sequence number, or 0 if the journal is empty
+     */
+    public long getLastSequence()
+    {
+        return lastSequence.get();
+    }
+
+    /**
+     * Returns how many changes were not written because the journal had stopped after an I/O error.
+     *
+     * @return the number of lost changes
+     */
+    public long getLostCount()
+    {
+        return lost.sum();
+    }
+
+    /**
+     * Flushes every record already appended to disk.
+     *
+     * @throws UncheckedIOException if the journal has stopped after an I/O error
+     */
+    public synchronized void sync()
+    {
+        final MappedByteBuffer[] current;
+        final int                lastWritten;
+        final IOException        error;
+
+        if(pending.getAndSet(NO_PENDING) > NO_PENDING)
+        {
+            current     = regions;
+            lastWritten = Math.min(regionOf(lastSequence.get()), current.length - 1);
+            for(int i = unforcedRegion; i <= lastWritten; i++)
+            {
+                current[i].force();
+            }
+            unforcedRegion = Math.max(unforcedRegion, lastWritten);
+        }
+
+        error = failure.get();
+        if(error != null)
+        {
+            throw new UncheckedIOException("Transaction journal stopped", error);
+        }
+    }
+
+    /**
+     * Stops the flush thread, flushes the journal and closes the file.
+     *
+     * @throws IOException if the file cannot be closed, or the journal stopped after an I/O error
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try
+        {
+            flusher.join();
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            sync();
+        }
+        catch(final UncheckedIOException e)
+        {
+            channel.close();
+            throw e.getCause();
+        }
+        channel.close();
+    }
+
+    /**
+     * Takes the next slot and writes one record into it, mapping the next region first if the slot is past
+     * the last one mapped. The sequence number is written last, with release semantics, so the record is
+     * complete before it counts as written.
+     *
+     * @param accountKey  the packed account number
+     * @param type        the kind of change
+     * @param amountCents the amount moved in cents
+     * @param day         the epoch day to store with the change
+     */
+    private void append(final long accountKey,
+                        final TransactionType type,
+                        final long amountCents,
+                        final int day)
+    {
+        final long             sequence;
+        final long             position;
+        final MappedByteBuffer region;
+        final int              offset;
+
+        if(failure.get() != null)
+        {
+            lost.increment();
+            return;
+        }
+
+        sequence = lastSequence.incrementAndGet();
+        position = (sequence - 1) * RECORD_SIZE;
+        region   = regionAt((int) (position / REGION_SIZE));
+        if(region == null)
+        {
+            lost.increment();
+            return;
+        }
+
+        offset = (int) (position % REGION_SIZE);
+        region.putLong(offset + ACCOUNT_OFFSET, accountKey);
+        region.putLong(offset + AMOUNT_OFFSET, amountCents);
+        region.putInt(offset + DAY_OFFSET, day);
+        region.put(offset + TYPE_OFFSET, (byte) type.ordinal());
+        SEQUENCE_HANDLE.setRelease(region, offset + SEQUENCE_OFFSET, sequence);
+
+        if(pending.incrementAndGet() == groupCommitSize)
+        {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Runs on the flush thread, flushing every syncIntervalNanos, or sooner when unparked by a full group,
+     * and mapping the region after the one being appended to, until the journal is closed.
+     */
+    private void flush()
+    {
+        while(!closed)
+        {
+            LockSupport.parkNanos(this, syncIntervalNanos);
+            try
+            {
+                sync();
+                mapRegions(regionOf(lastSequence.get()) + 1);
+            }
+            catch(final UncheckedIOException e)
+            {
+                failure.compareAndSet(null, e.getCause());
+                return;
+            }
+            catch(final IOException e)
+            {
+                failure.compareAndSet(null, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the region holding the record with the given sequence number.
+     *
+     * @param sequence the sequence number, or EMPTY_SEQUENCE for the region the first record goes in
+     * @return the region index
+     */
+    private static int regionOf(final long sequence)
+    {
+        return (int) (Math.max(EMPTY_SEQUENCE, sequence - 1) * RECORD_SIZE / REGION_SIZE);
+    }
+
+    /**
+     * Returns the mapped region with the given index, mapping it and any before it first if needed.
+     *
+     * @param index the region index
+     * @return the region, or null if it could not be mapped
+     */
+    private MappedByteBuffer regionAt(final int index)
+    {
+        final MappedByteBuffer[] current;
+
+        current = regions;
+        if(index < current.length)
+        {
+            return current[index];
+        }
+
+        try
+        {
+            mapRegions(index);
+        }
+        catch(final IOException e)
+        {
+            failure.compareAndSet(null, e);
+            return null;
+        }
+
+        return regions[index];
+    }
+
+    /**
+     * Maps every region up to and including the given index that is not mapped yet, growing the file.
+     * Holds mapLock, which sync never takes, so mapping never waits for a flush.
+     *
+     * @param index the last region to map
+     * @throws IOException if a region cannot be mapped
+     */
+    private void mapRegions(final int index) throws IOException
+    {
+        synchronized(mapLock)
+        {
+            final int                mapped;
+            final MappedByteBuffer[] grown;
+
+            mapped = regions.length;
+            if(index < mapped)
+            {
+                return;
+            }
+
+            grown = Arrays.copyOf(regions, index + 1);
+            for(int i = mapped; i <= index; i++)
+            {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * REGION_SIZE, REGION_SIZE);
+            }
+            regions = grown;
+        }
+    }
+
+    /**
+     * Finds the last record already in the file, checking each one, and zeroes the sequence of any records
+     * left after it so they are not read back once new records reach them. The zeroes are flushed straight
+     * away, since sync only flushes up to the region of the last record.
+     *
+     * @throws IOException if the file cannot be mapped or holds a corrupt record
+     */
+    private synchronized void findEnd() throws IOException
+    {
+        final long       size;
+        long             sequence;
+        MappedByteBuffer region;
+        int              offset;
+        boolean          zeroed;
+
+        size     = channel.size();
+        sequence = EMPTY_SEQUENCE;
+        zeroed   = false;
+        while(true)
+        {
+            mapRegions((int) (sequence * RECORD_SIZE / REGION_SIZE));
+            region = regions[(int) (sequence * RECORD_SIZE / REGION_SIZE)];
+            offset = (int) (sequence * RECORD_SIZE % REGION_SIZE);
+            if(region.getLong(offset + SEQUENCE_OFFSET) == EMPTY_SEQUENCE)
+            {
+                break;
+            }
+            checkRecord(region, offset, region.getLong(offset + SEQUENCE_OFFSET), sequence + 1);
+            sequence++;
+        }
+        lastSequence.set(sequence);
+
+        for(long position = sequence * RECORD_SIZE; position < size; position += RECORD_SIZE)
+        {
+            mapRegions((int) (position / REGION_SIZE));
+            region = regions[(int) (position / REGION_SIZE)];
+            offset = (int) (position % REGION_SIZE);
+            if(region.getLong(offset + SEQUENCE_OFFSET) != EMPTY_SEQUENCE)
+            {
+                region.putLong(offset + SEQUENCE_OFFSET, EMPTY_SEQUENCE);
+                zeroed = true;
+            }
+        }
+
+        unforcedRegion = regionOf(sequence);
+        if(zeroed)
+        {
+            for(int i = unforcedRegion; i < regions.length; i++)
+            {
+                regions[i].force();
+            }
+        }
+    }
+
+    /**
+     * Checks that a record is the one expected at its position and names a known TransactionType.
+     *
+     * @param records  the mapped records
+     * @param offset   the offset of the record
+     * @param sequence the record's sequence number
+     * @param expected the sequence number its position should hold
+     * @throws IOException if the record is corrupt
+     */
+    private static void checkRecord(final MappedByteBuffer records,
+                                    final int offset,
+                                    final long sequence,
+                                    final long expected) throws IOException
+    {
+        final byte type;
+
+        type = records.get(offset + TYPE_OFFSET);
+        if(sequence != expected || type < 0 || type >= TYPES.length)
+        {
+            throw new IOException("Corrupt journal record at sequence " + expected + ": sequence " + sequence +
+                                  ", type " + type);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The kinds of change that can be made to a BankAccount balance.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+enum TransactionType
+{
+    DEPOSIT,
+    WITHDRAWAL,
+    INTEREST,
+    FEE;
+
+    /**
+     * Returns the change to the balance made by a transaction of this type,
+     * positive for money in and negative for money out.
+     *
+     * @param amountCents the amount moved in cents
+     * @return the signed change to the balance in cents
+     */
+    long signedCents(final long amountCents)
+    {
+        return this == WITHDRAWAL || this == FEE ? -amountCents : amountCents;
+    }
+}
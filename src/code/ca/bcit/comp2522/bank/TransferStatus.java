@@ -0,0 +1,19 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The outcome of a transfer between two accounts in a Bank.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+enum TransferStatus
+{
+    OK,
+    NO_SUCH_ACCOUNT,
+    SAME_ACCOUNT,
+    BAD_PIN,
+    CLOSED,
+    INSUFFICIENT_FUNDS,
+    BALANCE_TOO_LARGE
+}
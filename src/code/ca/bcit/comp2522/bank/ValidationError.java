@@ -0,0 +1,79 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Why a value was refused, as reported by the check methods of Date, Name, BankClient and BankAccount,
+ * by Bank.tryAddClient and Bank.tryAddAccount, and by a FeedCursor reading a malformed field.
+ * Checking returns one of these instead of throwing, so a bulk load that refuses many rows never captures
+ * a stack trace or builds a message; the fixed message is only looked up if someone asks for it.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+enum ValidationError
+{
+    OK("No error"),
+
+    YEAR_OUT_OF_RANGE("Year out of range"),
+    MONTH_OUT_OF_RANGE("Month out of range"),
+    DAY_OUT_OF_RANGE("Day out of range for the month"),
+
+    FIRST_NAME_INVALID("Bad first name"),
+    LAST_NAME_INVALID("Bad last name"),
+
+    NAME_NULL("Name cannot be null"),
+    DATE_NULL("Date cannot be null"),
+    CLIENT_DATES_INCONSISTENT("Date inconsistency for bank client"),
+    CLIENT_ID_INVALID("Client ID must be between 6 and 7 characters"),
+
+    CLIENT_NULL("Bank client is null"),
+    PIN_OUT_OF_RANGE("Pin number out of range"),
+    ACCOUNT_NUMBER_INVALID("Invalid account number length, must be between 6 and 7"),
+    ACCOUNT_DATES_INCONSISTENT("Account dates are inconsistent with each other or with the client"),
+    BALANCE_NOT_POSITIVE("Balance given must be positive"),
+
+    ID_NOT_PACKABLE("ID must be 1 to 7 Latin-1 characters"),
+    DUPLICATE_CLIENT_ID("Duplicate client ID"),
+    DUPLICATE_ACCOUNT_NUMBER("Duplicate account number"),
+    CLIENT_ID_TAKEN("Another client has this client ID"),
+    UNKNOWN_CLIENT("No client with that ID"),
+
+    TOO_FEW_FIELDS("Too few fields"),
+    TOO_MANY_FIELDS("Too many fields"),
+    MALFORMED_NUMBER("Expected a number"),
+    MALFORMED_AMOUNT("Expected an amount with at most two decimal places"),
+    MALFORMED_DATE("Expected a date as yyyy-mm-dd");
+
+    private final String message;
+
+    /**
+     * Constructs a ValidationError.
+     *
+     * @param message the description of the error
+     */
+    ValidationError(final String message)
+    {
+        this.message = message;
+    }
+
+    /**
+     * Returns a description of the error.
+     *
+     * @return the message
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Errors with IllegalArgumentException if this is not OK, for callers that want the throwing behaviour.
+     */
+    void throwIfError()
+    {
+        if(this != OK)
+        {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Represents a day of the week.
+ * Each weekday holds its display name so looking it up never allocates.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+enum Weekday
+{
+    SUNDAY("sunday"),
+    MONDAY("monday"),
+    TUESDAY("tuesday"),
+    WEDNESDAY("wednesday"),
+    THURSDAY("thursday"),
+    FRIDAY("friday"),
+    SATURDAY("saturday");
+
+    private final String name;
+
+    /**
+     * Constructs a Weekday.
+     *
+     * @param name the lowercase display name of the weekday
+     */
+    Weekday(final String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the lowercase display name of the weekday, such as "monday".
+     *
+     * @return the name of the weekday
+     */
+    public String getName()
+    {
+        return name;
+    }
+}
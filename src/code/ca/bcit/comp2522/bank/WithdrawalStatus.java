@@ -0,0 +1,16 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The outcome of a withdrawal from a BankAccount.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+enum WithdrawalStatus
+{
+    OK,
+    INSUFFICIENT_FUNDS,
+    BAD_PIN,
+    CLOSED
+}
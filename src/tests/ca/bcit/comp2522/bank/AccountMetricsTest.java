@@ -0,0 +1,231 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Map;
+import java.util.Set;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that AccountMetrics estimates from its sample how many operations ended each way and how long they took,
+ * counts nothing while off or after a reset, and that LatencyHistogram keeps every latency to within a
+ * sixteenth of its value.
+ * <p>
+ * The counts are estimates, so the tests make OPERATIONS operations of each kind and allow TOLERANCE either
+ * way, which is more than six standard deviations of the estimate.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccountMetricsTest
+{
+    private static final int    OPERATIONS      = 64_000;
+    private static final double TOLERANCE       = 0.2;
+    private static final long   DEPOSIT_CENTS   = 250L;
+    private static final long   OVERDRAFT_CENTS = 1_000_000_000_000L;
+    private static final int    BAD_PIN         = TestBanks.PIN + 1;
+    private static final int    LATENCIES       = 1_000;
+    private static final int    PRECISION       = 16;
+    private static final int    LARGEST_SHIFT   = 50;
+
+    /**
+     * Makes OPERATIONS deposits and OPERATIONS withdrawals with the wrong pin, and checks the estimated count
+     * of each is close, a multiple of SAMPLE_EVERY, and the only count there is, and that deposits were timed.
+     */
+    static void estimatesCountsFromSamples()
+    {
+        final BankAccount             account;
+        final AccountMetrics.Snapshot metrics;
+
+        account = TestBanks.newAccount(0);
+        metrics = whileEnabled(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+            {
+                account.depositCents(DEPOSIT_CENTS);
+                account.tryWithdrawCents(DEPOSIT_CENTS, BAD_PIN);
+            }
+        });
+
+        assertClose(metrics.getCount(AccountMetrics.Operation.DEPOSIT, WithdrawalStatus.OK), "deposits");
+        assertClose(metrics.getCount(AccountMetrics.Operation.WITHDRAW, WithdrawalStatus.BAD_PIN),
+                    "withdrawals with the wrong pin");
+        assertEquals(Set.of(AccountMetrics.Operation.DEPOSIT + "." + WithdrawalStatus.OK,
+                            AccountMetrics.Operation.WITHDRAW + "." + WithdrawalStatus.BAD_PIN),
+                     metrics.getCounts().keySet(),
+                     "pairs counted");
+        assertTrue(metrics.getLatencyNanos().containsKey(AccountMetrics.Operation.DEPOSIT + "." +
+                                                         WithdrawalStatus.OK + ".p50"),
+                   "deposits were timed");
+    }
+
+    /**
+     * Applies OPERATIONS batches of a deposit and a withdrawal the balance cannot cover, and checks each item
+     * is counted as if it were its own operation but none is timed.
+     */
+    static void countsBatchItems()
+    {
+        final BankAccount             account;
+        final AccountMetrics.Snapshot metrics;
+
+        account = TestBanks.newAccount(0);
+        metrics = whileEnabled(() ->
+        {
+            for(int i = 0; i < OPERATIONS; i++)
+            {
+                account.applyBatchCents(new long[]{DEPOSIT_CENTS, -OVERDRAFT_CENTS}, TestBanks.PIN, false);
+            }
+        });
+
+        assertClose(metrics.getCount(AccountMetrics.Operation.DEPOSIT, WithdrawalStatus.OK), "batch deposits");
+        assertClose(metrics.getCount(AccountMetrics.Operation.WITHDRAW, WithdrawalStatus.INSUFFICIENT_FUNDS),
+                    "batch withdrawals skipped");
+        assertEquals(Map.of(), metrics.getLatencyNanos(), "latencies");
+    }
+
+    /**
+     * Checks that nothing is counted while metrics are off, and that a reset forgets what was counted.
+     */
+    static void countsNothingWhileOffOrAfterReset()
+    {
+        final BankAccount account;
+        final boolean     wereOn;
+
+        account = TestBanks.newAccount(0);
+        wereOn  = AccountMetrics.isEnabled();
+        AccountMetrics.reset();
+        AccountMetrics.setEnabled(false);
+        try
+        {
+            depositMany(account);
+            assertEquals(Map.of(), AccountMetrics.snapshot().getCounts(), "counts while off");
+
+            AccountMetrics.setEnabled(true);
+            depositMany(account);
+            assertTrue(!AccountMetrics.snapshot().getCounts().isEmpty(), "counts while on");
+
+            AccountMetrics.reset();
+            assertEquals(Map.of(), AccountMetrics.snapshot().getCounts(), "counts after a reset");
+            assertEquals(Map.of(), AccountMetrics.snapshot().getLatencyNanos(), "latencies after a reset");
+        }
+        finally
+        {
+            AccountMetrics.setEnabled(wereOn);
+            AccountMetrics.reset();
+        }
+    }
+
+    /**
+     * Checks, for values at every scale, that each falls in a bucket whose highest value is no lower and no
+     * more than a sixteenth higher, and that the bucket before it ends below the value.
+     */
+    static void histogramBucketsHoldEveryValue()
+    {
+        for(int shift = 0; shift <= LARGEST_SHIFT; shift++)
+        {
+            for(final long value : new long[]{(1L << shift) - 1, 1L << shift, (1L << shift) + (1L << shift) / 3})
+            {
+                final int  bucket;
+                final long highest;
+
+                bucket  = LatencyHistogram.bucketOf(value);
+                highest = LatencyHistogram.highestValueIn(bucket);
+                if(bucket == LatencyHistogram.BUCKETS - 1)
+                {
+                    continue;
+                }
+                assertTrue(highest >= value, "highest value in the bucket of " + value + " is " + highest);
+                assertTrue((highest - value) * PRECISION <= value,
+                           "highest value in the bucket of " + value + " is within a sixteenth: " + highest);
+                assertTrue(bucket == 0 || LatencyHistogram.highestValueIn(bucket - 1) < value,
+                           "bucket before the one of " + value + " ends below it");
+            }
+        }
+        assertEquals(0, LatencyHistogram.bucketOf(-1), "bucket of a negative latency");
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE), "bucket of the largest");
+    }
+
+    /**
+     * Records the latencies 1 to LATENCIES and checks the percentiles land in the buckets of the right values,
+     * and that a reset empties the histogram.
+     */
+    static void histogramPercentiles()
+    {
+        final LatencyHistogram histogram;
+
+        histogram = new LatencyHistogram();
+        assertEquals(0, LatencyHistogram.percentile(histogram.snapshot(), AccountMetrics.P50), "p50 of nothing");
+        for(int nanos = 1; nanos <= LATENCIES; nanos++)
+        {
+            histogram.record(nanos);
+        }
+
+        for(final double fraction : new double[]{AccountMetrics.P50, AccountMetrics.P99, AccountMetrics.P999, 1})
+        {
+            final long expected;
+
+            expected = (long) Math.ceil(LATENCIES * fraction);
+            assertEquals(LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(expected)),
+                         LatencyHistogram.percentile(histogram.snapshot(), fraction),
+                         "latency at fraction " + fraction);
+        }
+
+        histogram.reset();
+        assertEquals(0, LatencyHistogram.percentile(histogram.snapshot(), 1), "largest latency after a reset");
+    }
+
+    /**
+     * Turns metrics on from a reset, runs the work, and returns what was recorded, leaving metrics as it found
+     * them but reset.
+     *
+     * @param work the operations to measure
+     * @return the metrics recorded during the work
+     */
+    private static AccountMetrics.Snapshot whileEnabled(final Runnable work)
+    {
+        final boolean wereOn;
+
+        wereOn = AccountMetrics.isEnabled();
+        AccountMetrics.reset();
+        AccountMetrics.setEnabled(true);
+        try
+        {
+            work.run();
+
+            return AccountMetrics.snapshot();
+        }
+        finally
+        {
+            AccountMetrics.setEnabled(wereOn);
+            AccountMetrics.reset();
+        }
+    }
+
+    /**
+     * Makes OPERATIONS deposits.
+     *
+     * @param account the account to deposit into
+     */
+    private static void depositMany(final BankAccount account)
+    {
+        for(int i = 0; i < OPERATIONS; i++)
+        {
+            account.depositCents(DEPOSIT_CENTS);
+        }
+    }
+
+    /**
+     * Fails unless an estimated count is a multiple of SAMPLE_EVERY within TOLERANCE of OPERATIONS.
+     *
+     * @param estimate the estimated count
+     * @param what     what was counted
+     */
+    private static void assertClose(final long estimate,
+                                    final String what)
+    {
+        assertEquals(0, estimate % AccountMetrics.SAMPLE_EVERY, what + " estimate modulo the sampling rate");
+        assertTrue(Math.abs(estimate - OPERATIONS) <= OPERATIONS * TOLERANCE,
+                   what + ": estimated " + estimate + " for " + OPERATIONS);
+    }
+}
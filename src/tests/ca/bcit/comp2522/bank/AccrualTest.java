@@ -0,0 +1,328 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertThrows;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that an AccrualEngine run credits interest on and charges the fee to each open account exactly once,
+ * that a cancelled run resumes from its AccrualCheckpoint without accruing any account twice, that a
+ * checkpoint holding another unfinished run is refused, and that interest rounds down without overflowing.
+ * <p>
+ * The banks hold ACCOUNTS accounts, enough for several chunks.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class AccrualTest
+{
+    private static final int  ACCOUNTS          = AccrualEngine.CHUNK_SIZE * 2 + 1_000;
+    private static final int  RATE_BASIS_POINTS = 1_200;
+    private static final long BASIS_POINTS      = 10_000L;
+    private static final long FEE_CENTS         = 150L;
+    private static final long LARGE_FEE_CENTS   = TestBanks.STARTING_CENTS * 2;
+    private static final Date RUN_DATE          = Date.of(2022, 1, 31);
+    private static final Date NEXT_RUN_DATE     = Date.of(2022, 2, 28);
+    private static final int  NOT_A_CHECKPOINT  = 64;
+
+    /**
+     * Runs a monthly accrual and checks every open account got one period's interest and then the fee, closed
+     * accounts were left alone, and that running again, with the same checkpoint or a new one, changes nothing.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    static void accruesEachOpenAccountOnce() throws IOException
+    {
+        final Bank          bank;
+        final AccrualEngine engine;
+        final long[]        expected;
+        final Path          checkpoint;
+        final Path          other;
+
+        bank       = TestBanks.newMixedBank(ACCOUNTS);
+        engine     = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, FEE_CENTS);
+        expected   = accruedBalances(bank, engine, FEE_CENTS);
+        checkpoint = Files.createTempFile("accrual", ".checkpoint");
+        other      = Files.createTempFile("accrual", ".checkpoint");
+        try
+        {
+            final AccrualEngine.Result result;
+            final AccrualEngine.Result again;
+            final AccrualEngine.Result fresh;
+            final long                 before;
+
+            before = bank.getTotalBalanceCents();
+            result = engine.run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool());
+            assertTrue(result.complete(), "run complete");
+            assertEquals(countOpen(bank), result.accrued(), "accounts accrued");
+            assertEquals(0, result.skipped(), "accounts skipped");
+            assertEquals(before + result.interestCents() - result.feeCents(),
+                         bank.getTotalBalanceCents(),
+                         "total balance");
+            assertBalances(expected, bank);
+
+            again = engine.run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool());
+            assertEquals(0, again.accrued(), "accounts accrued running again");
+            assertEquals(ACCOUNTS, again.skipped(), "accounts skipped running again");
+
+            fresh = engine.run(bank, RUN_DATE, other, ForkJoinPool.commonPool());
+            assertEquals(0, fresh.accrued(), "accounts accrued running again with a new checkpoint");
+            assertEquals(countOpen(bank), fresh.skipped(), "accounts skipped running again with a new checkpoint");
+            assertBalances(expected, bank);
+        }
+        finally
+        {
+            Files.delete(checkpoint);
+            Files.delete(other);
+        }
+    }
+
+    /**
+     * Cancels a run from a listener once the first account is accrued, then resumes it, and checks the two
+     * calls together accrued each open account once, ending with the balances of an uninterrupted run.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    static void resumesCancelledRun() throws IOException
+    {
+        final Bank          bank;
+        final AccrualEngine engine;
+        final long[]        expected;
+        final Path          checkpoint;
+        final AtomicBoolean cancel;
+        final ForkJoinPool  oneThread;
+
+        bank       = TestBanks.newMixedBank(ACCOUNTS);
+        engine     = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, FEE_CENTS);
+        expected   = accruedBalances(bank, engine, FEE_CENTS);
+        checkpoint = Files.createTempFile("accrual", ".checkpoint");
+        cancel     = new AtomicBoolean();
+        oneThread  = new ForkJoinPool(1);
+        for(final BankAccount account : bank.getAllAccounts())
+        {
+            account.addListener(new BalanceListener()
+            {
+                @Override
+                public void balanceChanged(final BankAccount changed,
+                                           final TransactionType type,
+                                           final long amountCents,
+                                           final long balanceCents)
+                {
+                    cancel.set(true);
+                }
+            });
+        }
+        try
+        {
+            final AccrualEngine.Result first;
+            final AccrualEngine.Result second;
+
+            first  = engine.run(bank, RUN_DATE, checkpoint, oneThread, cancel);
+            assertTrue(!first.complete(), "cancelled run complete");
+            assertTrue(first.accrued() > 0 && first.accrued() < countOpen(bank),
+                       "cancelled run accrued some accounts but not all: " + first.accrued());
+
+            second = engine.run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool());
+            assertTrue(second.complete(), "resumed run complete");
+            assertTrue(second.skipped() > 0, "resumed run skipped the finished chunks");
+            assertEquals(countOpen(bank), first.accrued() + second.accrued(), "accounts accrued by both calls");
+            assertBalances(expected, bank);
+        }
+        finally
+        {
+            oneThread.shutdown();
+            Files.delete(checkpoint);
+        }
+    }
+
+    /**
+     * Checks that a checkpoint holding an unfinished run is refused by a run for another date, that it can
+     * be reused once that run finishes, and that a file that is not a checkpoint is refused.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    static void refusesOtherUnfinishedRun() throws IOException
+    {
+        final Bank          bank;
+        final AccrualEngine engine;
+        final Path          checkpoint;
+
+        bank       = TestBanks.newMixedBank(ACCOUNTS);
+        engine     = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, FEE_CENTS);
+        checkpoint = Files.createTempFile("accrual", ".checkpoint");
+        try
+        {
+            final AccrualEngine.Result cancelled;
+
+            cancelled = engine.run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool(), new AtomicBoolean(true));
+            assertTrue(!cancelled.complete(), "run cancelled before it started complete");
+            assertEquals(0, cancelled.accrued(), "accounts accrued by a run cancelled before it started");
+            assertThrows(IllegalStateException.class,
+                         () -> runUnchecked(engine, bank, NEXT_RUN_DATE, checkpoint),
+                         "next run while this one is unfinished");
+            assertTrue(engine.run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool()).complete(),
+                       "run resumed complete");
+            assertTrue(engine.run(bank, NEXT_RUN_DATE, checkpoint, ForkJoinPool.commonPool()).complete(),
+                       "next run complete");
+
+            Files.write(checkpoint, new byte[NOT_A_CHECKPOINT]);
+            assertThrows(IllegalStateException.class,
+                         () -> runUnchecked(engine, bank, RUN_DATE, checkpoint),
+                         "run on a file that is not a checkpoint");
+        }
+        finally
+        {
+            Files.delete(checkpoint);
+        }
+    }
+
+    /**
+     * Checks interest rounds down to the cent, is nothing on a balance that is not positive, matches exact
+     * arithmetic on the largest balance, that a fee larger than the balance empties the account, and that
+     * terms out of range are refused.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    static void interestRoundsDownAndFeesStopAtZero() throws IOException
+    {
+        final AccrualEngine monthly;
+        final BigInteger    exact;
+        final Bank          bank;
+        final Path          checkpoint;
+
+        monthly = new AccrualEngine(AccrualEngine.Period.MONTHLY, RATE_BASIS_POINTS, FEE_CENTS);
+        exact   = BigInteger.valueOf(Long.MAX_VALUE)
+                            .multiply(BigInteger.valueOf(RATE_BASIS_POINTS))
+                            .divide(BigInteger.valueOf(BASIS_POINTS * AccrualEngine.Period.MONTHLY.getPerYear()));
+        assertEquals(100, monthly.interestOn(10_000L), "a month's interest on $100 at 12%");
+        assertEquals(0, monthly.interestOn(99L), "a month's interest on 99 cents at 12%");
+        assertEquals(0, monthly.interestOn(-10_000L), "interest on a negative balance");
+        assertEquals(exact.longValueExact(), monthly.interestOn(Long.MAX_VALUE), "interest on the largest balance");
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> new AccrualEngine(AccrualEngine.Period.DAILY, AccrualEngine.MAX_RATE_BASIS_POINTS + 1, 0),
+                     "a rate over the maximum");
+        assertThrows(IllegalArgumentException.class,
+                     () -> new AccrualEngine(AccrualEngine.Period.DAILY, 0, -1),
+                     "a negative fee");
+        assertThrows(IllegalArgumentException.class, () -> new AccrualEngine(null, 0, 0), "no period");
+
+        bank       = TestBanks.newBank(1);
+        checkpoint = Files.createTempFile("accrual", ".checkpoint");
+        try
+        {
+            final AccrualEngine.Result result;
+
+            result = new AccrualEngine(AccrualEngine.Period.DAILY, 0, LARGE_FEE_CENTS)
+                    .run(bank, RUN_DATE, checkpoint, ForkJoinPool.commonPool());
+            assertEquals(TestBanks.STARTING_CENTS, result.feeCents(), "fee charged");
+            assertEquals(0, bank.getTotalBalanceCents(), "balance after a fee larger than it");
+        }
+        finally
+        {
+            Files.delete(checkpoint);
+        }
+    }
+
+    /**
+     * Works out the balance each account in the bank should have after one run of the engine on RUN_DATE.
+     *
+     * @param bank     the bank
+     * @param engine   the engine
+     * @param feeCents the engine's fee in cents
+     * @return the balances in cents, in the bank's order
+     */
+    private static long[] accruedBalances(final Bank bank,
+                                          final AccrualEngine engine,
+                                          final long feeCents)
+    {
+        final BankAccount[] accounts;
+        final long[]        balances;
+
+        accounts = TestBanks.accountsOf(bank);
+        balances = new long[accounts.length];
+        for(int i = 0; i < accounts.length; i++)
+        {
+            balances[i] = accounts[i].getBalanceCents();
+            if(AccrualEngine.isOpenOn(accounts[i], RUN_DATE))
+            {
+                balances[i] += engine.interestOn(balances[i]);
+                balances[i] -= Math.min(feeCents, balances[i]);
+            }
+        }
+
+        return balances;
+    }
+
+    /**
+     * Fails unless every account in the bank has the expected balance.
+     *
+     * @param expected the balances in cents, in the bank's order
+     * @param bank     the bank
+     */
+    private static void assertBalances(final long[] expected,
+                                       final Bank bank)
+    {
+        final BankAccount[] accounts;
+
+        accounts = TestBanks.accountsOf(bank);
+        for(int i = 0; i < accounts.length; i++)
+        {
+            assertEquals(expected[i], accounts[i].getBalanceCents(), "balance of account " + i);
+        }
+    }
+
+    /**
+     * Counts the accounts open on RUN_DATE.
+     *
+     * @param bank the bank
+     * @return the number of open accounts
+     */
+    private static int countOpen(final Bank bank)
+    {
+        int open;
+
+        open = 0;
+        for(final BankAccount account : bank.getAllAccounts())
+        {
+            if(AccrualEngine.isOpenOn(account, RUN_DATE))
+            {
+                open++;
+            }
+        }
+
+        return open;
+    }
+
+    /**
+     * Runs the engine, for use where only unchecked exceptions can be thrown.
+     *
+     * @param engine     the engine
+     * @param bank       the bank
+     * @param runDate    the run date
+     * @param checkpoint the checkpoint file
+     */
+    private static void runUnchecked(final AccrualEngine engine,
+                                     final Bank bank,
+                                     final Date runDate,
+                                     final Path checkpoint)
+    {
+        try
+        {
+            engine.run(bank, runDate, checkpoint, ForkJoinPool.commonPool());
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
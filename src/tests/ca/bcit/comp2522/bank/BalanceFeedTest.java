@@ -0,0 +1,255 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests BalanceFeed: every change reaches a subscriber in order and in batches of at most the batch size,
+ * a full queue drops and counts, a closed feed holds its queued events until they are asked for without
+ * keeping a delivery running, and a rejected delivery is reported to onError.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BalanceFeedTest
+{
+    private static final int  CAPACITY      = 1_000;
+    private static final int  MAX_BATCH     = 16;
+    private static final int  DEPOSITS      = 500;
+    private static final int  SMALL_QUEUE   = 2;
+    private static final int  OVERFLOW      = 5;
+    private static final int  QUEUED        = 3;
+    private static final long DEPOSIT_CENTS = 100L;
+    private static final long NO_DEMAND     = 0L;
+    private static final long WAIT_MILLIS   = 10_000L;
+    private static final long SETTLE_MILLIS = 200L;
+
+    /**
+     * Subscribes with unbounded demand, deposits DEPOSITS times, closes the feed, and checks every deposit
+     * arrives once, in order, in batches no larger than MAX_BATCH, followed by onComplete.
+     *
+     * @throws InterruptedException if interrupted while waiting for delivery
+     */
+    static void deliversEveryChangeInOrder() throws InterruptedException
+    {
+        final ExecutorService executor;
+        final BankAccount     account;
+        final Recorder        recorder;
+
+        executor = Executors.newSingleThreadExecutor();
+        account  = TestBanks.newAccount(0);
+        recorder = new Recorder(Long.MAX_VALUE);
+        try(final BalanceFeed feed = new BalanceFeed(executor, CAPACITY, MAX_BATCH))
+        {
+            feed.subscribe(recorder);
+            account.addListener(feed);
+            for(int i = 0; i < DEPOSITS; i++)
+            {
+                account.depositCents(DEPOSIT_CENTS);
+            }
+        }
+        try
+        {
+            assertTrue(recorder.done.await(WAIT_MILLIS, TimeUnit.MILLISECONDS), "onComplete within the wait");
+            assertEquals(null, recorder.error, "error");
+            assertEquals(DEPOSITS, recorder.events.size(), "events delivered");
+            for(int i = 0; i < DEPOSITS; i++)
+            {
+                final BalanceFeed.Event event;
+
+                event = recorder.events.get(i);
+                assertEquals(account.getAccountNumber(), event.accountNumber(), "account of event " + i);
+                assertEquals(TransactionType.DEPOSIT, event.type(), "type of event " + i);
+                assertEquals(TestBanks.STARTING_CENTS + (i + 1) * DEPOSIT_CENTS, event.balanceCents(),
+                             "balance of event " + i);
+            }
+            assertTrue(recorder.largestBatch <= MAX_BATCH, "batches of at most " + MAX_BATCH);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Publishes more changes than a subscriber with no demand can queue, and checks the rest are dropped
+     * and counted.
+     */
+    static void fullQueueDrops()
+    {
+        final ExecutorService executor;
+        final BankAccount     account;
+
+        executor = Executors.newSingleThreadExecutor();
+        account  = TestBanks.newAccount(0);
+        try(final BalanceFeed feed = new BalanceFeed(executor, SMALL_QUEUE, MAX_BATCH))
+        {
+            feed.subscribe(new Recorder(NO_DEMAND));
+            account.addListener(feed);
+            for(int i = 0; i < OVERFLOW; i++)
+            {
+                account.depositCents(DEPOSIT_CENTS);
+            }
+            assertEquals(OVERFLOW - SMALL_QUEUE, feed.getDroppedCount(), "events dropped");
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues changes for a subscriber with no demand and closes the feed, then checks no delivery is left
+     * running, and that once the subscriber asks, it gets the queued changes and then onComplete.
+     *
+     * @throws InterruptedException if interrupted while waiting for delivery
+     */
+    static void closeWaitsForDemand() throws InterruptedException
+    {
+        final ThreadPoolExecutor executor;
+        final BankAccount        account;
+        final Recorder           recorder;
+        final BalanceFeed        feed;
+
+        executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        account  = TestBanks.newAccount(0);
+        recorder = new Recorder(NO_DEMAND);
+        feed     = new BalanceFeed(executor, CAPACITY, MAX_BATCH);
+        try
+        {
+            feed.subscribe(recorder);
+            account.addListener(feed);
+            for(int i = 0; i < QUEUED; i++)
+            {
+                account.depositCents(DEPOSIT_CENTS);
+            }
+            feed.close();
+
+            Thread.sleep(SETTLE_MILLIS);
+            assertEquals(0, executor.getActiveCount(), "deliveries running while there is no demand");
+            assertEquals(1, recorder.done.getCount(), "completions before the queue is delivered");
+
+            recorder.subscription.request(Long.MAX_VALUE);
+            assertTrue(recorder.done.await(WAIT_MILLIS, TimeUnit.MILLISECONDS), "onComplete within the wait");
+            assertEquals(QUEUED, recorder.events.size(), "events delivered after close");
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Subscribes through an executor that refuses every task and checks the first change that needs a
+     * delivery is reported to onError and the subscriber is removed.
+     *
+     * @throws InterruptedException if interrupted while waiting for onError
+     */
+    static void rejectedDeliveryIsAnError() throws InterruptedException
+    {
+        final BankAccount account;
+        final Recorder    recorder;
+
+        account  = TestBanks.newAccount(0);
+        recorder = new Recorder(1);
+        try(final BalanceFeed feed = new BalanceFeed(task ->
+        {
+            throw new RejectedExecutionException("full");
+        }, CAPACITY, MAX_BATCH))
+        {
+            feed.subscribe(recorder);
+            account.addListener(feed);
+            account.depositCents(DEPOSIT_CENTS);
+
+            assertTrue(recorder.done.await(WAIT_MILLIS, TimeUnit.MILLISECONDS), "onError within the wait");
+            assertTrue(recorder.error instanceof RejectedExecutionException, "error is the rejection");
+            assertEquals(0, feed.getSubscriberCount(), "subscribers left");
+        }
+    }
+
+    /**
+     * Records what a subscriber is sent, asking for a fixed demand when it subscribes.
+     */
+    private static final class Recorder implements Flow.Subscriber<List<BalanceFeed.Event>>
+    {
+        private final long                    initialDemand;
+        private final List<BalanceFeed.Event> events;
+        private final CountDownLatch          done;
+
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable         error;
+        private volatile int               largestBatch;
+
+        /**
+         * Constructs a Recorder.
+         *
+         * @param initialDemand how many batches to request on subscribing, or NO_DEMAND for none
+         */
+        private Recorder(final long initialDemand)
+        {
+            this.initialDemand = initialDemand;
+            this.events        = Collections.synchronizedList(new ArrayList<>());
+            this.done          = new CountDownLatch(1);
+        }
+
+        /**
+         * Keeps the subscription and requests the initial demand, if any.
+         *
+         * @param subscription the subscription
+         */
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            if(initialDemand > NO_DEMAND)
+            {
+                subscription.request(initialDemand);
+            }
+        }
+
+        /**
+         * Records a batch.
+         *
+         * @param batch the events
+         */
+        @Override
+        public void onNext(final List<BalanceFeed.Event> batch)
+        {
+            events.addAll(batch);
+            largestBatch = Math.max(largestBatch, batch.size());
+        }
+
+        /**
+         * Records the error and marks the subscription done.
+         *
+         * @param throwable the error
+         */
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            error = throwable;
+            done.countDown();
+        }
+
+        /**
+         * Marks the subscription done.
+         */
+        @Override
+        public void onComplete()
+        {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that a BankAccount listener that throws neither undoes nor hides a balance change: the change stands,
+ * the other listeners are still told, AccountMetrics still counts it, and the failure is counted. Also tests
+ * that USD amounts too small to round to a cent are refused like any other amount that is not positive.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BankAccountTest
+{
+    private static final long     DEPOSIT_CENTS   = 250L;
+    private static final long     OVERDRAFT_CENTS = TestBanks.STARTING_CENTS * 10;
+    private static final double   HALF_CENT_USD   = 0.005;
+    private static final double[] NO_CENTS_USD    = {0.004, 0.0001, Double.MIN_VALUE, 0, -0.004, -1};
+    private static final String   REFUSED_PREFIX  = "Balance given must be positive, got: ";
+
+    /**
+     * Puts a listener that always throws ahead of one that records what it is told, then makes a deposit
+     * and a refused withdrawal, and checks both reached the recording listener.
+     */
+    static void throwingListenerIsSkipped()
+    {
+        final BankAccount  account;
+        final List<String> heard;
+        final long         failuresBefore;
+
+        account        = TestBanks.newAccount(0);
+        heard          = new ArrayList<>();
+        failuresBefore = BankAccount.getListenerFailureCount();
+        account.addListener(new BalanceListener()
+        {
+            @Override
+            public void balanceChanged(final BankAccount changed,
+                                       final TransactionType type,
+                                       final long amountCents,
+                                       final long balanceCents)
+            {
+                throw new IllegalStateException("listener failed");
+            }
+
+            @Override
+            public void withdrawalFailed(final BankAccount changed,
+                                         final WithdrawalStatus status,
+                                         final long amountCents)
+            {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        account.addListener(new BalanceListener()
+        {
+            @Override
+            public void balanceChanged(final BankAccount changed,
+                                       final TransactionType type,
+                                       final long amountCents,
+                                       final long balanceCents)
+            {
+                heard.add(type + " " + amountCents + " " + balanceCents);
+            }
+
+            @Override
+            public void withdrawalFailed(final BankAccount changed,
+                                         final WithdrawalStatus status,
+                                         final long amountCents)
+            {
+                heard.add(status + " " + amountCents);
+            }
+        });
+
+        account.depositCents(DEPOSIT_CENTS);
+        assertEquals(WithdrawalStatus.INSUFFICIENT_FUNDS,
+                     account.tryWithdrawCents(OVERDRAFT_CENTS, TestBanks.PIN),
+                     "overdrawing withdrawal");
+
+        assertEquals(TestBanks.STARTING_CENTS + DEPOSIT_CENTS, account.getBalanceCents(), "balance");
+        assertEquals(List.of(TransactionType.DEPOSIT + " " + DEPOSIT_CENTS + " " +
+                             (TestBanks.STARTING_CENTS + DEPOSIT_CENTS),
+                             WithdrawalStatus.INSUFFICIENT_FUNDS + " " + OVERDRAFT_CENTS),
+                     heard,
+                     "events heard by the second listener");
+        assertEquals(failuresBefore + 2, BankAccount.getListenerFailureCount(), "listener failures");
+    }
+
+    /**
+     * Checks that deposits and withdrawals of amounts that round to no cents are refused with the same
+     * message as negative ones, leaving the balance alone, and that half a cent rounds up to one.
+     */
+    static void refusesAmountsUnderHalfACent()
+    {
+        final BankAccount account;
+
+        account = TestBanks.newAccount(0);
+        for(final double amountUsd : NO_CENTS_USD)
+        {
+            assertRefused(() -> account.deposit(amountUsd), "deposit of " + amountUsd);
+            assertRefused(() -> account.withdraw(amountUsd), "withdrawal of " + amountUsd);
+            assertRefused(() -> account.withdraw(amountUsd, TestBanks.PIN), "withdrawal with pin of " + amountUsd);
+            assertRefused(() -> account.tryWithdraw(amountUsd, TestBanks.PIN), "tried withdrawal of " + amountUsd);
+        }
+        assertEquals(TestBanks.STARTING_CENTS, account.getBalanceCents(), "balance after refusals");
+
+        account.deposit(HALF_CENT_USD);
+        assertEquals(TestBanks.STARTING_CENTS + 1, account.getBalanceCents(), "balance after depositing half a cent");
+    }
+
+    /**
+     * Fails unless the action throws IllegalArgumentException with the message used for amounts that are
+     * not positive.
+     *
+     * @param action the action
+     * @param what   what the action is
+     */
+    private static void assertRefused(final Runnable action,
+                                      final String what)
+    {
+        try
+        {
+            action.run();
+        }
+        catch(final IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().startsWith(REFUSED_PREFIX), what + ": message was " + e.getMessage());
+            return;
+        }
+
+        throw new AssertionError(what + ": expected IllegalArgumentException but nothing was thrown");
+    }
+}
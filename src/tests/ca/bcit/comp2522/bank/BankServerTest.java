@@ -0,0 +1,169 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests BankServer: each request gets the reply the protocol promises, each DEPOSIT reply carries the balance
+ * that deposit left even while other requests change it, and a request that throws is answered with
+ * INTERNAL_ERROR without ending the connection.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BankServerTest
+{
+    private static final int    ANY_PORT            = 0;
+    private static final int    THREADS             = 4;
+    private static final int    DEPOSITS_PER_THREAD = 2_000;
+    private static final String FAIL                = "FAIL";
+    private static final String SEPARATOR           = " ";
+
+    /**
+     * Sends one request of each kind, and each kind of bad request, and checks every reply.
+     *
+     * @throws IOException if the server cannot bind or close
+     */
+    static void answersEachRequest() throws IOException
+    {
+        final Bank   bank;
+        final String account;
+
+        bank    = TestBanks.newBank(1);
+        account = Integer.toString(TestBanks.FIRST_ACCOUNT);
+        try(final BankServer server = new BankServer(bank, ANY_PORT, e -> { }))
+        {
+            assertEquals("OK 100.0", ask(server, "BALANCE " + account), "balance");
+            assertEquals("OK 112.5", ask(server, "DEPOSIT " + account + " 12.50"), "deposit");
+            assertEquals("OK 110.0", ask(server, "WITHDRAW " + account + " 2.5 " + TestBanks.PIN), "withdrawal");
+            assertEquals("ERR BAD_PIN", ask(server, "WITHDRAW " + account + " 2.5 1"), "withdrawal with a bad pin");
+            assertEquals("ERR INSUFFICIENT_FUNDS",
+                         ask(server, "WITHDRAW " + account + " 1000 " + TestBanks.PIN),
+                         "withdrawal of more than the balance");
+            assertEquals("OK " + bank.getAccount(account).getDetails(), ask(server, "DETAILS " + account), "details");
+            assertEquals("ERR BAD_AMOUNT", ask(server, "DEPOSIT " + account + " 1.234"), "deposit of a bad amount");
+            assertEquals("ERR MALFORMED", ask(server, "BALANCE"), "request without an account");
+            assertEquals("ERR MALFORMED",
+                         ask(server, "WITHDRAW " + account + " 1 x"),
+                         "withdrawal with a pin that is not a number");
+            assertEquals("ERR NO_SUCH_ACCOUNT", ask(server, "BALANCE 999999"), "unknown account");
+            assertEquals("ERR UNKNOWN_COMMAND", ask(server, "TRANSFER " + account), "unknown command");
+        }
+    }
+
+    /**
+     * Deposits one cent at a time from THREADS threads and checks every reply carries a different balance,
+     * as it would not if the balance were read again after the deposit, and that the last is the final one.
+     *
+     * @throws IOException          if the server cannot bind or close
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    static void depositRepliesCarryOwnBalance() throws IOException, InterruptedException
+    {
+        final Bank        bank;
+        final BankAccount account;
+        final long[]      replied;
+        final Thread[]    workers;
+
+        bank    = TestBanks.newBank(1);
+        account = TestBanks.accountsOf(bank)[0];
+        replied = new long[THREADS * DEPOSITS_PER_THREAD];
+        workers = new Thread[THREADS];
+        try(final BankServer server = new BankServer(bank, ANY_PORT, e -> { }))
+        {
+            for(int t = 0; t < THREADS; t++)
+            {
+                final int first;
+
+                first      = t * DEPOSITS_PER_THREAD;
+                workers[t] = new Thread(() ->
+                {
+                    for(int i = 0; i < DEPOSITS_PER_THREAD; i++)
+                    {
+                        final String reply;
+
+                        reply = ask(server, "DEPOSIT " + account.getAccountNumber() + " 0.01");
+                        replied[first + i] = Money.parseCents(reply.substring(reply.indexOf(SEPARATOR) + 1));
+                    }
+                });
+                workers[t].start();
+            }
+            for(final Thread worker : workers)
+            {
+                worker.join();
+            }
+        }
+
+        Arrays.sort(replied);
+        for(int i = 0; i < replied.length; i++)
+        {
+            assertEquals(TestBanks.STARTING_CENTS + i + 1, replied[i], "balance replied to deposit " + i);
+        }
+        assertEquals(account.getBalanceCents(), replied[replied.length - 1], "last balance replied");
+    }
+
+    /**
+     * Connects to a server whose handle throws for one request, and checks that request is answered with
+     * INTERNAL_ERROR and the next request on the same connection is still served.
+     *
+     * @throws IOException if the server cannot bind, be reached, or close
+     */
+    static void failingRequestKeepsConnection() throws IOException
+    {
+        final Bank bank;
+
+        bank = TestBanks.newBank(1);
+        try(final BankServer server = new BankServer(bank, ANY_PORT, e -> { })
+        {
+            @Override
+            StringBuilder handle(final String request,
+                                 final StringBuilder reply)
+            {
+                if(request.equals(FAIL))
+                {
+                    reply.append("half a reply");
+                    throw new IllegalStateException("request failed");
+                }
+
+                return super.handle(request, reply);
+            }
+        })
+        {
+            server.start();
+            try(final Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                                   StandardCharsets.US_ASCII)))
+            {
+                socket.getOutputStream()
+                      .write((FAIL + "\nBALANCE " + TestBanks.FIRST_ACCOUNT + "\nQUIT\n")
+                                 .getBytes(StandardCharsets.US_ASCII));
+
+                assertEquals("ERR INTERNAL_ERROR", in.readLine(), "reply to the failing request");
+                assertEquals("OK 100.0", in.readLine(), "reply to the next request");
+                assertTrue(in.readLine() == null, "connection closed after QUIT");
+            }
+        }
+    }
+
+    /**
+     * Hands one request to the server without going through a socket.
+     *
+     * @param server  the server
+     * @param request the request line
+     * @return the reply line
+     */
+    private static String ask(final BankServer server,
+                              final String request)
+    {
+        return server.handle(request, new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,93 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests the Bank registry: lookups by account number and client ID, the accounts of a client,
+ * and the refusals when an ID is taken.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BankTest
+{
+    private static final int  ACCOUNTS      = 10;
+    private static final int  MAX_ID_LENGTH = 7;
+    private static final char NOT_LATIN_1   = '\u0100';
+
+    /**
+     * Checks that every account and client added is found by its ID, and that a client's second account
+     * is listed with its first.
+     */
+    static void findsWhatWasAdded()
+    {
+        final Bank        bank;
+        final BankAccount second;
+
+        bank   = TestBanks.newBank(ACCOUNTS);
+        second = new BankAccount(bank.getClient(Integer.toString(TestBanks.FIRST_CLIENT_ID)),
+                                 TestBanks.PIN,
+                                 Integer.toString(TestBanks.FIRST_ACCOUNT + ACCOUNTS),
+                                 null,
+                                 TestBanks.STARTING_USD);
+        bank.addAccount(second);
+
+        for(final BankAccount account : bank.getAllAccounts())
+        {
+            assertTrue(bank.getAccount(account.getAccountNumber()) == account, "account " + account.getAccountNumber());
+            assertTrue(bank.getClient(account.getClient().getClientID()) == account.getClient(),
+                       "client of " + account.getAccountNumber());
+        }
+        assertEquals(ACCOUNTS + 1, bank.getAccountCount(), "account count");
+        assertEquals(ACCOUNTS, bank.getClientCount(), "client count");
+        assertEquals(List.of(bank.getAccount(Integer.toString(TestBanks.FIRST_ACCOUNT)), second),
+                     bank.getAccountsOf(Integer.toString(TestBanks.FIRST_CLIENT_ID)),
+                     "accounts of the first client");
+    }
+
+    /**
+     * Checks that lookups by IDs the bank does not have, including IDs that could never be packed,
+     * return null or an empty list instead of throwing.
+     */
+    static void unknownIdsFindNothing()
+    {
+        final Bank bank;
+
+        bank = TestBanks.newBank(ACCOUNTS);
+        for(final String id : new String[]{null, "", "1".repeat(MAX_ID_LENGTH + 1), "12" + NOT_LATIN_1, "999999"})
+        {
+            assertTrue(bank.getAccount(id) == null, "account " + id);
+            assertTrue(bank.getClient(id) == null, "client " + id);
+            assertEquals(List.of(), bank.getAccountsOf(id), "accounts of " + id);
+        }
+    }
+
+    /**
+     * Checks that an account number or client ID already in use is refused without changing the bank.
+     */
+    static void refusesTakenIds()
+    {
+        final Bank bank;
+
+        bank = TestBanks.newBank(ACCOUNTS);
+        assertEquals(ValidationError.DUPLICATE_ACCOUNT_NUMBER,
+                     bank.tryAddAccount(TestBanks.newAccount(0)),
+                     "adding an account number in use");
+        assertEquals(ValidationError.CLIENT_ID_TAKEN,
+                     bank.tryAddAccount(new BankAccount(TestBanks.newClient(0),
+                                                        TestBanks.PIN,
+                                                        Integer.toString(TestBanks.FIRST_ACCOUNT + ACCOUNTS),
+                                                        null,
+                                                        TestBanks.STARTING_USD)),
+                     "adding an account for a different client with an ID in use");
+        assertEquals(ValidationError.DUPLICATE_CLIENT_ID,
+                     bank.tryAddClient(TestBanks.newClient(0)),
+                     "adding a client ID in use");
+        assertEquals(ACCOUNTS, bank.getAccountCount(), "account count");
+        assertEquals(ACCOUNTS, bank.getClientCount(), "client count");
+    }
+}
@@ -0,0 +1,157 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that BkTree measures edit distances correctly, keeps each string once, and that a search finds
+ * exactly the strings a comparison against every string would.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class BkTreeTest
+{
+    private static final String   ALPHABET     = "abcd";
+    private static final int      LONGEST_WORD = 4;
+    private static final int      MAX_DISTANCE = 3;
+    private static final long     SEED         = 2522L;
+    private static final String[] QUERIES      = {"", "a", "dcba", "abcdabcd", "bb", "cadd", "xyz"};
+
+    /**
+     * Checks the distance between pairs whose edit distance is known, both ways round.
+     */
+    static void distanceCountsEdits()
+    {
+        final Object[][] pairs;
+
+        pairs = new Object[][]{
+                {"kitten", "sitting", 3},
+                {"", "abc", 3},
+                {"flaw", "lawn", 2},
+                {"kahlo", "kalho", 2},
+                {"frida", "frida", 0},
+                {"a", "b", 1}
+        };
+        for(final Object[] pair : pairs)
+        {
+            assertEquals((int) pair[2], BkTree.distance((String) pair[0], (String) pair[1]),
+                         "distance from " + pair[0] + " to " + pair[1]);
+            assertEquals((int) pair[2], BkTree.distance((String) pair[1], (String) pair[0]),
+                         "distance from " + pair[1] + " to " + pair[0]);
+        }
+    }
+
+    /**
+     * Adds every word of up to LONGEST_WORD letters from ALPHABET, in a shuffled order and twice over,
+     * and checks each is kept once.
+     */
+    static void keepsEachStringOnce()
+    {
+        final List<String> words;
+        final BkTree       tree;
+
+        words = shuffledWords();
+        tree  = new BkTree();
+        for(final String word : words)
+        {
+            assertTrue(tree.add(word), "first add of " + word);
+        }
+        for(final String word : words)
+        {
+            assertTrue(!tree.add(word), "second add of " + word);
+        }
+        assertEquals(words.size(), tree.size(), "size");
+    }
+
+    /**
+     * Checks that searches at every distance up to MAX_DISTANCE, for every word in the tree and some that are
+     * not, find the same matches, with the same distances, as comparing the query with every word.
+     */
+    static void searchMatchesEveryComparison()
+    {
+        final List<String> words;
+        final BkTree       tree;
+        final List<String> queries;
+
+        words   = shuffledWords();
+        tree    = new BkTree();
+        queries = new ArrayList<>(words);
+        Collections.addAll(queries, QUERIES);
+        for(final String word : words)
+        {
+            tree.add(word);
+        }
+
+        assertEquals(List.of(), new BkTree().search("a", MAX_DISTANCE), "matches in an empty tree");
+        for(final String query : queries)
+        {
+            for(int maxDistance = 0; maxDistance <= MAX_DISTANCE; maxDistance++)
+            {
+                final Set<BkTree.Match> expected;
+
+                expected = new HashSet<>();
+                for(final String word : words)
+                {
+                    final int distance;
+
+                    distance = BkTree.distance(query, word);
+                    if(distance <= maxDistance)
+                    {
+                        expected.add(new BkTree.Match(word, distance));
+                    }
+                }
+                assertEquals(expected,
+                             new HashSet<>(tree.search(query, maxDistance)),
+                             "matches for \"" + query + "\" within " + maxDistance);
+            }
+        }
+    }
+
+    /**
+     * Returns every word of 1 to LONGEST_WORD letters from ALPHABET, shuffled the same way every time.
+     *
+     * @return the words
+     */
+    private static List<String> shuffledWords()
+    {
+        final List<String> words;
+
+        words = new ArrayList<>();
+        addWords(words, "");
+        Collections.shuffle(words, new Random(SEED));
+
+        return words;
+    }
+
+    /**
+     * Adds every word that starts with the given prefix and is one to LONGEST_WORD letters long.
+     *
+     * @param words  the list to add to
+     * @param prefix the start of the words
+     */
+    private static void addWords(final List<String> words,
+                                 final String prefix)
+    {
+        if(prefix.length() == LONGEST_WORD)
+        {
+            return;
+        }
+        for(int i = 0; i < ALPHABET.length(); i++)
+        {
+            final String word;
+
+            word = prefix + ALPHABET.charAt(i);
+            words.add(word);
+            addWords(words, word);
+        }
+    }
+}
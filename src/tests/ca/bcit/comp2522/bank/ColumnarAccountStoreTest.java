@@ -0,0 +1,167 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertThrows;
+
+/**
+ * Tests ColumnarAccountStore: its scans agree with walking the accounts, its balances match the accounts
+ * exactly even when they change while the store is built, and its sums refuse to overflow.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class ColumnarAccountStoreTest
+{
+    private static final int  ACCOUNTS      = 200;
+    private static final int  BUSY_ACCOUNTS = 16;
+    private static final int  THREADS       = 4;
+    private static final int  CHANGES       = 20_000;
+    private static final long CHANGE_CENTS  = 7L;
+    private static final int  FROM_YEAR     = 1950;
+    private static final int  TO_YEAR       = 1980;
+    private static final int  OPEN_ON_YEAR  = 1960;
+    private static final long FULL_CENTS    = Long.MAX_VALUE - TestBanks.STARTING_CENTS;
+
+    /**
+     * Builds a store of living and deceased clients and open and closed accounts, and checks each scan
+     * against the same question answered by walking the accounts.
+     */
+    static void scansMatchAccounts()
+    {
+        final Bank          bank;
+        final int           fromDay;
+        final int           toDay;
+        final int           openOn;
+        final List<Integer> living;
+        long                livingCents;
+        long                allCents;
+        int                 all;
+        int                 openThatDay;
+
+        bank        = TestBanks.newMixedBank(ACCOUNTS);
+        fromDay     = Date.of(FROM_YEAR, 1, 1).getEpochDay();
+        toDay       = Date.of(TO_YEAR, 1, 1).getEpochDay();
+        openOn      = Date.of(OPEN_ON_YEAR, 1, 1).getEpochDay();
+        living      = new ArrayList<>();
+        livingCents = 0;
+        allCents    = 0;
+        all         = 0;
+        openThatDay = 0;
+        for(int row = 0; row < ACCOUNTS; row++)
+        {
+            final BankAccount account;
+            final int         opened;
+
+            account = bank.getAllAccounts().get(row);
+            opened  = account.getAccountOpened().getEpochDay();
+            if(opened >= fromDay && opened < toDay)
+            {
+                all++;
+                allCents += account.getBalanceCents();
+                if(account.getClient().isAlive())
+                {
+                    living.add(row);
+                    livingCents += account.getBalanceCents();
+                }
+            }
+            if(opened <= openOn &&
+               (account.getAccountClosed() == null || account.getAccountClosed().getEpochDay() > openOn))
+            {
+                openThatDay++;
+            }
+        }
+
+        try(final ColumnarAccountStore store = new ColumnarAccountStore(bank))
+        {
+            assertEquals(ACCOUNTS, store.size(), "rows");
+            assertEquals(bank.getTotalBalanceCents(), store.sumBalanceCents(), "total balance");
+            assertEquals(allCents, store.sumBalanceCentsOpened(fromDay, toDay, false), "total opened in range");
+            assertEquals(livingCents, store.sumBalanceCentsOpened(fromDay, toDay, true), "living total in range");
+            assertEquals(all, store.countOpened(fromDay, toDay, false), "opened in range");
+            assertEquals(living.size(), store.countOpened(fromDay, toDay, true), "living opened in range");
+            assertEquals(openThatDay, store.countOpenOn(openOn), "open on the day");
+            assertEquals(living,
+                         Arrays.stream(store.selectOpened(fromDay, toDay, true)).boxed().toList(),
+                         "rows selected");
+            for(int row = 0; row < ACCOUNTS; row++)
+            {
+                assertEquals(store.getAccount(row).getClient(),
+                             store.getClient(store.getClientIndex(row)),
+                             "client of row " + row);
+            }
+        }
+    }
+
+    /**
+     * Builds the store while THREADS threads deposit into and withdraw from a few accounts, and checks that
+     * once they stop every row holds its account's balance exactly, with no change counted twice.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    static void balancesMatchAfterConcurrentChanges() throws InterruptedException
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+        final Thread[]      workers;
+
+        bank     = TestBanks.newBank(BUSY_ACCOUNTS);
+        accounts = TestBanks.accountsOf(bank);
+        workers  = new Thread[THREADS];
+        for(int t = 0; t < THREADS; t++)
+        {
+            workers[t] = new Thread(() ->
+            {
+                for(int i = 0; i < CHANGES; i++)
+                {
+                    final BankAccount account;
+
+                    account = accounts[i % accounts.length];
+                    account.depositCents(CHANGE_CENTS);
+                    account.withdrawCents(CHANGE_CENTS);
+                    account.depositCents(CHANGE_CENTS);
+                }
+            });
+            workers[t].start();
+        }
+
+        try(final ColumnarAccountStore store = new ColumnarAccountStore(bank))
+        {
+            for(final Thread worker : workers)
+            {
+                worker.join();
+            }
+            for(int row = 0; row < accounts.length; row++)
+            {
+                assertEquals(accounts[row].getBalanceCents(), store.getBalanceCents(row), "balance of row " + row);
+            }
+            assertEquals(bank.getTotalBalanceCents(), store.sumBalanceCents(), "total balance");
+        }
+    }
+
+    /**
+     * Fills two accounts so their total would not fit in a long, and checks the sums throw.
+     */
+    static void sumsRefuseToOverflow()
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+
+        bank     = TestBanks.newBank(2);
+        accounts = TestBanks.accountsOf(bank);
+        try(final ColumnarAccountStore store = new ColumnarAccountStore(bank))
+        {
+            accounts[0].depositCents(FULL_CENTS);
+            accounts[1].depositCents(FULL_CENTS);
+
+            assertThrows(ArithmeticException.class, store::sumBalanceCents, "summing past Long.MAX_VALUE");
+            assertThrows(ArithmeticException.class,
+                         () -> store.sumBalanceCentsOpened(Integer.MIN_VALUE, Integer.MAX_VALUE, false),
+                         "summing opened accounts past Long.MAX_VALUE");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertThrows;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests Date's epoch day and weekday math against java.time for every day it accepts,
+ * and its validation at the edges of months, leap years and the supported range.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class DateTest
+{
+    private static final int LEAP_CENTURY     = 2000;
+    private static final int NON_LEAP_CENTURY = 1900;
+    private static final int FEBRUARY         = 2;
+    private static final int APRIL            = 4;
+    private static final int DECEMBER         = 12;
+    private static final int LEAP_DAY         = 29;
+    private static final int APRIL_31         = 31;
+    private static final int DAYS_PER_WEEK    = 7;
+
+    /**
+     * Checks every day from MIN_YEAR to MAX_YEAR: its epoch day and weekday match java.time,
+     * and converting the epoch day back gives the same shared Date.
+     */
+    static void epochDaysAndWeekdaysMatchJavaTime()
+    {
+        final LocalDate last;
+        LocalDate       day;
+
+        last = LocalDate.of(Date.MAX_YEAR, DECEMBER, 31);
+        day  = LocalDate.of(Date.MIN_YEAR, 1, 1);
+        while(!day.isAfter(last))
+        {
+            final Date date;
+
+            date = Date.of(day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+            assertEquals(day.toEpochDay(), date.getEpochDay(), "epoch day of " + day);
+            assertEquals(day.getDayOfWeek().name(), date.getWeekday().name(), "weekday of " + day);
+            assertTrue(Date.ofEpochDay(date.getEpochDay()) == date, "ofEpochDay returns the shared Date for " + day);
+            day = day.plusDays(1);
+        }
+    }
+
+    /**
+     * Checks that impossible days and days outside the supported years are refused,
+     * and that the leap day is accepted only in leap years.
+     */
+    static void rejectsInvalidDates()
+    {
+        assertEquals(ValidationError.OK, Date.check(LEAP_CENTURY, FEBRUARY, LEAP_DAY), "February 29, 2000");
+        assertEquals(ValidationError.DAY_OUT_OF_RANGE,
+                     Date.check(NON_LEAP_CENTURY, FEBRUARY, LEAP_DAY),
+                     "February 29, 1900");
+        assertEquals(ValidationError.DAY_OUT_OF_RANGE, Date.check(LEAP_CENTURY, APRIL, APRIL_31), "April 31");
+        assertEquals(ValidationError.DAY_OUT_OF_RANGE, Date.check(LEAP_CENTURY, 1, 0), "day 0");
+        assertEquals(ValidationError.MONTH_OUT_OF_RANGE, Date.check(LEAP_CENTURY, DECEMBER + 1, 1), "month 13");
+        assertEquals(ValidationError.YEAR_OUT_OF_RANGE, Date.check(Date.MIN_YEAR - 1, 1, 1), "year before MIN_YEAR");
+        assertEquals(ValidationError.YEAR_OUT_OF_RANGE, Date.check(Date.MAX_YEAR + 1, 1, 1), "year after MAX_YEAR");
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> Date.of(NON_LEAP_CENTURY, FEBRUARY, LEAP_DAY),
+                     "Date.of February 29, 1900");
+        assertThrows(IllegalArgumentException.class,
+                     () -> new Date(LEAP_CENTURY, APRIL, APRIL_31),
+                     "new Date April 31");
+        assertThrows(IllegalArgumentException.class,
+                     () -> Date.of(Date.MIN_YEAR, 1, 1).plusDays(-1),
+                     "plusDays before MIN_YEAR");
+    }
+
+    /**
+     * Checks daysBetween, plusDays and compareTo across a leap day and a year boundary.
+     */
+    static void dayArithmetic()
+    {
+        final Date before;
+        final Date after;
+
+        before = Date.of(LEAP_CENTURY, FEBRUARY, 28);
+        after  = Date.of(LEAP_CENTURY, 3, 1);
+
+        assertEquals(2, before.daysBetween(after), "days from February 28 to March 1, 2000");
+        assertEquals(-2, after.daysBetween(before), "days from March 1 to February 28, 2000");
+        assertTrue(before.plusDays(1) == Date.of(LEAP_CENTURY, FEBRUARY, LEAP_DAY), "day after February 28, 2000");
+        assertTrue(Date.of(NON_LEAP_CENTURY - 1, DECEMBER, 31).plusDays(1) == Date.of(NON_LEAP_CENTURY, 1, 1),
+                   "day after December 31, 1899");
+        assertTrue(before.compareTo(after) < 0 && after.compareTo(before) > 0, "compareTo orders by day");
+        assertEquals(0, before.compareTo(Date.of(LEAP_CENTURY, FEBRUARY, 28)), "compareTo of the same day");
+        assertEquals(before.getWeekday(), before.plusDays(DAYS_PER_WEEK).getWeekday(), "weekday a week later");
+    }
+}
@@ -0,0 +1,125 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests FeedCursor: each kind of field reads back what was written, repeated names share one String,
+ * and the first problem on a line is the one reported, without throwing.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class FeedCursorTest
+{
+    private static final String EVERY_FIELD = "abc123,Ada,2001-02-03,,42,12.5,1234567";
+    private static final int    NUMBER      = 42;
+    private static final long   CENTS       = 1_250L;
+    private static final String PACKED_ID   = "1234567";
+
+    /**
+     * Reads one of each kind of field from a line and checks every value.
+     */
+    static void readsEveryKindOfField()
+    {
+        final FeedCursor cursor;
+        final Date       date;
+
+        cursor = cursorOver(EVERY_FIELD);
+        assertEquals("abc123", cursor.nextString(), "string");
+        assertEquals("Ada", cursor.nextName(), "name");
+        date = cursor.nextDate();
+        assertEquals(Date.of(2001, 2, 3).getEpochDay(), date.getEpochDay(), "date");
+        assertEquals(null, cursor.nextOptionalDate(), "empty optional date");
+        assertEquals(NUMBER, cursor.nextInt(), "number");
+        assertEquals(CENTS, cursor.nextCents(), "amount in cents");
+        assertEquals(PackedIdMap.pack(PACKED_ID), cursor.nextPackedId(), "packed ID");
+        cursor.endLine();
+        assertEquals(ValidationError.OK, cursor.getError(), "error");
+    }
+
+    /**
+     * Reads the same name on two lines and checks the second read returns the String made by the first.
+     */
+    static void reusesRepeatedNames()
+    {
+        final ByteBuffer buffer;
+        final FeedCursor cursor;
+        final String     first;
+
+        buffer = ByteBuffer.wrap("Lovelace\nLovelace".getBytes(StandardCharsets.UTF_8));
+        cursor = new FeedCursor(buffer);
+        cursor.startLine(0, "Lovelace".length());
+        first = cursor.nextName();
+        cursor.startLine("Lovelace".length() + 1, buffer.limit());
+
+        assertTrue(cursor.nextName() == first, "the repeated name is the same String");
+    }
+
+    /**
+     * Checks each kind of malformed line reports its problem, and that only the first problem on a line
+     * is kept.
+     */
+    static void reportsFirstProblem()
+    {
+        FeedCursor cursor;
+
+        cursor = cursorOver("x,12.345,2001-13-01");
+        cursor.nextString();
+        assertEquals(0L, cursor.nextCents(), "amount with three decimals");
+        assertEquals(null, cursor.nextDate(), "date after an error");
+        assertEquals(ValidationError.MALFORMED_AMOUNT, cursor.getError(), "first problem kept");
+
+        cursor = cursorOver("2001-13-01");
+        cursor.nextDate();
+        assertEquals(ValidationError.MONTH_OUT_OF_RANGE, cursor.getError(), "month 13");
+
+        cursor = cursorOver("2001-2-3");
+        cursor.nextDate();
+        assertEquals(ValidationError.MALFORMED_DATE, cursor.getError(), "date without leading zeros");
+
+        cursor = cursorOver("");
+        cursor.nextDate();
+        assertEquals(ValidationError.DATE_NULL, cursor.getError(), "empty required date");
+
+        cursor = cursorOver("12a");
+        cursor.nextInt();
+        assertEquals(ValidationError.MALFORMED_NUMBER, cursor.getError(), "number with a letter");
+
+        cursor = cursorOver("only");
+        cursor.nextString();
+        cursor.nextString();
+        assertEquals(ValidationError.TOO_FEW_FIELDS, cursor.getError(), "reading past the last field");
+
+        cursor = cursorOver("one,two");
+        cursor.nextString();
+        cursor.endLine();
+        assertEquals(ValidationError.TOO_MANY_FIELDS, cursor.getError(), "field left over");
+
+        cursor = cursorOver("12345678");
+        assertEquals(PackedIdMap.NO_KEY, cursor.nextPackedId(), "ID too long to pack");
+        assertEquals(ValidationError.ID_NOT_PACKABLE, cursor.getError(), "ID too long to pack");
+    }
+
+    /**
+     * Creates a cursor at the start of a buffer holding one line.
+     *
+     * @param line the line
+     * @return the cursor
+     */
+    private static FeedCursor cursorOver(final String line)
+    {
+        final ByteBuffer buffer;
+        final FeedCursor cursor;
+
+        buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        cursor = new FeedCursor(buffer);
+        cursor.startLine(0, buffer.limit());
+
+        return cursor;
+    }
+}
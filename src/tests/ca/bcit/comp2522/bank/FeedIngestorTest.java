@@ -0,0 +1,200 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests FeedIngestor: client and account feeds load into a bank, each bad line is reported with its line
+ * number and reason while the rest load, feeds of many batches load whole, and an interrupted load throws
+ * without leaving any worker thread behind.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class FeedIngestorTest
+{
+    private static final int    WORKERS        = 3;
+    private static final int    QUEUE          = 1;
+    private static final int    MANY_LINES     = FeedIngestor.BATCH_LINES * 3 + 7;
+    private static final int    HUGE_LINES     = FeedIngestor.BATCH_LINES * 50;
+    private static final String WORKER_PREFIX  = "feed-worker-";
+    private static final long   ACCOUNT_CENTS  = 10_050L;
+
+    private static final String CLIENT_FEED =
+        "# clients\n" +
+        "1000001,Ada,Lovelace,1815-12-10,1852-11-27,1840-01-01\n" +
+        "1000002,Alan,Turing,1912-06-23,,1930-01-01\r\n" +
+        "\n" +
+        "1000003,Ada,Lovelace,1815-12-10,,1800-01-01\n" +
+        "1000004,Bad\n" +
+        "1000001,Ada,Lovelace,1815-12-10,,1840-01-01\n";
+
+    private static final String ACCOUNT_FEED =
+        "3000001,1000001,1234,1840-01-01,1850-01-01,100.5\n" +
+        "3000002,1000002,1234,1930-01-01,,250\n" +
+        "3000003,9999999,1234,1930-01-01,,1\n" +
+        "3000004,1000002,1234,1930-01-01,,0\n";
+
+    /**
+     * Loads a client feed and then an account feed with good, blank, comment and bad lines, and checks what
+     * was loaded and which lines were rejected and why.
+     *
+     * @throws IOException          if the feeds cannot be written or read
+     * @throws InterruptedException if interrupted while loading
+     */
+    static void loadsFeedsAndReportsBadLines() throws IOException, InterruptedException
+    {
+        final Bank                           bank;
+        final List<FeedIngestor.RejectedRow> rejected;
+        final FeedIngestor                   ingestor;
+        final Path                           clients;
+        final Path                           accounts;
+
+        bank     = new Bank();
+        rejected = Collections.synchronizedList(new ArrayList<>());
+        ingestor = new FeedIngestor(bank, WORKERS, QUEUE, rejected::add);
+        clients  = Files.createTempFile("clients", ".csv");
+        accounts = Files.createTempFile("accounts", ".csv");
+        try
+        {
+            Files.writeString(clients, CLIENT_FEED);
+            Files.writeString(accounts, ACCOUNT_FEED);
+
+            assertEquals(new FeedIngestor.Result(2, 3),
+                         ingestor.load(clients, FeedIngestor.Kind.CLIENTS),
+                         "clients");
+            assertEquals(new FeedIngestor.Result(2, 2),
+                         ingestor.load(accounts, FeedIngestor.Kind.ACCOUNTS),
+                         "accounts");
+        }
+        finally
+        {
+            Files.delete(clients);
+            Files.delete(accounts);
+        }
+
+        assertEquals("Alan Turing", bank.getClient("1000002").getName().getFullName(), "client after a CRLF");
+        assertEquals(ACCOUNT_CENTS, bank.getAccount("3000001").getBalanceCents(), "balance of 3000001");
+        assertTrue(bank.getAccount("3000001").getAccountClosed() != null, "3000001 is closed");
+
+        rejected.sort(Comparator.comparing(FeedIngestor.RejectedRow::error));
+        assertEquals(List.of(new FeedIngestor.RejectedRow(5,
+                                                          "1000003,Ada,Lovelace,1815-12-10,,1800-01-01",
+                                                          ValidationError.CLIENT_DATES_INCONSISTENT),
+                             new FeedIngestor.RejectedRow(4,
+                                                          "3000004,1000002,1234,1930-01-01,,0",
+                                                          ValidationError.BALANCE_NOT_POSITIVE),
+                             new FeedIngestor.RejectedRow(7,
+                                                          "1000001,Ada,Lovelace,1815-12-10,,1840-01-01",
+                                                          ValidationError.DUPLICATE_CLIENT_ID),
+                             new FeedIngestor.RejectedRow(3,
+                                                          "3000003,9999999,1234,1930-01-01,,1",
+                                                          ValidationError.UNKNOWN_CLIENT),
+                             new FeedIngestor.RejectedRow(6, "1000004,Bad", ValidationError.TOO_FEW_FIELDS)),
+                     rejected,
+                     "rejected lines");
+    }
+
+    /**
+     * Loads a feed of several batches through a one-batch queue and checks every line is loaded.
+     *
+     * @throws InterruptedException if interrupted while loading
+     */
+    static void loadsFeedsOfManyBatches() throws InterruptedException
+    {
+        final Bank                bank;
+        final FeedIngestor        ingestor;
+        final FeedIngestor.Result result;
+
+        bank     = new Bank();
+        ingestor = new FeedIngestor(bank, WORKERS, QUEUE, row -> { });
+        result   = ingestor.load(clientFeed(MANY_LINES), FeedIngestor.Kind.CLIENTS);
+
+        assertEquals(new FeedIngestor.Result(MANY_LINES, 0), result, "result");
+        assertEquals(MANY_LINES, bank.getClientCount(), "clients in the bank");
+    }
+
+    /**
+     * Interrupts a load before it starts, and another from the workers over and over while it runs, and
+     * checks each throws InterruptedException, leaves the thread interrupted no longer, and leaves no worker
+     * thread running.
+     */
+    static void interruptedLoadStopsWorkers()
+    {
+        final Thread caller;
+
+        caller = Thread.currentThread();
+        caller.interrupt();
+        assertInterrupted(new FeedIngestor(new Bank(), WORKERS, QUEUE, row -> { }),
+                          clientFeed(HUGE_LINES),
+                          "load started interrupted");
+        assertInterrupted(new FeedIngestor(new Bank(), WORKERS, QUEUE, row -> caller.interrupt()),
+                          ByteBuffer.wrap("1000000,Bad\n".repeat(HUGE_LINES).getBytes(StandardCharsets.UTF_8)),
+                          "load interrupted by every rejected line");
+    }
+
+    /**
+     * Fails unless the load throws InterruptedException with no worker thread left running afterwards.
+     * Clears the calling thread's interrupt flag either way.
+     *
+     * @param ingestor the ingestor
+     * @param feed     the client feed to load
+     * @param what     what the load is
+     */
+    private static void assertInterrupted(final FeedIngestor ingestor,
+                                          final ByteBuffer feed,
+                                          final String what)
+    {
+        boolean thrown;
+
+        thrown = false;
+        try
+        {
+            ingestor.load(feed, FeedIngestor.Kind.CLIENTS);
+        }
+        catch(final InterruptedException e)
+        {
+            thrown = true;
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+
+        assertTrue(thrown, what + " throws InterruptedException");
+        for(final Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            assertTrue(!thread.getName().startsWith(WORKER_PREFIX), what + ": " + thread.getName() + " left running");
+        }
+    }
+
+    /**
+     * Writes a client feed of the given number of valid lines.
+     *
+     * @param lines how many clients
+     * @return the feed
+     */
+    private static ByteBuffer clientFeed(final int lines)
+    {
+        final StringBuilder feed;
+
+        feed = new StringBuilder();
+        for(int i = 0; i < lines; i++)
+        {
+            feed.append(TestBanks.FIRST_CLIENT_ID + i).append(",Ada,Lovelace,1815-12-10,,1840-01-01\n");
+        }
+
+        return ByteBuffer.wrap(feed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
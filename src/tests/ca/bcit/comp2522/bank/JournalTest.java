@@ -0,0 +1,288 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that replaying a TransactionJournal onto a snapshot rebuilds the live balances, applying each record
+ * exactly once, that a reopened journal carries on where it stopped, and that appends never wait for a flush.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class JournalTest
+{
+    private static final int  ACCOUNTS           = 50;
+    private static final int  ROUNDS             = 20;
+    private static final long DEPOSIT_CENTS      = 1_234L;
+    private static final long WITHDRAW_CENTS     = 567L;
+    private static final int  GROUP_COMMIT       = 64;
+    private static final long SYNC_MILLIS        = 10L;
+    private static final long NO_RECORDS         = 0L;
+    private static final int  EVENTS_PER_ROUND   = 2;
+    private static final int  APPENDS_PAST_MAPS  = 300_000;
+    private static final long APPEND_WAIT_MILLIS = 10_000L;
+
+    /**
+     * Snapshots a bank, journals ROUNDS rounds of deposits and withdrawals on it, then checks that replaying
+     * the journal onto the snapshot gives the live balances, and that replaying it again changes nothing.
+     *
+     * @throws IOException if the files cannot be written or read
+     */
+    static void replayAppliesEachRecordOnce() throws IOException
+    {
+        final Bank bank;
+        final Path snapshot;
+        final Path journalFile;
+
+        bank        = TestBanks.newMixedBank(ACCOUNTS);
+        snapshot    = Files.createTempFile("bank", ".snapshot");
+        journalFile = Files.createTempFile("bank", ".journal");
+        try
+        {
+            final long expected;
+            final Bank restored;
+
+            BankSnapshot.save(snapshot, bank, NO_RECORDS);
+            expected = journalRounds(bank, journalFile, ROUNDS);
+
+            restored = BankSnapshot.load(snapshot, true);
+            assertEquals(expected, TransactionJournal.replay(journalFile, restored), "records applied");
+            assertEquals(expected, restored.getJournalSequence(), "journal sequence after replay");
+            TestBanks.assertSameBank(bank, restored);
+
+            assertEquals(0, TransactionJournal.replay(journalFile, restored), "records applied by a second replay");
+            TestBanks.assertSameBank(bank, restored);
+        }
+        finally
+        {
+            Files.delete(snapshot);
+            Files.delete(journalFile);
+        }
+    }
+
+    /**
+     * Journals some rounds, snapshots the bank with the journal's last sequence, journals more rounds, and
+     * checks that replaying the whole journal onto the snapshot applies only the records after it.
+     *
+     * @throws IOException if the files cannot be written or read
+     */
+    static void replaySkipsRecordsInSnapshot() throws IOException
+    {
+        final Bank bank;
+        final Path snapshot;
+        final Path journalFile;
+
+        bank        = TestBanks.newMixedBank(ACCOUNTS);
+        snapshot    = Files.createTempFile("bank", ".snapshot");
+        journalFile = Files.createTempFile("bank", ".journal");
+        try(final TransactionJournal journal = new TransactionJournal(journalFile, GROUP_COMMIT, SYNC_MILLIS))
+        {
+            final long saved;
+            final Bank restored;
+
+            attach(bank, journal);
+            depositAndWithdraw(bank, ROUNDS);
+            journal.sync();
+            saved = journal.getLastSequence();
+            BankSnapshot.save(snapshot, bank, saved);
+            depositAndWithdraw(bank, ROUNDS);
+            journal.sync();
+
+            restored = BankSnapshot.load(snapshot, false);
+            assertEquals(saved, restored.getJournalSequence(), "journal sequence in the snapshot");
+            assertEquals(journal.getLastSequence() - saved,
+                         TransactionJournal.replay(journalFile, restored),
+                         "records applied");
+            TestBanks.assertSameBank(bank, restored);
+        }
+        finally
+        {
+            Files.delete(snapshot);
+            Files.delete(journalFile);
+        }
+    }
+
+    /**
+     * Journals some rounds, closes and reopens the journal, journals more, and checks the sequence carries on
+     * and a replay from the start applies every record.
+     *
+     * @throws IOException if the files cannot be written or read
+     */
+    static void continuesAfterReopen() throws IOException
+    {
+        final Bank bank;
+        final Path snapshot;
+        final Path journalFile;
+
+        bank        = TestBanks.newMixedBank(ACCOUNTS);
+        snapshot    = Files.createTempFile("bank", ".snapshot");
+        journalFile = Files.createTempFile("bank", ".journal");
+        try
+        {
+            final long first;
+            final long second;
+            final Bank restored;
+
+            BankSnapshot.save(snapshot, bank, NO_RECORDS);
+            first = journalRounds(bank, journalFile, ROUNDS);
+            try(final TransactionJournal reopened = new TransactionJournal(journalFile, GROUP_COMMIT, SYNC_MILLIS))
+            {
+                assertEquals(first, reopened.getLastSequence(), "last sequence after reopening");
+            }
+            second = journalRounds(bank, journalFile, ROUNDS);
+
+            restored = BankSnapshot.load(snapshot, true);
+            assertEquals(first + second, TransactionJournal.replay(journalFile, restored), "records applied");
+            TestBanks.assertSameBank(bank, restored);
+        }
+        finally
+        {
+            Files.delete(snapshot);
+            Files.delete(journalFile);
+        }
+    }
+
+    /**
+     * Holds the journal's monitor, as sync does while it flushes, and checks that another thread can still
+     * append APPENDS_PAST_MAPS records, enough to need new regions of the file mapped, without waiting for it.
+     *
+     * @throws IOException          if the journal cannot be opened or closed
+     * @throws InterruptedException if interrupted while waiting for the appending thread
+     */
+    static void appendsDoNotWaitForFlush() throws IOException, InterruptedException
+    {
+        final Path        journalFile;
+        final BankAccount account;
+
+        journalFile = Files.createTempFile("bank", ".journal");
+        account     = TestBanks.newAccount(0);
+        try(final TransactionJournal journal = new TransactionJournal(journalFile, GROUP_COMMIT, SYNC_MILLIS))
+        {
+            final Thread appender;
+
+            appender = new Thread(() ->
+            {
+                for(int i = 0; i < APPENDS_PAST_MAPS; i++)
+                {
+                    journal.balanceChanged(account, TransactionType.DEPOSIT, DEPOSIT_CENTS, DEPOSIT_CENTS);
+                }
+            });
+
+            synchronized(journal)
+            {
+                appender.start();
+                appender.join(APPEND_WAIT_MILLIS);
+                assertTrue(!appender.isAlive(),
+                           "appends finished within " + TimeUnit.MILLISECONDS.toSeconds(APPEND_WAIT_MILLIS) +
+                           " s while the journal's monitor was held");
+            }
+            appender.join();
+            assertEquals(APPENDS_PAST_MAPS, journal.getLastSequence(), "last sequence");
+            assertEquals(0, journal.getLostCount(), "lost records");
+        }
+        finally
+        {
+            Files.delete(journalFile);
+        }
+    }
+
+    /**
+     * Opens the journal, attaches it to every account, makes the given number of rounds of changes,
+     * then detaches and closes it.
+     *
+     * @param bank        the bank
+     * @param journalFile the journal file
+     * @param rounds      how many rounds of changes to make
+     * @return how many records were journaled
+     * @throws IOException if the journal cannot be opened or flushed
+     */
+    private static long journalRounds(final Bank bank,
+                                      final Path journalFile,
+                                      final int rounds) throws IOException
+    {
+        final long written;
+
+        try(final TransactionJournal journal = new TransactionJournal(journalFile, GROUP_COMMIT, SYNC_MILLIS))
+        {
+            final long before;
+
+            before = journal.getLastSequence();
+            attach(bank, journal);
+            depositAndWithdraw(bank, rounds);
+            for(final BankAccount account : bank.getAllAccounts())
+            {
+                account.removeListener(journal);
+            }
+            written = journal.getLastSequence() - before;
+        }
+        assertEquals((long) rounds * EVENTS_PER_ROUND * countOpen(bank), written, "records journaled");
+
+        return written;
+    }
+
+    /**
+     * Registers the journal as a listener on every account.
+     *
+     * @param bank    the bank
+     * @param journal the journal
+     */
+    private static void attach(final Bank bank,
+                               final TransactionJournal journal)
+    {
+        for(final BankAccount account : bank.getAllAccounts())
+        {
+            account.addListener(journal);
+        }
+    }
+
+    /**
+     * Deposits into and then withdraws from every open account, the given number of times.
+     *
+     * @param bank   the bank
+     * @param rounds how many times
+     */
+    private static void depositAndWithdraw(final Bank bank,
+                                           final int rounds)
+    {
+        for(int round = 0; round < rounds; round++)
+        {
+            for(final BankAccount account : bank.getAllAccounts())
+            {
+                if(account.getAccountClosed() == null)
+                {
+                    account.depositCents(DEPOSIT_CENTS);
+                    account.withdrawCents(WITHDRAW_CENTS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the open accounts.
+     *
+     * @param bank the bank
+     * @return the number of accounts with no closing date
+     */
+    private static int countOpen(final Bank bank)
+    {
+        int open;
+
+        open = 0;
+        for(final BankAccount account : bank.getAllAccounts())
+        {
+            if(account.getAccountClosed() == null)
+            {
+                open++;
+            }
+        }
+
+        return open;
+    }
+}
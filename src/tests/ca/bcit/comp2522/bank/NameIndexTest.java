@@ -0,0 +1,193 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+
+/**
+ * Tests that NameIndex finds clients by the start of their first, last or full name, and by a misspelled
+ * first or last name, closest first, and that clients added from several threads at once are all found.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class NameIndexTest
+{
+    private static final int      UNLIMITED    = Integer.MAX_VALUE;
+    private static final int      MAX_DISTANCE = 2;
+    private static final int      THREADS      = 4;
+    private static final int      PER_THREAD   = 500;
+    private static final String[] FIRST_NAMES  = {"Ada", "Alan", "Grace", "Edsger", "Barbara"};
+    private static final String[] LAST_NAMES   = {"Lovelace", "Turing", "Hopper", "Dijkstra", "Liskov", "Knuth"};
+    private static final String[] CLIENT_NAMES = {"Frida", "Kahlo",
+                                                  "Frank", "Kahn",
+                                                  "Diego", "Rivera",
+                                                  "Rivera", "Rivera",
+                                                  "Frida", "Lopez"};
+
+    /**
+     * Checks prefix lookups ignore case and surrounding spaces, search first, last and full names in order of
+     * the matching name, list a client once even when several of its names match, and stop at the limit.
+     */
+    static void findsByPrefix()
+    {
+        final NameIndex    index;
+        final BankClient[] clients;
+
+        index   = new NameIndex();
+        clients = addClients(index);
+
+        assertEquals(List.of(clients[1], clients[0], clients[4]), index.findByPrefix("fr", UNLIMITED), "\"fr\"");
+        assertEquals(List.of(clients[0]), index.findByPrefix("FRIDA K", UNLIMITED), "\"FRIDA K\"");
+        assertEquals(List.of(clients[0], clients[1]), index.findByPrefix("  kah ", UNLIMITED), "\"  kah \"");
+        assertEquals(List.of(clients[2], clients[3]), index.findByPrefix("rivera", UNLIMITED), "\"rivera\"");
+        assertEquals(List.of(clients[1]), index.findByPrefix("fr", 1), "\"fr\" limited to one");
+        assertEquals(List.of(), index.findByPrefix("zz", UNLIMITED), "\"zz\"");
+        assertEquals(clients.length, index.findByPrefix("", UNLIMITED).size(), "clients found by an empty prefix");
+    }
+
+    /**
+     * Checks misspelled first and last names find their clients closest first, breaking ties by name,
+     * that full names cannot be found this way, and that the lookup stops at the limit.
+     */
+    static void findsSimilarNames()
+    {
+        final NameIndex    index;
+        final BankClient[] clients;
+
+        index   = new NameIndex();
+        clients = addClients(index);
+
+        assertEquals(List.of(clients[0], clients[1]),
+                     index.findBySimilarName("Kalho", MAX_DISTANCE, UNLIMITED),
+                     "\"Kalho\"");
+        assertEquals(List.of(clients[0], clients[4], clients[1]),
+                     index.findBySimilarName("fridk", MAX_DISTANCE, UNLIMITED),
+                     "\"fridk\"");
+        assertEquals(List.of(clients[2], clients[3]),
+                     index.findBySimilarName("Riviera", MAX_DISTANCE, UNLIMITED),
+                     "\"Riviera\"");
+        assertEquals(List.of(clients[0]),
+                     index.findBySimilarName("fridk", MAX_DISTANCE, 1),
+                     "\"fridk\" limited to one");
+        assertEquals(List.of(clients[4]), index.findBySimilarName("lopez", 0, UNLIMITED), "\"lopez\" exactly");
+        assertEquals(List.of(), index.findBySimilarName("frida kahlo", MAX_DISTANCE, UNLIMITED), "a full name");
+    }
+
+    /**
+     * Adds PER_THREAD clients from each of THREADS threads at once, all sharing a few first and last names,
+     * and checks every client is found by its first name and by a misspelling of its last name.
+     *
+     * @throws Exception if a thread failed or was interrupted
+     */
+    static void findsClientsAddedConcurrently() throws Exception
+    {
+        final NameIndex       index;
+        final ExecutorService pool;
+        final List<Future<?>> adds;
+
+        index = new NameIndex();
+        pool  = Executors.newFixedThreadPool(THREADS);
+        adds  = new ArrayList<>();
+        try
+        {
+            for(int thread = 0; thread < THREADS; thread++)
+            {
+                final int first;
+
+                first = thread * PER_THREAD;
+                adds.add(pool.submit(() ->
+                {
+                    for(int i = first; i < first + PER_THREAD; i++)
+                    {
+                        index.add(new BankClient(Name.of(FIRST_NAMES[i % FIRST_NAMES.length],
+                                                         LAST_NAMES[i % LAST_NAMES.length]),
+                                                 Date.of(1815, 12, 10),
+                                                 null,
+                                                 Date.of(1900, 1, 1),
+                                                 Integer.toString(TestBanks.FIRST_CLIENT_ID + i)));
+                    }
+                }));
+            }
+            for(final Future<?> add : adds)
+            {
+                add.get();
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(THREADS * PER_THREAD,
+                     new HashSet<>(index.findByPrefix("", UNLIMITED)).size(),
+                     "clients found by an empty prefix");
+        for(int i = 0; i < FIRST_NAMES.length; i++)
+        {
+            assertEquals(countWith(FIRST_NAMES.length, i),
+                         index.findByPrefix(FIRST_NAMES[i], UNLIMITED).size(),
+                         "clients named " + FIRST_NAMES[i]);
+        }
+        for(int i = 0; i < LAST_NAMES.length; i++)
+        {
+            assertEquals(countWith(LAST_NAMES.length, i),
+                         index.findBySimilarName(LAST_NAMES[i] + "x", 1, UNLIMITED).size(),
+                         "clients found by a misspelling of " + LAST_NAMES[i]);
+        }
+    }
+
+    /**
+     * Indexes one client for each pair of names in CLIENT_NAMES.
+     *
+     * @param index the index
+     * @return the clients, in the order of their names
+     */
+    private static BankClient[] addClients(final NameIndex index)
+    {
+        final BankClient[] clients;
+
+        clients = new BankClient[CLIENT_NAMES.length / 2];
+        for(int i = 0; i < clients.length; i++)
+        {
+            clients[i] = new BankClient(Name.of(CLIENT_NAMES[2 * i], CLIENT_NAMES[2 * i + 1]),
+                                        Date.of(1907, 7, 6),
+                                        null,
+                                        Date.of(1950, 1, 1),
+                                        Integer.toString(TestBanks.FIRST_CLIENT_ID + i));
+            index.add(clients[i]);
+        }
+
+        return clients;
+    }
+
+    /**
+     * Returns how many of the clients added by findsClientsAddedConcurrently got the name at the given place
+     * in a list of names that is cycled through.
+     *
+     * @param names how many names are cycled through
+     * @param place the place of the name
+     * @return the number of clients with that name
+     */
+    private static int countWith(final int names,
+                                 final int place)
+    {
+        int count;
+
+        count = 0;
+        for(int i = 0; i < THREADS * PER_THREAD; i++)
+        {
+            if(i % names == place)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
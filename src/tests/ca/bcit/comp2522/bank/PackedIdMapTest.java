@@ -0,0 +1,144 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertThrows;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests PackedIdMap's key packing and its open-addressing lookups, including keys that share a home slot.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class PackedIdMapTest
+{
+    private static final int  MANY_KEYS       = 100_000;
+    private static final int  COLLIDING_KEYS  = 5;
+    private static final int  SEARCHED_IDS    = 100_000;
+    private static final int  INITIAL_SLOTS   = 16;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int  MAX_ID_LENGTH   = 7;
+    private static final int  TARGET_SLOT     = INITIAL_SLOTS - 1;
+    private static final char NOT_LATIN_1     = '\u0100';
+
+    /**
+     * Checks that IDs differing only in length or in one character pack to different keys,
+     * and that packing from bytes gives the same key as packing the String.
+     */
+    static void packsToDistinctKeys()
+    {
+        final String     id;
+        final ByteBuffer bytes;
+
+        id    = "3000001";
+        bytes = ByteBuffer.wrap(("x," + id + ",y").getBytes(StandardCharsets.US_ASCII));
+
+        assertTrue(PackedIdMap.pack("1") != PackedIdMap.pack("10"), "1 and 10 pack differently");
+        assertTrue(PackedIdMap.pack("1") != PackedIdMap.pack("1\0"), "a trailing NUL changes the key");
+        assertTrue(PackedIdMap.pack("1234567") != PackedIdMap.pack("1234568"), "the last character counts");
+        assertEquals(PackedIdMap.pack(id), PackedIdMap.tryPack(bytes, 2, 2 + id.length()), "key packed from bytes");
+    }
+
+    /**
+     * Checks that IDs that do not fit in a key are refused.
+     */
+    static void rejectsUnpackableIds()
+    {
+        assertEquals(PackedIdMap.NO_KEY, PackedIdMap.tryPack((String) null), "null ID");
+        assertEquals(PackedIdMap.NO_KEY, PackedIdMap.tryPack(""), "empty ID");
+        assertEquals(PackedIdMap.NO_KEY, PackedIdMap.tryPack("1".repeat(MAX_ID_LENGTH + 1)), "ID too long");
+        assertEquals(PackedIdMap.NO_KEY, PackedIdMap.tryPack("12" + NOT_LATIN_1), "ID not Latin-1");
+        assertThrows(IllegalArgumentException.class, () -> PackedIdMap.pack(""), "pack of an empty ID");
+    }
+
+    /**
+     * Adds MANY_KEYS keys, so the table grows many times, and checks every one is still found,
+     * that adding one again keeps the first value, and that iteration is in insertion order.
+     */
+    static void findsEveryKeyThroughGrowth()
+    {
+        final PackedIdMap<String> map;
+        final List<String>        order;
+
+        map   = new PackedIdMap<>();
+        order = new ArrayList<>();
+        for(int i = 0; i < MANY_KEYS; i++)
+        {
+            final String id;
+
+            id = Integer.toString(i);
+            assertTrue(map.putIfAbsent(PackedIdMap.pack(id), id) == null, "first add of " + id);
+        }
+        for(int i = 0; i < MANY_KEYS; i++)
+        {
+            final String id;
+
+            id = Integer.toString(i);
+            assertEquals(id, map.get(PackedIdMap.pack(id)), "value for " + id);
+        }
+
+        assertEquals("0", map.putIfAbsent(PackedIdMap.pack("0"), "again"), "second add of 0");
+        assertEquals(MANY_KEYS, map.size(), "size");
+        assertTrue(map.get(PackedIdMap.pack(Integer.toString(MANY_KEYS))) == null, "missing key");
+
+        map.forEach(order::add);
+        for(int i = 0; i < MANY_KEYS; i++)
+        {
+            assertEquals(Integer.toString(i), order.get(i), "value " + i + " in iteration order");
+        }
+    }
+
+    /**
+     * Adds keys that all hash to the last slot of a new map, so each one probes past the others and wraps
+     * around to the start of the table, then checks each is found and that a missing key with the same home
+     * slot is not. The home slot is found with the same Fibonacci hash PackedIdMap uses; if that hash
+     * changes the keys stop colliding but the checks still hold.
+     */
+    static void probesPastCollidingKeys()
+    {
+        final PackedIdMap<String> map;
+        final List<String>        colliding;
+
+        map       = new PackedIdMap<>();
+        colliding = new ArrayList<>();
+        for(int i = 0; i < SEARCHED_IDS && colliding.size() <= COLLIDING_KEYS; i++)
+        {
+            final String id;
+
+            id = Integer.toString(i);
+            if(homeSlot(PackedIdMap.pack(id)) == TARGET_SLOT)
+            {
+                colliding.add(id);
+            }
+        }
+        assertTrue(colliding.size() > COLLIDING_KEYS, "found " + (COLLIDING_KEYS + 1) + " IDs sharing a home slot");
+
+        for(final String id : colliding.subList(0, COLLIDING_KEYS))
+        {
+            assertTrue(map.putIfAbsent(PackedIdMap.pack(id), id) == null, "first add of " + id);
+        }
+        for(final String id : colliding.subList(0, COLLIDING_KEYS))
+        {
+            assertEquals(id, map.get(PackedIdMap.pack(id)), "value for " + id);
+        }
+        assertTrue(map.get(PackedIdMap.pack(colliding.get(COLLIDING_KEYS))) == null, "missing colliding key");
+        assertEquals(COLLIDING_KEYS, map.size(), "size");
+    }
+
+    /**
+     * Returns the slot a key starts probing from in a map of INITIAL_SLOTS slots.
+     *
+     * @param key the packed key
+     * @return the home slot
+     */
+    private static int homeSlot(final long key)
+    {
+        return (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - Integer.numberOfTrailingZeros(INITIAL_SLOTS)));
+    }
+}
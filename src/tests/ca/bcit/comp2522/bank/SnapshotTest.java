@@ -0,0 +1,92 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests that a BankSnapshot loads back the clients, accounts, balances and journal sequence it saved,
+ * and that a file that is not a snapshot is refused.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class SnapshotTest
+{
+    private static final int  ACCOUNTS       = 50;
+    private static final long SAVED_SEQUENCE = 42L;
+    private static final byte NOT_MAGIC      = 0x7F;
+    private static final int  NOT_MAGIC_SIZE = 64;
+
+    /**
+     * Saves a bank of living and deceased clients and open and closed accounts, then checks that both
+     * the validated and the trusted load give back the same bank and the journal sequence it was saved with.
+     *
+     * @throws IOException if the file cannot be written or read
+     */
+    static void roundTrips() throws IOException
+    {
+        final Bank bank;
+        final Path snapshot;
+
+        bank     = TestBanks.newMixedBank(ACCOUNTS);
+        snapshot = Files.createTempFile("bank", ".snapshot");
+        try
+        {
+            bank.getAccount(Integer.toString(TestBanks.FIRST_ACCOUNT + 1)).depositCents(1L);
+            BankSnapshot.save(snapshot, bank, SAVED_SEQUENCE);
+            for(final boolean trusted : new boolean[]{false, true})
+            {
+                final Bank loaded;
+
+                loaded = BankSnapshot.load(snapshot, trusted);
+                assertEquals(SAVED_SEQUENCE, loaded.getJournalSequence(), "journal sequence, trusted " + trusted);
+                TestBanks.assertSameBank(bank, loaded);
+            }
+        }
+        finally
+        {
+            Files.delete(snapshot);
+        }
+    }
+
+    /**
+     * Checks that loading a file that does not start with the snapshot header throws IOException.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    static void refusesOtherFiles() throws IOException
+    {
+        final Path   file;
+        final byte[] bytes;
+
+        file  = Files.createTempFile("bank", ".snapshot");
+        bytes = new byte[NOT_MAGIC_SIZE];
+        Arrays.fill(bytes, NOT_MAGIC);
+        try
+        {
+            boolean refused;
+
+            Files.write(file, bytes);
+            refused = false;
+            try
+            {
+                BankSnapshot.load(file, true);
+            }
+            catch(final IOException e)
+            {
+                refused = true;
+            }
+            assertTrue(refused, "loading a file that is not a snapshot throws IOException");
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+}
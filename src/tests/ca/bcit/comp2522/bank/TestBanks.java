@@ -0,0 +1,156 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+
+/**
+ * Builds the clients, accounts and banks the tests work on. Client IDs count up from FIRST_CLIENT_ID and
+ * account numbers from FIRST_ACCOUNT, so the index given picks the same client and account every time.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+final class TestBanks
+{
+    static final int    FIRST_CLIENT_ID = 1_000_000;
+    static final int    FIRST_ACCOUNT   = 3_000_000;
+    static final int    PIN             = 1234;
+    static final double STARTING_USD    = 100;
+    static final long   STARTING_CENTS  = 10_000L;
+
+    private static final int CLOSED_EVERY   = 7;
+    private static final int DECEASED_EVERY = 5;
+    private static final int CENTS_PER_USD  = 100;
+
+    /**
+     * Prevents instantiation.
+     */
+    private TestBanks()
+    {
+    }
+
+    /**
+     * Creates a living client.
+     *
+     * @param index picks the client ID
+     * @return the client
+     */
+    static BankClient newClient(final int index)
+    {
+        return new BankClient(Name.of("Ada", "Lovelace"),
+                              Date.of(1815, 12, 10),
+                              null,
+                              Date.of(1900, 1, 1),
+                              Integer.toString(FIRST_CLIENT_ID + index));
+    }
+
+    /**
+     * Creates an open account with PIN and STARTING_USD, and its own client.
+     *
+     * @param index picks the account number and client ID
+     * @return the account
+     */
+    static BankAccount newAccount(final int index)
+    {
+        return new BankAccount(newClient(index), PIN, Integer.toString(FIRST_ACCOUNT + index), null, STARTING_USD);
+    }
+
+    /**
+     * Builds a bank of open accounts made by newAccount.
+     *
+     * @param count how many accounts to add
+     * @return the bank
+     */
+    static Bank newBank(final int count)
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < count; i++)
+        {
+            bank.addAccount(newAccount(i));
+        }
+
+        return bank;
+    }
+
+    /**
+     * Returns every account in the bank as an array, in the order they were added.
+     *
+     * @param bank the bank
+     * @return the accounts
+     */
+    static BankAccount[] accountsOf(final Bank bank)
+    {
+        return bank.getAllAccounts().toArray(new BankAccount[0]);
+    }
+
+    /**
+     * Builds a bank of accounts that each have their own client, where every DECEASED_EVERY-th client has
+     * died, every CLOSED_EVERY-th account is closed, and each balance has a different number of cents.
+     *
+     * @param count how many accounts to add
+     * @return the bank
+     */
+    static Bank newMixedBank(final int count)
+    {
+        final Bank bank;
+
+        bank = new Bank();
+        for(int i = 0; i < count; i++)
+        {
+            final BankClient client;
+
+            client = new BankClient(Name.of("Ada", "Lovelace"),
+                                    Date.of(1815, 12, 1 + i % 28),
+                                    i % DECEASED_EVERY == 0 ? Date.of(2020, 11, 27) : null,
+                                    Date.of(1900 + i % 100, 1 + i % 12, 1),
+                                    Integer.toString(FIRST_CLIENT_ID + i));
+            bank.addAccount(new BankAccount(client,
+                                            PIN,
+                                            Integer.toString(FIRST_ACCOUNT + i),
+                                            i % CLOSED_EVERY == 0 ? Date.of(2021, 6, 1) : null,
+                                            STARTING_USD + (double) (i % CENTS_PER_USD) / CENTS_PER_USD));
+        }
+
+        return bank;
+    }
+
+    /**
+     * Fails unless the two banks hold the same clients and accounts in the same order, with the same details
+     * and balances.
+     *
+     * @param expected the bank expected
+     * @param actual   the bank found
+     */
+    static void assertSameBank(final Bank expected,
+                               final Bank actual)
+    {
+        final List<BankClient>  expectedClients;
+        final List<BankClient>  actualClients;
+        final List<BankAccount> expectedAccounts;
+        final List<BankAccount> actualAccounts;
+
+        expectedClients  = expected.getAllClients();
+        actualClients    = actual.getAllClients();
+        expectedAccounts = expected.getAllAccounts();
+        actualAccounts   = actual.getAllAccounts();
+
+        assertEquals(expectedClients.size(), actualClients.size(), "client count");
+        assertEquals(expectedAccounts.size(), actualAccounts.size(), "account count");
+        for(int i = 0; i < expectedClients.size(); i++)
+        {
+            assertEquals(expectedClients.get(i).getDetails(), actualClients.get(i).getDetails(), "client " + i);
+        }
+        for(int i = 0; i < expectedAccounts.size(); i++)
+        {
+            assertEquals(expectedAccounts.get(i).getBalanceCents(),
+                         actualAccounts.get(i).getBalanceCents(),
+                         "balance of account " + i);
+            assertEquals(expectedAccounts.get(i).getDetails(), actualAccounts.get(i).getDetails(), "account " + i);
+        }
+        assertEquals(expected.getTotalBalanceCents(), actual.getTotalBalanceCents(), "total balance");
+    }
+}
@@ -0,0 +1,223 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Objects;
+
+/**
+ * Runs every test in the project without a test framework, printing one line per test,
+ * and exits with status FAILED_STATUS if any test fails so a build script can stop on it.
+ * Each test is a static method that returns normally when it passes and throws when it does not;
+ * the assertion helpers here throw AssertionError with a message saying what was expected.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class TestRunner
+{
+    static final int FAILED_STATUS = 1;
+
+    private int passed;
+    private int failed;
+
+    /**
+     * A test to run.
+     */
+    @FunctionalInterface
+    interface Test
+    {
+        /**
+         * Runs the test.
+         *
+         * @throws Exception if the test fails or cannot run
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs every test.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        final TestRunner runner;
+
+        runner = new TestRunner();
+
+        runner.run("Date epoch days and weekdays match java.time", DateTest::epochDaysAndWeekdaysMatchJavaTime);
+        runner.run("Date rejects days that do not exist", DateTest::rejectsInvalidDates);
+        runner.run("Date day arithmetic", DateTest::dayArithmetic);
+
+        runner.run("PackedIdMap packs IDs to distinct keys", PackedIdMapTest::packsToDistinctKeys);
+        runner.run("PackedIdMap rejects IDs it cannot pack", PackedIdMapTest::rejectsUnpackableIds);
+        runner.run("PackedIdMap finds every key through growth", PackedIdMapTest::findsEveryKeyThroughGrowth);
+        runner.run("PackedIdMap probes past colliding keys", PackedIdMapTest::probesPastCollidingKeys);
+        runner.run("Bank finds what was added", BankTest::findsWhatWasAdded);
+        runner.run("Bank finds nothing for unknown IDs", BankTest::unknownIdsFindNothing);
+        runner.run("Bank refuses IDs in use", BankTest::refusesTakenIds);
+
+        runner.run("TransactionJournal replay rebuilds balances once", JournalTest::replayAppliesEachRecordOnce);
+        runner.run("TransactionJournal replay skips what a snapshot holds", JournalTest::replaySkipsRecordsInSnapshot);
+        runner.run("TransactionJournal continues after reopening", JournalTest::continuesAfterReopen);
+        runner.run("TransactionJournal appends do not wait for a flush", JournalTest::appendsDoNotWaitForFlush);
+
+        runner.run("BankSnapshot round trips", SnapshotTest::roundTrips);
+        runner.run("BankSnapshot refuses other files", SnapshotTest::refusesOtherFiles);
+
+        runner.run("BankAccount skips a listener that throws", BankAccountTest::throwingListenerIsSkipped);
+        runner.run("BankAccount refuses amounts under half a cent", BankAccountTest::refusesAmountsUnderHalfACent);
+
+        runner.run("Bank transfer reports every status", TransferTest::reportsEveryStatus);
+        runner.run("Bank transfer survives listeners that throw", TransferTest::throwingListenersDoNotFailTransfer);
+        runner.run("Bank transfer returns money it cannot credit", TransferTest::refusedCreditIsReturned);
+        runner.run("Bank transfers conserve money across threads", TransferTest::conservesMoneyAcrossThreads);
+
+        runner.run("BalanceFeed delivers every change in order", BalanceFeedTest::deliversEveryChangeInOrder);
+        runner.run("BalanceFeed drops what a full queue cannot hold", BalanceFeedTest::fullQueueDrops);
+        runner.run("BalanceFeed holds queued changes after close until asked", BalanceFeedTest::closeWaitsForDemand);
+        runner.run("BalanceFeed reports a rejected delivery", BalanceFeedTest::rejectedDeliveryIsAnError);
+
+        runner.run("ColumnarAccountStore scans match the accounts", ColumnarAccountStoreTest::scansMatchAccounts);
+        runner.run("ColumnarAccountStore balances match after concurrent changes",
+                   ColumnarAccountStoreTest::balancesMatchAfterConcurrentChanges);
+        runner.run("ColumnarAccountStore sums refuse to overflow", ColumnarAccountStoreTest::sumsRefuseToOverflow);
+
+
+        runner.run("FeedCursor reads every kind of field", FeedCursorTest::readsEveryKindOfField);
+        runner.run("FeedCursor reuses repeated names", FeedCursorTest::reusesRepeatedNames);
+        runner.run("FeedCursor reports the first problem on a line", FeedCursorTest::reportsFirstProblem);
+        runner.run("FeedIngestor loads feeds and reports bad lines", FeedIngestorTest::loadsFeedsAndReportsBadLines);
+        runner.run("FeedIngestor loads feeds of many batches", FeedIngestorTest::loadsFeedsOfManyBatches);
+        runner.run("FeedIngestor stops its workers when interrupted", FeedIngestorTest::interruptedLoadStopsWorkers);
+
+        runner.run("BankServer answers each request", BankServerTest::answersEachRequest);
+        runner.run("BankServer deposit replies carry their own balance", BankServerTest::depositRepliesCarryOwnBalance);
+        runner.run("BankServer keeps the connection after a failing request",
+                   BankServerTest::failingRequestKeepsConnection);
+
+        runner.run("AccountMetrics estimates counts from its sample", AccountMetricsTest::estimatesCountsFromSamples);
+        runner.run("AccountMetrics counts batch items", AccountMetricsTest::countsBatchItems);
+        runner.run("AccountMetrics counts nothing while off or after a reset",
+                   AccountMetricsTest::countsNothingWhileOffOrAfterReset);
+        runner.run("LatencyHistogram buckets hold every value", AccountMetricsTest::histogramBucketsHoldEveryValue);
+        runner.run("LatencyHistogram percentiles", AccountMetricsTest::histogramPercentiles);
+
+        runner.run("BkTree distance counts edits", BkTreeTest::distanceCountsEdits);
+        runner.run("BkTree keeps each string once", BkTreeTest::keepsEachStringOnce);
+        runner.run("BkTree search matches comparing with every string", BkTreeTest::searchMatchesEveryComparison);
+        runner.run("NameIndex finds clients by the start of a name", NameIndexTest::findsByPrefix);
+        runner.run("NameIndex finds clients by a misspelled name", NameIndexTest::findsSimilarNames);
+        runner.run("NameIndex finds clients added concurrently", NameIndexTest::findsClientsAddedConcurrently);
+
+        runner.run("AccrualEngine accrues each open account once", AccrualTest::accruesEachOpenAccountOnce);
+        runner.run("AccrualEngine resumes a cancelled run", AccrualTest::resumesCancelledRun);
+        runner.run("AccrualCheckpoint refuses another unfinished run", AccrualTest::refusesOtherUnfinishedRun);
+        runner.run("AccrualEngine interest rounds down and fees stop at zero",
+                   AccrualTest::interestRoundsDownAndFeesStopAtZero);
+
+        System.out.printf("%d passed, %d failed%n", runner.passed, runner.failed);
+        if(runner.failed > 0)
+        {
+            System.exit(FAILED_STATUS);
+        }
+    }
+
+    /**
+     * Runs one test and records whether it passed.
+     *
+     * @param name the name to report the test under
+     * @param test the test
+     */
+    private void run(final String name,
+                     final Test test)
+    {
+        try
+        {
+            test.run();
+            passed++;
+            System.out.println("PASS " + name);
+        }
+        catch(final Exception | AssertionError e)
+        {
+            failed++;
+            System.out.println("FAIL " + name + ": " + e);
+            e.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * Fails unless the condition holds.
+     *
+     * @param condition the condition
+     * @param message   what was expected
+     */
+    static void assertTrue(final boolean condition,
+                           final String message)
+    {
+        if(!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fails unless the two values are equal.
+     *
+     * @param expected the expected value
+     * @param actual   the value found
+     * @param what     what the value is
+     */
+    static void assertEquals(final Object expected,
+                             final Object actual,
+                             final String what)
+    {
+        if(!Objects.equals(expected, actual))
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Fails unless the two longs are equal. Kept apart from assertEquals so numbers are never boxed in loops.
+     *
+     * @param expected the expected value
+     * @param actual   the value found
+     * @param what     what the value is
+     */
+    static void assertEquals(final long expected,
+                             final long actual,
+                             final String what)
+    {
+        if(expected != actual)
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Fails unless the action throws an exception of the given type.
+     *
+     * @param expected the exception type expected
+     * @param action   the action
+     * @param what     what the action is
+     */
+    static void assertThrows(final Class<? extends Exception> expected,
+                             final Runnable action,
+                             final String what)
+    {
+        try
+        {
+            action.run();
+        }
+        catch(final Exception e)
+        {
+            if(expected.isInstance(e))
+            {
+                return;
+            }
+            throw new AssertionError(what + ": expected " + expected.getSimpleName() + " but got " + e, e);
+        }
+
+        throw new AssertionError(what + ": expected " + expected.getSimpleName() + " but nothing was thrown");
+    }
+}
@@ -0,0 +1,223 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ca.bcit.comp2522.bank.TestRunner.assertEquals;
+import static ca.bcit.comp2522.bank.TestRunner.assertTrue;
+
+/**
+ * Tests Bank.transfer: each refusal leaves both balances alone, a listener that throws neither loses the
+ * money nor fails a transfer that went through, and concurrent transfers never lose or make money, as seen
+ * both by getTotalBalanceCents while they run and by the final balances.
+ *
+ * @author Mohammad Sadeghi
+ * @author Ryan Chu
+ * @version 1.0
+ */
+class TransferTest
+{
+    private static final int    ACCOUNTS             = 64;
+    private static final int    THREADS              = 8;
+    private static final int    TRANSFERS_PER_THREAD = 20_000;
+    private static final int    MAX_TRANSFER_CENTS   = 5_000;
+    private static final int    WRONG_PIN            = 4321;
+    private static final double TRANSFER_USD         = 25.5;
+    private static final long   TRANSFER_CENTS       = 2_550L;
+    private static final double TOO_MUCH_USD         = 1_000;
+    private static final long   FULL_CENTS           = Long.MAX_VALUE - TestBanks.STARTING_CENTS;
+
+    /**
+     * Checks the status of a transfer that goes through and of each kind that is refused,
+     * and that only the one that goes through moves money.
+     */
+    static void reportsEveryStatus()
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+        final BankAccount   closed;
+
+        bank     = TestBanks.newBank(2);
+        accounts = TestBanks.accountsOf(bank);
+        closed   = new BankAccount(TestBanks.newClient(ACCOUNTS),
+                                   TestBanks.PIN,
+                                   Integer.toString(TestBanks.FIRST_ACCOUNT + ACCOUNTS),
+                                   Date.of(2020, 1, 1),
+                                   TestBanks.STARTING_USD);
+        bank.addAccount(closed);
+
+        assertEquals(TransferStatus.OK,
+                     transfer(bank, accounts[0], accounts[1], TRANSFER_USD, TestBanks.PIN),
+                     "transfer");
+        assertEquals(TestBanks.STARTING_CENTS - TRANSFER_CENTS, accounts[0].getBalanceCents(), "balance moved from");
+        assertEquals(TestBanks.STARTING_CENTS + TRANSFER_CENTS, accounts[1].getBalanceCents(), "balance moved to");
+
+        assertEquals(TransferStatus.BAD_PIN,
+                     transfer(bank, accounts[0], accounts[1], TRANSFER_USD, WRONG_PIN),
+                     "transfer with the wrong pin");
+        assertEquals(TransferStatus.INSUFFICIENT_FUNDS,
+                     transfer(bank, accounts[0], accounts[1], TOO_MUCH_USD, TestBanks.PIN),
+                     "transfer of more than the balance");
+        assertEquals(TransferStatus.SAME_ACCOUNT,
+                     transfer(bank, accounts[0], accounts[0], TRANSFER_USD, TestBanks.PIN),
+                     "transfer to the same account");
+        assertEquals(TransferStatus.CLOSED,
+                     transfer(bank, accounts[0], closed, TRANSFER_USD, TestBanks.PIN),
+                     "transfer to a closed account");
+        assertEquals(TransferStatus.NO_SUCH_ACCOUNT,
+                     bank.transfer(accounts[0].getAccountNumber(), "9", TRANSFER_USD, TestBanks.PIN),
+                     "transfer to an unknown account");
+
+        assertEquals(TestBanks.STARTING_CENTS - TRANSFER_CENTS,
+                     accounts[0].getBalanceCents(),
+                     "balance moved from, after refusals");
+        assertEquals(TestBanks.STARTING_CENTS + TRANSFER_CENTS,
+                     accounts[1].getBalanceCents(),
+                     "balance moved to, after refusals");
+        assertEquals(TestBanks.STARTING_CENTS, closed.getBalanceCents(), "closed account balance");
+    }
+
+    /**
+     * Makes listeners on both accounts throw, and checks a transfer still moves the money and reports OK.
+     */
+    static void throwingListenersDoNotFailTransfer()
+    {
+        final Bank            bank;
+        final BankAccount[]   accounts;
+        final BalanceListener throwing;
+
+        bank     = TestBanks.newBank(2);
+        accounts = TestBanks.accountsOf(bank);
+        throwing = (account, type, amountCents, balanceCents) ->
+        {
+            throw new IllegalStateException("listener failed");
+        };
+        accounts[0].addListener(throwing);
+        accounts[1].addListener(throwing);
+
+        assertEquals(TransferStatus.OK,
+                     transfer(bank, accounts[0], accounts[1], TRANSFER_USD, TestBanks.PIN),
+                     "transfer between accounts whose listeners throw");
+        assertEquals(TestBanks.STARTING_CENTS - TRANSFER_CENTS, accounts[0].getBalanceCents(), "balance moved from");
+        assertEquals(TestBanks.STARTING_CENTS + TRANSFER_CENTS, accounts[1].getBalanceCents(), "balance moved to");
+    }
+
+    /**
+     * Fills the account being paid so the credit would overflow, and checks the transfer is refused with
+     * BALANCE_TOO_LARGE and the money is back where it came from.
+     */
+    static void refusedCreditIsReturned()
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+
+        bank     = TestBanks.newBank(2);
+        accounts = TestBanks.accountsOf(bank);
+        accounts[1].depositCents(FULL_CENTS);
+
+        assertEquals(TransferStatus.BALANCE_TOO_LARGE,
+                     transfer(bank, accounts[0], accounts[1], TRANSFER_USD, TestBanks.PIN),
+                     "transfer into a full account");
+        assertEquals(TestBanks.STARTING_CENTS, accounts[0].getBalanceCents(), "balance returned");
+        assertEquals(Long.MAX_VALUE, accounts[1].getBalanceCents(), "full balance");
+    }
+
+    /**
+     * Runs random transfers on THREADS threads while the test thread keeps summing every balance, and checks
+     * the total never changes and no balance goes negative.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    static void conservesMoneyAcrossThreads() throws InterruptedException
+    {
+        final Bank          bank;
+        final BankAccount[] accounts;
+        final long          expected;
+        final Thread[]      workers;
+        final AtomicLong    moved;
+        boolean             running;
+
+        bank     = TestBanks.newBank(ACCOUNTS);
+        accounts = TestBanks.accountsOf(bank);
+        expected = bank.getTotalBalanceCents();
+        workers  = new Thread[THREADS];
+        moved    = new AtomicLong();
+        for(int t = 0; t < THREADS; t++)
+        {
+            workers[t] = new Thread(() -> moved.addAndGet(transferRandomly(bank, accounts)));
+            workers[t].start();
+        }
+
+        running = true;
+        while(running)
+        {
+            assertEquals(expected, bank.getTotalBalanceCents(), "total balance during transfers");
+            running = false;
+            for(final Thread worker : workers)
+            {
+                running |= worker.isAlive();
+            }
+        }
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        assertEquals(expected, bank.getTotalBalanceCents(), "total balance after transfers");
+        assertTrue(moved.get() > 0, "some transfers went through");
+        for(final BankAccount account : accounts)
+        {
+            assertTrue(account.getBalanceCents() >= 0, "balance of " + account.getAccountNumber() + " is not negative");
+        }
+    }
+
+    /**
+     * Makes TRANSFERS_PER_THREAD transfers between random pairs of accounts.
+     *
+     * @param bank     the bank
+     * @param accounts the accounts
+     * @return how many of the transfers went through
+     */
+    private static long transferRandomly(final Bank bank,
+                                         final BankAccount[] accounts)
+    {
+        final ThreadLocalRandom random;
+        long                    moved;
+
+        random = ThreadLocalRandom.current();
+        moved  = 0;
+        for(int i = 0; i < TRANSFERS_PER_THREAD; i++)
+        {
+            final BankAccount from;
+            final BankAccount to;
+
+            from = accounts[random.nextInt(accounts.length)];
+            to   = accounts[random.nextInt(accounts.length)];
+            if(bank.transferCents(from, to, 1 + random.nextInt(MAX_TRANSFER_CENTS), TestBanks.PIN) == TransferStatus.OK)
+            {
+                moved++;
+            }
+        }
+
+        return moved;
+    }
+
+    /**
+     * Transfers between two accounts by account number.
+     *
+     * @param bank      the bank
+     * @param from      the account to take the money from
+     * @param to        the account to put the money in
+     * @param amountUsd the amount in USD
+     * @param pin       the pin given
+     * @return the transfer's status
+     */
+    private static TransferStatus transfer(final Bank bank,
+                                           final BankAccount from,
+                                           final BankAccount to,
+                                           final double amountUsd,
+                                           final int pin)
+    {
+        return bank.transfer(from.getAccountNumber(), to.getAccountNumber(), amountUsd, pin);
+    }
+}